@@ -0,0 +1,630 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+
+/**
+ * encodes ec reports into a compact binary format and decodes them back.<br/>
+ * a message starts with the magic bytes "ALEB" and the version of the format. the numbers
+ * are unsigned variable length integers (7 bits per byte, least significant first), the
+ * strings and lists are preceded by their length (plus one, zero standing for null). the
+ * epcs are packed:
+ * <ul>
+ * <li>raw hex uris (<code>urn:epc:raw:96.x3074...</code>) as the length and the hex digits, two per byte.</li>
+ * <li>raw decimal uris (<code>urn:epc:raw:96.1234...</code>) as the length and the number in binary.</li>
+ * <li>the other uris as the number of leading characters shared with the previous uri of the same
+ * kind (epc, tag, ...) and the remaining characters.</li>
+ * </ul>
+ * the messages are self delimiting: a stream holding several messages is decoded by calling
+ * {@link #decode(InputStream)} once per message.<br/>
+ * the format carries the content the ALE creates: reports, groups, members, counts, field lists
+ * and statistics. an included ECSpec and the extension elements of other schemas are not encoded.
+ */
+public final class ECReportsBinaryCodec {
+
+	/** the magic bytes starting a message. */
+	private static final byte[] MAGIC = new byte[] { 'A', 'L', 'E', 'B' };
+
+	/** the version of the format. */
+	public static final int VERSION = 1;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** the prefix of the raw uris. */
+	private static final String RAW_PREFIX = "urn:epc:raw:";
+
+	/** kinds of packed epcs. */
+	private static final int EPC_NULL = 0;
+	private static final int EPC_RAW_HEX = 1;
+	private static final int EPC_RAW_DECIMAL = 2;
+	private static final int EPC_URI = 3;
+
+	/** the epc kinds of a member, each kind shares its prefixes. */
+	private static final int EPC = 0;
+	private static final int TAG = 1;
+	private static final int RAW_HEX = 2;
+	private static final int RAW_DECIMAL = 3;
+
+	/** flags of a group. */
+	private static final int GROUP_LIST = 1;
+	private static final int GROUP_COUNT = 2;
+
+	/** flags of a member. */
+	private static final int MEMBER_EPC = 1;
+	private static final int MEMBER_TAG = 2;
+	private static final int MEMBER_RAW_HEX = 4;
+	private static final int MEMBER_RAW_DECIMAL = 8;
+	private static final int MEMBER_EXTENSION = 16;
+
+	/** flags of a member extension. */
+	private static final int EXTENSION_FIELD_LIST = 1;
+	private static final int EXTENSION_STATS = 2;
+
+	/** kinds of statistics. */
+	private static final int STAT = 0;
+	private static final int STAT_TIMESTAMPS = 1;
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * private constructor, use {@link #encode(ECReports, OutputStream)} and {@link #decode(InputStream)}.
+	 */
+	private ECReportsBinaryCodec() {
+	}
+
+	/**
+	 * encodes ec reports into a stream.
+	 * @param reports the reports.
+	 * @param stream the stream.
+	 * @throws IOException if the stream could not be written.
+	 */
+	public static void encode(ECReports reports, OutputStream stream) throws IOException {
+		Encoder encoder = new Encoder(stream);
+		encoder.writeReports(reports);
+		encoder.flush();
+	}
+
+	/**
+	 * decodes the next message of a stream. the stream is read up to the end of the message.
+	 * @param stream the stream (preferably buffered, it is read byte per byte).
+	 * @return the reports.
+	 * @throws IOException if the stream could not be read or does not hold a message.
+	 */
+	public static ECReports decode(InputStream stream) throws IOException {
+		return new Decoder(stream).readReports();
+	}
+
+	/**
+	 * writes a message, buffering the bytes.
+	 */
+	private static final class Encoder {
+
+		private final OutputStream stream;
+		private final byte[] buffer = new byte[8192];
+		private int position;
+
+		/** the previous uri of each epc kind. */
+		private final String[] previous = new String[4];
+
+		private Encoder(OutputStream stream) {
+			this.stream = stream;
+		}
+
+		private void writeReports(ECReports reports) throws IOException {
+			for (byte b : MAGIC) {
+				writeByte(b);
+			}
+			writeByte(VERSION);
+			writeString(reports.getSpecName());
+			writeString(print(reports.getDate()));
+			writeString(reports.getALEID());
+			writeNumber(reports.getTotalMilliseconds());
+			writeString(reports.getInitiationCondition());
+			writeString(reports.getInitiationTrigger());
+			writeString(reports.getTerminationCondition());
+			writeString(reports.getTerminationTrigger());
+			writeString(reports.getSchemaURL());
+			writeString((null == reports.getSchemaVersion()) ? null : reports.getSchemaVersion().toPlainString());
+			writeString(print(reports.getCreationDate()));
+			if (null == reports.getReports()) {
+				writeNumber(0);
+				return;
+			}
+			List<ECReport> list = reports.getReports().getReport();
+			writeNumber(list.size() + 1);
+			for (ECReport report : list) {
+				writeString(report.getReportName());
+				writeNumber(report.getGroup().size());
+				for (ECReportGroup group : report.getGroup()) {
+					writeGroup(group);
+				}
+			}
+		}
+
+		private void writeGroup(ECReportGroup group) throws IOException {
+			writeString(group.getGroupName());
+			ECReportGroupList groupList = group.getGroupList();
+			ECReportGroupCount groupCount = group.getGroupCount();
+			writeByte(((null == groupList) ? 0 : GROUP_LIST) | ((null == groupCount) ? 0 : GROUP_COUNT));
+			if (null != groupList) {
+				writeNumber(groupList.getMember().size());
+				for (ECReportGroupListMember member : groupList.getMember()) {
+					writeMember(member);
+				}
+			}
+			if (null != groupCount) {
+				writeNumber(groupCount.getCount());
+			}
+		}
+
+		private void writeMember(ECReportGroupListMember member) throws IOException {
+			int flags = 0;
+			flags |= (null == member.getEpc()) ? 0 : MEMBER_EPC;
+			flags |= (null == member.getTag()) ? 0 : MEMBER_TAG;
+			flags |= (null == member.getRawHex()) ? 0 : MEMBER_RAW_HEX;
+			flags |= (null == member.getRawDecimal()) ? 0 : MEMBER_RAW_DECIMAL;
+			flags |= (null == member.getExtension()) ? 0 : MEMBER_EXTENSION;
+			writeByte(flags);
+			writeEPC(EPC, member.getEpc());
+			writeEPC(TAG, member.getTag());
+			writeEPC(RAW_HEX, member.getRawHex());
+			writeEPC(RAW_DECIMAL, member.getRawDecimal());
+			if (null != member.getExtension()) {
+				writeExtension(member.getExtension());
+			}
+		}
+
+		private void writeExtension(ECReportGroupListMemberExtension extension) throws IOException {
+			writeByte(((null == extension.getFieldList()) ? 0 : EXTENSION_FIELD_LIST)
+					| ((null == extension.getStats()) ? 0 : EXTENSION_STATS));
+			if (null != extension.getFieldList()) {
+				List<ECReportMemberField> fields = extension.getFieldList().getField();
+				writeNumber(fields.size());
+				for (ECReportMemberField field : fields) {
+					writeString(field.getName());
+					writeString(field.getValue());
+				}
+			}
+			if (null != extension.getStats()) {
+				List<ECTagStat> stats = extension.getStats().getStat();
+				writeNumber(stats.size());
+				for (ECTagStat stat : stats) {
+					writeStat(stat);
+				}
+			}
+		}
+
+		private void writeStat(ECTagStat stat) throws IOException {
+			boolean timestamps = stat instanceof ECTagTimestampStat;
+			writeByte(timestamps ? STAT_TIMESTAMPS : STAT);
+			writeString(stat.getProfile());
+			if (null == stat.getStatBlocks()) {
+				writeNumber(0);
+			} else {
+				List<ECReaderStat> statBlocks = stat.getStatBlocks().getStatBlock();
+				writeNumber(statBlocks.size() + 1);
+				for (ECReaderStat statBlock : statBlocks) {
+					writeString(statBlock.getReaderName());
+					writeNumber((null == statBlock.getSightings()) ? 0 : statBlock.getSightings().getSighting().size() + 1);
+				}
+			}
+			if (timestamps) {
+				writeString(print(((ECTagTimestampStat) stat).getFirstSightingTime()));
+				writeString(print(((ECTagTimestampStat) stat).getLastSightingTime()));
+			}
+		}
+
+		private void writeEPC(int kind, EPC epc) throws IOException {
+			if (null == epc) {
+				return;
+			}
+			String value = epc.getValue();
+			if (null == value) {
+				writeByte(EPC_NULL);
+			} else if (!writeRaw(value)) {
+				writeByte(EPC_URI);
+				String last = previous[kind];
+				int shared = 0;
+				if (null != last) {
+					int max = Math.min(last.length(), value.length());
+					while (shared < max && last.charAt(shared) == value.charAt(shared)) {
+						shared++;
+					}
+				}
+				writeNumber(shared);
+				writeString(value.substring(shared));
+				previous[kind] = value;
+			}
+		}
+
+		/**
+		 * packs a raw uri whose text can be restored as is.
+		 * @return false if the value is not a raw uri in the canonical form.
+		 */
+		private boolean writeRaw(String value) throws IOException {
+			if (!value.startsWith(RAW_PREFIX)) {
+				return false;
+			}
+			int dot = value.indexOf('.', RAW_PREFIX.length());
+			if (dot < 0 || dot == value.length() - 1) {
+				return false;
+			}
+			String length = value.substring(RAW_PREFIX.length(), dot);
+			if (length.length() == 0 || length.length() > 9 || length.charAt(0) == '0' || !isDigits(length, 0)) {
+				return false;
+			}
+			if (value.charAt(dot + 1) == 'x') {
+				int start = dot + 2;
+				int digits = value.length() - start;
+				if (digits == 0) {
+					return false;
+				}
+				for (int i = start; i < value.length(); i++) {
+					char c = value.charAt(i);
+					if ((c < '0' || c > '9') && (c < 'A' || c > 'F')) {
+						return false;
+					}
+				}
+				writeByte(EPC_RAW_HEX);
+				writeNumber(Integer.parseInt(length));
+				writeNumber(digits);
+				for (int i = start; i < value.length(); i += 2) {
+					int high = Character.digit(value.charAt(i), 16);
+					int low = (i + 1 < value.length()) ? Character.digit(value.charAt(i + 1), 16) : 0;
+					writeByte((high << 4) | low);
+				}
+				return true;
+			}
+			String decimal = value.substring(dot + 1);
+			if (!isDigits(decimal, 0) || (decimal.length() > 1 && decimal.charAt(0) == '0')) {
+				return false;
+			}
+			byte[] bytes = new BigInteger(decimal).toByteArray();
+			writeByte(EPC_RAW_DECIMAL);
+			writeNumber(Integer.parseInt(length));
+			writeNumber(bytes.length);
+			for (byte b : bytes) {
+				writeByte(b);
+			}
+			return true;
+		}
+
+		private void writeString(String value) throws IOException {
+			if (null == value) {
+				writeNumber(0);
+				return;
+			}
+			byte[] bytes = value.getBytes(UTF8);
+			writeNumber(bytes.length + 1);
+			for (byte b : bytes) {
+				writeByte(b);
+			}
+		}
+
+		private void writeNumber(long value) throws IOException {
+			if (value < 0) {
+				throw new IOException("negative number: " + value);
+			}
+			while (value > 0x7F) {
+				writeByte((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			writeByte((int) value);
+		}
+
+		private void writeByte(int value) throws IOException {
+			if (position == buffer.length) {
+				flush();
+			}
+			buffer[position++] = (byte) value;
+		}
+
+		private void flush() throws IOException {
+			stream.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/**
+	 * reads a message.
+	 */
+	private static final class Decoder {
+
+		private final InputStream stream;
+
+		/** the previous uri of each epc kind. */
+		private final String[] previous = new String[4];
+
+		private DatatypeFactory datatypeFactory;
+
+		private Decoder(InputStream stream) {
+			this.stream = stream;
+		}
+
+		private ECReports readReports() throws IOException {
+			for (byte b : MAGIC) {
+				if (readByte() != b) {
+					throw new IOException("not a binary ec reports message");
+				}
+			}
+			int version = readByte();
+			if (version != VERSION) {
+				throw new IOException("unsupported version of the binary ec reports: " + version);
+			}
+			ECReports reports = new ECReports();
+			reports.setSpecName(readString());
+			reports.setDate(parse(readString()));
+			reports.setALEID(readString());
+			reports.setTotalMilliseconds(readNumber());
+			reports.setInitiationCondition(readString());
+			reports.setInitiationTrigger(readString());
+			reports.setTerminationCondition(readString());
+			reports.setTerminationTrigger(readString());
+			reports.setSchemaURL(readString());
+			String schemaVersion = readString();
+			reports.setSchemaVersion((null == schemaVersion) ? null : new BigDecimal(schemaVersion));
+			reports.setCreationDate(parse(readString()));
+			int count = readCount();
+			if (count == 0) {
+				return reports;
+			}
+			reports.setReports(new ECReports.Reports());
+			for (int i = 1; i < count; i++) {
+				ECReport report = new ECReport();
+				report.setReportName(readString());
+				int groups = readCount();
+				for (int j = 0; j < groups; j++) {
+					report.getGroup().add(readGroup());
+				}
+				reports.getReports().getReport().add(report);
+			}
+			return reports;
+		}
+
+		private ECReportGroup readGroup() throws IOException {
+			ECReportGroup group = new ECReportGroup();
+			group.setGroupName(readString());
+			int flags = readByte();
+			if ((flags & GROUP_LIST) != 0) {
+				ECReportGroupList groupList = new ECReportGroupList();
+				int members = readCount();
+				List<ECReportGroupListMember> list = groupList.getMember();
+				for (int i = 0; i < members; i++) {
+					list.add(readMember());
+				}
+				group.setGroupList(groupList);
+			}
+			if ((flags & GROUP_COUNT) != 0) {
+				ECReportGroupCount groupCount = new ECReportGroupCount();
+				groupCount.setCount(readCount());
+				group.setGroupCount(groupCount);
+			}
+			return group;
+		}
+
+		private ECReportGroupListMember readMember() throws IOException {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			int flags = readByte();
+			if ((flags & MEMBER_EPC) != 0) {
+				member.setEpc(readEPC(EPC));
+			}
+			if ((flags & MEMBER_TAG) != 0) {
+				member.setTag(readEPC(TAG));
+			}
+			if ((flags & MEMBER_RAW_HEX) != 0) {
+				member.setRawHex(readEPC(RAW_HEX));
+			}
+			if ((flags & MEMBER_RAW_DECIMAL) != 0) {
+				member.setRawDecimal(readEPC(RAW_DECIMAL));
+			}
+			if ((flags & MEMBER_EXTENSION) != 0) {
+				member.setExtension(readExtension());
+			}
+			return member;
+		}
+
+		private ECReportGroupListMemberExtension readExtension() throws IOException {
+			ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+			int flags = readByte();
+			if ((flags & EXTENSION_FIELD_LIST) != 0) {
+				extension.setFieldList(new ECReportGroupListMemberExtension.FieldList());
+				int fields = readCount();
+				for (int i = 0; i < fields; i++) {
+					ECReportMemberField field = new ECReportMemberField();
+					field.setName(readString());
+					field.setValue(readString());
+					extension.getFieldList().getField().add(field);
+				}
+			}
+			if ((flags & EXTENSION_STATS) != 0) {
+				extension.setStats(new ECReportGroupListMemberExtension.Stats());
+				int stats = readCount();
+				for (int i = 0; i < stats; i++) {
+					extension.getStats().getStat().add(readStat());
+				}
+			}
+			return extension;
+		}
+
+		private ECTagStat readStat() throws IOException {
+			boolean timestamps = readByte() == STAT_TIMESTAMPS;
+			ECTagStat stat = timestamps ? new ECTagTimestampStat() : new ECTagStat();
+			stat.setProfile(readString());
+			int statBlocks = readCount();
+			if (statBlocks > 0) {
+				stat.setStatBlocks(new ECTagStat.StatBlocks());
+				for (int i = 1; i < statBlocks; i++) {
+					ECReaderStat statBlock = new ECReaderStat();
+					statBlock.setReaderName(readString());
+					int sightings = readCount();
+					if (sightings > 0) {
+						statBlock.setSightings(new ECReaderStat.Sightings());
+						for (int j = 1; j < sightings; j++) {
+							statBlock.getSightings().getSighting().add(new ECSightingStat());
+						}
+					}
+					stat.getStatBlocks().getStatBlock().add(statBlock);
+				}
+			}
+			if (timestamps) {
+				((ECTagTimestampStat) stat).setFirstSightingTime(parse(readString()));
+				((ECTagTimestampStat) stat).setLastSightingTime(parse(readString()));
+			}
+			return stat;
+		}
+
+		private EPC readEPC(int kind) throws IOException {
+			EPC epc = new EPC();
+			int packing = readByte();
+			if (packing == EPC_RAW_HEX) {
+				int length = readCount();
+				int digits = readCount();
+				StringBuilder value = new StringBuilder(RAW_PREFIX.length() + 12 + digits);
+				value.append(RAW_PREFIX).append(length).append(".x");
+				for (int i = 0; i < digits; i += 2) {
+					int b = readByte();
+					value.append(HEX[b >> 4]);
+					if (i + 1 < digits) {
+						value.append(HEX[b & 0x0F]);
+					}
+				}
+				epc.setValue(value.toString());
+			} else if (packing == EPC_RAW_DECIMAL) {
+				int length = readCount();
+				byte[] bytes = new byte[readCount()];
+				for (int i = 0; i < bytes.length; i++) {
+					bytes[i] = (byte) readByte();
+				}
+				epc.setValue(RAW_PREFIX + length + "." + new BigInteger(bytes).toString());
+			} else if (packing == EPC_URI) {
+				int shared = readCount();
+				String suffix = readString();
+				String last = previous[kind];
+				if (shared > 0 && (null == last || shared > last.length())) {
+					throw new IOException("invalid epc prefix");
+				}
+				String value = (shared == 0) ? suffix : last.substring(0, shared) + suffix;
+				previous[kind] = value;
+				epc.setValue(value);
+			} else if (packing != EPC_NULL) {
+				throw new IOException("invalid epc packing: " + packing);
+			}
+			return epc;
+		}
+
+		private String readString() throws IOException {
+			int length = readCount();
+			if (length == 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length - 1];
+			int read = 0;
+			while (read < bytes.length) {
+				int count = stream.read(bytes, read, bytes.length - read);
+				if (count < 0) {
+					throw new EOFException();
+				}
+				read += count;
+			}
+			return new String(bytes, UTF8);
+		}
+
+		private int readCount() throws IOException {
+			long value = readNumber();
+			if (value > Integer.MAX_VALUE) {
+				throw new IOException("invalid count: " + value);
+			}
+			return (int) value;
+		}
+
+		private long readNumber() throws IOException {
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				int b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("invalid number");
+		}
+
+		private int readByte() throws IOException {
+			int b = stream.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			return b;
+		}
+
+		private XMLGregorianCalendar parse(String value) throws IOException {
+			if (null == value) {
+				return null;
+			}
+			try {
+				if (null == datatypeFactory) {
+					datatypeFactory = DatatypeFactory.newInstance();
+				}
+				return datatypeFactory.newXMLGregorianCalendar(value);
+			} catch (DatatypeConfigurationException e) {
+				throw new IOException("could not parse the date " + value, e);
+			}
+		}
+	}
+
+	private static boolean isDigits(String value, int start) {
+		for (int i = start; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String print(XMLGregorianCalendar calendar) {
+		return (null == calendar) ? null : calendar.toXMLFormat();
+	}
+}
@@ -0,0 +1,751 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+
+/**
+ * encodes ec reports into json and decodes them back. the json mirrors the xml:
+ * <pre>
+ * {"specName":"spec","date":"...","ALEID":"...","totalMilliseconds":1000,...,
+ *  "reports":[{"reportName":"report","groups":[{"groupName":null,
+ *    "groupList":[{"epc":"urn:epc:id:sgtin:...","rawHex":"urn:epc:raw:96.x...",
+ *      "extension":{"fieldList":[{"name":"...","value":"..."}],
+ *                   "stats":[{"profile":"...","timestamps":true,"statBlocks":[{"readerName":"...","sightings":1}],
+ *                             "firstSightingTime":"...","lastSightingTime":"..."}]}}],
+ *    "groupCount":1}]}]}
+ * </pre>
+ * the absent values are left out, the decoder skips the members it does not know. a message
+ * is a single json object, written on a single line.<br/>
+ * as the binary format, the json carries the content the ALE creates: an included ECSpec and
+ * the extension elements of other schemas are not encoded.
+ */
+public final class ECReportsJsonCodec {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * private constructor, use {@link #encode(ECReports, OutputStream)} and {@link #decode(InputStream)}.
+	 */
+	private ECReportsJsonCodec() {
+	}
+
+	/**
+	 * encodes ec reports into a stream as UTF-8 json.
+	 * @param reports the reports.
+	 * @param stream the stream.
+	 * @throws IOException if the stream could not be written.
+	 */
+	public static void encode(ECReports reports, OutputStream stream) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(stream, UTF8), 8192);
+		new Encoder(writer).writeReports(reports);
+		writer.flush();
+	}
+
+	/**
+	 * decodes the next json object of a UTF-8 stream.
+	 * @param stream the stream.
+	 * @return the reports.
+	 * @throws IOException if the stream could not be read or does not hold reports.
+	 */
+	public static ECReports decode(InputStream stream) throws IOException {
+		return new Decoder(new InputStreamReader(stream, UTF8)).readReports();
+	}
+
+	/**
+	 * writes the json of the reports.
+	 */
+	private static final class Encoder {
+
+		private final Writer writer;
+
+		/** whether the next member of the current object or array is the first one. */
+		private boolean first;
+
+		private Encoder(Writer writer) {
+			this.writer = writer;
+		}
+
+		private void writeReports(ECReports reports) throws IOException {
+			startObject();
+			writeString("specName", reports.getSpecName());
+			writeString("date", print(reports.getDate()));
+			writeString("ALEID", reports.getALEID());
+			writeName("totalMilliseconds");
+			writer.write(Long.toString(reports.getTotalMilliseconds()));
+			writeString("initiationCondition", reports.getInitiationCondition());
+			writeString("initiationTrigger", reports.getInitiationTrigger());
+			writeString("terminationCondition", reports.getTerminationCondition());
+			writeString("terminationTrigger", reports.getTerminationTrigger());
+			writeString("schemaURL", reports.getSchemaURL());
+			writeString("schemaVersion", (null == reports.getSchemaVersion()) ? null : reports.getSchemaVersion().toPlainString());
+			writeString("creationDate", print(reports.getCreationDate()));
+			if (null != reports.getReports()) {
+				writeName("reports");
+				startArray();
+				for (ECReport report : reports.getReports().getReport()) {
+					separate();
+					startObject();
+					writeString("reportName", report.getReportName());
+					writeName("groups");
+					startArray();
+					for (ECReportGroup group : report.getGroup()) {
+						separate();
+						writeGroup(group);
+					}
+					endArray();
+					endObject();
+				}
+				endArray();
+			}
+			endObject();
+		}
+
+		private void writeGroup(ECReportGroup group) throws IOException {
+			startObject();
+			writeString("groupName", group.getGroupName());
+			if (null != group.getGroupList()) {
+				writeName("groupList");
+				startArray();
+				for (ECReportGroupListMember member : group.getGroupList().getMember()) {
+					separate();
+					writeMember(member);
+				}
+				endArray();
+			}
+			if (null != group.getGroupCount()) {
+				writeName("groupCount");
+				writer.write(Integer.toString(group.getGroupCount().getCount()));
+			}
+			endObject();
+		}
+
+		private void writeMember(ECReportGroupListMember member) throws IOException {
+			startObject();
+			writeEPC("epc", member.getEpc());
+			writeEPC("tag", member.getTag());
+			writeEPC("rawHex", member.getRawHex());
+			writeEPC("rawDecimal", member.getRawDecimal());
+			ECReportGroupListMemberExtension extension = member.getExtension();
+			if (null != extension) {
+				writeName("extension");
+				startObject();
+				if (null != extension.getFieldList()) {
+					writeName("fieldList");
+					startArray();
+					for (ECReportMemberField field : extension.getFieldList().getField()) {
+						separate();
+						startObject();
+						writeString("name", field.getName());
+						writeString("value", field.getValue());
+						endObject();
+					}
+					endArray();
+				}
+				if (null != extension.getStats()) {
+					writeName("stats");
+					startArray();
+					for (ECTagStat stat : extension.getStats().getStat()) {
+						separate();
+						writeStat(stat);
+					}
+					endArray();
+				}
+				endObject();
+			}
+			endObject();
+		}
+
+		private void writeStat(ECTagStat stat) throws IOException {
+			startObject();
+			writeString("profile", stat.getProfile());
+			boolean timestamps = stat instanceof ECTagTimestampStat;
+			if (timestamps) {
+				writeName("timestamps");
+				writer.write("true");
+			}
+			if (null != stat.getStatBlocks()) {
+				writeName("statBlocks");
+				startArray();
+				for (ECReaderStat statBlock : stat.getStatBlocks().getStatBlock()) {
+					separate();
+					startObject();
+					writeString("readerName", statBlock.getReaderName());
+					if (null != statBlock.getSightings()) {
+						writeName("sightings");
+						writer.write(Integer.toString(statBlock.getSightings().getSighting().size()));
+					}
+					endObject();
+				}
+				endArray();
+			}
+			if (timestamps) {
+				writeString("firstSightingTime", print(((ECTagTimestampStat) stat).getFirstSightingTime()));
+				writeString("lastSightingTime", print(((ECTagTimestampStat) stat).getLastSightingTime()));
+			}
+			endObject();
+		}
+
+		private void writeEPC(String name, EPC epc) throws IOException {
+			if (null == epc) {
+				return;
+			}
+			writeName(name);
+			writeValue(epc.getValue());
+		}
+
+		/**
+		 * writes a member holding a string, nothing if the value is null.
+		 */
+		private void writeString(String name, String value) throws IOException {
+			if (null == value) {
+				return;
+			}
+			writeName(name);
+			writeValue(value);
+		}
+
+		private void writeName(String name) throws IOException {
+			separate();
+			writer.write('"');
+			writer.write(name);
+			writer.write("\":");
+		}
+
+		private void writeValue(String value) throws IOException {
+			if (null == value) {
+				writer.write("null");
+				return;
+			}
+			writer.write('"');
+			int start = 0;
+			int length = value.length();
+			for (int i = 0; i < length; i++) {
+				char c = value.charAt(i);
+				if (c >= ' ' && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+					continue;
+				}
+				writer.write(value, start, i - start);
+				start = i + 1;
+				switch (c) {
+				case '"':
+					writer.write("\\\"");
+					break;
+				case '\\':
+					writer.write("\\\\");
+					break;
+				case '\n':
+					writer.write("\\n");
+					break;
+				case '\r':
+					writer.write("\\r");
+					break;
+				case '\t':
+					writer.write("\\t");
+					break;
+				default:
+					writer.write("\\u");
+					writer.write(HEX[(c >> 12) & 0xF]);
+					writer.write(HEX[(c >> 8) & 0xF]);
+					writer.write(HEX[(c >> 4) & 0xF]);
+					writer.write(HEX[c & 0xF]);
+				}
+			}
+			writer.write(value, start, length - start);
+			writer.write('"');
+		}
+
+		private void startObject() throws IOException {
+			writer.write('{');
+			first = true;
+		}
+
+		private void endObject() throws IOException {
+			writer.write('}');
+			first = false;
+		}
+
+		private void startArray() throws IOException {
+			writer.write('[');
+			first = true;
+		}
+
+		private void endArray() throws IOException {
+			writer.write(']');
+			first = false;
+		}
+
+		/**
+		 * writes the comma before every member but the first one of an object or array.
+		 */
+		private void separate() throws IOException {
+			if (!first) {
+				writer.write(',');
+			}
+			first = false;
+		}
+	}
+
+	/**
+	 * reads the json of the reports.
+	 */
+	private static final class Decoder {
+
+		private final PushbackReader reader;
+
+		private final StringBuilder text = new StringBuilder();
+
+		private DatatypeFactory datatypeFactory;
+
+		private Decoder(Reader reader) {
+			this.reader = new PushbackReader(reader, 1);
+		}
+
+		private ECReports readReports() throws IOException {
+			ECReports reports = new ECReports();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("specName".equals(name)) {
+					reports.setSpecName(readString());
+				} else if ("date".equals(name)) {
+					reports.setDate(parse(readString()));
+				} else if ("ALEID".equals(name)) {
+					reports.setALEID(readString());
+				} else if ("totalMilliseconds".equals(name)) {
+					reports.setTotalMilliseconds(readNumber());
+				} else if ("initiationCondition".equals(name)) {
+					reports.setInitiationCondition(readString());
+				} else if ("initiationTrigger".equals(name)) {
+					reports.setInitiationTrigger(readString());
+				} else if ("terminationCondition".equals(name)) {
+					reports.setTerminationCondition(readString());
+				} else if ("terminationTrigger".equals(name)) {
+					reports.setTerminationTrigger(readString());
+				} else if ("schemaURL".equals(name)) {
+					reports.setSchemaURL(readString());
+				} else if ("schemaVersion".equals(name)) {
+					String schemaVersion = readString();
+					reports.setSchemaVersion((null == schemaVersion) ? null : new BigDecimal(schemaVersion));
+				} else if ("creationDate".equals(name)) {
+					reports.setCreationDate(parse(readString()));
+				} else if ("reports".equals(name)) {
+					reports.setReports(new ECReports.Reports());
+					expect('[');
+					while (hasElement()) {
+						reports.getReports().getReport().add(readReport());
+					}
+				} else {
+					skipValue();
+				}
+			}
+			return reports;
+		}
+
+		private ECReport readReport() throws IOException {
+			ECReport report = new ECReport();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("reportName".equals(name)) {
+					report.setReportName(readString());
+				} else if ("groups".equals(name)) {
+					expect('[');
+					while (hasElement()) {
+						report.getGroup().add(readGroup());
+					}
+				} else {
+					skipValue();
+				}
+			}
+			return report;
+		}
+
+		private ECReportGroup readGroup() throws IOException {
+			ECReportGroup group = new ECReportGroup();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("groupName".equals(name)) {
+					group.setGroupName(readString());
+				} else if ("groupList".equals(name)) {
+					group.setGroupList(new ECReportGroupList());
+					expect('[');
+					while (hasElement()) {
+						group.getGroupList().getMember().add(readMember());
+					}
+				} else if ("groupCount".equals(name)) {
+					group.setGroupCount(new ECReportGroupCount());
+					group.getGroupCount().setCount((int) readNumber());
+				} else {
+					skipValue();
+				}
+			}
+			return group;
+		}
+
+		private ECReportGroupListMember readMember() throws IOException {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("epc".equals(name)) {
+					member.setEpc(readEPC());
+				} else if ("tag".equals(name)) {
+					member.setTag(readEPC());
+				} else if ("rawHex".equals(name)) {
+					member.setRawHex(readEPC());
+				} else if ("rawDecimal".equals(name)) {
+					member.setRawDecimal(readEPC());
+				} else if ("extension".equals(name)) {
+					member.setExtension(readExtension());
+				} else {
+					skipValue();
+				}
+			}
+			return member;
+		}
+
+		private ECReportGroupListMemberExtension readExtension() throws IOException {
+			ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("fieldList".equals(name)) {
+					extension.setFieldList(new ECReportGroupListMemberExtension.FieldList());
+					expect('[');
+					while (hasElement()) {
+						ECReportMemberField field = new ECReportMemberField();
+						expect('{');
+						while (hasMember()) {
+							String fieldName = readName();
+							if ("name".equals(fieldName)) {
+								field.setName(readString());
+							} else if ("value".equals(fieldName)) {
+								field.setValue(readString());
+							} else {
+								skipValue();
+							}
+						}
+						extension.getFieldList().getField().add(field);
+					}
+				} else if ("stats".equals(name)) {
+					extension.setStats(new ECReportGroupListMemberExtension.Stats());
+					expect('[');
+					while (hasElement()) {
+						extension.getStats().getStat().add(readStat());
+					}
+				} else {
+					skipValue();
+				}
+			}
+			return extension;
+		}
+
+		private ECTagStat readStat() throws IOException {
+			ECTagStat stat = new ECTagStat();
+			ECTagTimestampStat timestamps = new ECTagTimestampStat();
+			boolean isTimestamps = false;
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("profile".equals(name)) {
+					stat.setProfile(readString());
+				} else if ("timestamps".equals(name)) {
+					isTimestamps = readBoolean();
+				} else if ("statBlocks".equals(name)) {
+					stat.setStatBlocks(new ECTagStat.StatBlocks());
+					expect('[');
+					while (hasElement()) {
+						stat.getStatBlocks().getStatBlock().add(readStatBlock());
+					}
+				} else if ("firstSightingTime".equals(name)) {
+					timestamps.setFirstSightingTime(parse(readString()));
+				} else if ("lastSightingTime".equals(name)) {
+					timestamps.setLastSightingTime(parse(readString()));
+				} else {
+					skipValue();
+				}
+			}
+			if (!isTimestamps) {
+				return stat;
+			}
+			timestamps.setProfile(stat.getProfile());
+			timestamps.setStatBlocks(stat.getStatBlocks());
+			return timestamps;
+		}
+
+		private ECReaderStat readStatBlock() throws IOException {
+			ECReaderStat statBlock = new ECReaderStat();
+			expect('{');
+			while (hasMember()) {
+				String name = readName();
+				if ("readerName".equals(name)) {
+					statBlock.setReaderName(readString());
+				} else if ("sightings".equals(name)) {
+					statBlock.setSightings(new ECReaderStat.Sightings());
+					long sightings = readNumber();
+					for (long i = 0; i < sightings; i++) {
+						statBlock.getSightings().getSighting().add(new ECSightingStat());
+					}
+				} else {
+					skipValue();
+				}
+			}
+			return statBlock;
+		}
+
+		private EPC readEPC() throws IOException {
+			EPC epc = new EPC();
+			epc.setValue(readString());
+			return epc;
+		}
+
+		/**
+		 * @return true if the current object has a further member (the closing brace is consumed otherwise).
+		 */
+		private boolean hasMember() throws IOException {
+			return hasNext('}');
+		}
+
+		/**
+		 * @return true if the current array has a further element (the closing bracket is consumed otherwise).
+		 */
+		private boolean hasElement() throws IOException {
+			return hasNext(']');
+		}
+
+		private boolean hasNext(char end) throws IOException {
+			int c = next();
+			if (c == ',') {
+				c = next();
+			}
+			if (c == end) {
+				return false;
+			}
+			reader.unread(c);
+			return true;
+		}
+
+		private String readName() throws IOException {
+			String name = readString();
+			if (null == name) {
+				throw new IOException("invalid json: null member name");
+			}
+			expect(':');
+			return name;
+		}
+
+		private String readString() throws IOException {
+			int c = next();
+			if (c == 'n') {
+				expectWord("ull");
+				return null;
+			}
+			if (c != '"') {
+				throw new IOException("invalid json: string expected, found '" + (char) c + "'");
+			}
+			text.setLength(0);
+			while (true) {
+				c = read();
+				if (c == '"') {
+					return text.toString();
+				}
+				if (c != '\\') {
+					text.append((char) c);
+					continue;
+				}
+				c = read();
+				switch (c) {
+				case 'b':
+					text.append('\b');
+					break;
+				case 'f':
+					text.append('\f');
+					break;
+				case 'n':
+					text.append('\n');
+					break;
+				case 'r':
+					text.append('\r');
+					break;
+				case 't':
+					text.append('\t');
+					break;
+				case 'u':
+					int value = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(read(), 16);
+						if (digit < 0) {
+							throw new IOException("invalid json: bad unicode escape");
+						}
+						value = (value << 4) | digit;
+					}
+					text.append((char) value);
+					break;
+				default:
+					text.append((char) c);
+				}
+			}
+		}
+
+		private long readNumber() throws IOException {
+			text.setLength(0);
+			int c = next();
+			while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+				text.append((char) c);
+				c = reader.read();
+			}
+			if (c >= 0) {
+				reader.unread(c);
+			}
+			try {
+				return new BigDecimal(text.toString()).longValueExact();
+			} catch (RuntimeException e) {
+				throw new IOException("invalid json: integer expected, found '" + text + "'");
+			}
+		}
+
+		private boolean readBoolean() throws IOException {
+			int c = next();
+			if (c == 't') {
+				expectWord("rue");
+				return true;
+			}
+			if (c == 'f') {
+				expectWord("alse");
+				return false;
+			}
+			throw new IOException("invalid json: boolean expected");
+		}
+
+		private void skipValue() throws IOException {
+			int c = next();
+			if (c == '{' || c == '[') {
+				char end = (c == '{') ? '}' : ']';
+				while (hasNext(end)) {
+					if (c == '{') {
+						readName();
+					}
+					skipValue();
+				}
+			} else if (c == '"') {
+				reader.unread(c);
+				readString();
+			} else if (c == 't' || c == 'f') {
+				reader.unread(c);
+				readBoolean();
+			} else if (c == 'n') {
+				expectWord("ull");
+			} else {
+				reader.unread(c);
+				text.setLength(0);
+				c = next();
+				while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+					c = reader.read();
+				}
+				if (c >= 0) {
+					reader.unread(c);
+				}
+			}
+		}
+
+		private void expectWord(String rest) throws IOException {
+			for (int i = 0; i < rest.length(); i++) {
+				if (read() != rest.charAt(i)) {
+					throw new IOException("invalid json: unexpected literal");
+				}
+			}
+		}
+
+		private void expect(char expected) throws IOException {
+			int c = next();
+			if (c != expected) {
+				throw new IOException("invalid json: '" + expected + "' expected, found '" + (char) c + "'");
+			}
+		}
+
+		/**
+		 * @return the next character that is not white space.
+		 */
+		private int next() throws IOException {
+			int c;
+			do {
+				c = read();
+			} while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+			return c;
+		}
+
+		private int read() throws IOException {
+			int c = reader.read();
+			if (c < 0) {
+				throw new IOException("invalid json: unexpected end of the stream");
+			}
+			return c;
+		}
+
+		private XMLGregorianCalendar parse(String value) throws IOException {
+			if (null == value) {
+				return null;
+			}
+			try {
+				if (null == datatypeFactory) {
+					datatypeFactory = DatatypeFactory.newInstance();
+				}
+				return datatypeFactory.newXMLGregorianCalendar(value);
+			} catch (DatatypeConfigurationException e) {
+				throw new IOException("could not parse the date " + value, e);
+			}
+		}
+	}
+
+	private static String print(XMLGregorianCalendar calendar) {
+		return (null == calendar) ? null : calendar.toXMLFormat();
+	}
+}
@@ -0,0 +1,732 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+
+/**
+ * streams ec reports as ALE 1.1 xml through a {@link XMLStreamWriter}, without going through
+ * the JAXB marshaller. the output is byte for byte the one of
+ * {@link SerializerUtil#serializeECReports(ECReports, OutputStream)}: same declaration, prefix,
+ * attribute order, empty elements and escaping.<br/>
+ * the StAX implementations do not all write empty elements as JAXB does (woodstox 3 writes
+ * "&lt;x /&gt;"), the writer uses the implementation of the JRE rather than the one of the
+ * classpath. another implementation is set by the system property {@value #PROPERTY_FACTORY}.<br/>
+ * the writer covers the content the ALE creates: reports, groups, members, counts, field lists
+ * and statistics. the reports implementing {@link Groups} write their groups themselves from
+ * their own data, the JAXB groups of these reports are not read. reports holding anything else
+ * (an included ECSpec, extension elements or attributes of other schemas, attribute values with
+ * characters the StAX implementations escape differently) are not streamed:
+ * {@link #write(ECReports, OutputStream)} returns false and the caller marshals the reports with
+ * JAXB instead.
+ */
+public final class ECReportsWriter {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(ECReportsWriter.class);
+
+	/** the namespace of the ALE reports. */
+	public static final String NAMESPACE = "urn:epcglobal:ale:xsd:1";
+
+	/** the namespace of xsi:type. */
+	private static final String XSI_NAMESPACE = "http://www.w3.org/2001/XMLSchema-instance";
+
+	/** the prefix JAXB binds the ALE namespace to. */
+	private static final String PREFIX = "ns2";
+
+	/** the xml declaration written by JAXB. */
+	private static final byte[] DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>".getBytes(Charset.forName("UTF-8"));
+
+	/** system property holding the class of the StAX output factory. */
+	public static final String PROPERTY_FACTORY = "org.fosstrak.ale.xmlOutputFactory";
+
+	/** the StAX output factory of the JRE. */
+	public static final String DEFAULT_FACTORY = "com.sun.xml.internal.stream.XMLOutputFactoryImpl";
+
+	/** the factory, thread safe once configured. */
+	private static final XMLOutputFactory FACTORY = createFactory();
+
+	/** the attributes of the ECReports element, in the order the deployed JAXB implementation writes them. */
+	private static final String[] ATTRIBUTES = getAttributeOrder();
+
+	/**
+	 * private constructor, use {@link #write(ECReports, OutputStream)}.
+	 */
+	private ECReportsWriter() {
+	}
+
+	/**
+	 * writes ec reports as UTF-8 encoded xml into a stream.
+	 * @param reports the reports.
+	 * @param stream the stream.
+	 * @return true if the reports were written, false if the reports hold content the writer does
+	 * not stream. the stream then holds a partial document that must be discarded.
+	 * @throws XMLStreamException if the xml could not be written.
+	 * @throws IOException if the stream could not be written.
+	 */
+	public static boolean write(ECReports reports, OutputStream stream) throws XMLStreamException, IOException {
+		stream.write(DECLARATION);
+		XMLStreamWriter writer = FACTORY.createXMLStreamWriter(stream, "UTF-8");
+		try {
+			writeReports(writer, reports);
+		} catch (UnsupportedContentException e) {
+			return false;
+		}
+		writer.writeEndDocument();
+		writer.flush();
+		writer.close();
+		return true;
+	}
+
+	private static void writeReports(XMLStreamWriter writer, ECReports reports) throws XMLStreamException, UnsupportedContentException {
+		if (null != reports.getECSpec()) {
+			throw new UnsupportedContentException();
+		}
+		checkExtension(reports.getAny(), reports.getOtherAttributes());
+		boolean empty = null == reports.getReports() && null == reports.getExtension();
+		if (empty) {
+			writer.writeEmptyElement(PREFIX, "ECReports", NAMESPACE);
+		} else {
+			writer.writeStartElement(PREFIX, "ECReports", NAMESPACE);
+		}
+		writer.writeNamespace(PREFIX, NAMESPACE);
+
+		for (String attribute : ATTRIBUTES) {
+			writeAttribute(writer, attribute, getAttribute(reports, attribute));
+		}
+
+		if (null != reports.getReports()) {
+			List<ECReport> list = reports.getReports().getReport();
+			if (list.isEmpty()) {
+				writer.writeEmptyElement("reports");
+			} else {
+				writer.writeStartElement("reports");
+				for (ECReport report : list) {
+					writeReport(writer, report);
+				}
+				writer.writeEndElement();
+			}
+		}
+		if (null != reports.getExtension()) {
+			checkExtension(reports.getExtension().getAny(), reports.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		if (!empty) {
+			writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * @return the configured StAX output factory, the one on the classpath if it is not available.
+	 */
+	private static XMLOutputFactory createFactory() {
+		String name = System.getProperty(PROPERTY_FACTORY, DEFAULT_FACTORY);
+		try {
+			return (XMLOutputFactory) Class.forName(name).newInstance();
+		} catch (Exception e) {
+			LOG.info("StAX output factory " + name + " not available, using the one of the classpath.");
+			return XMLOutputFactory.newInstance();
+		}
+	}
+
+	/**
+	 * the order JAXB writes the attributes in is the order the reflection reports the fields
+	 * in, which depends on the JAXB implementation and the JVM. the order is taken from reports
+	 * marshalled once.
+	 */
+	private static String[] getAttributeOrder() {
+		String[] attributes = new String[] { "specName", "date", "ALEID", "totalMilliseconds",
+				"initiationCondition", "initiationTrigger", "terminationCondition", "terminationTrigger",
+				"schemaURL", "schemaVersion", "creationDate" };
+		try {
+			ECReports probe = new ECReports();
+			probe.setSpecName("");
+			probe.setDate(DatatypeFactory.newInstance().newXMLGregorianCalendar(new GregorianCalendar()));
+			probe.setALEID("");
+			probe.setInitiationCondition("");
+			probe.setInitiationTrigger("");
+			probe.setTerminationCondition("");
+			probe.setTerminationTrigger("");
+			probe.setSchemaURL("");
+			probe.setSchemaVersion(BigDecimal.ONE);
+			probe.setCreationDate(probe.getDate());
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			SerializerUtil.serializeECReports(probe, stream);
+			final String xml = stream.toString("UTF-8");
+			String[] order = attributes.clone();
+			Arrays.sort(order, new Comparator<String>() {
+				@Override
+				public int compare(String left, String right) {
+					return xml.indexOf(" " + left + "=") - xml.indexOf(" " + right + "=");
+				}
+			});
+			if (xml.indexOf(" " + order[0] + "=") >= 0) {
+				return order;
+			}
+			LOG.error("could not find the attributes in the reports: " + xml);
+		} catch (Exception e) {
+			LOG.error("could not marshal the reports, using the declared attribute order.", e);
+		}
+		return attributes;
+	}
+
+	/**
+	 * @return the printed value of an attribute of the ECReports element, null if not set.
+	 */
+	private static String getAttribute(ECReports reports, String attribute) {
+		if ("specName".equals(attribute)) {
+			return reports.getSpecName();
+		} else if ("date".equals(attribute)) {
+			return print(reports.getDate());
+		} else if ("ALEID".equals(attribute)) {
+			return reports.getALEID();
+		} else if ("totalMilliseconds".equals(attribute)) {
+			return String.valueOf(reports.getTotalMilliseconds());
+		} else if ("initiationCondition".equals(attribute)) {
+			return reports.getInitiationCondition();
+		} else if ("initiationTrigger".equals(attribute)) {
+			return reports.getInitiationTrigger();
+		} else if ("terminationCondition".equals(attribute)) {
+			return reports.getTerminationCondition();
+		} else if ("terminationTrigger".equals(attribute)) {
+			return reports.getTerminationTrigger();
+		} else if ("schemaURL".equals(attribute)) {
+			return reports.getSchemaURL();
+		} else if ("schemaVersion".equals(attribute)) {
+			return print(reports.getSchemaVersion());
+		}
+		return print(reports.getCreationDate());
+	}
+
+	private static void writeReport(XMLStreamWriter writer, ECReport report) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(report.getAny(), report.getOtherAttributes());
+		Groups source = (report instanceof Groups) ? (Groups) report : null;
+		List<ECReportGroup> groups = (null == source) ? report.getGroup() : null;
+		boolean empty = ((null == source) ? groups.isEmpty() : !source.hasGroups()) && null == report.getExtension();
+		start(writer, "report", empty);
+		writeAttribute(writer, "reportName", report.getReportName());
+		if (null == source) {
+			for (ECReportGroup group : groups) {
+				writeGroup(writer, group);
+			}
+		} else {
+			source.writeGroups(new GroupWriter(writer));
+		}
+		if (null != report.getExtension()) {
+			checkExtension(report.getExtension().getAny(), report.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		end(writer, empty);
+	}
+
+	private static void writeGroup(XMLStreamWriter writer, ECReportGroup group) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(group.getAny(), group.getOtherAttributes());
+		boolean empty = null == group.getGroupList() && null == group.getGroupCount() && null == group.getExtension();
+		start(writer, "group", empty);
+		writeAttribute(writer, "groupName", group.getGroupName());
+		if (null != group.getGroupList()) {
+			writeGroupList(writer, group.getGroupList());
+		}
+		if (null != group.getGroupCount()) {
+			writeGroupCount(writer, group.getGroupCount());
+		}
+		if (null != group.getExtension()) {
+			checkExtension(group.getExtension().getAny(), group.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		end(writer, empty);
+	}
+
+	private static void writeGroupList(XMLStreamWriter writer, ECReportGroupList groupList) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(groupList.getAny(), groupList.getOtherAttributes());
+		List<ECReportGroupListMember> members = groupList.getMember();
+		boolean empty = members.isEmpty() && null == groupList.getExtension();
+		start(writer, "groupList", empty);
+		for (ECReportGroupListMember member : members) {
+			writeMember(writer, member);
+		}
+		if (null != groupList.getExtension()) {
+			checkExtension(groupList.getExtension().getAny(), groupList.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		end(writer, empty);
+	}
+
+	private static void writeGroupCount(XMLStreamWriter writer, ECReportGroupCount groupCount) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(groupCount.getAny(), groupCount.getOtherAttributes());
+		writer.writeStartElement("groupCount");
+		writeElement(writer, "count", String.valueOf(groupCount.getCount()));
+		if (null != groupCount.getExtension()) {
+			checkExtension(groupCount.getExtension().getAny(), groupCount.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		writer.writeEndElement();
+	}
+
+	private static void writeMember(XMLStreamWriter writer, ECReportGroupListMember member) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(member.getAny(), member.getOtherAttributes());
+		boolean empty = null == member.getEpc() && null == member.getTag() && null == member.getRawHex()
+				&& null == member.getRawDecimal() && null == member.getExtension();
+		start(writer, "member", empty);
+		writeEPC(writer, "epc", member.getEpc());
+		writeEPC(writer, "tag", member.getTag());
+		writeEPC(writer, "rawHex", member.getRawHex());
+		writeEPC(writer, "rawDecimal", member.getRawDecimal());
+		if (null != member.getExtension()) {
+			writeMemberExtension(writer, member.getExtension());
+		}
+		end(writer, empty);
+	}
+
+	private static void writeEPC(XMLStreamWriter writer, String name, EPC epc) throws XMLStreamException {
+		if (null == epc) {
+			return;
+		}
+		if (null == epc.getValue()) {
+			writer.writeEmptyElement(name);
+		} else {
+			writeElement(writer, name, epc.getValue());
+		}
+	}
+
+	private static void writeMemberExtension(XMLStreamWriter writer, ECReportGroupListMemberExtension extension) throws XMLStreamException, UnsupportedContentException {
+		checkAttributes(extension.getOtherAttributes());
+		boolean empty = null == extension.getFieldList() && null == extension.getStats() && null == extension.getExtension();
+		start(writer, "extension", empty);
+		if (null != extension.getFieldList()) {
+			List<ECReportMemberField> fields = extension.getFieldList().getField();
+			start(writer, "fieldList", fields.isEmpty());
+			for (ECReportMemberField field : fields) {
+				writeField(writer, field);
+			}
+			end(writer, fields.isEmpty());
+		}
+		if (null != extension.getStats()) {
+			List<ECTagStat> stats = extension.getStats().getStat();
+			start(writer, "stats", stats.isEmpty());
+			for (ECTagStat stat : stats) {
+				writeStat(writer, stat);
+			}
+			end(writer, stats.isEmpty());
+		}
+		if (null != extension.getExtension()) {
+			checkExtension(extension.getExtension().getAny(), extension.getExtension().getOtherAttributes());
+			writer.writeEmptyElement("extension");
+		}
+		end(writer, empty);
+	}
+
+	private static void writeField(XMLStreamWriter writer, ECReportMemberField field) throws XMLStreamException, UnsupportedContentException {
+		checkExtension(field.getAny(), field.getOtherAttributes());
+		if (null != field.getFieldspec() || null != field.getExtension()) {
+			throw new UnsupportedContentException();
+		}
+		boolean empty = null == field.getName() && null == field.getValue();
+		start(writer, "field", empty);
+		if (null != field.getName()) {
+			writeElement(writer, "name", field.getName());
+		}
+		if (null != field.getValue()) {
+			writeElement(writer, "value", field.getValue());
+		}
+		end(writer, empty);
+	}
+
+	private static void writeStat(XMLStreamWriter writer, ECTagStat stat) throws XMLStreamException, UnsupportedContentException {
+		boolean timestamps = stat instanceof ECTagTimestampStat;
+		if (!timestamps && stat.getClass() != ECTagStat.class) {
+			throw new UnsupportedContentException();
+		}
+		ECTagTimestampStat timestampStat = timestamps ? (ECTagTimestampStat) stat : null;
+		boolean empty = null == stat.getProfile() && null == stat.getStatBlocks()
+				&& (!timestamps || (null == timestampStat.getFirstSightingTime() && null == timestampStat.getLastSightingTime()));
+		start(writer, "stat", empty);
+		if (timestamps) {
+			writer.writeNamespace("xsi", XSI_NAMESPACE);
+			writer.writeAttribute("xsi", XSI_NAMESPACE, "type", PREFIX + ":ECTagTimestampStat");
+		}
+		if (null != stat.getProfile()) {
+			writeElement(writer, "profile", stat.getProfile());
+		}
+		if (null != stat.getStatBlocks()) {
+			List<ECReaderStat> statBlocks = stat.getStatBlocks().getStatBlock();
+			start(writer, "statBlocks", statBlocks.isEmpty());
+			for (ECReaderStat statBlock : statBlocks) {
+				writeStatBlock(writer, statBlock);
+			}
+			end(writer, statBlocks.isEmpty());
+		}
+		if (timestamps) {
+			if (null != timestampStat.getFirstSightingTime()) {
+				writeElement(writer, "firstSightingTime", print(timestampStat.getFirstSightingTime()));
+			}
+			if (null != timestampStat.getLastSightingTime()) {
+				writeElement(writer, "lastSightingTime", print(timestampStat.getLastSightingTime()));
+			}
+		}
+		end(writer, empty);
+	}
+
+	private static void writeStatBlock(XMLStreamWriter writer, ECReaderStat statBlock) throws XMLStreamException, UnsupportedContentException {
+		boolean empty = null == statBlock.getReaderName() && null == statBlock.getSightings();
+		start(writer, "statBlock", empty);
+		if (null != statBlock.getReaderName()) {
+			writeElement(writer, "readerName", statBlock.getReaderName());
+		}
+		if (null != statBlock.getSightings()) {
+			List<ECSightingStat> sightings = statBlock.getSightings().getSighting();
+			start(writer, "sightings", sightings.isEmpty());
+			for (ECSightingStat sighting : sightings) {
+				if (sighting.getClass() != ECSightingStat.class) {
+					throw new UnsupportedContentException();
+				}
+				writer.writeEmptyElement("sighting");
+			}
+			end(writer, sightings.isEmpty());
+		}
+		end(writer, empty);
+	}
+
+	/**
+	 * starts an element, JAXB closes the elements without content with "/>".
+	 */
+	private static void start(XMLStreamWriter writer, String name, boolean empty) throws XMLStreamException {
+		if (empty) {
+			writer.writeEmptyElement(name);
+		} else {
+			writer.writeStartElement(name);
+		}
+	}
+
+	private static void end(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
+		if (!empty) {
+			writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * writes an element holding text. an empty text gives a start and an end tag, as with JAXB.
+	 */
+	private static void writeElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException {
+		writer.writeStartElement(name);
+		writeText(writer, text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * writes text escaped the way JAXB does. the characters the StAX implementations escape
+	 * differently are written as references, the others are passed through.
+	 */
+	private static void writeText(XMLStreamWriter writer, String text) throws XMLStreamException {
+		int start = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			String reference;
+			switch (text.charAt(i)) {
+			case '<':
+				reference = "lt";
+				break;
+			case '>':
+				reference = "gt";
+				break;
+			case '&':
+				reference = "amp";
+				break;
+			case '"':
+				reference = "quot";
+				break;
+			case '\r':
+				reference = "#xD";
+				break;
+			default:
+				continue;
+			}
+			if (i > start) {
+				writer.writeCharacters(text.substring(start, i));
+			}
+			writer.writeEntityRef(reference);
+			start = i + 1;
+		}
+		if (start == 0) {
+			writer.writeCharacters(text);
+		} else if (start < length) {
+			writer.writeCharacters(text.substring(start));
+		}
+	}
+
+	private static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+		if (null == value) {
+			return;
+		}
+		// JAXB escapes these characters, the StAX implementations do not all do
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '>' || c < ' ') {
+				throw new UnsupportedContentException();
+			}
+		}
+		writer.writeAttribute(name, value);
+	}
+
+	private static String print(XMLGregorianCalendar calendar) {
+		return (null == calendar) ? null : calendar.toXMLFormat();
+	}
+
+	private static String print(BigDecimal decimal) {
+		return (null == decimal) ? null : decimal.toPlainString();
+	}
+
+	/**
+	 * the writer only streams extensions without content.
+	 */
+	private static void checkExtension(List<Object> any, Map<QName, String> otherAttributes) throws UnsupportedContentException {
+		if (!any.isEmpty()) {
+			throw new UnsupportedContentException();
+		}
+		checkAttributes(otherAttributes);
+	}
+
+	private static void checkAttributes(Map<QName, String> otherAttributes) throws UnsupportedContentException {
+		if (!otherAttributes.isEmpty()) {
+			throw new UnsupportedContentException();
+		}
+	}
+
+	/**
+	 * an ec report writing its groups itself, from data kept apart from the JAXB groups (eg. the
+	 * groups of an event cycle round). the writer does not read the JAXB groups of these reports.
+	 */
+	public interface Groups {
+
+		/**
+		 * @return true if the report has at least one group.
+		 */
+		boolean hasGroups();
+
+		/**
+		 * writes the groups of the report.
+		 * @param writer the writer of the groups.
+		 * @throws XMLStreamException if the groups could not be written.
+		 */
+		void writeGroups(GroupWriter writer) throws XMLStreamException;
+	}
+
+	/**
+	 * writes the groups of a {@link Groups} report element by element. the calls follow the
+	 * structure of the groups: a group holds a group list of members and an optional count, a
+	 * member holds its epc, tag, raw hex and raw decimal and an optional extension with the
+	 * field list and the statistics.
+	 */
+	public static final class GroupWriter {
+
+		/** the underlying writer. */
+		private final XMLStreamWriter writer;
+
+		private GroupWriter(XMLStreamWriter writer) {
+			this.writer = writer;
+		}
+
+		/**
+		 * starts a group and its group list.
+		 * @param groupName the name of the group, null for the default group.
+		 * @param hasMembers false if the group list is empty.
+		 * @throws XMLStreamException if the group could not be written.
+		 */
+		public void startGroup(String groupName, boolean hasMembers) throws XMLStreamException {
+			writer.writeStartElement("group");
+			writeAttribute(writer, "groupName", groupName);
+			start(writer, "groupList", !hasMembers);
+		}
+
+		/**
+		 * ends the group list, writes the count and ends the group.
+		 * @param hasMembers false if the group list is empty.
+		 * @param count the count of the group, null if the group is not counted.
+		 * @throws XMLStreamException if the group could not be written.
+		 */
+		public void endGroup(boolean hasMembers, Integer count) throws XMLStreamException {
+			end(writer, !hasMembers);
+			if (null != count) {
+				writer.writeStartElement("groupCount");
+				writeElement(writer, "count", count.toString());
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+		}
+
+		/**
+		 * starts a member.
+		 * @param empty true if the member has neither an identity nor an extension.
+		 * @throws XMLStreamException if the member could not be written.
+		 */
+		public void startMember(boolean empty) throws XMLStreamException {
+			start(writer, "member", empty);
+		}
+
+		public void endMember(boolean empty) throws XMLStreamException {
+			end(writer, empty);
+		}
+
+		/**
+		 * writes an identity of a member, in the order epc, tag, raw hex and raw decimal.
+		 * @param name the name of the identity ("epc", "tag", "rawHex" or "rawDecimal").
+		 * @param value the value, null for an identity without value.
+		 * @throws XMLStreamException if the identity could not be written.
+		 */
+		public void writeEPC(String name, String value) throws XMLStreamException {
+			if (null == value) {
+				writer.writeEmptyElement(name);
+			} else {
+				writeElement(writer, name, value);
+			}
+		}
+
+		/**
+		 * starts the extension of a member, holding a field list and/or statistics.
+		 * @throws XMLStreamException if the extension could not be written.
+		 */
+		public void startExtension() throws XMLStreamException {
+			writer.writeStartElement("extension");
+		}
+
+		public void endExtension() throws XMLStreamException {
+			writer.writeEndElement();
+		}
+
+		public void startFieldList(boolean empty) throws XMLStreamException {
+			start(writer, "fieldList", empty);
+		}
+
+		public void endFieldList(boolean empty) throws XMLStreamException {
+			end(writer, empty);
+		}
+
+		/**
+		 * writes a field of the field list.
+		 * @param name the name of the field.
+		 * @param value the value, null if the field has no value.
+		 * @throws XMLStreamException if the field could not be written.
+		 */
+		public void writeField(String name, String value) throws XMLStreamException {
+			boolean empty = null == name && null == value;
+			start(writer, "field", empty);
+			if (null != name) {
+				writeElement(writer, "name", name);
+			}
+			if (null != value) {
+				writeElement(writer, "value", value);
+			}
+			end(writer, empty);
+		}
+
+		public void startStats(boolean empty) throws XMLStreamException {
+			start(writer, "stats", empty);
+		}
+
+		public void endStats(boolean empty) throws XMLStreamException {
+			end(writer, empty);
+		}
+
+		/**
+		 * writes a statistic of the TagTimestamps profile (without stat blocks).
+		 * @param profile the name of the profile.
+		 * @param firstSightingTime the first sighting, null if unknown.
+		 * @param lastSightingTime the last sighting, null if unknown.
+		 * @throws XMLStreamException if the statistic could not be written.
+		 */
+		public void writeTimestampStat(String profile, XMLGregorianCalendar firstSightingTime, XMLGregorianCalendar lastSightingTime) throws XMLStreamException {
+			writer.writeStartElement("stat");
+			writer.writeNamespace("xsi", XSI_NAMESPACE);
+			writer.writeAttribute("xsi", XSI_NAMESPACE, "type", PREFIX + ":ECTagTimestampStat");
+			writeElement(writer, "profile", profile);
+			writer.writeEmptyElement("statBlocks");
+			if (null != firstSightingTime) {
+				writeElement(writer, "firstSightingTime", print(firstSightingTime));
+			}
+			if (null != lastSightingTime) {
+				writeElement(writer, "lastSightingTime", print(lastSightingTime));
+			}
+			writer.writeEndElement();
+		}
+
+		/**
+		 * writes a statistic holding a stat block with one sighting per reader.
+		 * @param profile the name of the profile.
+		 * @param readerNames the names of the readers, a null name for a reader without name.
+		 * @throws XMLStreamException if the statistic could not be written.
+		 */
+		public void writeReaderStat(String profile, List<String> readerNames) throws XMLStreamException {
+			writer.writeStartElement("stat");
+			writeElement(writer, "profile", profile);
+			start(writer, "statBlocks", readerNames.isEmpty());
+			for (String readerName : readerNames) {
+				writer.writeStartElement("statBlock");
+				if (null != readerName) {
+					writeElement(writer, "readerName", readerName);
+				}
+				writer.writeStartElement("sightings");
+				writer.writeEmptyElement("sighting");
+				writer.writeEndElement();
+				writer.writeEndElement();
+			}
+			end(writer, readerNames.isEmpty());
+			writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * thrown on content the writer does not stream. it is a stream exception such that it passes
+	 * through the groups written by the {@link Groups} reports.
+	 */
+	private static final class UnsupportedContentException extends XMLStreamException {
+
+		private static final long serialVersionUID = 1L;
+	}
+}
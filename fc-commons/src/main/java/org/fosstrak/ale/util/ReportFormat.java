@@ -0,0 +1,80 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.util;
+
+/**
+ * the wire formats of the ec reports notified to the subscribers, selected by the query
+ * parameter <code>format=xml|binary|json</code> of the notification uri.
+ * <ul>
+ * <li>{@link #XML}: the ALE 1.1 xml (default).</li>
+ * <li>{@link #BINARY}: the compact binary format of {@link ECReportsBinaryCodec}.</li>
+ * <li>{@link #JSON}: the json format of {@link ECReportsJsonCodec}.</li>
+ * </ul>
+ */
+public enum ReportFormat {
+
+	XML("xml", "text/xml; charset=\"utf-8\""),
+	BINARY("binary", "application/octet-stream"),
+	JSON("json", "application/json; charset=utf-8");
+
+	/** the query parameter of the notification uri selecting the format. */
+	public static final String PARAMETER = "format";
+
+	/** the value of the query parameter. */
+	private final String value;
+
+	/** the MIME type of the encoded reports. */
+	private final String contentType;
+
+	private ReportFormat(String value, String contentType) {
+		this.value = value;
+		this.contentType = contentType;
+	}
+
+	/**
+	 * @return the value of the format parameter selecting this format.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the MIME type of the encoded reports.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * @param value the value of the format parameter (case insensitive).
+	 * @return the format, {@link #XML} if the value is null or empty.
+	 * @throws IllegalArgumentException if the value is not a known format.
+	 */
+	public static ReportFormat parse(String value) {
+		if (null == value || value.length() == 0) {
+			return XML;
+		}
+		for (ReportFormat format : values()) {
+			if (format.value.equalsIgnoreCase(value)) {
+				return format;
+			}
+		}
+		throw new IllegalArgumentException("unknown report format: " + value);
+	}
+}
@@ -117,6 +117,17 @@ public class SerializerUtil {
 		serializeECReports(ecReports, writer, true);		
 	}
 		
+	/**
+	 * This method serializes ec reports to an UTF-8 encoded xml and writes it into a stream.
+	 *  
+	 * @param ecReports to serialize
+	 * @param stream to write the xml into
+	 * @throws Exception upon error.
+	 */
+	public static void serializeECReports(ECReports ecReports, OutputStream stream) throws Exception {		
+		marshall("org.fosstrak.ale.xsd.ale.epcglobal", objectFactoryALE.createECReports(ecReports), stream, false);		
+	}
+	
 	/**
 	 * This method serializes cc reports to an xml and writes it into a writer.
 	 *  
@@ -128,6 +139,17 @@ public class SerializerUtil {
 		serializeCCReports(ccReports, writer, false);		
 	}
 	
+	/**
+	 * This method serializes cc reports to an UTF-8 encoded xml and writes it into a stream.
+	 *  
+	 * @param ccReports to serialize
+	 * @param stream to write the xml into
+	 * @throws Exception upon error.
+	 */
+	public static void serializeCCReports(CCReports ccReports, OutputStream stream) throws Exception {		
+		marshall("org.fosstrak.ale.xsd.ale.epcglobal", objectFactoryALE.createCCReports(ccReports), stream, false);		
+	}
+	
 	/**
 	 * This method serializes an LRSpec to an xml and writes it into a file.
 	 * @param spec the LRSpec to be written into a file
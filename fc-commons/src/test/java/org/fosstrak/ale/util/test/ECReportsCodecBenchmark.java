@@ -0,0 +1,52 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.util.test;
+
+import org.fosstrak.ale.util.ReportFormat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.junit.Test;
+
+/**
+ * micro benchmark for the report formats: encodes a report of 10k tags in
+ * the xml, binary and json format and prints the size and the best encoding time.
+ * <h1>this is a benchmark - it is not run as a standard unit test!!!</h1>
+ * run with <code>mvn test -Dtest=ECReportsCodecBenchmark</code>.
+ */
+public class ECReportsCodecBenchmark {
+
+	/** number of tags in the report. */
+	private static final int TAGS = 10000;
+
+	/** number of repetitions per format, the best run is reported. */
+	private static final int RUNS = 5;
+
+	@Test
+	public void benchmark() throws Exception {
+		ECReports reports = ECReportsCodecTest.createReports(TAGS);
+		for (ReportFormat format : ReportFormat.values()) {
+			long best = Long.MAX_VALUE;
+			int size = 0;
+			for (int run = 0; run < RUNS; run++) {
+				long start = System.nanoTime();
+				size = ECReportsCodecTest.encode(format, reports).length;
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.println(String.format("%-6s %d tags: %d bytes, encoded in %d us", format.getValue(), TAGS, size, best / 1000));
+		}
+	}
+}
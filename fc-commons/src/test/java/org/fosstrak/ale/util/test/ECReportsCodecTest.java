@@ -0,0 +1,299 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.util.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.GregorianCalendar;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.util.ECReportsBinaryCodec;
+import org.fosstrak.ale.util.ECReportsJsonCodec;
+import org.fosstrak.ale.util.ECReportsWriter;
+import org.fosstrak.ale.util.ReportFormat;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+import org.junit.Test;
+
+/**
+ * test that the binary and json reports decode into the encoded reports.
+ */
+public class ECReportsCodecTest {
+
+	@Test
+	public void testMinimalReports() throws Exception {
+		ECReports reports = new ECReports();
+		assertRoundTrip(reports);
+		reports.setSpecName("spec");
+		reports.setReports(new ECReports.Reports());
+		assertRoundTrip(reports);
+	}
+
+	@Test
+	public void testReports() throws Exception {
+		assertRoundTrip(createReports(3));
+	}
+
+	@Test
+	public void testEPCs() throws Exception {
+		ECReports reports = createReports(0);
+		ECReportGroupList groupList = reports.getReports().getReport().get(0).getGroup().get(0).getGroupList();
+		String[] values = new String[] { "urn:epc:raw:96.x3074257BF7194E4000001A8", "urn:epc:raw:96.x3074257bf7194e4000001a85",
+				"urn:epc:raw:64.0", "urn:epc:raw:64.007", "urn:epc:raw:96.x", "urn:epc:raw:096.x12", "urn:epc:raw:.12",
+				"urn:epc:raw:96.123456789012345678901234567890", "urn:epc:raw:96.12a", "urn:epc:id:sgtin:0614141.107346.2017",
+				"urn:epc:id:sgtin:0614141.107346.2018", "urn:epc:id:sgtin", "urn:epc:id:sgtin", "", "中文" };
+		for (String value : values) {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			member.setEpc(createEPC(value));
+			member.setTag(createEPC(value));
+			member.setRawHex(createEPC(value));
+			member.setRawDecimal(createEPC(value));
+			groupList.getMember().add(member);
+		}
+		groupList.getMember().add(new ECReportGroupListMember());
+		assertRoundTrip(reports);
+	}
+
+	@Test
+	public void testFieldsAndStats() throws Exception {
+		ECReports reports = createReports(2);
+		XMLGregorianCalendar now = DatatypeFactory.newInstance().newXMLGregorianCalendar(new GregorianCalendar());
+		ECReportGroupListMember member = reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().get(0);
+		ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+		member.setExtension(extension);
+
+		extension.setFieldList(new ECReportGroupListMemberExtension.FieldList());
+		extension.getFieldList().getField().add(createField("userMemory", "a<b>c&d\"e'f\\g\r\n\t\u0001\u2028hé中"));
+		extension.getFieldList().getField().add(createField("empty", ""));
+		extension.getFieldList().getField().add(createField("none", null));
+
+		extension.setStats(new ECReportGroupListMemberExtension.Stats());
+		ECTagTimestampStat timestamps = new ECTagTimestampStat();
+		timestamps.setProfile("TagTimestamps");
+		timestamps.setStatBlocks(new ECTagStat.StatBlocks());
+		timestamps.setFirstSightingTime(now);
+		timestamps.setLastSightingTime(now);
+		extension.getStats().getStat().add(timestamps);
+		ECTagStat readers = new ECTagStat();
+		readers.setProfile("ReaderNames");
+		readers.setStatBlocks(new ECTagStat.StatBlocks());
+		ECReaderStat statBlock = new ECReaderStat();
+		statBlock.setReaderName("reader");
+		statBlock.setSightings(new ECReaderStat.Sightings());
+		statBlock.getSightings().getSighting().add(new ECSightingStat());
+		readers.getStatBlocks().getStatBlock().add(statBlock);
+		readers.getStatBlocks().getStatBlock().add(new ECReaderStat());
+		extension.getStats().getStat().add(readers);
+		extension.getStats().getStat().add(new ECTagStat());
+
+		reports.setDate(now);
+		reports.setCreationDate(now);
+		reports.setSchemaVersion(new BigDecimal("1.1"));
+		reports.setInitiationCondition("REQUESTED");
+		reports.setInitiationTrigger("urn:trigger");
+		reports.setTerminationCondition("DURATION");
+		reports.setTerminationTrigger("urn:trigger");
+		reports.setSchemaURL("http://host/ale?a=b&c=\"d\"<e");
+
+		ECReport empty = new ECReport();
+		empty.setReportName("empty");
+		ECReportGroup group = new ECReportGroup();
+		group.setGroupList(new ECReportGroupList());
+		group.setGroupCount(new ECReportGroupCount());
+		empty.getGroup().add(group);
+		empty.getGroup().add(new ECReportGroup());
+		reports.getReports().getReport().add(empty);
+		reports.getReports().getReport().add(new ECReport());
+		assertRoundTrip(reports);
+	}
+
+	@Test
+	public void testConsecutiveMessages() throws Exception {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		for (int i = 1; i <= 3; i++) {
+			ECReportsBinaryCodec.encode(createReports(i), binary);
+			ECReportsJsonCodec.encode(createReports(i), json);
+			json.write('\n');
+		}
+		ByteArrayInputStream binaryIn = new ByteArrayInputStream(binary.toByteArray());
+		for (int i = 1; i <= 3; i++) {
+			Assert.assertEquals(xml(createReports(i)), xml(ECReportsBinaryCodec.decode(binaryIn)));
+		}
+		Assert.assertEquals(0, binaryIn.available());
+		String[] lines = new String(json.toByteArray(), "UTF-8").split("\n");
+		Assert.assertEquals(3, lines.length);
+		for (int i = 1; i <= 3; i++) {
+			Assert.assertEquals(xml(createReports(i)), xml(ECReportsJsonCodec.decode(new ByteArrayInputStream(lines[i - 1].getBytes("UTF-8")))));
+		}
+	}
+
+	@Test
+	public void testUnknownJsonMembers() throws Exception {
+		String json = "{\"specName\":\"spec\",\"vendor\":{\"a\":[1,2.5e3,true,false,null,\"x\\\"y\",{}]},\"totalMilliseconds\":10,"
+				+ "\"reports\":[{\"reportName\":\"report\",\"other\":[],\"groups\":[]}]}";
+		ECReports reports = ECReportsJsonCodec.decode(new ByteArrayInputStream(json.getBytes("UTF-8")));
+		Assert.assertEquals("spec", reports.getSpecName());
+		Assert.assertEquals(10, reports.getTotalMilliseconds());
+		Assert.assertEquals("report", reports.getReports().getReport().get(0).getReportName());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidBinary() throws Exception {
+		ECReportsBinaryCodec.decode(new ByteArrayInputStream("<?xml".getBytes("UTF-8")));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedBinary() throws Exception {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		ECReportsBinaryCodec.encode(createReports(10), binary);
+		byte[] bytes = binary.toByteArray();
+		ECReportsBinaryCodec.decode(new ByteArrayInputStream(bytes, 0, bytes.length - 5));
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidJson() throws Exception {
+		ECReportsJsonCodec.decode(new ByteArrayInputStream("{\"specName\":}".getBytes("UTF-8")));
+	}
+
+	@Test
+	public void testFormats() throws Exception {
+		Assert.assertEquals(ReportFormat.XML, ReportFormat.parse(null));
+		Assert.assertEquals(ReportFormat.XML, ReportFormat.parse(""));
+		Assert.assertEquals(ReportFormat.BINARY, ReportFormat.parse("binary"));
+		Assert.assertEquals(ReportFormat.JSON, ReportFormat.parse("JSON"));
+		try {
+			ReportFormat.parse("yaml");
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * compares the size of the formats, the encoding time is measured by {@link ECReportsCodecBenchmark}.
+	 */
+	@Test
+	public void testSize() throws Exception {
+		ECReports reports = createReports(1000);
+		long[] sizes = new long[3];
+		for (ReportFormat format : ReportFormat.values()) {
+			sizes[format.ordinal()] = encode(format, reports).length;
+		}
+		Assert.assertTrue(sizes[ReportFormat.BINARY.ordinal()] < sizes[ReportFormat.JSON.ordinal()]);
+		Assert.assertTrue(sizes[ReportFormat.JSON.ordinal()] < sizes[ReportFormat.XML.ordinal()]);
+		// the epcs are packed: a quarter of the xml at most
+		Assert.assertTrue(4 * sizes[ReportFormat.BINARY.ordinal()] < sizes[ReportFormat.XML.ordinal()]);
+	}
+
+	/**
+	 * @return the reports encoded in the given format.
+	 */
+	static byte[] encode(ReportFormat format, ECReports reports) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		switch (format) {
+		case BINARY:
+			ECReportsBinaryCodec.encode(reports, stream);
+			break;
+		case JSON:
+			ECReportsJsonCodec.encode(reports, stream);
+			break;
+		default:
+			Assert.assertTrue(ECReportsWriter.write(reports, stream));
+		}
+		return stream.toByteArray();
+	}
+
+	private static void assertRoundTrip(ECReports reports) throws Exception {
+		String expected = xml(reports);
+
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		ECReportsBinaryCodec.encode(reports, binary);
+		Assert.assertEquals(expected, xml(ECReportsBinaryCodec.decode(new ByteArrayInputStream(binary.toByteArray()))));
+
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		ECReportsJsonCodec.encode(reports, json);
+		String text = new String(json.toByteArray(), "UTF-8");
+		Assert.assertEquals(-1, text.indexOf('\n'));
+		Assert.assertEquals(-1, text.indexOf('\u2028'));
+		Assert.assertEquals(expected, xml(ECReportsJsonCodec.decode(new ByteArrayInputStream(json.toByteArray()))));
+	}
+
+	private static String xml(ECReports reports) throws Exception {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		SerializerUtil.serializeECReports(reports, stream);
+		return new String(stream.toByteArray(), "UTF-8");
+	}
+
+	static ECReports createReports(int tags) {
+		ECReports reports = new ECReports();
+		reports.setSpecName("spec");
+		reports.setALEID("ale");
+		reports.setTotalMilliseconds(1000);
+		reports.setTerminationCondition("DURATION");
+		reports.setReports(new ECReports.Reports());
+		ECReport report = new ECReport();
+		report.setReportName("report");
+		reports.getReports().getReport().add(report);
+		ECReportGroup group = new ECReportGroup();
+		report.getGroup().add(group);
+		group.setGroupList(new ECReportGroupList());
+		for (int i = 0; i < tags; i++) {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			member.setEpc(createEPC("urn:epc:id:sgtin:0614141.107346." + i));
+			member.setTag(createEPC("urn:epc:tag:sgtin-96:3.0614141.107346." + i));
+			member.setRawHex(createEPC(String.format("urn:epc:raw:96.x3074257BF7194E40%08X", i)));
+			member.setRawDecimal(createEPC("urn:epc:raw:96." + (14998237452384L * 1000 + i)));
+			group.getGroupList().getMember().add(member);
+		}
+		group.setGroupCount(new ECReportGroupCount());
+		group.getGroupCount().setCount(tags);
+		return reports;
+	}
+
+	private static EPC createEPC(String value) {
+		EPC epc = new EPC();
+		epc.setValue(value);
+		return epc;
+	}
+
+	private static ECReportMemberField createField(String name, String value) {
+		ECReportMemberField field = new ECReportMemberField();
+		field.setName(name);
+		field.setValue(value);
+		return field;
+	}
+}
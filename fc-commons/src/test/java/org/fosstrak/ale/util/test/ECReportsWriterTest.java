@@ -0,0 +1,329 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.util.test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.util.ECReportsWriter;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+import org.junit.Test;
+
+/**
+ * test that the streamed reports are the marshalled ones.
+ */
+public class ECReportsWriterTest {
+
+	@Test
+	public void testMinimalReports() throws Exception {
+		ECReports reports = new ECReports();
+		reports.setSpecName("spec");
+		assertStreamed(reports);
+
+		reports.setReports(new ECReports.Reports());
+		assertStreamed(reports);
+	}
+
+	@Test
+	public void testReports() throws Exception {
+		assertStreamed(createReports(3));
+	}
+
+	@Test
+	public void testLargeReports() throws Exception {
+		assertStreamed(createReports(5000));
+	}
+
+	@Test
+	public void testFieldsAndStats() throws Exception {
+		ECReports reports = createReports(2);
+		XMLGregorianCalendar now = DatatypeFactory.newInstance().newXMLGregorianCalendar(new GregorianCalendar());
+		ECReportGroupListMember member = reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().get(0);
+		ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+		member.setExtension(extension);
+
+		extension.setFieldList(new ECReportGroupListMemberExtension.FieldList());
+		extension.getFieldList().getField().add(createField("userMemory", "a<b>c&d\"e'f]]>g\r\n\thé中"));
+		extension.getFieldList().getField().add(createField("empty", ""));
+		extension.getFieldList().getField().add(createField("none", null));
+
+		extension.setStats(new ECReportGroupListMemberExtension.Stats());
+		ECTagTimestampStat timestamps = new ECTagTimestampStat();
+		timestamps.setProfile("TagTimestamps");
+		timestamps.setStatBlocks(new ECTagStat.StatBlocks());
+		timestamps.setFirstSightingTime(now);
+		timestamps.setLastSightingTime(now);
+		extension.getStats().getStat().add(timestamps);
+		ECTagStat readers = new ECTagStat();
+		readers.setProfile("ReaderNames");
+		readers.setStatBlocks(new ECTagStat.StatBlocks());
+		ECReaderStat statBlock = new ECReaderStat();
+		statBlock.setReaderName("reader");
+		statBlock.setSightings(new ECReaderStat.Sightings());
+		statBlock.getSightings().getSighting().add(new ECSightingStat());
+		readers.getStatBlocks().getStatBlock().add(statBlock);
+		extension.getStats().getStat().add(readers);
+
+		reports.setDate(now);
+		reports.setCreationDate(now);
+		reports.setSchemaVersion(new BigDecimal("1.1"));
+		reports.setInitiationCondition("REQUESTED");
+		reports.setInitiationTrigger("urn:trigger");
+		reports.setTerminationCondition("DURATION");
+		reports.setTerminationTrigger("urn:trigger");
+		reports.setSchemaURL("http://host/ale?a=b&c=\"d\"<e");
+
+		ECReport empty = new ECReport();
+		empty.setReportName("empty");
+		ECReportGroup group = new ECReportGroup();
+		group.setGroupList(new ECReportGroupList());
+		group.setGroupCount(new ECReportGroupCount());
+		empty.getGroup().add(group);
+		empty.getGroup().add(new ECReportGroup());
+		empty.setExtension(new ECReportExtension());
+		reports.getReports().getReport().add(empty);
+		reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().add(new ECReportGroupListMember());
+		assertStreamed(reports);
+	}
+
+	@Test
+	public void testUnsupportedContent() throws Exception {
+		ECReports reports = createReports(1);
+		reports.setECSpec(new ECSpec());
+		Assert.assertFalse(ECReportsWriter.write(reports, new ByteArrayOutputStream()));
+
+		reports = createReports(1);
+		reports.getReports().getReport().get(0).getOtherAttributes().put(new QName("urn:vendor", "attribute"), "value");
+		Assert.assertFalse(ECReportsWriter.write(reports, new ByteArrayOutputStream()));
+
+		// the StAX implementations do not escape line breaks in attributes as JAXB does
+		reports = createReports(1);
+		reports.getReports().getReport().get(0).setReportName("line\nbreak");
+		Assert.assertFalse(ECReportsWriter.write(reports, new ByteArrayOutputStream()));
+	}
+
+	/**
+	 * the reports writing their groups themselves give the document of their JAXB groups.
+	 */
+	@Test
+	public void testGroupsWrittenByReport() throws Exception {
+		ECReports reports = createReports(3);
+		XMLGregorianCalendar now = DatatypeFactory.newInstance().newXMLGregorianCalendar(new GregorianCalendar());
+		ECReport report = reports.getReports().getReport().get(0);
+		ECReportGroup group = report.getGroup().get(0);
+		group.setGroupName("urn:epc:pat:sgtin:0614141.107346.*");
+		group.getGroupList().getMember().get(0).setTag(createEPC(""));
+		ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+		group.getGroupList().getMember().get(1).setExtension(extension);
+		extension.setFieldList(new ECReportGroupListMemberExtension.FieldList());
+		extension.getFieldList().getField().add(createField("userMemory", "a<b>&\"c\r\n"));
+		extension.getFieldList().getField().add(createField("epc", null));
+		extension.setStats(new ECReportGroupListMemberExtension.Stats());
+		ECTagTimestampStat timestamps = new ECTagTimestampStat();
+		timestamps.setProfile("TagTimestamps");
+		timestamps.setStatBlocks(new ECTagStat.StatBlocks());
+		timestamps.setFirstSightingTime(now);
+		timestamps.setLastSightingTime(now);
+		extension.getStats().getStat().add(timestamps);
+		ECTagStat readers = new ECTagStat();
+		readers.setProfile("ReaderNames");
+		readers.setStatBlocks(new ECTagStat.StatBlocks());
+		readers.getStatBlocks().getStatBlock().add(createReaderStat("reader"));
+		readers.getStatBlocks().getStatBlock().add(createReaderStat(null));
+		extension.getStats().getStat().add(readers);
+		ECReportGroup empty = new ECReportGroup();
+		empty.setGroupList(new ECReportGroupList());
+		report.getGroup().add(empty);
+
+		ECReports written = new ECReports();
+		written.setSpecName(reports.getSpecName());
+		written.setALEID(reports.getALEID());
+		written.setTotalMilliseconds(reports.getTotalMilliseconds());
+		written.setTerminationCondition(reports.getTerminationCondition());
+		written.setReports(new ECReports.Reports());
+		written.getReports().getReport().add(new WrittenGroups(report));
+		ECReport none = new ECReport();
+		none.setReportName("none");
+		written.getReports().getReport().add(new WrittenGroups(none));
+		reports.getReports().getReport().add(none);
+		assertStreamed(reports, written);
+	}
+
+	private static void assertStreamed(ECReports reports) throws Exception {
+		assertStreamed(reports, reports);
+	}
+
+	/**
+	 * asserts that the streamed document is byte for byte the marshalled one.
+	 */
+	private static void assertStreamed(ECReports reports, ECReports streamedReports) throws Exception {
+		ByteArrayOutputStream marshalled = new ByteArrayOutputStream();
+		SerializerUtil.serializeECReports(reports, marshalled);
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		Assert.assertTrue(ECReportsWriter.write(streamedReports, streamed));
+		Assert.assertEquals(new String(marshalled.toByteArray(), "UTF-8"), new String(streamed.toByteArray(), "UTF-8"));
+		Assert.assertTrue(Arrays.equals(marshalled.toByteArray(), streamed.toByteArray()));
+	}
+
+	private static ECReports createReports(int tags) {
+		ECReports reports = new ECReports();
+		reports.setSpecName("spec");
+		reports.setALEID("ale");
+		reports.setTotalMilliseconds(1000);
+		reports.setTerminationCondition("DURATION");
+		reports.setReports(new ECReports.Reports());
+		ECReport report = new ECReport();
+		report.setReportName("report");
+		reports.getReports().getReport().add(report);
+		ECReportGroup group = new ECReportGroup();
+		report.getGroup().add(group);
+		group.setGroupList(new ECReportGroupList());
+		for (int i = 0; i < tags; i++) {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			member.setEpc(createEPC("urn:epc:id:sgtin:0614141.107346." + i));
+			member.setTag(createEPC("urn:epc:tag:sgtin-96:3.0614141.107346." + i));
+			member.setRawHex(createEPC("urn:epc:raw:96.x3074257BF7194E4000001A85" + i));
+			member.setRawDecimal(createEPC("urn:epc:raw:96." + i));
+			group.getGroupList().getMember().add(member);
+		}
+		group.setGroupCount(new ECReportGroupCount());
+		group.getGroupCount().setCount(tags);
+		return reports;
+	}
+
+	private static ECReaderStat createReaderStat(String readerName) {
+		ECReaderStat statBlock = new ECReaderStat();
+		statBlock.setReaderName(readerName);
+		statBlock.setSightings(new ECReaderStat.Sightings());
+		statBlock.getSightings().getSighting().add(new ECSightingStat());
+		return statBlock;
+	}
+
+	private static EPC createEPC(String value) {
+		EPC epc = new EPC();
+		epc.setValue(value);
+		return epc;
+	}
+
+	private static ECReportMemberField createField(String name, String value) {
+		ECReportMemberField field = new ECReportMemberField();
+		field.setName(name);
+		field.setValue(value);
+		return field;
+	}
+
+	/**
+	 * report writing the groups of another report through the group writer.
+	 */
+	private static final class WrittenGroups extends ECReport implements ECReportsWriter.Groups {
+
+		private final List<ECReportGroup> groups;
+
+		private WrittenGroups(ECReport report) {
+			setReportName(report.getReportName());
+			groups = report.getGroup();
+		}
+
+		@Override
+		public List<ECReportGroup> getGroup() {
+			throw new IllegalStateException("the groups are written by the report");
+		}
+
+		@Override
+		public boolean hasGroups() {
+			return !groups.isEmpty();
+		}
+
+		@Override
+		public void writeGroups(ECReportsWriter.GroupWriter writer) throws XMLStreamException {
+			for (ECReportGroup group : groups) {
+				List<ECReportGroupListMember> members = group.getGroupList().getMember();
+				writer.startGroup(group.getGroupName(), !members.isEmpty());
+				for (ECReportGroupListMember member : members) {
+					ECReportGroupListMemberExtension extension = member.getExtension();
+					boolean empty = null == member.getEpc() && null == member.getTag() && null == member.getRawHex()
+							&& null == member.getRawDecimal() && null == extension;
+					writer.startMember(empty);
+					writeEPC(writer, "epc", member.getEpc());
+					writeEPC(writer, "tag", member.getTag());
+					writeEPC(writer, "rawHex", member.getRawHex());
+					writeEPC(writer, "rawDecimal", member.getRawDecimal());
+					if (null != extension) {
+						writer.startExtension();
+						List<ECReportMemberField> fields = extension.getFieldList().getField();
+						writer.startFieldList(fields.isEmpty());
+						for (ECReportMemberField field : fields) {
+							writer.writeField(field.getName(), field.getValue());
+						}
+						writer.endFieldList(fields.isEmpty());
+						List<ECTagStat> stats = extension.getStats().getStat();
+						writer.startStats(stats.isEmpty());
+						for (ECTagStat stat : stats) {
+							if (stat instanceof ECTagTimestampStat) {
+								ECTagTimestampStat timestamps = (ECTagTimestampStat) stat;
+								writer.writeTimestampStat(stat.getProfile(), timestamps.getFirstSightingTime(), timestamps.getLastSightingTime());
+							} else {
+								List<String> readerNames = new ArrayList<String>();
+								for (ECReaderStat statBlock : stat.getStatBlocks().getStatBlock()) {
+									readerNames.add(statBlock.getReaderName());
+								}
+								writer.writeReaderStat(stat.getProfile(), readerNames);
+							}
+						}
+						writer.endStats(stats.isEmpty());
+						writer.endExtension();
+					}
+					writer.endMember(empty);
+				}
+				writer.endGroup(!members.isEmpty(), (null == group.getGroupCount()) ? null : Integer.valueOf(group.getGroupCount().getCount()));
+			}
+		}
+
+		private static void writeEPC(ECReportsWriter.GroupWriter writer, String name, EPC epc) throws XMLStreamException {
+			if (null != epc) {
+				writer.writeEPC(name, epc.getValue());
+			}
+		}
+	}
+}
@@ -34,6 +34,7 @@ import kr.ac.kaist.resl.ltk.net.LLRPConnectionAttemptFailedException;
 import kr.ac.kaist.resl.ltk.net.LLRPConnector;
 import kr.ac.kaist.resl.ltk.net.LLRPEndpoint;
 import kr.ac.kaist.resl.ltk.net.LLRPIoHandlerAdapter;
+import kr.ac.kaist.resl.ltk.net.LLRPRawEndpoint;
 
 import org.apache.log4j.Logger;
 import org.apache.mina.core.session.IoSession;
@@ -67,7 +68,7 @@ import org.llrp.ltk.types.UnsignedInteger;
  * @author sawielan
  *
  */
-public class ReaderImpl extends UnicastRemoteObject implements LLRPEndpoint, Reader {
+public class ReaderImpl extends UnicastRemoteObject implements LLRPRawEndpoint, Reader {
 	
 	/**
 	 * serial version.
@@ -377,7 +378,27 @@ public class ReaderImpl extends UnicastRemoteObject implements LLRPEndpoint, Rea
 			}
 		}
 		
-		// put the message into the inqueue.
+		enqueue(binaryEncoded);
+	}
+
+	/**
+	 * when an RO_ACCESS_REPORT arrives through ltk, this method is called. the 
+	 * frame is queued as is, without decoding and encoding it again.
+	 * @param message the binary RO_ACCESS_REPORT delivered by ltk.
+	 */
+	public void rawMessageReceived(byte[] message) {
+		if (message == null) {
+			return;
+		}
+		metaData._packageReceived();
+		enqueue(message);
+	}
+
+	/**
+	 * put the message into the inqueue.
+	 * @param binaryEncoded the binary encoded LLRP message.
+	 */
+	private void enqueue(byte[] binaryEncoded) {
 		synchronized (inqueue) {
 			inqueue.add(binaryEncoded);
 			inqueue.notifyAll();
@@ -29,6 +29,8 @@ import org.llrp.ltk.types.LLRPMessage;
 
 /**
 	 * LLRPBinaryDecoder decodes incoming binary LLRP messages to LLRPMessage objects.
+	 * the RO_ACCESS_REPORTs are not decoded, they are passed on as their binary frame (byte[]) 
+	 * and delivered to the {@link LLRPRawEndpoint}s as is.
  */
 
 public class LLRPBinaryDecoder extends CumulativeProtocolDecoder {
@@ -265,10 +267,15 @@ public class LLRPBinaryDecoder extends CumulativeProtocolDecoder {
 					msg[i] = (byte) in.get();
 				}
 				log.debug("message completely received");
-				log.debug("start decoding message");
-				LLRPMessage message = LLRPMessageFactory.createLLRPMessage(msg);
-				log.debug("message decoded: " + message.getClass());
-				out.write(message);
+				if (ROAccessReportDecoder.getMessageType(msg) == ROAccessReportDecoder.TYPENUM) {
+					// the tag reports are decoded straight from the frame by the endpoint
+					out.write(msg);
+				} else {
+					log.debug("start decoding message");
+					LLRPMessage message = LLRPMessageFactory.createLLRPMessage(msg);
+					log.debug("message decoded: " + message.getClass());
+					out.write(message);
+				}
 				session.removeAttribute(MESSAGE_LENGTH_ARRAY);
 				session.removeAttribute(MESSAGE_LENGTH_KEY);
 				session.removeAttribute(MESSAGE_VERSION_KEY);
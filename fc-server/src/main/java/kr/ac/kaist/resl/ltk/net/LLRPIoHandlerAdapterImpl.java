@@ -23,10 +23,12 @@ import java.util.concurrent.LinkedBlockingQueue;
 import org.apache.log4j.Logger;
 import org.apache.mina.core.session.IdleStatus;
 import org.apache.mina.core.session.IoSession;
+import kr.ac.kaist.resl.ltk.generated.LLRPMessageFactory;
 import kr.ac.kaist.resl.ltk.generated.messages.KEEPALIVE;
 import kr.ac.kaist.resl.ltk.generated.messages.KEEPALIVE_ACK;
 import kr.ac.kaist.resl.ltk.generated.messages.READER_EVENT_NOTIFICATION;
 import kr.ac.kaist.resl.ltk.generated.parameters.ConnectionAttemptEvent;
+import org.llrp.ltk.exceptions.InvalidLLRPMessageException;
 import org.llrp.ltk.types.LLRPMessage;
 
 /**
@@ -72,11 +74,17 @@ public class LLRPIoHandlerAdapterImpl extends LLRPIoHandlerAdapter{
 	 * method. Matching messages are stored in a queue that can be retrieved via the 
 	 * getSynMessageQueue() method. All incoming messages except KEEP_ALIVE and those identified
 	 * as synchronous responses to the LLRPConnection.transact method are passed to the
-	 * LLRPEndpoint registered.
+	 * LLRPEndpoint registered. The RO_ACCESS_REPORTs arrive as their binary frame and are 
+	 * passed on by {@link #deliver(LLRPEndpoint, byte[])}.
 	 */
 	
 	public void messageReceived(IoSession session, Object message)
 			throws Exception {		
+		if (message instanceof byte[]) {
+			log.debug("RO_ACCESS_REPORT received in session "+session);
+			deliver(connection.getEndpoint(), (byte[]) message);
+			return;
+		}
 		LLRPMessage llrpMessage = (LLRPMessage) message;
 		log.info("message "+message.getClass()+" received in session "+session);
 		if (log.isDebugEnabled()) {
@@ -113,6 +121,21 @@ public class LLRPIoHandlerAdapterImpl extends LLRPIoHandlerAdapter{
 		}
 	}
 
+	/**
+	 * passes a binary RO_ACCESS_REPORT to an endpoint: as is to an LLRPRawEndpoint, decoded 
+	 * by the generic LLRPMessageFactory to the other endpoints.
+	 * @param endpoint the endpoint receiving the report.
+	 * @param message the binary RO_ACCESS_REPORT.
+	 * @throws InvalidLLRPMessageException if the report can not be decoded for an endpoint without the raw delivery.
+	 */
+	public static void deliver(LLRPEndpoint endpoint, byte[] message) throws InvalidLLRPMessageException {
+		if (endpoint instanceof LLRPRawEndpoint) {
+			((LLRPRawEndpoint) endpoint).rawMessageReceived(message);
+		} else {
+			endpoint.messageReceived(LLRPMessageFactory.createLLRPMessage(message));
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package kr.ac.kaist.resl.ltk.net;
+
+/**
+ * an LLRPEndpoint receiving the RO_ACCESS_REPORTs as their binary frame. the LLRPBinaryDecoder
+ * does not decode these reports into the generated message classes, the endpoint hands the frame
+ * on as is (eg. to the {@link ROAccessReportDecoder}). the endpoints not implementing this interface
+ * receive the reports decoded by the generic LLRPMessageFactory.
+ */
+public interface LLRPRawEndpoint extends LLRPEndpoint {
+
+	/**
+	 * is called by the LLRPIoHandler whenever an RO_ACCESS_REPORT is received.
+	 * @param message the binary RO_ACCESS_REPORT, header included. the array is not shared.
+	 */
+	public void rawMessageReceived(byte[] message);
+}
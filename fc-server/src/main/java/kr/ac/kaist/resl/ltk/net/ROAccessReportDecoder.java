@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package kr.ac.kaist.resl.ltk.net;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * decodes the tag reports of a binary RO_ACCESS_REPORT straight from its buffer into a
+ * reusable {@link TagReportView}, without the LLRPBitList and the generated parameter objects.<br/>
+ * the decoder handles the TagReportData with the EPCData or EPC-96, the TV parameters of the
+ * tag report (AntennaID, PeakRSSI, timestamps, TagSeenCount, ...), the C1G2 PC and CRC and the
+ * C1G2 op spec results. {@link #wrap(ByteBuffer)} refuses the messages holding other parameters
+ * (custom parameters, RF survey data or unknown parameters) as well as malformed messages, these
+ * are decoded by the generic LLRPMessageFactory instead.<br/>
+ * usage:
+ * <pre>
+ * if (decoder.wrap(buffer)) {
+ *     while (decoder.next(view)) {
+ *         ...
+ *     }
+ * } else {
+ *     // generic path
+ * }
+ * </pre>
+ * a decoder is not thread safe, it is reused for the consecutive messages of a reader.
+ */
+public final class ROAccessReportDecoder {
+
+	/** the message type of an RO_ACCESS_REPORT. */
+	public static final int TYPENUM = 61;
+
+	/** the length of the message header: version and type, length, message id. */
+	private static final int HEADER_LENGTH = 10;
+
+	/** the length of the header of a TLV parameter: type and length. */
+	private static final int TLV_HEADER_LENGTH = 4;
+
+	private static final int TAG_REPORT_DATA = 240;
+	private static final int EPC_DATA = 241;
+
+	// the types of the TV parameters
+	private static final int ANTENNA_ID = 1;
+	private static final int FIRST_SEEN_UTC = 2;
+	private static final int FIRST_SEEN_UPTIME = 3;
+	private static final int LAST_SEEN_UTC = 4;
+	private static final int LAST_SEEN_UPTIME = 5;
+	private static final int PEAK_RSSI = 6;
+	private static final int CHANNEL_INDEX = 7;
+	private static final int TAG_SEEN_COUNT = 8;
+	private static final int ROSPEC_ID = 9;
+	private static final int INVENTORY_PARAMETER_SPEC_ID = 10;
+	private static final int C1G2_CRC = 11;
+	private static final int C1G2_PC = 12;
+	private static final int EPC_96 = 13;
+	private static final int SPEC_INDEX = 14;
+	private static final int ACCESS_SPEC_ID = 16;
+
+	/** the length of the value of the TV parameters by type, -1 for the unknown types. */
+	private static final int[] TV_LENGTH = new int[128];
+
+	static {
+		Arrays.fill(TV_LENGTH, -1);
+		TV_LENGTH[ANTENNA_ID] = 2;
+		TV_LENGTH[FIRST_SEEN_UTC] = 8;
+		TV_LENGTH[FIRST_SEEN_UPTIME] = 8;
+		TV_LENGTH[LAST_SEEN_UTC] = 8;
+		TV_LENGTH[LAST_SEEN_UPTIME] = 8;
+		TV_LENGTH[PEAK_RSSI] = 1;
+		TV_LENGTH[CHANNEL_INDEX] = 2;
+		TV_LENGTH[TAG_SEEN_COUNT] = 2;
+		TV_LENGTH[ROSPEC_ID] = 4;
+		TV_LENGTH[INVENTORY_PARAMETER_SPEC_ID] = 2;
+		TV_LENGTH[C1G2_CRC] = 2;
+		TV_LENGTH[C1G2_PC] = 2;
+		TV_LENGTH[EPC_96] = 12;
+		TV_LENGTH[SPEC_INDEX] = 2;
+		TV_LENGTH[ACCESS_SPEC_ID] = 4;
+	}
+
+	/** the buffer of the message. */
+	private ByteBuffer buffer;
+
+	/** the position of the next tag report. */
+	private int position;
+
+	/** the end of the message. */
+	private int limit;
+
+	/**
+	 * @param message the binary message.
+	 * @return the type of the message, -1 if the message is shorter than its header.
+	 */
+	public static int getMessageType(byte[] message) {
+		if ((null == message) || (message.length < HEADER_LENGTH)) {
+			return -1;
+		}
+		return ((message[0] & 0x03) << 8) | (message[1] & 0xFF);
+	}
+
+	/**
+	 * prepares the decoding of the RO_ACCESS_REPORT starting at the position of the buffer.
+	 * the whole message is validated, the buffer must not be modified while it is decoded.
+	 * the buffer must be in network (big endian) byte order.
+	 * @param buffer the buffer holding the message.
+	 * @return true if the tag reports can be decoded by {@link #next(TagReportView)}, false if
+	 * the message is not an RO_ACCESS_REPORT, is malformed or holds parameters this decoder does
+	 * not handle.
+	 */
+	public boolean wrap(ByteBuffer buffer) {
+		this.buffer = null;
+		int start = buffer.position();
+		if ((buffer.remaining() < HEADER_LENGTH) || (buffer.order() != ByteOrder.BIG_ENDIAN)) {
+			return false;
+		}
+		if ((buffer.getShort(start) & 0x3FF) != TYPENUM) {
+			return false;
+		}
+		long length = buffer.getInt(start + 2) & 0xFFFFFFFFL;
+		if ((length < HEADER_LENGTH) || (length > buffer.remaining())) {
+			return false;
+		}
+		int end = start + (int) length;
+		int p = start + HEADER_LENGTH;
+		while (p < end) {
+			int parameterEnd = getTLVEnd(buffer, p, end);
+			if ((parameterEnd < 0) || (getTLVType(buffer, p) != TAG_REPORT_DATA) || !isSupportedTagReport(buffer, p + TLV_HEADER_LENGTH, parameterEnd)) {
+				return false;
+			}
+			p = parameterEnd;
+		}
+		this.buffer = buffer;
+		this.position = start + HEADER_LENGTH;
+		this.limit = end;
+		return true;
+	}
+
+	/**
+	 * decodes the next tag report of the wrapped message.
+	 * @param view the view receiving the tag report.
+	 * @return false if all the tag reports have been decoded.
+	 */
+	public boolean next(TagReportView view) {
+		if ((null == buffer) || (position >= limit)) {
+			return false;
+		}
+		int end = position + (buffer.getShort(position + 2) & 0xFFFF);
+		view.reset(buffer);
+		int p = position + TLV_HEADER_LENGTH;
+		while (p < end) {
+			int b = buffer.get(p) & 0xFF;
+			if ((b & 0x80) != 0) {
+				p = decodeTV(view, b & 0x7F, p + 1);
+			} else {
+				int parameterEnd = p + (buffer.getShort(p + 2) & 0xFFFF);
+				decodeTLV(view, getTLVType(buffer, p), p + TLV_HEADER_LENGTH);
+				p = parameterEnd;
+			}
+		}
+		position = end;
+		return true;
+	}
+
+	/**
+	 * decodes a TV parameter of a tag report.
+	 * @return the position after the parameter.
+	 */
+	private int decodeTV(TagReportView view, int type, int p) {
+		switch (type) {
+		case EPC_96:
+			view.setEPC(p, 96, true);
+			break;
+		case ANTENNA_ID:
+			view.setAntennaID(getUnsignedShort(p));
+			break;
+		case PEAK_RSSI:
+			view.setPeakRSSI(buffer.get(p));
+			break;
+		case FIRST_SEEN_UTC:
+			view.setFirstSeenTimestampUTC(buffer.getLong(p));
+			break;
+		case FIRST_SEEN_UPTIME:
+			view.setFirstSeenTimestampUptime(buffer.getLong(p));
+			break;
+		case LAST_SEEN_UTC:
+			view.setLastSeenTimestampUTC(buffer.getLong(p));
+			break;
+		case LAST_SEEN_UPTIME:
+			view.setLastSeenTimestampUptime(buffer.getLong(p));
+			break;
+		case TAG_SEEN_COUNT:
+			view.setTagSeenCount(getUnsignedShort(p));
+			break;
+		case CHANNEL_INDEX:
+			view.setChannelIndex(getUnsignedShort(p));
+			break;
+		case ROSPEC_ID:
+			view.setROSpecID(buffer.getInt(p) & 0xFFFFFFFFL);
+			break;
+		case SPEC_INDEX:
+			view.setSpecIndex(getUnsignedShort(p));
+			break;
+		case INVENTORY_PARAMETER_SPEC_ID:
+			view.setInventoryParameterSpecID(getUnsignedShort(p));
+			break;
+		case ACCESS_SPEC_ID:
+			view.setAccessSpecID(buffer.getInt(p) & 0xFFFFFFFFL);
+			break;
+		case C1G2_PC:
+			view.setPC(getUnsignedShort(p));
+			break;
+		case C1G2_CRC:
+			view.setCRC(getUnsignedShort(p));
+			break;
+		default:
+			// validated by wrap
+		}
+		return p + TV_LENGTH[type];
+	}
+
+	/**
+	 * decodes a TLV parameter of a tag report, p is the position of its value.
+	 */
+	private void decodeTLV(TagReportView view, int type, int p) {
+		switch (type) {
+		case EPC_DATA:
+			view.setEPC(p + 2, getUnsignedShort(p), false);
+			break;
+		case TagReportView.C1G2_READ_RESULT:
+			view.addOpSpecResult(type, getUnsignedShort(p + 1), buffer.get(p) & 0xFF, getUnsignedShort(p + 3), p + 5);
+			break;
+		case TagReportView.C1G2_WRITE_RESULT:
+		case TagReportView.C1G2_BLOCK_WRITE_RESULT:
+			view.addOpSpecResult(type, getUnsignedShort(p + 1), buffer.get(p) & 0xFF, getUnsignedShort(p + 3), -1);
+			break;
+		default:
+			// kill, lock and block erase: result and op spec id only
+			view.addOpSpecResult(type, getUnsignedShort(p + 1), buffer.get(p) & 0xFF, 0, -1);
+		}
+	}
+
+	private int getUnsignedShort(int p) {
+		return buffer.getShort(p) & 0xFFFF;
+	}
+
+	/**
+	 * checks that a tag report holds an EPC and the handled parameters only, with valid lengths.
+	 * @param p the position of the first parameter of the tag report.
+	 * @param end the end of the tag report.
+	 */
+	private static boolean isSupportedTagReport(ByteBuffer buffer, int p, int end) {
+		boolean epc = false;
+		while (p < end) {
+			int b = buffer.get(p) & 0xFF;
+			if ((b & 0x80) != 0) {
+				int length = TV_LENGTH[b & 0x7F];
+				if ((length < 0) || (p + 1 + length > end)) {
+					return false;
+				}
+				epc |= ((b & 0x7F) == EPC_96);
+				p += 1 + length;
+				continue;
+			}
+			int parameterEnd = getTLVEnd(buffer, p, end);
+			if (parameterEnd < 0) {
+				return false;
+			}
+			int value = p + TLV_HEADER_LENGTH;
+			int length = parameterEnd - value;
+			switch (getTLVType(buffer, p)) {
+			case EPC_DATA:
+				if ((length < 2) || ((buffer.getShort(value) & 0xFFFF) + 7) / 8 > length - 2) {
+					return false;
+				}
+				epc = true;
+				break;
+			case TagReportView.C1G2_READ_RESULT:
+				if ((length < 5) || (buffer.getShort(value + 3) & 0xFFFF) * 2 > length - 5) {
+					return false;
+				}
+				break;
+			case TagReportView.C1G2_WRITE_RESULT:
+			case TagReportView.C1G2_BLOCK_WRITE_RESULT:
+				if (length < 5) {
+					return false;
+				}
+				break;
+			case TagReportView.C1G2_KILL_RESULT:
+			case TagReportView.C1G2_LOCK_RESULT:
+			case TagReportView.C1G2_BLOCK_ERASE_RESULT:
+				if (length < 3) {
+					return false;
+				}
+				break;
+			default:
+				// custom or unknown parameter
+				return false;
+			}
+			p = parameterEnd;
+		}
+		return epc;
+	}
+
+	private static int getTLVType(ByteBuffer buffer, int p) {
+		return buffer.getShort(p) & 0x3FF;
+	}
+
+	/**
+	 * @param p the position of a TLV parameter.
+	 * @param end the end of the enclosing parameter or message.
+	 * @return the end of the parameter, -1 if it is a TV parameter or its length is invalid.
+	 */
+	private static int getTLVEnd(ByteBuffer buffer, int p, int end) {
+		if ((p + TLV_HEADER_LENGTH > end) || ((buffer.get(p) & 0x80) != 0)) {
+			return -1;
+		}
+		int length = buffer.getShort(p + 2) & 0xFFFF;
+		if ((length < TLV_HEADER_LENGTH) || (p + length > end)) {
+			return -1;
+		}
+		return p + length;
+	}
+}
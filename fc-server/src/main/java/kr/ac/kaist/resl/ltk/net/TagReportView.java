@@ -0,0 +1,477 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+
+package kr.ac.kaist.resl.ltk.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * reusable view of one TagReportData parameter of an RO_ACCESS_REPORT, filled by the
+ * {@link ROAccessReportDecoder}. the view reads the EPC and the read data straight from
+ * the buffer of the message, it is valid until the decoder fills it with the next tag
+ * report or the buffer is modified.
+ */
+public final class TagReportView {
+
+	/** type of a C1G2ReadOpSpecResult. */
+	public static final int C1G2_READ_RESULT = 349;
+	/** type of a C1G2WriteOpSpecResult. */
+	public static final int C1G2_WRITE_RESULT = 350;
+	/** type of a C1G2KillOpSpecResult. */
+	public static final int C1G2_KILL_RESULT = 351;
+	/** type of a C1G2LockOpSpecResult. */
+	public static final int C1G2_LOCK_RESULT = 352;
+	/** type of a C1G2BlockEraseOpSpecResult. */
+	public static final int C1G2_BLOCK_ERASE_RESULT = 353;
+	/** type of a C1G2BlockWriteOpSpecResult. */
+	public static final int C1G2_BLOCK_WRITE_RESULT = 354;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	// flags of the optional fields
+	private static final int ANTENNA_ID = 1;
+	private static final int PEAK_RSSI = 1 << 1;
+	private static final int CHANNEL_INDEX = 1 << 2;
+	private static final int FIRST_SEEN_UTC = 1 << 3;
+	private static final int FIRST_SEEN_UPTIME = 1 << 4;
+	private static final int LAST_SEEN_UTC = 1 << 5;
+	private static final int LAST_SEEN_UPTIME = 1 << 6;
+	private static final int TAG_SEEN_COUNT = 1 << 7;
+	private static final int ROSPEC_ID = 1 << 8;
+	private static final int SPEC_INDEX = 1 << 9;
+	private static final int INVENTORY_PARAMETER_SPEC_ID = 1 << 10;
+	private static final int ACCESS_SPEC_ID = 1 << 11;
+	private static final int PC = 1 << 12;
+	private static final int CRC = 1 << 13;
+
+	/** the buffer of the message. */
+	private ByteBuffer buffer;
+
+	/** the fields present in the tag report. */
+	private int present;
+
+	private boolean epc96;
+	private int epcOffset;
+	private int epcBits;
+
+	private int antennaID;
+	private int peakRSSI;
+	private int channelIndex;
+	private long firstSeenUTC;
+	private long firstSeenUptime;
+	private long lastSeenUTC;
+	private long lastSeenUptime;
+	private int tagSeenCount;
+	private long roSpecID;
+	private int specIndex;
+	private int inventoryParameterSpecID;
+	private long accessSpecID;
+	private int pc;
+	private int crc;
+
+	/** the op spec results: type, op spec id, result, number of words written and offset of the read data. */
+	private int opCount;
+	private int[] opType = new int[2];
+	private int[] opSpecID = new int[2];
+	private int[] opResult = new int[2];
+	private int[] opWords = new int[2];
+	private int[] opDataOffset = new int[2];
+
+	/**
+	 * clears the view before a tag report is decoded into it.
+	 * @param buffer the buffer of the message.
+	 */
+	void reset(ByteBuffer buffer) {
+		this.buffer = buffer;
+		present = 0;
+		epc96 = false;
+		epcOffset = -1;
+		epcBits = 0;
+		opCount = 0;
+	}
+
+	void setEPC(int offset, int bits, boolean epc96) {
+		this.epcOffset = offset;
+		this.epcBits = bits;
+		this.epc96 = epc96;
+	}
+
+	void setAntennaID(int antennaID) {
+		this.antennaID = antennaID;
+		present |= ANTENNA_ID;
+	}
+
+	void setPeakRSSI(int peakRSSI) {
+		this.peakRSSI = peakRSSI;
+		present |= PEAK_RSSI;
+	}
+
+	void setChannelIndex(int channelIndex) {
+		this.channelIndex = channelIndex;
+		present |= CHANNEL_INDEX;
+	}
+
+	void setFirstSeenTimestampUTC(long microseconds) {
+		this.firstSeenUTC = microseconds;
+		present |= FIRST_SEEN_UTC;
+	}
+
+	void setFirstSeenTimestampUptime(long microseconds) {
+		this.firstSeenUptime = microseconds;
+		present |= FIRST_SEEN_UPTIME;
+	}
+
+	void setLastSeenTimestampUTC(long microseconds) {
+		this.lastSeenUTC = microseconds;
+		present |= LAST_SEEN_UTC;
+	}
+
+	void setLastSeenTimestampUptime(long microseconds) {
+		this.lastSeenUptime = microseconds;
+		present |= LAST_SEEN_UPTIME;
+	}
+
+	void setTagSeenCount(int tagSeenCount) {
+		this.tagSeenCount = tagSeenCount;
+		present |= TAG_SEEN_COUNT;
+	}
+
+	void setROSpecID(long roSpecID) {
+		this.roSpecID = roSpecID;
+		present |= ROSPEC_ID;
+	}
+
+	void setSpecIndex(int specIndex) {
+		this.specIndex = specIndex;
+		present |= SPEC_INDEX;
+	}
+
+	void setInventoryParameterSpecID(int inventoryParameterSpecID) {
+		this.inventoryParameterSpecID = inventoryParameterSpecID;
+		present |= INVENTORY_PARAMETER_SPEC_ID;
+	}
+
+	void setAccessSpecID(long accessSpecID) {
+		this.accessSpecID = accessSpecID;
+		present |= ACCESS_SPEC_ID;
+	}
+
+	void setPC(int pc) {
+		this.pc = pc;
+		present |= PC;
+	}
+
+	void setCRC(int crc) {
+		this.crc = crc;
+		present |= CRC;
+	}
+
+	/**
+	 * adds an op spec result.
+	 * @param type the type of the result parameter.
+	 * @param opSpecID the op spec id.
+	 * @param result the result code.
+	 * @param words the number of words written or read.
+	 * @param dataOffset the offset of the read data in the buffer, -1 if none.
+	 */
+	void addOpSpecResult(int type, int opSpecID, int result, int words, int dataOffset) {
+		if (opCount == opType.length) {
+			int size = opCount * 2;
+			this.opType = grow(this.opType, size);
+			this.opSpecID = grow(this.opSpecID, size);
+			this.opResult = grow(this.opResult, size);
+			this.opWords = grow(this.opWords, size);
+			this.opDataOffset = grow(this.opDataOffset, size);
+		}
+		this.opType[opCount] = type;
+		this.opSpecID[opCount] = opSpecID;
+		this.opResult[opCount] = result;
+		this.opWords[opCount] = words;
+		this.opDataOffset[opCount] = dataOffset;
+		opCount++;
+	}
+
+	private static int[] grow(int[] array, int size) {
+		int[] grown = new int[size];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/**
+	 * @return true if the EPC was reported as EPC-96, false if reported as EPCData.
+	 */
+	public boolean isEPC96() {
+		return epc96;
+	}
+
+	/**
+	 * @return the number of bits of the EPC.
+	 */
+	public int getEPCBitLength() {
+		return epcBits;
+	}
+
+	/**
+	 * @return the number of bytes of the EPC, the last byte is padded with zero bits.
+	 */
+	public int getEPCByteLength() {
+		return (epcBits + 7) / 8;
+	}
+
+	/**
+	 * @param index the index of the byte, 0 is the most significant byte.
+	 * @return the byte of the EPC.
+	 */
+	public byte getEPCByte(int index) {
+		if ((index < 0) || (index >= getEPCByteLength())) {
+			throw new IndexOutOfBoundsException("epc byte " + index);
+		}
+		return buffer.get(epcOffset + index);
+	}
+
+	/**
+	 * appends the EPC as lower case hex string with all its digits.
+	 * @param sb the string builder.
+	 * @return the string builder.
+	 */
+	public StringBuilder appendEPCHex(StringBuilder sb) {
+		return appendHex(sb, epcOffset, getEPCByteLength());
+	}
+
+	/**
+	 * @return true if the AntennaID was reported.
+	 */
+	public boolean hasAntennaID() {
+		return (present & ANTENNA_ID) != 0;
+	}
+
+	public int getAntennaID() {
+		return antennaID;
+	}
+
+	/**
+	 * @return true if the PeakRSSI was reported.
+	 */
+	public boolean hasPeakRSSI() {
+		return (present & PEAK_RSSI) != 0;
+	}
+
+	/**
+	 * @return the peak rssi in dBm (signed).
+	 */
+	public int getPeakRSSI() {
+		return peakRSSI;
+	}
+
+	public boolean hasChannelIndex() {
+		return (present & CHANNEL_INDEX) != 0;
+	}
+
+	public int getChannelIndex() {
+		return channelIndex;
+	}
+
+	public boolean hasFirstSeenTimestampUTC() {
+		return (present & FIRST_SEEN_UTC) != 0;
+	}
+
+	/**
+	 * @return the microseconds since the epoch the tag was first seen.
+	 */
+	public long getFirstSeenTimestampUTC() {
+		return firstSeenUTC;
+	}
+
+	public boolean hasFirstSeenTimestampUptime() {
+		return (present & FIRST_SEEN_UPTIME) != 0;
+	}
+
+	/**
+	 * @return the microseconds since the reader started the tag was first seen.
+	 */
+	public long getFirstSeenTimestampUptime() {
+		return firstSeenUptime;
+	}
+
+	public boolean hasLastSeenTimestampUTC() {
+		return (present & LAST_SEEN_UTC) != 0;
+	}
+
+	/**
+	 * @return the microseconds since the epoch the tag was last seen.
+	 */
+	public long getLastSeenTimestampUTC() {
+		return lastSeenUTC;
+	}
+
+	public boolean hasLastSeenTimestampUptime() {
+		return (present & LAST_SEEN_UPTIME) != 0;
+	}
+
+	/**
+	 * @return the microseconds since the reader started the tag was last seen.
+	 */
+	public long getLastSeenTimestampUptime() {
+		return lastSeenUptime;
+	}
+
+	public boolean hasTagSeenCount() {
+		return (present & TAG_SEEN_COUNT) != 0;
+	}
+
+	public int getTagSeenCount() {
+		return tagSeenCount;
+	}
+
+	public boolean hasROSpecID() {
+		return (present & ROSPEC_ID) != 0;
+	}
+
+	public long getROSpecID() {
+		return roSpecID;
+	}
+
+	public boolean hasSpecIndex() {
+		return (present & SPEC_INDEX) != 0;
+	}
+
+	public int getSpecIndex() {
+		return specIndex;
+	}
+
+	public boolean hasInventoryParameterSpecID() {
+		return (present & INVENTORY_PARAMETER_SPEC_ID) != 0;
+	}
+
+	public int getInventoryParameterSpecID() {
+		return inventoryParameterSpecID;
+	}
+
+	public boolean hasAccessSpecID() {
+		return (present & ACCESS_SPEC_ID) != 0;
+	}
+
+	public long getAccessSpecID() {
+		return accessSpecID;
+	}
+
+	/**
+	 * @return true if the C1G2 PC bits were reported.
+	 */
+	public boolean hasPC() {
+		return (present & PC) != 0;
+	}
+
+	public int getPC() {
+		return pc;
+	}
+
+	/**
+	 * @return true if the C1G2 CRC was reported.
+	 */
+	public boolean hasCRC() {
+		return (present & CRC) != 0;
+	}
+
+	public int getCRC() {
+		return crc;
+	}
+
+	/**
+	 * @return the number of op spec results.
+	 */
+	public int getOpSpecResultCount() {
+		return opCount;
+	}
+
+	/**
+	 * @param index the index of the result.
+	 * @return the type of the result parameter, one of the <code>C1G2_..._RESULT</code> constants.
+	 */
+	public int getOpSpecResultType(int index) {
+		checkOpSpecResult(index);
+		return opType[index];
+	}
+
+	public int getOpSpecID(int index) {
+		checkOpSpecResult(index);
+		return opSpecID[index];
+	}
+
+	/**
+	 * @param index the index of the result.
+	 * @return the result code of the operation.
+	 */
+	public int getOpSpecResult(int index) {
+		checkOpSpecResult(index);
+		return opResult[index];
+	}
+
+	/**
+	 * @param index the index of the result.
+	 * @return the number of words written by a write or block write, the number of words read by a read, 0 otherwise.
+	 */
+	public int getOpSpecWordCount(int index) {
+		checkOpSpecResult(index);
+		return opWords[index];
+	}
+
+	/**
+	 * @param index the index of the result.
+	 * @param word the index of the word.
+	 * @return the word read by a read operation.
+	 */
+	public int getReadDataWord(int index, int word) {
+		checkOpSpecResult(index);
+		if ((opDataOffset[index] < 0) || (word < 0) || (word >= opWords[index])) {
+			throw new IndexOutOfBoundsException("read data word " + word);
+		}
+		return buffer.getShort(opDataOffset[index] + word * 2) & 0xFFFF;
+	}
+
+	/**
+	 * appends the data read by a read operation as lower case hex words separated by a space.
+	 * @param index the index of the result.
+	 * @param sb the string builder.
+	 * @return the string builder.
+	 */
+	public StringBuilder appendReadDataHex(int index, StringBuilder sb) {
+		checkOpSpecResult(index);
+		if (opDataOffset[index] < 0) {
+			return sb;
+		}
+		for (int i = 0; i < opWords[index]; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			appendHex(sb, opDataOffset[index] + i * 2, 2);
+		}
+		return sb;
+	}
+
+	private void checkOpSpecResult(int index) {
+		if ((index < 0) || (index >= opCount)) {
+			throw new IndexOutOfBoundsException("op spec result " + index);
+		}
+	}
+
+	private StringBuilder appendHex(StringBuilder sb, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			int b = buffer.get(offset + i);
+			sb.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+		}
+		return sb;
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * immutable, packed representation of the EPC of a tag. the bits are stored
+ * most significant bit first in 64 bit words, the number of valid bits is kept
+ * separately such that EPCs of different length never collide.<br/>
+ * the key is the canonical in-memory representation of the id of a {@link Tag}, 
+ * the binary, hex and decimal string forms are only created on request.<br/>
+ * the hash code is computed once on construction, therefore <code>hashCode()</code>
+ * and <code>equals(Object)</code> do not allocate and can be used safely in hash
+ * based collections holding large numbers of tags.
+ */
+public final class EPCKey {
+
+	/** number of bits per word. */
+	private static final int WORD_SIZE = 64;
+
+	/** the bits of the EPC, most significant bit first. */
+	private final long[] words;
+
+	/** number of valid bits. */
+	private final int length;
+
+	/** precomputed hash code. */
+	private final int hash;
+
+	/**
+	 * private constructor, use the factory methods.
+	 * @param words the packed bits (not copied).
+	 * @param length the number of valid bits.
+	 */
+	private EPCKey(long[] words, int length) {
+		this.words = words;
+		this.length = length;
+		this.hash = computeHash(words, length);
+	}
+
+	/**
+	 * creates a key from a binary string made of the characters '0' and '1'.
+	 * @param binary the EPC as binary string.
+	 * @return the key or null if the string is null, empty or not a binary string.
+	 */
+	public static EPCKey fromBinary(String binary) {
+		if ((null == binary) || (binary.length() == 0)) {
+			return null;
+		}
+		final int len = binary.length();
+		long[] words = new long[(len + WORD_SIZE - 1) / WORD_SIZE];
+		for (int i = 0; i < len; i++) {
+			char c = binary.charAt(i);
+			if (c == '1') {
+				words[i / WORD_SIZE] |= 1L << (WORD_SIZE - 1 - (i % WORD_SIZE));
+			} else if (c != '0') {
+				return null;
+			}
+		}
+		return new EPCKey(words, len);
+	}
+
+	/**
+	 * creates a key from a hex string. each hex digit contributes four bits.
+	 * @param hex the EPC as hex string.
+	 * @return the key or null if the string is null, empty or not a hex string.
+	 */
+	public static EPCKey fromHex(String hex) {
+		if ((null == hex) || (hex.length() == 0)) {
+			return null;
+		}
+		final int len = hex.length() * 4;
+		long[] words = new long[(len + WORD_SIZE - 1) / WORD_SIZE];
+		for (int i = 0; i < hex.length(); i++) {
+			int nibble = Character.digit(hex.charAt(i), 16);
+			if (nibble < 0) {
+				return null;
+			}
+			int bit = i * 4;
+			words[bit / WORD_SIZE] |= ((long) nibble) << (WORD_SIZE - 4 - (bit % WORD_SIZE));
+		}
+		return new EPCKey(words, len);
+	}
+
+	/**
+	 * creates a key from a byte array, each byte contributes eight bits.
+	 * @param bytes the EPC as bytes (most significant byte first).
+	 * @return the key or null if the array is null or empty.
+	 */
+	public static EPCKey fromBytes(byte[] bytes) {
+		if ((null == bytes) || (bytes.length == 0)) {
+			return null;
+		}
+		final int len = bytes.length * 8;
+		long[] words = new long[(len + WORD_SIZE - 1) / WORD_SIZE];
+		for (int i = 0; i < bytes.length; i++) {
+			int bit = i * 8;
+			words[bit / WORD_SIZE] |= (bytes[i] & 0xFFL) << (WORD_SIZE - 8 - (bit % WORD_SIZE));
+		}
+		return new EPCKey(words, len);
+	}
+
+	/**
+	 * @return the number of valid bits in this key.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of 64 bit words backing this key.
+	 */
+	public int getWordCount() {
+		return words.length;
+	}
+
+	/**
+	 * returns a word of the packed EPC. bits beyond the length of the key are zero.
+	 * @param index the index of the word, 0 holds the most significant bits.
+	 * @return the word.
+	 */
+	public long getWord(int index) {
+		return words[index];
+	}
+
+	/**
+	 * returns a single bit of the EPC.
+	 * @param index the index of the bit, 0 is the most significant bit.
+	 * @return true if the bit is set.
+	 * @throws IndexOutOfBoundsException if the index is not within the key.
+	 */
+	public boolean getBit(int index) {
+		checkRange(index, 1);
+		return ((words[index / WORD_SIZE] >>> (WORD_SIZE - 1 - (index % WORD_SIZE))) & 1L) != 0;
+	}
+
+	/**
+	 * returns up to 64 bits of the EPC as unsigned value.
+	 * @param offset the index of the first bit, 0 is the most significant bit.
+	 * @param count the number of bits (0 to 64).
+	 * @return the bits right aligned in a long.
+	 * @throws IndexOutOfBoundsException if the bits are not within the key.
+	 */
+	public long getBits(int offset, int count) {
+		if (count > WORD_SIZE) {
+			throw new IndexOutOfBoundsException("at most " + WORD_SIZE + " bits can be read at once, requested: " + count);
+		}
+		checkRange(offset, count);
+		if (count == 0) {
+			return 0;
+		}
+		final int index = offset / WORD_SIZE;
+		final int shift = offset % WORD_SIZE;
+		long value = words[index] << shift;
+		if ((shift + count > WORD_SIZE) && (shift > 0)) {
+			value |= words[index + 1] >>> (WORD_SIZE - shift);
+		}
+		return value >>> (WORD_SIZE - count);
+	}
+
+	/**
+	 * returns a range of bits of the EPC as new key.
+	 * @param offset the index of the first bit, 0 is the most significant bit.
+	 * @param count the number of bits (at least one).
+	 * @return the key holding the given bits.
+	 * @throws IndexOutOfBoundsException if the bits are not within the key.
+	 */
+	public EPCKey subKey(int offset, int count) {
+		if (count < 1) {
+			throw new IndexOutOfBoundsException("a key holds at least one bit, requested: " + count);
+		}
+		checkRange(offset, count);
+		long[] sub = new long[(count + WORD_SIZE - 1) / WORD_SIZE];
+		for (int i = 0; i < sub.length; i++) {
+			int bits = Math.min(WORD_SIZE, count - i * WORD_SIZE);
+			sub[i] = getBits(offset + i * WORD_SIZE, bits) << (WORD_SIZE - bits);
+		}
+		return new EPCKey(sub, count);
+	}
+
+	/**
+	 * returns the EPC as bytes, the last byte is padded with zero bits.
+	 * @return a new array holding the EPC.
+	 */
+	public byte[] toByteArray() {
+		byte[] bytes = new byte[(length + 7) / 8];
+		for (int i = 0; i < bytes.length; i++) {
+			int bit = i * 8;
+			bytes[i] = (byte) (words[bit / WORD_SIZE] >>> (WORD_SIZE - 8 - (bit % WORD_SIZE)));
+		}
+		return bytes;
+	}
+
+	/**
+	 * returns the EPC as upper case hex string, one digit per four bits. if the 
+	 * length is not a multiple of four the last digit is padded with zero bits.
+	 * the result of {@link #fromHex(String)} is converted back into the same digits.
+	 * @return the hex string.
+	 */
+	public String toHexString() {
+		final int digits = (length + 3) / 4;
+		char[] chars = new char[digits];
+		for (int i = 0; i < digits; i++) {
+			int bit = i * 4;
+			int nibble = (int) ((words[bit / WORD_SIZE] >>> (WORD_SIZE - 4 - (bit % WORD_SIZE))) & 0xF);
+			chars[i] = Character.toUpperCase(Character.forDigit(nibble, 16));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * returns the EPC interpreted as unsigned number (the last bit is the least significant bit).
+	 * @return the value of the EPC.
+	 */
+	public BigInteger toBigInteger() {
+		if (length <= WORD_SIZE - 1) {
+			return BigInteger.valueOf(getBits(0, length));
+		}
+		byte[] bytes = new byte[words.length * 8 + 1];
+		for (int i = 0; i < words.length; i++) {
+			for (int j = 0; j < 8; j++) {
+				bytes[1 + i * 8 + j] = (byte) (words[i] >>> (WORD_SIZE - 8 - j * 8));
+			}
+		}
+		return new BigInteger(bytes).shiftRight(words.length * WORD_SIZE - length);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof EPCKey)) {
+			return false;
+		}
+		EPCKey other = (EPCKey) obj;
+		return (hash == other.hash) && (length == other.length) && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			long word = words[i / WORD_SIZE];
+			sb.append(((word >>> (WORD_SIZE - 1 - (i % WORD_SIZE))) & 1L) == 0 ? '0' : '1');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * verifies that the given range of bits lies within the key.
+	 */
+	private void checkRange(int offset, int count) {
+		if ((offset < 0) || (count < 0) || (offset + count > length)) {
+			throw new IndexOutOfBoundsException(String.format("bits %d to %d out of range, length %d", offset, offset + count, length));
+		}
+	}
+
+	/**
+	 * mixes all the words and the length into a well distributed hash code
+	 * (murmur3 64 bit finalizer on every word).
+	 * @param words the packed bits.
+	 * @param length the number of valid bits.
+	 * @return the hash code.
+	 */
+	private static int computeHash(long[] words, int length) {
+		long h = length;
+		for (long word : words) {
+			h = mix(h * 31 + mix(word));
+		}
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * murmur3 64 bit finalizer.
+	 * @param k the value to mix.
+	 * @return the mixed value.
+	 */
+	private static long mix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
@@ -22,11 +22,11 @@ package org.fosstrak.ale.server;
 
 import java.util.Map;
 import java.util.Observable;
-import java.util.Observer;
 import java.util.Set;
 
 import org.fosstrak.ale.exception.ECSpecValidationException;
 import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.readers.TagBatchListener;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
 
@@ -40,7 +40,7 @@ import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
  * @author benoit.plomion@orange.com
  * @author nkef@ait.edu.gr
  */
-public interface EventCycle extends Observer {
+public interface EventCycle extends TagBatchListener {
 
 	/**
 	 * This method adds a tag to this event cycle.
@@ -52,15 +52,21 @@ public interface EventCycle extends Observer {
 	void addTag(Tag tag);
 	
 	/**
-	 * implementation of the observer interface for tags.
-	 * @param o an observable object that triggered the update
-	 * @param arg the arguments passed by the observable
+	 * receives the tags read by the logical readers of this event cycle.
+	 * @param batch the tags read.
 	 */
 	@Override
+	void onTags(TagBatch batch);
+	
+	/**
+	 * delivers a single tag or a list of tags to this event cycle, same as {@link #onTags(TagBatch)}.
+	 * @param o the source of the tags, not used
+	 * @param arg a tag or a list of tags
+	 */
 	void update(Observable o, Object arg);
 	
 	/**
-	 * This method stops the thread.
+	 * This method stops the event cycle.
 	 */
 	void stop();
 	
@@ -79,15 +85,35 @@ public interface EventCycle extends Observer {
 	boolean isTerminated();
 	
 	/**
-	 * starts this EventCycle.
+	 * starts a round of this EventCycle. if a round is already running, nothing happens.
 	 */
 	void launch();
 	
+	/**
+	 * ends the current round of this EventCycle before its duration has elapsed (eg. on 
+	 * a stop trigger). the reports are generated asynchronously.
+	 */
+	void endRound();
+	
 	/**
 	 * returns the set of tags from the previous EventCycle run.
 	 * @return a set of tags from the previous EventCycle run
 	 */
 	Set<Tag> getLastEventCycleTags();
+	
+	/**
+	 * returns the immutable snapshot of the tags from the previous EventCycle run.
+	 * @return the snapshot of the previous EventCycle run (never null)
+	 */
+	TagSnapshot getLastTagSnapshot();
+	
+	/**
+	 * returns the immutable snapshot of the tags of the current EventCycle run, 
+	 * taken when the run is over and the reports are generated.
+	 * @return the snapshot of the current EventCycle run (never null)
+	 */
+	TagSnapshot getTagSnapshot();
+	
 
 	/**
 	 * This method return all tags of this event cycle.
@@ -117,7 +143,23 @@ public interface EventCycle extends Observer {
 	ECReportSpec getReportSpecByName(String name);
 
 	/**
+	 * the reports of the previous round by report name. the ECReport instances are the 
+	 * ones delivered in that round and must not be modified.
 	 * @return the lastReports
 	 */
 	Map<String, ECReport> getLastReports();
+	
+	/**
+	 * returns the digest of the filtered tags of a report in the round just finished.
+	 * @param name the name of the report.
+	 * @return the digest, null if unknown.
+	 */
+	ReportDigest getReportDigest(String name);
+	
+	/**
+	 * returns the digest of the filtered tags of a report in the round before the one just finished.
+	 * @param name the name of the report.
+	 * @return the digest, null if unknown.
+	 */
+	ReportDigest getLastReportDigest(String name);
 }
\ No newline at end of file
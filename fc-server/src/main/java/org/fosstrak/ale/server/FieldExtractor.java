@@ -0,0 +1,354 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server;
+
+import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.tm.SymbolicField;
+import org.fosstrak.ale.server.tm.SymbolicFieldRepo;
+
+/**
+ * a field name of an ECFilterSpec or ECReportOutputSpec compiled into an extractor.<br/>
+ * the field name is parsed once when the report is created: the built-in field names,
+ * <code>@bank.length[.offset]</code> and the symbolic fields defined through the TM API.
+ * the bits of a field are read straight from the packed memory banks of the tag
+ * and formatted without intermediate bit strings.<br/>
+ * symbolic fields may be defined and undefined after the report has been created,
+ * they are resolved again whenever the {@link SymbolicFieldRepo} changes.
+ */
+public final class FieldExtractor {
+
+	/**
+	 * the kind of a field.
+	 */
+	public enum Kind {
+		/** the EPC of the tag. */
+		EPC,
+		/** a field of the reserved bank (killPwd, accessPwd), not supported. */
+		RESERVED,
+		/** the contents of the epc bank as delivered by the reader. */
+		EPC_BANK,
+		/** the contents of the tid bank as delivered by the reader. */
+		TID_BANK,
+		/** the contents of the user memory bank as delivered by the reader. */
+		USER_BANK,
+		/** a range of bits of a memory bank. */
+		BITS,
+		/** a symbolic field defined through the TM API. */
+		SYMBOLIC
+	}
+
+	/** the format of a field of kind BITS. */
+	private enum Format {
+		/** unsigned integer in decimal notation. */
+		DECIMAL,
+		/** upper case hex without leading zeros. */
+		HEX,
+		/** the bits as string of '0' and '1'. */
+		BINARY,
+		/** datatype and format cannot be combined. */
+		INVALID
+	}
+
+	/** memory bank holding the EPC. */
+	public static final int BANK_EPC = 1;
+
+	/** memory bank holding the user memory. */
+	public static final int BANK_USER = 3;
+
+	/** hex digits. */
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/** the name of the field. */
+	private final String fieldName;
+
+	/** the kind of the field. */
+	private final Kind kind;
+
+	/** the memory bank of a field of kind BITS. */
+	private final int bank;
+
+	/** the number of bits of a field of kind BITS. */
+	private final int length;
+
+	/** the offset of the first bit of a field of kind BITS. */
+	private final int offset;
+
+	/** the format of a field of kind BITS. */
+	private final Format format;
+
+	/** the reason why the datatype or format of a field of kind BITS is not supported. */
+	private final String formatError;
+
+	/** symbolic field resolved at the given modification count of the repository. */
+	private volatile Resolution resolution;
+
+	private FieldExtractor(String fieldName, Kind kind) {
+		this(fieldName, kind, -1, 0, 0, Format.INVALID, null);
+	}
+
+	private FieldExtractor(String fieldName, Kind kind, int bank, int length, int offset, Format format, String formatError) {
+		this.fieldName = fieldName;
+		this.kind = kind;
+		this.bank = bank;
+		this.length = length;
+		this.offset = offset;
+		this.format = format;
+		this.formatError = formatError;
+	}
+
+	/**
+	 * compiles the given field name.
+	 * @param fieldName the field name.
+	 * @return the extractor for the field.
+	 * @throws ImplementationException if a field name <code>@bank.length[.offset]</code> is malformed.
+	 */
+	public static FieldExtractor compile(String fieldName) throws ImplementationException {
+		if ("epc".equals(fieldName)) {
+			return new FieldExtractor(fieldName, Kind.EPC);
+		} else if ("killPwd".equalsIgnoreCase(fieldName) || "accessPwd".equalsIgnoreCase(fieldName)) {
+			return new FieldExtractor(fieldName, Kind.RESERVED);
+		} else if ("epcBank".equalsIgnoreCase(fieldName)) {
+			return new FieldExtractor(fieldName, Kind.EPC_BANK);
+		} else if ("tidBank".equalsIgnoreCase(fieldName)) {
+			return new FieldExtractor(fieldName, Kind.TID_BANK);
+		} else if ("userBank".equalsIgnoreCase(fieldName)) {
+			return userBank(fieldName);
+		} else if ("afi".equalsIgnoreCase(fieldName)) {
+			// same as "@1.8.24"
+			return bits(fieldName, BANK_EPC, 8, 24, "uint", "hex");
+		} else if ("nsi".equalsIgnoreCase(fieldName)) {
+			// same as "@1.9.23"
+			return bits(fieldName, BANK_EPC, 9, 23, "uint", "hex");
+		} else if (fieldName.startsWith("@")) {
+			String[] part = fieldName.substring(1).split("\\.");
+			if (part.length < 2 || part.length > 3) {
+				throw new ImplementationException("fieldname " + fieldName + " is wrong");
+			}
+			try {
+				int bank = Integer.parseInt(part[0]);
+				int length = Integer.parseInt(part[1]);
+				int offset = (part.length == 3) ? Integer.parseInt(part[2]) : 0;
+				if (length < 0 || offset < 0) {
+					throw new ImplementationException("fieldname " + fieldName + " is wrong");
+				}
+				return bits(fieldName, bank, length, offset, "uint", "hex");
+			} catch (NumberFormatException e) {
+				throw new ImplementationException("fieldname " + fieldName + " is wrong");
+			}
+		}
+		return new FieldExtractor(fieldName, Kind.SYMBOLIC);
+	}
+
+	/**
+	 * creates an extractor returning the contents of the user memory bank.
+	 * @param fieldName the field name.
+	 * @return the extractor for the field.
+	 */
+	public static FieldExtractor userBank(String fieldName) {
+		return new FieldExtractor(fieldName, Kind.USER_BANK);
+	}
+
+	/**
+	 * creates an extractor for a range of bits of a memory bank.
+	 */
+	private static FieldExtractor bits(String fieldName, int bank, int length, int offset, String datatype, String format) {
+		Format f = Format.INVALID;
+		String error = null;
+		if ("uint".equalsIgnoreCase(datatype)) {
+			// only "decimal" and "hex" are valid for "uint"
+			if ("decimal".equalsIgnoreCase(format)) {
+				f = Format.DECIMAL;
+			} else if ("hex".equalsIgnoreCase(format)) {
+				f = Format.HEX;
+			} else {
+				// error, but include binary as the field value
+				f = Format.BINARY;
+			}
+		} else if ("bits".equalsIgnoreCase(datatype)) {
+			// only "hex" format is valid for the datatype "bits"
+			if ("hex".equalsIgnoreCase(format)) {
+				f = Format.HEX;
+			} else {
+				error = "cannot process field " + fieldName;
+			}
+		} else if ("iso-15962-string".equalsIgnoreCase(datatype)) {
+			error = "fieldname whose datatype is 'iso-15962-string' is not supported.";
+		} else {
+			error = "fieldname whose datatype is " + datatype + " is not supported.";
+		}
+		return new FieldExtractor(fieldName, Kind.BITS, bank, length, offset, f, error);
+	}
+
+	/**
+	 * @return the name of the field.
+	 */
+	public String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * @return the kind of the field.
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the memory bank of a field of kind BITS.
+	 */
+	public int getBank() {
+		return bank;
+	}
+
+	/**
+	 * @return true if the field can be read from a tag (a field of kind BITS must
+	 * be located in the epc or the user memory bank).
+	 */
+	public boolean isSupported() {
+		switch (kind) {
+		case RESERVED:
+			return false;
+		case BITS:
+			return (bank == BANK_EPC) || (bank == BANK_USER);
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * resolves a symbolic field through the {@link SymbolicFieldRepo}. the resolution is
+	 * kept until the repository changes.
+	 * @return the extractor for the symbolic field, null if the field is not defined.
+	 * fields of all the other kinds return themselves.
+	 */
+	public FieldExtractor resolve() {
+		if (kind != Kind.SYMBOLIC) {
+			return this;
+		}
+		SymbolicFieldRepo repo = SymbolicFieldRepo.getInstance();
+		int modificationCount = repo.getModificationCount();
+		Resolution r = resolution;
+		if ((null == r) || (r.modificationCount != modificationCount)) {
+			FieldExtractor resolved = null;
+			SymbolicField symbolicField = repo.getSymbolicField(fieldName);
+			if (null != symbolicField) {
+				String datatype = symbolicField.getDataType() != null ? symbolicField.getDataType() : "uint";
+				String format = symbolicField.getFormat() != null ? symbolicField.getFormat() : "hex";
+				resolved = bits(fieldName, symbolicField.getBank(), symbolicField.getLength(), symbolicField.getOffset(), datatype, format);
+			}
+			r = new Resolution(modificationCount, resolved);
+			resolution = r;
+		}
+		return r.extractor;
+	}
+
+	/**
+	 * reads the value of the field from the given tag. the EPC is not extracted here
+	 * as it is matched against the patterns of the report or converted through TDT.
+	 * @param tag the tag.
+	 * @return the value of the field or null if the tag does not hold the memory bank.
+	 * @throws ImplementationException if the field cannot be read from a tag.
+	 */
+	public String extract(Tag tag) throws ImplementationException {
+		switch (kind) {
+		case EPC_BANK:
+			return tag.getEpcBank();
+		case TID_BANK:
+			return tag.getTidBank();
+		case USER_BANK:
+			return tag.getUserMemory();
+		case BITS:
+			return extractBits(tag);
+		case SYMBOLIC:
+			FieldExtractor resolved = resolve();
+			if (null == resolved) {
+				throw new ImplementationException("There is no such symbolic fieldname " + fieldName);
+			}
+			return resolved.extract(tag);
+		default:
+			throw new ImplementationException("fieldname \"" + fieldName + "\" cannot be extracted from the memory of the tag");
+		}
+	}
+
+	/**
+	 * reads a range of bits from the epc or user memory bank.
+	 */
+	private String extractBits(Tag tag) throws ImplementationException {
+		final EPCKey memory;
+		if (bank == BANK_EPC) {
+			memory = tag.getEpcBankBits();
+		} else if (bank == BANK_USER) {
+			memory = tag.getUserMemoryBits();
+		} else if (bank == 0 || bank == 2) {
+			throw new ImplementationException("Access to bank " + bank + " is not supported.");
+		} else {
+			throw new ImplementationException("bank " + bank + " does not exist.");
+		}
+		if (null == formatError) {
+			if (null == memory) {
+				return null;
+			}
+			switch (format) {
+			case DECIMAL:
+				return (length < 64) ? Long.toString(memory.getBits(offset, length)) : memory.subKey(offset, length).toBigInteger().toString();
+			case HEX:
+				return (length < 64) ? toHex(memory.getBits(offset, length)) : memory.subKey(offset, length).toBigInteger().toString(16).toUpperCase();
+			default:
+				return memory.subKey(offset, length).toString();
+			}
+		}
+		throw new ImplementationException(formatError);
+	}
+
+	/**
+	 * formats the value as upper case hex without leading zeros (as the TDT engine does).
+	 */
+	private static String toHex(long value) {
+		if (value == 0) {
+			return "0";
+		}
+		char[] buf = new char[16];
+		int pos = buf.length;
+		while (value != 0) {
+			buf[--pos] = HEX_DIGITS[(int) (value & 0xF)];
+			value >>>= 4;
+		}
+		return new String(buf, pos, buf.length - pos);
+	}
+
+	@Override
+	public String toString() {
+		if (kind == Kind.BITS) {
+			return String.format("%s[%s, bank=%d, length=%d, offset=%d]", fieldName, kind, bank, length, offset);
+		}
+		return String.format("%s[%s]", fieldName, kind);
+	}
+
+	/**
+	 * a symbolic field resolved at a given modification count of the repository.
+	 */
+	private static final class Resolution {
+		private final int modificationCount;
+		private final FieldExtractor extractor;
+
+		private Resolution(int modificationCount, FieldExtractor extractor) {
+			this.modificationCount = modificationCount;
+			this.extractor = extractor;
+		}
+	}
+}
@@ -50,6 +50,11 @@ public class Pattern {
 	/** data fields of this pattern */
 	private final List<PatternDataField> dataFields = new ArrayList<PatternDataField>();
 	
+	/** lower bound of each data field ('*' and 'X' match everything), used by the compiled matcher */
+	private long[] lowerBounds;
+	/** upper bound of each data field ('*' and 'X' match everything), used by the compiled matcher */
+	private long[] upperBounds;
+	
 	/**
 	 * Contructor sets the usage and parses the pattern.
 	 * 
@@ -88,6 +93,9 @@ public class Pattern {
 				// parse data fields
 				parseDataFields(parts[4], pattern);
 				
+				// compile data fields into bounds
+				compileDataFields();
+				
 			}
 		}
 		
@@ -190,6 +198,28 @@ public class Pattern {
 		return dataFields;
 	}
 	
+	/**
+	 * This method returns the compiled lower bound of a data field
+	 * (Long.MIN_VALUE for '*' and 'X').
+	 * 
+	 * @param index of the data field
+	 * @return lower bound of the data field
+	 */
+	long getLowerBound(int index) {
+		return lowerBounds[index];
+	}
+
+	/**
+	 * This method returns the compiled upper bound of a data field
+	 * (Long.MAX_VALUE for '*' and 'X').
+	 * 
+	 * @param index of the data field
+	 * @return upper bound of the data field
+	 */
+	long getUpperBound(int index) {
+		return upperBounds[index];
+	}
+
 	/**
 	 * This method indicates if this pattern is disjoint to the specified pattern.
 	 * 
@@ -241,6 +271,12 @@ public class Pattern {
 			return false;
 		}
 		
+		// fast path: plain tag URIs are matched without building a pattern
+		TagURIFields fields = TagURIFields.parse(tagURI);
+		if (null != fields) {
+			return isMember(fields);
+		}
+		
 		// create pattern of usage TAG ('*' and 'X' are not allowed)
 		Pattern tag = new Pattern(tagURI, PatternUsage.TAG);
 			
@@ -268,6 +304,29 @@ public class Pattern {
 		
 	}
 
+	/**
+	 * This method indicates if a tag, already parsed into its data fields, is member of this 
+	 * filter or group pattern. Only primitive comparisons are performed.
+	 * If the pattern is a tag pattern, the return value is false.
+	 * 
+	 * @param tag the parsed tag URI
+	 * @return true if tag is member of this pattern and false otherwise
+	 */
+	public boolean isMember(TagURIFields tag) {
+		
+		if (usage == PatternUsage.TAG || type != tag.getType() || tag.getNumberOfFields() != lowerBounds.length) {
+			return false;
+		}
+		for (int i = 0; i < lowerBounds.length; i++) {
+			long value = tag.getValue(i);
+			if (value < lowerBounds[i] || value > upperBounds[i]) {
+				return false;
+			}
+		}
+		return true;
+		
+	}
+
 	/**
 	 * This method returns the group name for a tag depending on this group pattern.
 	 * If the pattern is not a group pattern or the tag is not a member of this group pattern,
@@ -284,6 +343,11 @@ public class Pattern {
 			return null;
 		}
 		
+		TagURIFields fields = TagURIFields.parse(tagURI);
+		if (null != fields) {
+			return getGroupName(fields);
+		}
+		
 		try {
 			
 			// create pattern of usage TAG ('*', 'X' and ranges are not allowed)
@@ -311,6 +375,35 @@ public class Pattern {
 		
 	}
 	
+	/**
+	 * This method returns the group name for an already parsed tag depending on this group pattern.
+	 * If the pattern is not a group pattern or the tag is not a member of this group pattern,
+	 * the return value is null. 
+	 * 
+	 * @param tag the parsed tag URI
+	 * @return group name
+	 */
+	public String getGroupName(TagURIFields tag) {
+		
+		if (usage != PatternUsage.GROUP || !isMember(tag)) {
+			return null;
+		}
+		
+		// replace 'X' in group name
+		StringBuffer buffer = new StringBuffer();
+		appendPrefix(buffer);
+		for (int i = 0; i < dataFields.size(); i++) {
+			if (i > 0) buffer.append(".");
+			if (dataFields.get(i).isX()) {
+				buffer.append(tag.getField(i));
+			} else {
+				buffer.append(dataFields.get(i).toString());
+			}
+		}
+		return buffer.toString();
+		
+	}
+	
 	/**
 	 * This method returns a string representation of this pattern.
 	 * 
@@ -319,14 +412,7 @@ public class Pattern {
 	public String toString() {
 		
 		StringBuffer buffer = new StringBuffer();
-		buffer.append(FIRST_FIELD);
-		buffer.append(":");
-		buffer.append(SECOND_FIELD);
-		buffer.append(":");
-		buffer.append(thirdField);
-		buffer.append(":");
-		buffer.append(type.toSring());
-		buffer.append(":");
+		appendPrefix(buffer);
 		
 		for (PatternDataField dataField : dataFields) {
 			buffer.append(dataField.toString());
@@ -341,6 +427,66 @@ public class Pattern {
 	// private methods
 	//
 	
+	/**
+	 * This method appends the fields in front of the data fields to the given buffer.
+	 * 
+	 * @param buffer to append to
+	 */
+	private void appendPrefix(StringBuffer buffer) {
+		buffer.append(FIRST_FIELD);
+		buffer.append(":");
+		buffer.append(SECOND_FIELD);
+		buffer.append(":");
+		buffer.append(thirdField);
+		buffer.append(":");
+		buffer.append(type.toSring());
+		buffer.append(":");
+	}
+	
+	/**
+	 * This method compiles the data fields into lower and upper bounds such that 
+	 * membership can be checked with primitive comparisons.
+	 */
+	private void compileDataFields() {
+		
+		lowerBounds = new long[dataFields.size()];
+		upperBounds = new long[dataFields.size()];
+		for (int i = 0; i < dataFields.size(); i++) {
+			PatternDataField field = dataFields.get(i);
+			try {
+				if (field.isInt()) {
+					lowerBounds[i] = field.getValue();
+					upperBounds[i] = field.getValue();
+				} else if (field.isRange()) {
+					lowerBounds[i] = field.getLow();
+					upperBounds[i] = field.getHigh();
+				} else {
+					lowerBounds[i] = Long.MIN_VALUE;
+					upperBounds[i] = Long.MAX_VALUE;
+				}
+			} catch (ECSpecValidationException e) {
+				// cannot happen as the kind of the field is checked before
+				throw new IllegalStateException(e);
+			}
+		}
+		
+	}
+	
+	/**
+	 * This method indicates if the given string is a valid third field of a pattern.
+	 * 
+	 * @param thirdField to check
+	 * @return true if valid, false otherwise
+	 */
+	static boolean isThirdField(String thirdField) {
+		for (String field : THIRD_FIELDS) {
+			if (field.equals(thirdField)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * This method parses the data fields of this pattern.
 	 * 
@@ -0,0 +1,294 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.exception.ImplementationException;
+
+/**
+ * index over a set of filter patterns that answers the question "is the tag member
+ * of any of the patterns" without walking all the patterns.<br/>
+ * the patterns are arranged in a trie keyed by the pattern type and then by the data
+ * fields in their order (filter, company, item, ...). on each level exact values are
+ * kept in a hash map, ranges in an interval tree and '*' / 'X' fields in a single
+ * wildcard branch. a lookup therefore only visits the branches that can match the tag.
+ * <br/>
+ * the index is filled once when the report is created and afterwards only read.
+ */
+public class PatternIndex {
+
+	/** the indexed patterns in the order they were added (used for unparsed tags). */
+	private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+	/** root of the trie for each pattern type. */
+	private final Map<PatternType, Node> roots = new EnumMap<PatternType, Node>(PatternType.class);
+
+	/**
+	 * adds a pattern to the index.
+	 *
+	 * @param pattern the filter pattern to add.
+	 */
+	public void add(Pattern pattern) {
+		patterns.add(pattern);
+
+		Node node = roots.get(pattern.getType());
+		if (null == node) {
+			node = new Node();
+			roots.put(pattern.getType(), node);
+		}
+		final int nbrOfFields = pattern.getDataFields().size();
+		for (int i = 0; i < nbrOfFields; i++) {
+			node = node.child(pattern.getLowerBound(i), pattern.getUpperBound(i));
+		}
+		node.terminal = true;
+	}
+
+	/**
+	 * @return the number of patterns in this index.
+	 */
+	public int size() {
+		return patterns.size();
+	}
+
+	/**
+	 * @return true if the index does not contain any pattern.
+	 */
+	public boolean isEmpty() {
+		return patterns.isEmpty();
+	}
+
+	/**
+	 * @return the indexed patterns.
+	 */
+	public List<Pattern> getPatterns() {
+		return patterns;
+	}
+
+	/**
+	 * This method indicates if a parsed tag is member of at least one pattern of this index.
+	 *
+	 * @param tag the parsed tag URI.
+	 * @return true if the tag is member of a pattern and false otherwise.
+	 */
+	public boolean isMember(TagURIFields tag) {
+		Node root = roots.get(tag.getType());
+		if (null == root) {
+			return false;
+		}
+		return root.matches(tag, 0);
+	}
+
+	/**
+	 * This method indicates if a tag is member of at least one pattern of this index.
+	 * the parsed tag URI is used when available, otherwise every pattern parses (and
+	 * validates) the tag URI.
+	 *
+	 * @param tagURIFields the parsed tag URI, null if the tag URI could not be parsed.
+	 * @param tagURI the tag URI.
+	 * @return true if the tag is member of a pattern and false otherwise.
+	 * @throws ECSpecValidationException if the tag is invalid.
+	 * @throws ImplementationException if an implementation exception occurs.
+	 */
+	public boolean isMember(TagURIFields tagURIFields, String tagURI) throws ECSpecValidationException, ImplementationException {
+		if (null != tagURIFields) {
+			return isMember(tagURIFields);
+		}
+		for (Pattern pattern : patterns) {
+			if (pattern.isMember(tagURI)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * one level of the trie, matching one data field.
+	 */
+	private static final class Node {
+
+		/** true if a pattern ends in this node. */
+		private boolean terminal;
+
+		/** children for the exact field values. */
+		private Map<Long, Node> exact;
+
+		/** children for the field ranges. */
+		private IntervalTree ranges;
+
+		/** child for '*' and 'X'. */
+		private Node wildcard;
+
+		/**
+		 * returns (and creates if needed) the child for the given bounds.
+		 */
+		private Node child(long low, long high) {
+			if (low == Long.MIN_VALUE && high == Long.MAX_VALUE) {
+				if (null == wildcard) {
+					wildcard = new Node();
+				}
+				return wildcard;
+			}
+			if (low == high) {
+				if (null == exact) {
+					exact = new HashMap<Long, Node>();
+				}
+				Node node = exact.get(low);
+				if (null == node) {
+					node = new Node();
+					exact.put(low, node);
+				}
+				return node;
+			}
+			if (null == ranges) {
+				ranges = new IntervalTree();
+			}
+			return ranges.child(low, high);
+		}
+
+		/**
+		 * checks if the data fields of the tag starting at the given index reach a terminal node.
+		 */
+		private boolean matches(TagURIFields tag, int field) {
+			if (field == tag.getNumberOfFields()) {
+				return terminal;
+			}
+			final long value = tag.getValue(field);
+			if (null != exact) {
+				Node node = exact.get(value);
+				if (null != node && node.matches(tag, field + 1)) {
+					return true;
+				}
+			}
+			if (null != ranges && ranges.matches(tag, field, value)) {
+				return true;
+			}
+			return (null != wildcard) && wildcard.matches(tag, field + 1);
+		}
+	}
+
+	/**
+	 * static interval tree: the intervals are kept sorted by their lower bound and form
+	 * an implicit balanced binary tree (the middle element being the root), each subtree
+	 * knows the maximum upper bound it contains. a stabbing query visits O(log n + k)
+	 * intervals.
+	 */
+	private static final class IntervalTree {
+
+		/** lower bounds, sorted. */
+		private long[] lows = new long[0];
+
+		/** upper bounds. */
+		private long[] highs = new long[0];
+
+		/** the child nodes of the intervals. */
+		private Node[] nodes = new Node[0];
+
+		/** maximum upper bound of the subtree rooted at the index. */
+		private long[] maxHighs = new long[0];
+
+		/**
+		 * returns (and creates if needed) the child for the given interval.
+		 */
+		private Node child(long low, long high) {
+			int pos = 0;
+			while (pos < lows.length && (lows[pos] < low || (lows[pos] == low && highs[pos] < high))) {
+				pos++;
+			}
+			if (pos < lows.length && lows[pos] == low && highs[pos] == high) {
+				return nodes[pos];
+			}
+
+			// insert the new interval keeping the arrays sorted
+			Node node = new Node();
+			lows = insert(lows, pos, low);
+			highs = insert(highs, pos, high);
+			Node[] newNodes = new Node[nodes.length + 1];
+			System.arraycopy(nodes, 0, newNodes, 0, pos);
+			newNodes[pos] = node;
+			System.arraycopy(nodes, pos, newNodes, pos + 1, nodes.length - pos);
+			nodes = newNodes;
+
+			maxHighs = new long[lows.length];
+			computeMaxHighs(0, lows.length);
+			return node;
+		}
+
+		/**
+		 * computes the maximum upper bound of the subtree [from, to).
+		 */
+		private long computeMaxHighs(int from, int to) {
+			if (from >= to) {
+				return Long.MIN_VALUE;
+			}
+			int mid = (from + to) >>> 1;
+			long max = Math.max(highs[mid], Math.max(computeMaxHighs(from, mid), computeMaxHighs(mid + 1, to)));
+			maxHighs[mid] = max;
+			return max;
+		}
+
+		/**
+		 * checks if one of the intervals containing the value leads to a terminal node.
+		 */
+		private boolean matches(TagURIFields tag, int field, long value) {
+			return matches(tag, field, value, 0, lows.length);
+		}
+
+		/**
+		 * stabbing query on the subtree [from, to).
+		 */
+		private boolean matches(TagURIFields tag, int field, long value, int from, int to) {
+			if (from >= to) {
+				return false;
+			}
+			int mid = (from + to) >>> 1;
+			if (maxHighs[mid] < value) {
+				// no interval in this subtree reaches the value
+				return false;
+			}
+			if (matches(tag, field, value, from, mid)) {
+				return true;
+			}
+			if (lows[mid] > value) {
+				// all the intervals to the right start after the value
+				return false;
+			}
+			if (value <= highs[mid] && nodes[mid].matches(tag, field + 1)) {
+				return true;
+			}
+			return matches(tag, field, value, mid + 1, to);
+		}
+
+		/**
+		 * returns a copy of the array with the value inserted at the given position.
+		 */
+		private static long[] insert(long[] array, int pos, long value) {
+			long[] result = new long[array.length + 1];
+			System.arraycopy(array, 0, result, 0, pos);
+			result[pos] = value;
+			System.arraycopy(array, pos, result, pos + 1, array.length - pos);
+			return result;
+		}
+	}
+}
@@ -40,8 +40,6 @@ import javax.xml.datatype.XMLGregorianCalendar;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ECSpecValidationException;
 import org.fosstrak.ale.exception.ImplementationException;
-import org.fosstrak.ale.server.tm.SymbolicField;
-import org.fosstrak.ale.server.tm.SymbolicFieldRepo;
 import org.fosstrak.ale.server.util.TagFormatHelper;
 import org.fosstrak.ale.server.util.TagHelper;
 import org.fosstrak.ale.util.ECReportSetEnum;
@@ -50,25 +48,16 @@ import org.fosstrak.ale.xsd.ale.epcglobal.ECFilterListMember.PatList;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECFilterSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECFilterSpecExtension;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECFilterSpecExtension.FilterList;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat.Sightings;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension.FieldList;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension.Stats;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputFieldSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputSpecExtension;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpecExtension;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat.StatBlocks;
 import org.fosstrak.ale.xsd.epcglobal.EPC;
 import org.fosstrak.tdt.TDTEngine;
 
@@ -93,17 +82,31 @@ public class Report {
 	
 	
 	/** patterns of tags which are included in this report. */
-	private final Set<Pattern> includePatterns = new HashSet<Pattern>();
+	private final PatternIndex includePatterns = new PatternIndex();
 	/** patterns of tags which are excluded from this report. */
-	private final Set<Pattern> excludePatterns = new HashSet<Pattern>();
+	private final PatternIndex excludePatterns = new PatternIndex();
 	/** patterns to group the tags of this report. */
 	private final Set<Pattern> groupPatterns = new HashSet<Pattern>();
+	/** filters on the fields of the tags (filter spec extension), compiled once. */
+	private final List<FieldFilter> fieldFilters = new ArrayList<FieldFilter>();
+	/** fields to include into the report (output spec extension), compiled once. */
+	private final List<FieldExtractor> outputFields = new ArrayList<FieldExtractor>();
 		
 	/** type of this report (current, additions or deletions). */
 	private String reportType;
 
-	/** ec report. */
-	private ECReport report;
+	/** ec report of the round under construction. */
+	private ReportRound report;
+	/** the identities of the tag being added, converted by the TagHelper (reused from one tag to the next). */
+	private final ECReportGroupListMember identities = new ECReportGroupListMember();
+	/** groups of the ec report under construction by group name (side index of the groups of the report). */
+	private final Map<String, ReportGroupIndex> groupIndex = new HashMap<String, ReportGroupIndex>();
+	/** digest of the groups of the ec report under construction. */
+	private final ReportDigest.Builder digestBuilder = new ReportDigest.Builder();
+	/** digest of the filtered tags of the last generated report. */
+	private ReportDigest digest = null;
+	/** digest of the filtered tags of the report generated before the last one. */
+	private ReportDigest lastDigest = null;
 	/** ec report specification. */
 	private ECReportSpec reportSpec;
 	
@@ -122,10 +125,7 @@ public class Report {
 		LOG.debug("Create report '" + name + "'");
 		
 		// create ECReport
-		report = new ECReport();
-		
-		// set ECReport name
-		report.setReportName(name);
+		report = new ReportRound(name);
 		
 		// set type
 		reportType = reportSpec.getReportSet().getSet();
@@ -139,6 +139,7 @@ public class Report {
 		// init patterns
 		initFilterPatterns();
 		initGroupPatterns();
+		initFieldExtractors();
 
 	}
 
@@ -150,184 +151,31 @@ public class Report {
 	 * @throws ImplementationException if an implementation exception occurs
 	 */
 	public void addTag(Tag tag) throws ECSpecValidationException, ImplementationException {
-		TDTEngine tdt = TagHelper.getTDTEngine();
 		// get tag URI
 		String tagURI = tag.getTagIDAsTagURI();//.getTagIDAsPureURI();
+		// parsed once, shared by all the filter patterns
+		TagURIFields tagURIFields = tag.getTagIDAsTagURIFields();
 		
 		boolean isMember = true;
 		
-		
-		
 		if(this.reportSpec.getFilterSpec() != null) {
 			ECFilterSpec filterSpec = this.reportSpec.getFilterSpec();
 			
 			if(filterSpec.getIncludePatterns() != null || filterSpec.getExcludePatterns() != null) {
-				isMember = isMember && isMember(tagURI);
+				isMember = isMember && isMember(tagURIFields, tagURI);
 			}
 			
-			if(filterSpec.getExtension() != null) {
-				ECFilterSpecExtension filterSpecExtension = filterSpec.getExtension();
-				
-				if(filterSpecExtension.getFilterList() != null) {
-					List<ECFilterListMember> filterListMembers = filterSpecExtension.getFilterList().getFilter();
-					
-					for(ECFilterListMember filterListMember : filterListMembers) {
-						
-						// represent the user memory to binary format
-						String usermemInBinary = tag.getUserMemory();
-						if(usermemInBinary != null) {
-
-					    	usermemInBinary = usermemInBinary.replaceAll("\\s", "");
-					    	usermemInBinary = new StringBuilder("f").append(usermemInBinary).toString();		//usermem = "f".concat(usermem);
-					    	usermemInBinary = tdt.hex2bin(usermemInBinary);
-					    	usermemInBinary = usermemInBinary.substring(4);
-						}
-						
-						if(filterListMember.getFieldspec() != null) {
-							String fieldName = filterListMember.getFieldspec().getFieldname();
-							if(fieldName.equals("epc")) {
-								
-								
-								// check if the tag is a member of this report (use filter patterns and set spec)
-								
-								isMember = isMember && isMember(tagURI);
-
-							} else if(fieldName.equalsIgnoreCase("killPwd")) {
-								//TODO : killPwd fieldname
-								// same as "@0.32"
-								// datatype : "uint", format: "hex"
-								
-								System.out.println("fieldname \"killPwd\": access to reserved bank is not implemented");
-								
-
-							} else if(fieldName.equalsIgnoreCase("accessPwd")) {
-								//TODO : accessPwd fieldname
-								// same as "@0.32.32"
-								// datatype : "uint", format: "hex"
-
-								System.out.println("fieldname \"accessPwd\": access to reserved bank is not implemented");
-								
-							} else if(fieldName.equalsIgnoreCase("epcBank")) {
-								// return the contents of epc bank
-								// datatype: "bits", format: "hex"
-								String fieldValue = tag.getEpcBank();
-								
-							} else if(fieldName.equalsIgnoreCase("tidBank")) {
-								// return the contents of tid bank
-								// datatype: "bits", format: "hex"
-
-								String fieldValue = tag.getTidBank();
-								isMember = computeMembership(isMember, filterListMember,
-										fieldValue);
-								
-							} else if(fieldName.equalsIgnoreCase("userBank")) {
-								// return the contents of user memory bank
-								// datatype: "bits", format: "hex"
-
-								String fieldValue = tag.getUserMemory();
-								isMember = computeMembership(isMember, filterListMember,
-										fieldValue);
-								
-							} else if(fieldName.equalsIgnoreCase("afi")) {
-								// TODO:  application family identifier
-								// same as "@1.8.24"
-								// datatype: "uint", format: "hex"
-
-								String fieldValue = processEpcBank(tag, tdt, 8,
-										24, "uint", "hex");
-								isMember = computeMembership(isMember, filterListMember,
-										fieldValue);
-								
-							} else if(fieldName.equalsIgnoreCase("nsi")) {
-								// TODO: Numbering System Identifier (NSI)
-								// same as "@1.9.23"
-								// datatype: "uint", format: "hex"
-								
-								String fieldValue = processEpcBank(tag, tdt, 9,
-										23, "uint", "hex");
-								isMember = computeMembership(isMember, filterListMember,
-										fieldValue);
-								
-							} else if (fieldName.startsWith("@")) {
-								// TODO: fieldnames start with "@"
-								// datatype: "uint", format: "hex"
-								
-								String[] part = fieldName.substring(1).split("\\.");
-								int bank = Integer.parseInt(part[0]);
-								int length = Integer.parseInt(part[1]);
-								int offset = Integer.parseInt(part[2]);
-								String datatype = "uint";
-								String format = "hex";
-								
-
-								if(bank == 0) {
-									System.out.println("Access to bank "+bank+" is not supported.");
-									
-								} else if(bank == 1) {
-									
-									String fieldValue = processEpcBank(tag, tdt, length,
-											offset, datatype, format);
-									isMember = computeMembership(isMember, filterListMember,
-											fieldValue);
-									
-								} else if(bank == 2) {
-									System.out.println("Access to bank "+bank+" is not supported.");
-									
-								} else if(bank == 3) {
-									String fieldValue = processUserbank(tdt, usermemInBinary, length,
-											offset, datatype, format);
-									isMember = computeMembership(isMember, filterListMember,
-											fieldValue);
-									
-								} else {
-									System.out.println("field "+fieldName+" not found");
-									
-								}
-								
-								
-
-							} else {
-								// TODO: symbolic fieldnames
-								// datatype: "uint", format: "hex"
-
-								SymbolicField symbolicField = SymbolicFieldRepo.getInstance().getSymbolicField(fieldName);
-								if(symbolicField != null) {
-									int bank = symbolicField.getBank();
-									int length = symbolicField.getLength();
-									int offset = symbolicField.getOffset();
-									String datatype = symbolicField.getDataType() != null? symbolicField.getDataType(): "uint";
-									String format = symbolicField.getFormat() != null? symbolicField.getFormat(): "hex";
-									
-									if(bank == 0) {
-										System.out.println("Access to bank "+bank+" is not supported.");
-										
-									} else if(bank == 1) {
-										String fieldValue = processEpcBank(tag, tdt, length,
-												offset, datatype, format);
-										isMember = computeMembership(isMember, filterListMember,
-												fieldValue);
-										
-									} else if(bank == 2) {
-										System.out.println("Access to bank "+bank+" is not supported.");
-										
-									} else if(bank == 3) {
-										String fieldValue = processUserbank(tdt, usermemInBinary, length,
-												offset, datatype, format);
-										isMember = computeMembership(isMember, filterListMember,
-												fieldValue);
-										
-									} else {
-										System.out.println("field "+fieldName+" not found");
-										
-									}
-									
-								} else {
-									LOG.debug("There is no such symbolic fieldname "+fieldName+". skip processing userdata of this tag");
-								}
-							}
-						}
-						
-					}
+			for (FieldFilter filter : fieldFilters) {
+				FieldExtractor field = filter.extractor.resolve();
+				if (null == field) {
+					LOG.debug("There is no such symbolic fieldname "+filter.extractor.getFieldName()+". skip processing userdata of this tag");
+				} else if (field.getKind() == FieldExtractor.Kind.EPC) {
+					// check if the tag is a member of this report (use filter patterns and set spec)
+					isMember = isMember && isMember(tagURIFields, tagURI);
+				} else if (field.isSupported()) {
+					isMember = computeMembership(isMember, filter.member, field.extract(tag));
+				} else {
+					LOG.debug("field " + field + " cannot be read from the tag, ignored");
 				}
 			}
 		}
@@ -368,9 +216,9 @@ public class Report {
 
 	/**
 	 * helper method to display tags that were added or deleted.
-	 * @param reportTags a map holding the tags that were either added or deleted.
+	 * @param reportTags a list holding the tags that were either added or deleted.
 	 */
-	private void writeTraceInformation(Map<String, Tag> reportTags) {
+	private void writeTraceInformation(List<Tag> reportTags) {
 		String out = '\n' + "+++++++++++++++++++++++++++++++++++++++++++++++++++++" + '\n';
 		out +=  '\t' + "eventcycle " + currentEventCycle.getName() + '\n';
 		out +=  '\t' + "round " + currentEventCycle.getRounds() + '\n';
@@ -382,7 +230,7 @@ public class Report {
 		}
 		
 		
-		for (Tag tag : reportTags.values()) {
+		for (Tag tag : reportTags) {
 			out += '\t' + tag.getTagIDAsPureURI() + '\n';
 		}
 		out +=  "+++++++++++++++++++++++++++++++++++++++++++++++++++++" + '\n';
@@ -397,28 +245,17 @@ public class Report {
 	 * @throws ImplementationException if an implementation exception occurs
 	 */
 	public ECReport getECReport() throws ECSpecValidationException, ImplementationException {
-		Set<Tag> currentCycleTags = currentEventCycle.getTags();
-		Set<Tag> lastCycleTags = currentEventCycle.getLastEventCycleTags();
+		TagSnapshot currentCycleTags = currentEventCycle.getTagSnapshot();
+		TagSnapshot lastCycleTags = currentEventCycle.getLastTagSnapshot();
+		if (null == lastCycleTags) {
+			lastCycleTags = TagSnapshot.EMPTY;
+		}
 		
 		//generate new ECReport
 		if (ECReportSetEnum.isSameECReportSet(ECReportSetEnum.ADDITIONS, reportType)) {
 			
-			// get additional tags
-			Map<String, Tag> reportTags = new HashMap<String, Tag>();
-
-			// add tags from current EventCycle 
-			for (Tag tag : currentCycleTags) {
-				reportTags.put(tag.getTagIDAsPureURI(), tag);
-			}
-				
-			// remove tags from last EventCycle
-			if (lastCycleTags != null) {
-				for (Tag tag : lastCycleTags) {
-					reportTags.remove(tag.getTagIDAsPureURI());
-				}
-			}
-
-			for (Tag tag : reportTags.values()) {
+			// get additional tags: tags from current EventCycle without the tags from last EventCycle
+			for (Tag tag : currentCycleTags.difference(lastCycleTags)) {
 				addTag(tag);
 			}
 			//writeDebugInformation(reportTags);
@@ -426,28 +263,16 @@ public class Report {
 		} else if (ECReportSetEnum.isSameECReportSet(ECReportSetEnum.CURRENT, reportType)) {
 
 			// get tags from current EventCycle 
-			for (Tag tag : currentCycleTags) {
+			for (Tag tag : currentCycleTags.getTags()) {
 				addTag(tag);
 			}
 		} else if (ECReportSetEnum.isSameECReportSet(ECReportSetEnum.DELETIONS, reportType)) {
 			
-			// get removed tags
-			Map<String, Tag> reportTags = new HashMap<String, Tag>();
-				
-			// add tags from last EventCycle
-			if (lastCycleTags != null) {
-				for (Tag tag : lastCycleTags) {
-					reportTags.put(tag.getTagIDAsPureURI(), tag);
-				}
-			}
-				
-			// remove tags from current EventCycle
-			for (Tag tag : currentCycleTags) {
-				reportTags.remove(tag.getTagIDAsPureURI());
-			}
+			// get removed tags: tags from last EventCycle without the tags from current EventCycle
+			List<Tag> reportTags = lastCycleTags.difference(currentCycleTags);
 				
 			// add tags to report with filtering
-			for (Tag tag : reportTags.values()) {
+			for (Tag tag : reportTags) {
 				addTag(tag);
 			}
 			if (LOG.isTraceEnabled()) {
@@ -458,14 +283,15 @@ public class Report {
 		}
 		
 
+		groupIndex.clear();
+		lastDigest = digest;
+		digest = digestBuilder.build();
 		if (reportSpec.isReportIfEmpty() || !isEmpty()) {
 			ECReport temp = report;	
-			report = new ECReport();
-			report.setReportName(name);	
+			report = new ReportRound(name);
 			return temp;
 		} else {
-			report = new ECReport();
-			report.setReportName(name);
+			report = new ReportRound(name);
 			return null;
 		}
 	}
@@ -553,6 +379,45 @@ public class Report {
 		}
 	}
 	
+	/**
+	 * This method compiles the field names of the filter and the output specification.
+	 * @throws ImplementationException if a field name is malformed.
+	 */
+	private void initFieldExtractors() throws ImplementationException {
+		
+		LOG.debug("Init field extractors");
+		ECFilterSpec filterSpec = reportSpec.getFilterSpec();
+		if (filterSpec != null && filterSpec.getExtension() != null && filterSpec.getExtension().getFilterList() != null) {
+			for (ECFilterListMember m : filterSpec.getExtension().getFilterList().getFilter()) {
+				if (m.getFieldspec() == null || m.getFieldspec().getFieldname() == null) {
+					continue;
+				}
+				FieldExtractor extractor = FieldExtractor.compile(m.getFieldspec().getFieldname());
+				if (extractor.isSupported()) {
+					fieldFilters.add(new FieldFilter(extractor, m));
+				} else {
+					LOG.warn("field " + extractor + " cannot be read from the tags, filter ignored");
+				}
+			}
+		}
+		
+		if (reportSpec.getOutput() != null && reportSpec.getOutput().getExtension() != null 
+				&& reportSpec.getOutput().getExtension().getFieldList() != null) {
+			for (ECReportOutputFieldSpec outputFieldSpec : reportSpec.getOutput().getExtension().getFieldList().getField()) {
+				if (outputFieldSpec.getFieldspec() == null || outputFieldSpec.getFieldspec().getFieldname() == null) {
+					continue;
+				}
+				String fieldName = outputFieldSpec.getFieldspec().getFieldname();
+				if (fieldName.equalsIgnoreCase("UserMemory") && outputFieldSpec.isIncludeFieldSpecInReport()) {
+					// ORANGE: user memory in the report
+					outputFields.add(FieldExtractor.userBank(fieldName));
+				} else {
+					outputFields.add(FieldExtractor.compile(fieldName));
+				}
+			}
+		}
+	}
+	
 	/**
 	 * This method initializes the group patterns on the basis of the ec report specification.
 	 */
@@ -576,31 +441,17 @@ public class Report {
 	/**
 	 * This method checks on the basis of the filter patterns if the specified tag could be a member of this report.
 	 * 
+	 * @param tagURIFields the parsed tag URI, null if the tag URI could not be parsed
 	 * @param tagURI to check for possible membership
 	 * @return true if the tag could be a member of this report and false otherwise
 	 * @throws ECSpecValidationException if the tag is invalid
 	 * @throws ImplementationException if an implementation exception occurs
 	 */
-	private boolean isMember(String tagURI) throws ECSpecValidationException, ImplementationException {
+	private boolean isMember(TagURIFields tagURIFields, String tagURI) throws ECSpecValidationException, ImplementationException {
 				
-		if (ECReportSetEnum.isSameECReportSet(ECReportSetEnum.ADDITIONS, reportType)) {
-		
-			// if report type is additions the tag is only a member if it wasn't a member of the last event cycle	
-			Set<Tag> tags = currentEventCycle.getLastEventCycleTags();
-			if (tags != null) {
-				for (Tag tag : tags) {
-					if (tag.getTagIDAsPureURI().equals(tagURI)) {
-						return false;
-					}
-				}
-			}
-		}			
-
 		// check if tagURI is member of an exclude pattern
-		for (Pattern pattern : excludePatterns) {
-			if (pattern.isMember(tagURI)) {
-				return false;
-			}
+		if (excludePatterns.isMember(tagURIFields, tagURI)) {
+			return false;
 		}
 		
 		// check if there are include patterns specified
@@ -609,12 +460,7 @@ public class Report {
 		} else {
 			
 			// check if tagURI is a member of an include pattern
-			for (Pattern pattern : includePatterns) {
-				if (pattern.isMember(tagURI)) {
-					return true;
-				}
-			}
-			return false;
+			return includePatterns.isMember(tagURIFields, tagURI);
 		}
 	}
 
@@ -635,146 +481,89 @@ public class Report {
 			}
 			
 			// get group name (use group patterns)
-			String groupName = getGroupName(tagURI);
+			String groupName = getGroupName(tag.getTagIDAsTagURIFields(), tagURI);
 			
 			LOG.debug("The group name for tag '" + tagURI + "' is '" + groupName + "'");
 			
-			// get matching group
-			ECReportGroup matchingGroup = null;
-			List<ECReportGroup> groups = report.getGroup();
-			//if (groups == null) {
-			if (groups.isEmpty()) {
-				matchingGroup = null;
-			} else {
-				for (ECReportGroup group : groups) {
-					if (groupName == null) {
-						if (group.getGroupName() == null) {
-							matchingGroup = group;
-						}
-					} else {
-						if (groupName.equals(group.getGroupName())) {
-							matchingGroup = group;
-						}
-					}
-				}
-			}
+			// get matching group (the index accepts null as group name)
+			ReportGroupIndex matchingGroupIndex = groupIndex.get(groupName);
 		
 			// create group if group does not already exist
-			if (matchingGroup == null) {
+			if (matchingGroupIndex == null) {
 				
 				LOG.debug("Group '" + groupName + "' does not already exist, create it");
 							
-				// create group
-				matchingGroup = new ECReportGroup();
-				
-				// set name
-				matchingGroup.setGroupName(groupName);
-				
-				// set count
-				if (reportSpec.getOutput().isIncludeCount()) {
-					ECReportGroupCount groupCount = new ECReportGroupCount();
-					groupCount.setCount(0);
-					matchingGroup.setGroupCount(groupCount);
-				}
-				
-				// create and set group list
-				matchingGroup.setGroupList(new ECReportGroupList());
-				
-				// add to groups
-				report.getGroup().add(matchingGroup);
+				// create group (with its count if requested) and add it to the groups
+				ReportRound.Group matchingGroup = report.addGroup(groupName, reportSpec.getOutput().isIncludeCount());
+				matchingGroupIndex = new ReportGroupIndex(matchingGroup);
+				groupIndex.put(groupName, matchingGroupIndex);
+				digestBuilder.addGroup(groupName);
 				
 			}
 			
-			// create group list member
-			ECReportGroupListMember groupMember = new ECReportGroupListMember();
-				
+			// convert the identities of the tag
+			identities.setRawDecimal(null);
+			identities.setTag(null);
+			identities.setRawHex(null);
+			identities.setEpc(null);
 			TDTEngine tdt = TagHelper.getTDTEngine();
 			// RAW DECIMAL	
 			if (TagHelper.isReportOutputSpecIncludeRawDecimal(reportSpec.getOutput())) {
-				TagHelper.addTagAsRawDecimal(tdt, groupMember, tag);
+				TagHelper.addTagAsRawDecimal(tdt, identities, tag);
 			}
 			// TAG ENCODING
 			if (TagHelper.isReportOutputSpecIncludeTagEncoding(reportSpec.getOutput())) {
-				TagHelper.addTagAsTagEncoding(tdt, groupMember, tag);
+				TagHelper.addTagAsTagEncoding(tdt, identities, tag);
 			}
 			// RAW HEX
 			if (TagHelper.isReportOutputSpecIncludeRawHex(reportSpec.getOutput())) {
-				TagHelper.addTagAsRawHex(tdt, groupMember, tag);
+				TagHelper.addTagAsRawHex(tdt, identities, tag);
 			}
 			// EPC
 			if (TagHelper.isReportOutputSpecIncludeEPC(reportSpec.getOutput())) {
-				TagHelper.addTagAsEPC(tdt, groupMember, tag);
+				TagHelper.addTagAsEPC(tdt, identities, tag);
 			}
 			
+			// create group list member
+			ReportRound.Member groupMember = new ReportRound.Member(getIdentity(identities.getEpc()), 
+					getIdentity(identities.getTag()), getIdentity(identities.getRawHex()), getIdentity(identities.getRawDecimal()));
+			
 			// check if we need to add tag stats
 			ECReportSpecExtension ecReportSpecExtension = reportSpec.getExtension();
 			if ((null != ecReportSpecExtension) && 
 					(null != ecReportSpecExtension.getStatProfileNames())) {
 				
 				LOG.debug("adding stat profile");
-				addStatProfiles(
+				groupMember.setStats(getStatProfiles(
 						tag,
-						groupMember,
 						ecReportSpecExtension.getStatProfileNames().getStatProfileName(),
-						reportType);
+						reportType));
 			}
 
 			// Add extensions fields
-			addGroupMemberExtensions(groupMember, tag, tdt);
+			groupMember.setFields(getGroupMemberFields(tag, tdt));
 			
 			// add list member to group list
-			List<ECReportGroupListMember> members = matchingGroup.getGroupList().getMember();
-			if(groupMember.getEpc() != null && groupMember.getEpc().getValue() == null) {
+			if(groupMember.epc == ReportRound.Member.NO_VALUE) {
 				LOG.debug("Tag '" + tagURI + "' failed to convert '" + groupName + "' of report '" + name + "'");
 				return;
 			}
 			
-			// if there exists ECReportGroupListMember with the same EPCs in the group, we need to deal with this
+			// if there exists a member with the same EPCs in the group, we need to deal with this
 			// this is because same tags are read from different origin readers.
 			// a tag set in EventCycle did not treat duplicate tags because they are different origins 
-			// FIXME current solution is inefficient. Try to find the better solution. (maybe in the tag set in EventCycle, or Tag.equals method)
-			boolean exist = false;
-			for(ECReportGroupListMember m : members) {
-				if(m.getEpc() != null && groupMember.getEpc() != null && m.getEpc().getValue().equals(groupMember.getEpc().getValue())) {
-					exist = true;
-				}
-				if(m.getTag() != null && groupMember.getTag() != null && m.getTag().getValue().equals(groupMember.getTag().getValue())) {
-					exist = true;
-				}
-				if(m.getRawDecimal() != null && groupMember.getRawDecimal() != null && m.getRawDecimal().getValue().equals(groupMember.getRawDecimal().getValue())) {
-					exist = true;
-				}
-				if(m.getRawHex() != null && groupMember.getRawHex() != null && m.getRawHex().getValue().equals(groupMember.getRawHex().getValue())) {
-					exist = true;
-				}
-				if(exist) {
-					if(m.getExtension() == null) {
-						break;
-					}
-					if(m.getExtension().getStats() != null) {
-						break;
-					}
-					for(ECTagStat tagstat : m.getExtension().getStats().getStat()) {
-						if(tagstat.getStatBlocks() == null) {
-							break;
-						}
-						
-						ECReaderStat readerstat = new ECReaderStat();
-						readerstat.setReaderName(groupMember.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().get(0).getReaderName());
-						tagstat.getStatBlocks().getStatBlock().add(readerstat);
-						
-					}
-					break;
-					//m.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().get(0).getReaderName();
-					//groupMember.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().get(0).getReaderName();
-				}
+			// the members of the group are indexed by all their identities (epc, tag, raw decimal and raw hex).
+			ReportRound.Member existing = matchingGroupIndex.getMember(groupMember);
+			boolean exist = (null != existing);
+			if(exist) {
+				existing.mergeStats(groupMember);
 			}
 			if(!exist) {
-				members.add(groupMember);
-				
-				// increment group counter
-				if (reportSpec.getOutput().isIncludeCount()) {
-					matchingGroup.getGroupCount().setCount(matchingGroup.getGroupCount().getCount() + 1);
+				matchingGroupIndex.group.addMember(groupMember);
+				matchingGroupIndex.addMember(groupMember);
+				String digestKey = getDigestKey(groupMember);
+				if (null != digestKey) {
+					digestBuilder.addMember(groupName, digestKey);
 				}
 				
 				LOG.debug("Tag '" + tagURI + "' successfully added to group '" + groupName + "' of report '" + name + "'");
@@ -788,362 +577,108 @@ public class Report {
 	}
 
 	/**
-	 * Add group member extensions based on spec extensions
-	 * @param groupMember Group member (tag in group)
+	 * returns an identity converted by the TagHelper as held by the group members.
+	 * @param epc the converted identity, null if not included.
+	 * @return the value of the identity, {@link ReportRound.Member#NO_VALUE} if included without value.
+	 */
+	private static String getIdentity(EPC epc) {
+		if (null == epc) {
+			return null;
+		}
+		return (null == epc.getValue()) ? ReportRound.Member.NO_VALUE : epc.getValue();
+	}
+
+	/**
+	 * returns the fields of a group member based on spec extensions
 	 * @param tag Tag
 	 * @param tdt TDT helper
+	 * @return the names and values of the fields, null if the report has no field list.
 	 * @throws ImplementationException
 	 * @throws ECSpecValidationException
 	 */
-	private void addGroupMemberExtensions(ECReportGroupListMember groupMember, Tag tag, TDTEngine tdt) throws ImplementationException, ECSpecValidationException {
+	private String[] getGroupMemberFields(Tag tag, TDTEngine tdt) throws ImplementationException, ECSpecValidationException {
 
 		// ORANGE: check if we need to add user memory in the report
 
 		// Spec contains extension ?
 		ECReportOutputSpecExtension outputExtension = reportSpec.getOutput().getExtension();
-		if (outputExtension == null) return;
-		if (outputExtension.getFieldList() == null) return;
-
-		// Make sure member gets extension instance
-		ECReportGroupListMemberExtension extension = groupMember.getExtension();
-		if (extension == null) {
-			extension = new ECReportGroupListMemberExtension();
-			groupMember.setExtension(extension);
-		}
-
-		extension.setFieldList(new FieldList());
-		List<ECReportMemberField> ecReportMemberFields = extension.getFieldList().getField();
-
-		// represent the user memory to binary format
-		String usermemInBinary = tag.getUserMemory();
-		if (usermemInBinary != null) {
-			usermemInBinary = usermemInBinary.replaceAll("\\s", "");
-			usermemInBinary = new StringBuilder("f").append(usermemInBinary).toString();        //usermem = "f".concat(usermem);
-			usermemInBinary = tdt.hex2bin(usermemInBinary);
-			usermemInBinary = usermemInBinary.substring(4);
-		}
-
-		// Iterate over field specs
-		for (ECReportOutputFieldSpec outputFieldSpec : outputExtension.getFieldList().getField()) {
-
-			// Skip invalid fields
-			if (outputFieldSpec.getFieldspec() == null) continue;
-			if (outputFieldSpec.getFieldspec().getFieldname() == null) continue;
+		if (outputExtension == null) return null;
+		if (outputExtension.getFieldList() == null) return null;
 
-			String fieldName = outputFieldSpec.getFieldspec().getFieldname();
+		List<String> ecReportMemberFields = new ArrayList<String>(2 * outputFields.size());
 
-			if (fieldName.equalsIgnoreCase("UserMemory") && outputFieldSpec.isIncludeFieldSpecInReport()) {
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-				ecReportMemberField.setValue(tag.getUserMemory());
+		for (FieldExtractor extractor : outputFields) {
+			FieldExtractor field = extractor.resolve();
+			if (null == field) {
+				LOG.debug("There is no such symbolic fieldname "+extractor.getFieldName()+". skip processing userdata of this tag");
+				continue;
+			}
 
-				ecReportMemberFields.add(ecReportMemberField);
-			} else if(fieldName.equalsIgnoreCase("epc")) {
+			switch (field.getKind()) {
+			case EPC:
 				// default datatype: "epc"
 				// default format: "epc-tag"
-
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
+				String epc = null;
 				try {
-					String bin = TagHelper.getBinaryRepresentation(tag);
-					if (null != bin) {
-						final String converted = TagHelper.convert_to_TAG_ENCODING(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), bin, tdt);
-
-						ecReportMemberField.setValue(converted);
-					}
+					epc = TagHelper.convert_to_TAG_ENCODING(tag, tdt);
 				} catch (Exception ex) {
 					LOG.error("caught exception during tag transformation: ", ex);
 				}
-				ecReportMemberFields.add(ecReportMemberField);
-
-			}
-			else if(fieldName.equalsIgnoreCase("killPwd")) {
-				//TODO : killPwd fieldname
-				throw new ImplementationException("fieldname \"killPwd\": access to reserved bank is not implemented");
-						/*
-						ECReportMemberField ecReportMemberField = new ECReportMemberField();
-						ecReportMemberField.setName(fieldName);
-						ecReportMemberField.setValue(null);
-
-						// same as "@0.32"
-						field.setBank(0);
-						field.setLength(32);
-						field.setOffset(0);
-						field.setDataType("uint");
-						field.setFormat("hex");
-						ecReportMemberFields.add(ecReportMemberField);
-						*/
-			} else if(fieldName.equalsIgnoreCase("accessPwd")) {
-				//TODO : accessPwd fieldname
-				throw new ImplementationException("fieldname \"accessPwd\": access to reserved bank is not implemented");
-						/*
-						ECReportMemberField field = new ECReportMemberField();
-						field.setName(fieldName);
-
-						// same as "@0.32.32"
-						field.setBank(0);
-						field.setLength(32);
-						field.setOffset(32);
-						field.setDataType("uint");
-						field.setFormat("hex");
-						*/
-			} else if(fieldName.equalsIgnoreCase("epcBank")) {
-				// return the contents of epc bank
-				// datatype: "bits", format: "hex"
-
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-				ecReportMemberField.setValue(tag.getEpcBank());
-				ecReportMemberFields.add(ecReportMemberField);
-
-			} else if(fieldName.equalsIgnoreCase("tidBank")) {
-				// return the contents of tid bank
-				// datatype: "bits", format: "hex"
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-				ecReportMemberField.setValue(tag.getTidBank());	// tag.getTidBank() is already hex string, no need to convert
-				ecReportMemberFields.add(ecReportMemberField);
-
-			} else if(fieldName.equalsIgnoreCase("userBank")) {
-				// return the contents of user memory bank
-				// datatype: "bits", format: "hex"
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-				ecReportMemberField.setValue(tag.getUserMemory());	// tag.getUserMemory() is already hex string, no need to convert
-				ecReportMemberFields.add(ecReportMemberField);
-
-			} else if(fieldName.equalsIgnoreCase("afi")) {
-				// TODO:  application family identifier
-				// same as "@1.8.24"
-				// datatype: "uint", format: "hex"
-
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-
-				String fieldValue = processEpcBank(tag, tdt, 8,
-						24, "uint", "hex");
-				ecReportMemberField.setValue(fieldValue);
-				ecReportMemberFields.add(ecReportMemberField);
-				//throw new ImplementationException("fieldname \"afi\": application family identifier (afi) is not implemented");
-
-			} else if(fieldName.equalsIgnoreCase("nsi")) {
-				// TODO: Numbering System Identifier (NSI)
-				// same as "@1.9.23"
-				// datatype: "uint", format: "hex"
-
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-
-				String fieldValue = processEpcBank(tag, tdt, 9,
-						23, "uint", "hex");
-				ecReportMemberField.setValue(fieldValue);
-
-				ecReportMemberFields.add(ecReportMemberField);
-
-				//throw new ImplementationException("fieldname \"nsi\": Numbering System Identifier (NSI) is not implemented");
-
-			} else if (fieldName.startsWith("@")) {
-				// TODO: fieldnames start with "@"
-				// datatype: "uint", format: "hex"
-
-				String[] part = fieldName.substring(1).split("\\.");
-				int bank = Integer.parseInt(part[0]);
-				int length = Integer.parseInt(part[1]);
-				int offset = Integer.parseInt(part[2]);
-				String datatype = "uint";
-				String format = "hex";
-
-				ECReportMemberField ecReportMemberField = new ECReportMemberField();
-				ecReportMemberField.setName(fieldName);
-
-				if (bank == 0) {
-					throw new ImplementationException("Access to bank "+bank+" is not supported.");
-				} else if(bank == 1) {
-					String fieldValue = processEpcBank(tag, tdt, length, offset, datatype, format);
-					ecReportMemberField.setValue(fieldValue);
-					ecReportMemberFields.add(ecReportMemberField);
-				} else if (bank == 2) {
-					throw new ImplementationException("Access to bank "+bank+" is not supported.");
-				} else if (bank == 3) {
-					if (usermemInBinary != null) {
-						String fieldValue = processUserbank(tdt, usermemInBinary, length, offset, datatype, format);
-						ecReportMemberField.setValue(fieldValue);
-						ecReportMemberFields.add(ecReportMemberField);
-					}
-				} else {
-					throw new ImplementationException("bank "+bank+" does not exist.");
-				}
-
-
-
-			} else {
-				// TODO: symbolic fieldnames
-				// datatype: "uint", format: "hex"
-
-				ECReportMemberField field = new ECReportMemberField();
-				field.setName(fieldName);
-
-				// user-defined symbolic field name
-				String epc_tag = TagHelper.convert_to_TAG_ENCODING(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), tag.getTagAsBinary(), tdt);
-						/*
-						Map<String,SymbolicField> symbolicFields = SymbolicFieldRepo.getInstance().findSymbolicFieldMap(epc_tag);
-						if(symbolicFields == null) {
-							throw new ImplementationException("symbolic field does not exist for the epc "+epc_tag);
-						}
-						SymbolicField symbolicField = symbolicFields.get(fieldName);
-						*/
-				SymbolicField symbolicField = SymbolicFieldRepo.getInstance().getSymbolicField(fieldName);
-				if(symbolicField != null) {
-					int bank = symbolicField.getBank();
-					int length = symbolicField.getLength();
-					int offset = symbolicField.getOffset();
-					String datatype = symbolicField.getDataType() != null? symbolicField.getDataType(): "uint";
-					String format = symbolicField.getFormat() != null? symbolicField.getFormat(): "hex";
-
-					ECReportMemberField ecReportMemberField = new ECReportMemberField();
-					ecReportMemberField.setName(fieldName);
-
-					if (bank == 0) {
-						throw new ImplementationException("Access to bank "+bank+" is not supported.");
-					} else if(bank == 1) {
-						String fieldValue = processEpcBank(tag, tdt, length, offset, datatype, format);
-						ecReportMemberField.setValue(fieldValue);
-						ecReportMemberFields.add(ecReportMemberField);
-					} else if(bank == 2) {
-						throw new ImplementationException("Access to bank "+bank+" is not supported.");
-					} else if(bank == 3) {
-						if (usermemInBinary != null) {
-							String fieldValue = processUserbank(tdt, usermemInBinary, length, offset, datatype, format);
-							ecReportMemberField.setValue(fieldValue);
-							ecReportMemberFields.add(ecReportMemberField);
-						}
-					} else {
-						throw new ImplementationException("bank "+bank+" does not exist.");
-					}
-				} else {
-					LOG.debug("There is no such symbolic fieldname "+fieldName+". skip processing userdata of this tag");
+				ecReportMemberFields.add(extractor.getFieldName());
+				ecReportMemberFields.add(epc);
+				break;
+			case RESERVED:
+				//TODO : killPwd and accessPwd fieldnames
+				throw new ImplementationException("fieldname \"" + field.getFieldName() + "\": access to reserved bank is not implemented");
+			case BITS:
+				// fields are only added if the tag holds the memory bank
+				String value = field.extract(tag);
+				if (null != value) {
+					ecReportMemberFields.add(extractor.getFieldName());
+					ecReportMemberFields.add(value);
 				}
+				break;
+			default:
+				// the contents of the epc, tid or user memory bank (already hex strings, no need to convert)
+				ecReportMemberFields.add(extractor.getFieldName());
+				ecReportMemberFields.add(field.extract(tag));
+				break;
 			}
 		}
-	}
-
-	private String processEpcBank(Tag tag, TDTEngine tdt, int length, int offset,
-			String datatype, String format)
-			throws ImplementationException {
-		String epcBankInBinary = tag.getEpcBank();
-		epcBankInBinary = epcBankInBinary.replaceAll("\\s", "");
-		epcBankInBinary = new StringBuilder("f").append(epcBankInBinary).toString();		//epcBankInBinary = "f".concat(epcBankInBinary);
-		epcBankInBinary = tdt.hex2bin(epcBankInBinary);
-		epcBankInBinary = epcBankInBinary.substring(4);
-		
-		String fieldValueInBinary = epcBankInBinary.substring(offset, offset+length); 
-		if(datatype.equalsIgnoreCase("uint")) {
-			// only "decimal" and "hex" are valid for "uint"
-			if(format.equalsIgnoreCase("decimal")) {
-				return tdt.bin2dec(fieldValueInBinary);
-			} else if(format.equalsIgnoreCase("hex")) {
-				return tdt.bin2hex(fieldValueInBinary);
-			} else {
-				// error, but include binary as the field value
-				return fieldValueInBinary;
-			}
-		} else if (datatype.equalsIgnoreCase("bits")){
-			// only "hex" format is valid for the datatype "bits"
-			if(format.equalsIgnoreCase("hex")) {
-				return tdt.bin2hex(fieldValueInBinary);
-			}
-		} else if (datatype.equalsIgnoreCase("iso-15962-string")){
-			throw new ImplementationException("fieldname whose datatype is 'iso-15962-string' is not supported.");
-		} else {
-			throw new ImplementationException("fieldname whose datatype is "+datatype+" is not supported.");
-		}
-		throw new ImplementationException ("cannot process epc bank");
-	}
-
-	private String processUserbank(TDTEngine tdt, String usermemInBinary,
-			int length, 
-			int offset, 
-			String datatype, 
-			String format)
-			throws ImplementationException {
-		String fieldValueInBinary = usermemInBinary.substring(offset, offset+length); 
-		if(datatype.equalsIgnoreCase("uint")) {
-			// only "decimal" and "hex" are valid for "uint"
-			if(format.equalsIgnoreCase("decimal")) {
-				return tdt.bin2dec(fieldValueInBinary);
-			} else if(format.equalsIgnoreCase("hex")) {
-				return tdt.bin2hex(fieldValueInBinary);
-			} else {
-				// error, but include binary as the field value
-				return fieldValueInBinary;
-			}
-		} else if (datatype.equalsIgnoreCase("bits")){
-			// only "hex" format is valid for the datatype "bits"
-			if(format.equalsIgnoreCase("hex")) {
-				return tdt.bin2hex(fieldValueInBinary);
-			}
-		} else if (datatype.equalsIgnoreCase("iso-15962-string")){
-			throw new ImplementationException("fieldname whose datatype is 'iso-15962-string' is not supported.");
-		} else {
-			throw new ImplementationException("fieldname whose datatype is "+datatype+" is not supported.");
-		}
-		throw new ImplementationException("cannot process userbank");
+		return ecReportMemberFields.toArray(new String[ecReportMemberFields.size()]);
 	}
 
 	/**
-	 * for each statistics profile name add the respective statistics profile.
+	 * for each statistics profile name returns the respective statistics profile.
 	 * @param tag the tag holding information the statistics.
-	 * @param groupMember the group member where to add the statistics.
 	 * @param statProfileName a list of statistic profile names.
+	 * @return the statistics of the group member.
 	 */
-	private void addStatProfiles(Tag tag, ECReportGroupListMember groupMember,
-			List<String> statProfileName, String reportType) {
+	private List<ReportRound.Stat> getStatProfiles(Tag tag, List<String> statProfileName, String reportType) {
 
-		ECReportGroupListMemberExtension extension = 
-			new ECReportGroupListMemberExtension();
-		groupMember.setExtension(extension);
-		
-		extension.setStats(new Stats());
-		List<ECTagStat> ecTagStats = extension.getStats().getStat();
+		List<ReportRound.Stat> ecTagStats = new ArrayList<ReportRound.Stat>(statProfileName.size());
 		for (String profile : statProfileName) {
 			if(profile.equalsIgnoreCase("TagTimestamps")) {
-				ECTagTimestampStat ecTagTimestampStat = new ECTagTimestampStat();
-				ecTagStats.add(ecTagTimestampStat);
-				
-				ecTagTimestampStat.setProfile(profile);
-				ecTagTimestampStat.setStatBlocks(new StatBlocks());
-				
+				XMLGregorianCalendar xmlGrogerianCalendar = null;
 				try {
 					GregorianCalendar gregorianCalendar = new GregorianCalendar();
 					gregorianCalendar.setTime(new Date(tag.getTimestamp()));
-					XMLGregorianCalendar xmlGrogerianCalendar = null;
 					xmlGrogerianCalendar = DatatypeFactory.newInstance().newXMLGregorianCalendar(gregorianCalendar);
 					
-					// TODO: firstSightingTime is dependent on ReportSetSpec
-					ecTagTimestampStat.setFirstSightingTime(xmlGrogerianCalendar);					
-					ecTagTimestampStat.setLastSightingTime(xmlGrogerianCalendar);
-					
 				} catch (DatatypeConfigurationException e) {
 					LOG.debug("timestamp is not valid. timestamp inclusion skipped");
 				}
+				// TODO: firstSightingTime is dependent on ReportSetSpec
+				ecTagStats.add(ReportRound.Stat.timestamps(profile, xmlGrogerianCalendar));
 				
 			} else {
 				LOG.debug("adding stat profile: " + profile);
 				
-				ECTagStat ecTagStat = new ECTagStat();
-				ecTagStats.add(ecTagStat);
-				
-				ecTagStat.setProfile(profile);
-				ecTagStat.setStatBlocks(new StatBlocks());
-				ECReaderStat readerStat = new ECReaderStat();
-				ecTagStat.getStatBlocks().getStatBlock().add(readerStat);
-				
-				readerStat.setReaderName(tag.getOrigin());
-				readerStat.setSightings(new Sightings());
-				readerStat.getSightings().getSighting().add(new ECSightingStat());
+				ecTagStats.add(ReportRound.Stat.reader(profile, tag.getOrigin()));
 			}
 			
 		}
+		return ecTagStats;
 	}
 	
 	/**
@@ -1169,15 +704,20 @@ public class Report {
 	/**
 	 * This method get the matching group of this report for the specified tag.
 	 * 
+	 * @param tagURIFields the parsed tag URI, null if the tag URI could not be parsed
 	 * @param tagURI to search group for
 	 * @return group name
 	 * @throws ECSpecValidationException if the tag is invalid
 	 * @throws ImplementationException if an implementation exception occurs
 	 */
-	private String getGroupName(String tagURI) throws ImplementationException, ECSpecValidationException {
+	private String getGroupName(TagURIFields tagURIFields, String tagURI) throws ImplementationException, ECSpecValidationException {
 		
 		for (Pattern pattern : groupPatterns) {
-			if (pattern.isMember(tagURI)) {
+			if (null != tagURIFields) {
+				if (pattern.isMember(tagURIFields)) {
+					return pattern.getGroupName(tagURIFields);
+				}
+			} else if (pattern.isMember(tagURI)) {
 				return pattern.getGroupName(tagURI);
 			}
 		}
@@ -1193,16 +733,128 @@ public class Report {
 	 */
 	private boolean isEmpty() {
 		
-		List<ECReportGroup> groups = report.getGroup();
-		if (groups != null) {
-			for (ECReportGroup group : groups) {
-				ECReportGroupList groupList = group.getGroupList();
-				if (groupList.getMember().size() > 0) {
-					return false;
+		return !report.hasMembers();
+
+	}
+	
+	/**
+	 * returns the identity of a group member used by reportOnlyOnChange: the first of epc, 
+	 * tag and raw hex included into the report, the raw decimal otherwise (the same identity 
+	 * as in {@link org.fosstrak.ale.server.util.ECReportsHelper#areReportsEqual}).
+	 * @param groupMember the group member.
+	 * @return the identity or null if the member does not have any.
+	 */
+	private String getDigestKey(ReportRound.Member groupMember) {
+		ECReportOutputSpec output = reportSpec.getOutput();
+		if (output.isIncludeEPC() && hasValue(groupMember.epc)) {
+			return groupMember.epc;
+		}
+		if (output.isIncludeTag() && hasValue(groupMember.tag)) {
+			return groupMember.tag;
+		}
+		if (output.isIncludeRawHex() && hasValue(groupMember.rawHex)) {
+			return groupMember.rawHex;
+		}
+		if (hasValue(groupMember.rawDecimal)) {
+			return groupMember.rawDecimal;
+		}
+		return null;
+	}
+	
+	private static boolean hasValue(String identity) {
+		return null != ReportRound.Member.valueOf(identity);
+	}
+	
+	/**
+	 * @return the digest of the filtered tags of the last generated report, null if no report has been generated yet.
+	 */
+	public ReportDigest getDigest() {
+		return digest;
+	}
+	
+	/**
+	 * @return the digest of the filtered tags of the report generated before the last one, null if none.
+	 */
+	public ReportDigest getLastDigest() {
+		return lastDigest;
+	}
+	
+	/**
+	 * a filter on a field of the tags together with its compiled field.
+	 */
+	private static final class FieldFilter {
+		
+		/** the compiled field. */
+		private final FieldExtractor extractor;
+		
+		/** the filter (include or exclude and the patterns). */
+		private final ECFilterListMember member;
+		
+		private FieldFilter(FieldExtractor extractor, ECFilterListMember member) {
+			this.extractor = extractor;
+			this.member = member;
+		}
+	}
+	
+	/**
+	 * side index of a group of the ec report under construction: finds the members 
+	 * of the group by their identities without scanning the group list.
+	 */
+	private static final class ReportGroupIndex {
+		
+		/** the indexed group. */
+		private final ReportRound.Group group;
+		
+		/** members by epc, tag, raw decimal and raw hex (the URIs of the different forms never collide). */
+		private final Map<String, ReportRound.Member> members = new HashMap<String, ReportRound.Member>();
+		
+		private ReportGroupIndex(ReportRound.Group group) {
+			this.group = group;
+		}
+		
+		/**
+		 * returns the member having one of the identities of the given group member.
+		 * @param groupMember the group member to look up.
+		 * @return the member or null if none.
+		 */
+		private ReportRound.Member getMember(ReportRound.Member groupMember) {
+			for (String key : getKeys(groupMember)) {
+				ReportRound.Member member = members.get(key);
+				if (null != member) {
+					return member;
 				}
 			}
+			return null;
+		}
+		
+		/**
+		 * indexes the given member by all its identities.
+		 * @param groupMember the member added to the group.
+		 */
+		private void addMember(ReportRound.Member groupMember) {
+			for (String key : getKeys(groupMember)) {
+				if (!members.containsKey(key)) {
+					members.put(key, groupMember);
+				}
+			}
+		}
+		
+		/**
+		 * @return the identities of the given member.
+		 */
+		private static List<String> getKeys(ReportRound.Member groupMember) {
+			List<String> keys = new ArrayList<String>(4);
+			addKey(keys, groupMember.epc);
+			addKey(keys, groupMember.tag);
+			addKey(keys, groupMember.rawDecimal);
+			addKey(keys, groupMember.rawHex);
+			return keys;
+		}
+		
+		private static void addKey(List<String> keys, String identity) {
+			if (hasValue(identity)) {
+				keys.add(identity);
+			}
 		}
-		return true;
-
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * order independent digest of the filtered tags of an ECReport, one per group. the digest
+ * of a group consists of the number of members and two 64 bit accumulators (the sum and
+ * the xor of two independent hashes of the member identities). it is maintained
+ * incrementally while the report is built, such that reportOnlyOnChange compares two
+ * rounds in O(groups) instead of comparing the member sets.<br/>
+ * equal sets always have equal digests. different sets have equal digests with a
+ * negligible probability, the strict mode verifies a match on the reports themselves.
+ */
+public final class ReportDigest {
+
+	/** digest of a report without any group. */
+	public static final ReportDigest EMPTY = new ReportDigest(Collections.<String, Group>emptyMap());
+
+	/** digests by group name (the default group has the name null). */
+	private final Map<String, Group> groups;
+
+	/**
+	 * private constructor, use a {@link Builder}.
+	 */
+	private ReportDigest(Map<String, Group> groups) {
+		this.groups = groups;
+	}
+
+	/**
+	 * compares the digests group by group.
+	 * @param other the digest of the other round, null never matches.
+	 * @return true if both digests contain the same groups with equal digests.
+	 */
+	public boolean matches(ReportDigest other) {
+		if (null == other) {
+			return false;
+		}
+		if (groups.size() != other.groups.size()) {
+			return false;
+		}
+		for (Map.Entry<String, Group> entry : groups.entrySet()) {
+			if (!entry.getValue().equals(other.groups.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of groups.
+	 */
+	public int getGroupCount() {
+		return groups.size();
+	}
+
+	/**
+	 * @param groupName the name of the group.
+	 * @return the number of members of the group, 0 if the group does not exist.
+	 */
+	public int getMemberCount(String groupName) {
+		Group group = groups.get(groupName);
+		return (null == group) ? 0 : group.count;
+	}
+
+	/**
+	 * computes the digest of a member identity.
+	 * @param key the identity of the member.
+	 * @return the two independent 64 bit hashes of the identity.
+	 */
+	static long[] hash(String key) {
+		// FNV-1a and a polynomial hash with another multiplier, both finalized by a mixer
+		long h1 = 0xcbf29ce484222325L;
+		long h2 = 0x9e3779b97f4a7c15L;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			h1 = (h1 ^ c) * 0x100000001b3L;
+			h2 = h2 * 0xc6a4a7935bd1e995L + c;
+		}
+		return new long[] { mix(h1), mix(h2 ^ key.length()) };
+	}
+
+	/**
+	 * 64 bit finalizer spreading every input bit over the whole value.
+	 */
+	private static long mix(long h) {
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= (h >>> 33);
+		return h;
+	}
+
+	/**
+	 * digest of one group.
+	 */
+	private static final class Group {
+		private int count;
+		private long sum;
+		private long xor;
+
+		private void add(String key) {
+			long[] h = hash(key);
+			count++;
+			sum += h[0];
+			xor ^= h[1];
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Group)) {
+				return false;
+			}
+			Group other = (Group) obj;
+			return (count == other.count) && (sum == other.sum) && (xor == other.xor);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (sum ^ xor) * 31 + count;
+		}
+	}
+
+	/**
+	 * collects the member identities of the groups of a report under construction.
+	 * a builder is not thread safe.
+	 */
+	public static final class Builder {
+
+		/** the groups collected so far. */
+		private Map<String, Group> groups = new HashMap<String, Group>();
+
+		/**
+		 * adds a group without members (eg. a group whose members were all dropped).
+		 * @param groupName the name of the group.
+		 */
+		public void addGroup(String groupName) {
+			if (!groups.containsKey(groupName)) {
+				groups.put(groupName, new Group());
+			}
+		}
+
+		/**
+		 * adds a member to a group. each member must be added once.
+		 * @param groupName the name of the group.
+		 * @param key the identity of the member.
+		 */
+		public void addMember(String groupName, String key) {
+			Group group = groups.get(groupName);
+			if (null == group) {
+				group = new Group();
+				groups.put(groupName, group);
+			}
+			group.add(key);
+		}
+
+		/**
+		 * creates the digest and resets the builder for the next round.
+		 * @return the digest of the groups collected since the last build.
+		 */
+		public ReportDigest build() {
+			if (groups.isEmpty()) {
+				return EMPTY;
+			}
+			ReportDigest digest = new ReportDigest(groups);
+			groups = new HashMap<String, Group>();
+			return digest;
+		}
+	}
+}
@@ -0,0 +1,376 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.stream.XMLStreamException;
+
+import org.fosstrak.ale.util.ECReportsWriter;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReaderStat.Sightings;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupCount;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension.FieldList;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension.Stats;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSightingStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat.StatBlocks;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.fosstrak.ale.xsd.epcglobal.EPC;
+
+/**
+ * the ec report of a round of an event cycle. the groups of the round are kept as plain group
+ * and member records filled by the {@link Report}: the xml of the subscribers is streamed from
+ * these records by the {@link ECReportsWriter}, the JAXB groups are built on the first call of
+ * {@link #getGroup()} only (eg. by the json and binary codecs, or by {@link #buildGroups(ECReports)}
+ * before the reports of poll and immediate are marshalled by JAXB).<br/>
+ * the groups are not modified once the report has been generated.
+ */
+public class ReportRound extends ECReport implements ECReportsWriter.Groups {
+
+	/** the groups of the round, in the order of their first tag. */
+	private final List<Group> groups = new ArrayList<Group>();
+
+	/** true once the JAXB groups have been built (guarded by this). */
+	private boolean built = false;
+
+	/**
+	 * creates the report of a round.
+	 * @param reportName the name of the report.
+	 */
+	public ReportRound(String reportName) {
+		setReportName(reportName);
+	}
+
+	/**
+	 * builds the JAXB groups of the round reports of the given reports, for the callers
+	 * marshalling the reports with JAXB (which reads the fields of the reports).
+	 * @param reports the reports, may be null.
+	 * @return the given reports.
+	 */
+	public static ECReports buildGroups(ECReports reports) {
+		if (null != reports && null != reports.getReports()) {
+			for (ECReport report : reports.getReports().getReport()) {
+				if (report instanceof ReportRound) {
+					report.getGroup();
+				}
+			}
+		}
+		return reports;
+	}
+
+	/**
+	 * returns the JAXB groups of the round, built from the groups of the round on the first call.
+	 */
+	@Override
+	public synchronized List<ECReportGroup> getGroup() {
+		if (!built) {
+			built = true;
+			List<ECReportGroup> list = super.getGroup();
+			for (Group group : groups) {
+				list.add(group.toECReportGroup());
+			}
+		}
+		return super.getGroup();
+	}
+
+	@Override
+	public boolean hasGroups() {
+		return !groups.isEmpty();
+	}
+
+	/**
+	 * @return true if a group of the round holds at least one member.
+	 */
+	public boolean hasMembers() {
+		for (Group group : groups) {
+			if (!group.members.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void writeGroups(ECReportsWriter.GroupWriter writer) throws XMLStreamException {
+		for (Group group : groups) {
+			boolean hasMembers = !group.members.isEmpty();
+			writer.startGroup(group.name, hasMembers);
+			for (Member member : group.members) {
+				member.write(writer);
+			}
+			writer.endGroup(hasMembers, group.counted ? Integer.valueOf(group.members.size()) : null);
+		}
+	}
+
+	/**
+	 * adds a group to the round.
+	 * @param name the name of the group, null for the default group.
+	 * @param counted true if the report includes the count of the group.
+	 * @return the group.
+	 */
+	Group addGroup(String name, boolean counted) {
+		Group group = new Group(name, counted);
+		groups.add(group);
+		return group;
+	}
+
+	/**
+	 * a group of the round.
+	 */
+	static final class Group {
+
+		/** the name of the group, null for the default group. */
+		private final String name;
+
+		/** true if the report includes the count of the group. */
+		private final boolean counted;
+
+		/** the members of the group. */
+		private final List<Member> members = new ArrayList<Member>();
+
+		private Group(String name, boolean counted) {
+			this.name = name;
+			this.counted = counted;
+		}
+
+		void addMember(Member member) {
+			members.add(member);
+		}
+
+		private ECReportGroup toECReportGroup() {
+			ECReportGroup group = new ECReportGroup();
+			group.setGroupName(name);
+			if (counted) {
+				ECReportGroupCount groupCount = new ECReportGroupCount();
+				groupCount.setCount(members.size());
+				group.setGroupCount(groupCount);
+			}
+			group.setGroupList(new ECReportGroupList());
+			for (Member member : members) {
+				group.getGroupList().getMember().add(member.toECReportGroupListMember());
+			}
+			return group;
+		}
+	}
+
+	/**
+	 * a member of a group. the identities are held as in ECReportGroupListMember: null if the
+	 * identity is not included, {@link #NO_VALUE} if it is included without value.
+	 */
+	static final class Member {
+
+		/** the value of an identity included without value (compared by identity). */
+		static final String NO_VALUE = new String();
+
+		/** the identities of the member. */
+		final String epc;
+		final String tag;
+		final String rawHex;
+		final String rawDecimal;
+
+		/** the names and values of the fields (name at even, value at odd indexes), null if the member has no field list. */
+		private String[] fields = null;
+
+		/** the statistics, null if the member has no statistics. */
+		private List<Stat> stats = null;
+
+		Member(String epc, String tag, String rawHex, String rawDecimal) {
+			this.epc = epc;
+			this.tag = tag;
+			this.rawHex = rawHex;
+			this.rawDecimal = rawDecimal;
+		}
+
+		void setFields(String[] fields) {
+			this.fields = fields;
+		}
+
+		void setStats(List<Stat> stats) {
+			this.stats = stats;
+		}
+
+		/**
+		 * merges the reader statistics of a duplicate member (the same tag read by another reader).
+		 * @param duplicate the member built for the duplicate tag.
+		 */
+		void mergeStats(Member duplicate) {
+			if (null == stats || null == duplicate.stats) {
+				return;
+			}
+			for (int i = 0; i < stats.size() && i < duplicate.stats.size(); i++) {
+				Stat stat = stats.get(i);
+				Stat duplicateStat = duplicate.stats.get(i);
+				if (null != stat.readerNames && null != duplicateStat.readerNames) {
+					stat.readerNames.addAll(duplicateStat.readerNames);
+				}
+			}
+		}
+
+		/**
+		 * @return the value of an identity, null if the identity is not included or has no value.
+		 */
+		static String valueOf(String identity) {
+			return (NO_VALUE == identity) ? null : identity;
+		}
+
+		private void write(ECReportsWriter.GroupWriter writer) throws XMLStreamException {
+			boolean empty = null == epc && null == tag && null == rawHex && null == rawDecimal && null == fields && null == stats;
+			writer.startMember(empty);
+			writeEPC(writer, "epc", epc);
+			writeEPC(writer, "tag", tag);
+			writeEPC(writer, "rawHex", rawHex);
+			writeEPC(writer, "rawDecimal", rawDecimal);
+			if (null != fields || null != stats) {
+				writer.startExtension();
+				if (null != fields) {
+					writer.startFieldList(fields.length == 0);
+					for (int i = 0; i < fields.length; i += 2) {
+						writer.writeField(fields[i], fields[i + 1]);
+					}
+					writer.endFieldList(fields.length == 0);
+				}
+				if (null != stats) {
+					writer.startStats(stats.isEmpty());
+					for (Stat stat : stats) {
+						if (null == stat.readerNames) {
+							writer.writeTimestampStat(stat.profile, stat.sightingTime, stat.sightingTime);
+						} else {
+							writer.writeReaderStat(stat.profile, stat.readerNames);
+						}
+					}
+					writer.endStats(stats.isEmpty());
+				}
+				writer.endExtension();
+			}
+			writer.endMember(empty);
+		}
+
+		private static void writeEPC(ECReportsWriter.GroupWriter writer, String name, String identity) throws XMLStreamException {
+			if (null != identity) {
+				writer.writeEPC(name, valueOf(identity));
+			}
+		}
+
+		private ECReportGroupListMember toECReportGroupListMember() {
+			ECReportGroupListMember member = new ECReportGroupListMember();
+			member.setEpc(toEPC(epc));
+			member.setTag(toEPC(tag));
+			member.setRawHex(toEPC(rawHex));
+			member.setRawDecimal(toEPC(rawDecimal));
+			if (null != fields || null != stats) {
+				ECReportGroupListMemberExtension extension = new ECReportGroupListMemberExtension();
+				member.setExtension(extension);
+				if (null != fields) {
+					extension.setFieldList(new FieldList());
+					for (int i = 0; i < fields.length; i += 2) {
+						ECReportMemberField field = new ECReportMemberField();
+						field.setName(fields[i]);
+						field.setValue(fields[i + 1]);
+						extension.getFieldList().getField().add(field);
+					}
+				}
+				if (null != stats) {
+					extension.setStats(new Stats());
+					for (Stat stat : stats) {
+						extension.getStats().getStat().add(stat.toECTagStat());
+					}
+				}
+			}
+			return member;
+		}
+
+		private static EPC toEPC(String identity) {
+			if (null == identity) {
+				return null;
+			}
+			EPC epc = new EPC();
+			epc.setValue(valueOf(identity));
+			return epc;
+		}
+	}
+
+	/**
+	 * a statistic of a member: the sighting time of the TagTimestamps profile or the readers of the other profiles.
+	 */
+	static final class Stat {
+
+		/** the name of the profile. */
+		private final String profile;
+
+		/** the first and last sighting of the TagTimestamps profile, null if unknown. */
+		private final XMLGregorianCalendar sightingTime;
+
+		/** the readers having seen the tag (one stat block each), null for the TagTimestamps profile. */
+		private final List<String> readerNames;
+
+		private Stat(String profile, XMLGregorianCalendar sightingTime, List<String> readerNames) {
+			this.profile = profile;
+			this.sightingTime = sightingTime;
+			this.readerNames = readerNames;
+		}
+
+		/**
+		 * @return a statistic of the TagTimestamps profile.
+		 */
+		static Stat timestamps(String profile, XMLGregorianCalendar sightingTime) {
+			return new Stat(profile, sightingTime, null);
+		}
+
+		/**
+		 * @return a statistic with the stat block of the given reader.
+		 */
+		static Stat reader(String profile, String readerName) {
+			List<String> readerNames = new ArrayList<String>(1);
+			readerNames.add(readerName);
+			return new Stat(profile, null, readerNames);
+		}
+
+		private ECTagStat toECTagStat() {
+			if (null == readerNames) {
+				ECTagTimestampStat stat = new ECTagTimestampStat();
+				stat.setProfile(profile);
+				stat.setStatBlocks(new StatBlocks());
+				stat.setFirstSightingTime(sightingTime);
+				stat.setLastSightingTime(sightingTime);
+				return stat;
+			}
+			ECTagStat stat = new ECTagStat();
+			stat.setProfile(profile);
+			stat.setStatBlocks(new StatBlocks());
+			for (String readerName : readerNames) {
+				ECReaderStat readerStat = new ECReaderStat();
+				readerStat.setReaderName(readerName);
+				readerStat.setSightings(new Sightings());
+				readerStat.getSightings().getSighting().add(new ECSightingStat());
+				stat.getStatBlocks().getStatBlock().add(readerStat);
+			}
+			return stat;
+		}
+	}
+}
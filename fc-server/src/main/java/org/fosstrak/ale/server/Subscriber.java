@@ -23,6 +23,8 @@ package org.fosstrak.ale.server;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.delivery.NotificationDispatcher;
+import org.fosstrak.ale.server.delivery.SubscriberQueue;
 import org.fosstrak.ale.server.type.FileSubscriberOutputChannel;
 import org.fosstrak.ale.server.type.HTTPSubscriberOutputChannel;
 import org.fosstrak.ale.server.type.SubscriberOutputChannel;
@@ -54,6 +56,8 @@ public class Subscriber {
 	private final String protocol;
 	/** handle on the helper delivering the report */
 	private SubscriberOutputChannel subscriberOutputChannel;
+	/** the reports waiting for the delivery to this subscriber */
+	private final SubscriberQueue<ECReports> queue;
 
 	/**
 	 * Constructor parses and validates the notification uri and creates the corresponding subscriber.
@@ -82,6 +86,12 @@ public class Subscriber {
 			// invalid url
 			throw new InvalidURIException("Invalid protocol.");
 		}
+		queue = NotificationDispatcher.getInstance().createQueue(notificationURI, new SubscriberQueue.Target<ECReports>() {
+			@Override
+			public void deliver(ECReports reports) throws Exception {
+				Subscriber.this.notify(reports);
+			}
+		});
 	}
 	
 	/**
@@ -126,6 +136,33 @@ public class Subscriber {
 		subscriberOutputChannel.notify(reports);
 	}
 
+	/**
+	 * This method queues the reports for the asynchronous delivery to the subscriber 
+	 * by the notification dispatcher.
+	 * 
+	 * @param reports to notify the subscriber about
+	 * @return false if the reports are rejected (the subscriber has been closed or its queue stayed full)
+	 */
+	public boolean enqueue(ECReports reports) {
+		return queue.offer(reports);
+	}
+	
+	/**
+	 * This method closes the subscriber: the reports not yet delivered are dropped and the 
+	 * output channel releases its resources.
+	 */
+	public void close() {
+		queue.close();
+		subscriberOutputChannel.close();
+	}
+	
+	/**
+	 * @return the queue of the reports waiting for the delivery to this subscriber (with its metrics).
+	 */
+	public SubscriberQueue<ECReports> getQueue() {
+		return queue;
+	}
+	
 	/**
 	 * allow to inject a new output channel for this subscriber.
 	 * @param subscriberOutputChannel the new output channel that shall be used for this subscriber.
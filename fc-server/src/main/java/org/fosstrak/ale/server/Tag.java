@@ -1,6 +1,5 @@
 package org.fosstrak.ale.server;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,12 +34,24 @@ public class Tag {
 	/** id as tag uri */
 	private String tagIDAsTagURI = null;
 	
-	/** id as binary string. */
+	/** the tag uri parsed into its data fields, created on first use. */
+	private TagURIFields tagIDAsTagURIFields = null;
+	
+	/** id as binary string, only kept if it is not made of '0' and '1' (otherwise see binaryKey). */
 	private String binary = null;
 	
-	/** id as hex string. */
+	/** id as hex string, only kept if it is not a hex string (otherwise see hexKey). */
 	private String hex = null;
 	
+	/** packed binary id, the canonical representation of the id. */
+	private EPCKey binaryKey = null;
+	
+	/** packed hex id (shares the binary id if both are equal). */
+	private EPCKey hexKey = null;
+	
+	/** packed id used for hashing and comparison, the binary (or hex) id. */
+	private EPCKey epcKey = null;
+	
 	/** trace where the tag passed through the ALE.  */
 	private String trace = null;
 	
@@ -65,9 +76,15 @@ public class Tag {
 	/** Yoon : ACCESSID of the RO_ACCESS_REPORT. */
 	private AccessSpecID AccessSpecID = null;
 	
+	/** ORANGE: user memory of the tag as bit vector, created on first use. */
+	private EPCKey userMemoryBits = null;
+	
 	/** Janggwan: epc bank contents as hex */
 	private String epcBank = null;
 	
+	/** epc bank contents as bit vector, created on first use. */
+	private EPCKey epcBankBits = null;
+	
 	/** Janggwan: tid bank contents */
 	private String tidBank = null;
 	
@@ -133,10 +150,13 @@ public class Tag {
 	}
 
 	/**
-	 * returns the id of this tag.
+	 * returns the id of this tag. if no id has been set, the bytes of the packed id are returned.
 	 * @return byte[] containing the tag id
 	 */
 	public byte[] getTagID() {
+		if ((null == tagID) && (null != epcKey)) {
+			return epcKey.toByteArray();
+		}
 		return tagID;
 	}
 
@@ -212,6 +232,17 @@ public class Tag {
 	 * @return boolean value flagging whether equal or not
 	 */
 	public boolean equalsTag(Tag tag) {
+		// compare the packed id first as this is the cheapest way to tell two different tags apart
+		if ((null != tag.getEPCKey()) && (null != getEPCKey())) {
+			// both not null, so compare
+			if (!tag.getEPCKey().equals(getEPCKey())) {
+				return false;
+			}
+		} else if ((null != tag.getEPCKey()) || (null != getEPCKey())) {
+			// only one null, therefore not equals
+			return false;
+		}
+		
 		// if the origin in both tags is null, then do not take the 
 		// origin into account when comparing
 		if ((getOrigin() != null) && (tag.getOrigin() != null)) { 
@@ -245,15 +276,15 @@ public class Tag {
 			return false;
 		}
 		
-		// try to compare the binary value
-		if ((null != tag.getTagAsBinary()) && (null != getTagAsBinary())) {
-			// both not null, so compare
-			if (!tag.getTagAsBinary().equalsIgnoreCase(getTagAsBinary())) {
+		// no packed id available (binary is not made of '0' and '1'), compare the binary value as is
+		if (null == getEPCKey()) {
+			if ((null != tag.getTagAsBinary()) && (null != getTagAsBinary())) {
+				if (!tag.getTagAsBinary().equalsIgnoreCase(getTagAsBinary())) {
+					return false;
+				}
+			} else if ((null != tag.getTagAsBinary()) || (null != getTagAsBinary())) {
 				return false;
-			}				
-		} else if ((null != tag.getTagAsBinary()) || (null != getTagAsBinary())) {
-			// only one null, therefore not equals
-			return false;
+			}
 		}
 		
 		// try to compare the opResult
@@ -303,13 +334,31 @@ public class Tag {
 		return false;
 	}
 	
+	/**
+	 * the hash code is taken from the packed id, tags without id fall back to 
+	 * a case insensitive hash of the pure URI (consistent with {@link #equalsTag(Tag)}).
+	 */
 	public int hashCode() {
-		String val = getTagAsBinary();
-		if (null != val) {
-			BigInteger dec = new BigInteger(val, 2);
-			return dec.getLowestSetBit();
+		if (null != epcKey) {
+			return epcKey.hashCode();
+		}
+		if (null != tagIDAsPureURI) {
+			int h = 0;
+			for (int i = 0; i < tagIDAsPureURI.length(); i++) {
+				h = 31 * h + Character.toLowerCase(tagIDAsPureURI.charAt(i));
+			}
+			return h;
 		}
-		return super.hashCode();
+		return 0;
+	}
+	
+	/**
+	 * returns the packed id of this tag. the key is built from the binary 
+	 * representation, or from the hex representation if no binary is available.
+	 * @return the packed id or null if the tag has neither binary nor hex id.
+	 */
+	public EPCKey getEPCKey() {
+		return epcKey;
 	}
 
 	/**
@@ -329,17 +378,32 @@ public class Tag {
 	}
 	
 	/**
-	 * sets the tag in binary format.
+	 * sets the tag in binary format. a string of '0' and '1' is stored packed.
 	 * @param binary the tag in binary format.
 	 */
 	public void setTagAsBinary(String binary) {
-		this.binary = binary;
+		this.binaryKey = EPCKey.fromBinary(binary);
+		this.binary = (null == binaryKey) ? binary : null;
+		updateEPCKey();
+	}
+	
+	/**
+	 * sets the packed id of the tag (replaces the binary format).
+	 * @param key the packed id.
+	 */
+	public void setEPCKey(EPCKey key) {
+		this.binaryKey = key;
+		this.binary = null;
+		updateEPCKey();
 	}
 	
 	/**
-	 * @return the tag in binary format.
+	 * @return the tag in binary format, created from the packed id on every call.
 	 */
 	public String getTagAsBinary() {
+		if (null != binaryKey) {
+			return binaryKey.toString();
+		}
 		return binary;
 	}
 		
@@ -399,6 +463,21 @@ public class Tag {
 	 */
 	public void setUserMemory(String userMemory) {
 		this.userMemory = userMemory;
+		this.userMemoryBits = null;
+	}
+	
+	/**
+	 * returns the user memory of this tag as bit vector. the hex string is parsed only 
+	 * once and then shared by all the reports reading fields from the user memory.
+	 * @return the user memory or null if there is no (valid) user memory.
+	 */
+	public EPCKey getUserMemoryBits() {
+		EPCKey bits = userMemoryBits;
+		if ((null == bits) && (null != userMemory)) {
+			bits = parseMemoryBank(userMemory);
+			userMemoryBits = bits;
+		}
+		return bits;
 	}
 	
 	/**
@@ -427,6 +506,32 @@ public class Tag {
 
 	public void setEpcBank(String epcBank) {
 		this.epcBank = epcBank;
+		this.epcBankBits = null;
+	}
+	
+	/**
+	 * returns the epc bank of this tag as bit vector, parsed on first use.
+	 * @return the epc bank or null if there is no (valid) epc bank.
+	 */
+	public EPCKey getEpcBankBits() {
+		EPCKey bits = epcBankBits;
+		if ((null == bits) && (null != epcBank)) {
+			bits = parseMemoryBank(epcBank);
+			epcBankBits = bits;
+		}
+		return bits;
+	}
+	
+	/**
+	 * parses the contents of a memory bank given as hex string, white spaces are ignored.
+	 */
+	private static EPCKey parseMemoryBank(String hex) {
+		for (int i = 0; i < hex.length(); i++) {
+			if (Character.isWhitespace(hex.charAt(i))) {
+				return EPCKey.fromHex(hex.replaceAll("\\s", ""));
+			}
+		}
+		return EPCKey.fromHex(hex);
 	}
 
 	public String getTidBank() {
@@ -445,12 +550,42 @@ public class Tag {
 		AccessSpecID = accessSpecID;
 	}
 	
+	/**
+	 * @return the tag in upper case hex format, created from the packed id on every call.
+	 */
 	public String getTagAsHex() {
+		if (null != hexKey) {
+			return hexKey.toHexString();
+		}
+		if ((null == hex) && (null != binaryKey)) {
+			return binaryKey.toHexString();
+		}
 		return hex;
 	}
 
+	/**
+	 * sets the tag in hex format. a hex string is stored packed.
+	 * @param hex the tag in hex format.
+	 */
 	public void setTagAsHex(String hex) {
-		this.hex = hex;
+		this.hexKey = EPCKey.fromHex(hex);
+		this.hex = (null == hexKey) ? hex : null;
+		updateEPCKey();
+	}
+	
+	/**
+	 * select the packed id from the binary representation (preferred) or the hex representation.
+	 */
+	private void updateEPCKey() {
+		if ((null != hexKey) && hexKey.equals(binaryKey)) {
+			// readers usually deliver both formats, keep only one copy
+			hexKey = binaryKey;
+		}
+		EPCKey key = binaryKey;
+		if ((null == key) && (null == binary)) {
+			key = hexKey;
+		}
+		epcKey = key;
 	}
 
 	public String getTagIDAsTagURI() {
@@ -459,6 +594,21 @@ public class Tag {
 
 	public void setTagIDAsTagURI(String tagIDAsTagURI) {
 		this.tagIDAsTagURI = tagIDAsTagURI;
+		this.tagIDAsTagURIFields = null;
+	}
+	
+	/**
+	 * returns the tag uri parsed into its data fields. the uri is parsed only once 
+	 * and then shared by all the patterns and reports the tag is matched against.
+	 * @return the parsed tag uri or null if there is no tag uri or it cannot be parsed.
+	 */
+	public TagURIFields getTagIDAsTagURIFields() {
+		TagURIFields fields = tagIDAsTagURIFields;
+		if ((null == fields) && (null != tagIDAsTagURI)) {
+			fields = TagURIFields.parse(tagIDAsTagURI);
+			tagIDAsTagURIFields = fields;
+		}
+		return fields;
 	}
 
 	public class OpReportResult {
@@ -0,0 +1,254 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server;
+
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * collects the tags of an event cycle round, fed concurrently by the reader threads.<br/>
+ * the tags are spread by their hash code over several stripes, each guarded by its own
+ * lock, such that readers delivering different tags do not contend. equal tags end up
+ * in the same stripe and are contained once.<br/>
+ * at the end of the round {@link #drain()} swaps in an empty buffer and hands the
+ * collected tags to the caller as a read-only view over the closed stripes, the tags
+ * are neither copied nor merged. a reader thread still adding to the drained buffer
+ * notices that its stripe is closed and retries on the new buffer.
+ */
+public final class TagAccumulator {
+
+	/** the tag was added. */
+	private static final int ADDED = 0;
+
+	/** an equal tag is already contained. */
+	private static final int CONTAINED = 1;
+
+	/** the buffer has been drained, retry on the current buffer. */
+	private static final int CLOSED = 2;
+
+	/** the number of stripes, a power of two. */
+	private final int stripeCount;
+
+	/** the buffer collecting the tags of the current round. */
+	private final AtomicReference<Buffer> current;
+
+	/**
+	 * creates an accumulator with a number of stripes derived from the number of processors.
+	 */
+	public TagAccumulator() {
+		this(2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * creates an accumulator.
+	 * @param stripes the number of stripes, rounded up to a power of two (at most 64).
+	 */
+	public TagAccumulator(int stripes) {
+		int count = 1;
+		while (count < stripes && count < 64) {
+			count <<= 1;
+		}
+		stripeCount = count;
+		current = new AtomicReference<Buffer>(new Buffer(count));
+	}
+
+	/**
+	 * adds a tag to the current round.
+	 * @param tag the tag.
+	 * @return false if an equal tag is already contained.
+	 */
+	public boolean add(Tag tag) {
+		while (true) {
+			int result = current.get().add(tag);
+			if (result != CLOSED) {
+				return result == ADDED;
+			}
+		}
+	}
+
+	/**
+	 * ends the round: the current buffer is atomically replaced by an empty one and its
+	 * tags are returned.
+	 * @return the tags collected since the last drain, a read-only view over the closed stripes.
+	 */
+	public Set<Tag> drain() {
+		return current.getAndSet(new Buffer(stripeCount)).close();
+	}
+
+	/**
+	 * @return a copy of the tags collected in the current round.
+	 */
+	public Set<Tag> copy() {
+		Set<Tag> copy = new HashSet<Tag>();
+		for (Stripe stripe : current.get().stripes) {
+			synchronized (stripe) {
+				copy.addAll(stripe.tags);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the number of tags collected in the current round. concurrent additions
+	 * may or may not be counted.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : current.get().stripes) {
+			size += stripe.size;
+		}
+		return size;
+	}
+
+	/**
+	 * @return true if no tag has been collected in the current round. concurrent additions
+	 * may or may not be seen.
+	 */
+	public boolean isEmpty() {
+		for (Stripe stripe : current.get().stripes) {
+			if (stripe.size > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * the stripes of one round.
+	 */
+	private static final class Buffer {
+		private final Stripe[] stripes;
+
+		private Buffer(int stripeCount) {
+			stripes = new Stripe[stripeCount];
+			for (int i = 0; i < stripeCount; i++) {
+				stripes[i] = new Stripe();
+			}
+		}
+
+		private int add(Tag tag) {
+			Stripe stripe = stripes[indexOf(tag, stripes.length)];
+			synchronized (stripe) {
+				if (stripe.closed) {
+					return CLOSED;
+				}
+				if (!stripe.tags.add(tag)) {
+					return CONTAINED;
+				}
+				stripe.size = stripe.tags.size();
+				return ADDED;
+			}
+		}
+
+		/**
+		 * closes all the stripes. once a stripe is closed it is not modified anymore, 
+		 * the view reads the stripes without the locks.
+		 */
+		private Set<Tag> close() {
+			int size = 0;
+			for (Stripe stripe : stripes) {
+				synchronized (stripe) {
+					stripe.closed = true;
+				}
+				size += stripe.tags.size();
+			}
+			return new ClosedStripes(stripes, size);
+		}
+	}
+
+	/**
+	 * @return the stripe of a tag among the given number of stripes.
+	 */
+	private static int indexOf(Object tag, int stripeCount) {
+		int h = tag.hashCode();
+		h ^= (h >>> 16);
+		return h & (stripeCount - 1);
+	}
+
+	/**
+	 * read-only set of the tags of closed stripes. a lookup is routed to the stripe 
+	 * the tag was added to.
+	 */
+	private static final class ClosedStripes extends AbstractSet<Tag> {
+		private final Stripe[] stripes;
+		private final int size;
+
+		private ClosedStripes(Stripe[] stripes, int size) {
+			this.stripes = stripes;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Tag)) {
+				return false;
+			}
+			return stripes[indexOf(o, stripes.length)].tags.contains(o);
+		}
+
+		@Override
+		public Iterator<Tag> iterator() {
+			return new Iterator<Tag>() {
+				private int next = 0;
+				private Iterator<Tag> it = null;
+
+				@Override
+				public boolean hasNext() {
+					while ((null == it) || !it.hasNext()) {
+						if (next == stripes.length) {
+							return false;
+						}
+						it = stripes[next++].tags.iterator();
+					}
+					return true;
+				}
+
+				@Override
+				public Tag next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return it.next();
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+	/**
+	 * a set of tags guarded by its own lock.
+	 */
+	private static final class Stripe {
+		private final Set<Tag> tags = new HashSet<Tag>();
+		private boolean closed = false;
+		private volatile int size = 0;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * an immutable batch of tags delivered by a logical reader.<br/>
+ * the tags are copied into an array once when the batch is created at the adaptor,
+ * composite readers, event cycles and command cycles then pass the same batch along
+ * without copying it again.
+ */
+public final class TagBatch implements Iterable<Tag> {
+
+	/** the empty batch. */
+	public static final TagBatch EMPTY = new TagBatch(new Tag[0]);
+
+	/** the tags of the batch. */
+	private final Tag[] tags;
+
+	private TagBatch(Tag[] tags) {
+		this.tags = tags;
+	}
+
+	/**
+	 * creates a batch holding a single tag.
+	 * @param tag the tag.
+	 * @return the batch.
+	 */
+	public static TagBatch of(Tag tag) {
+		if (null == tag) {
+			return EMPTY;
+		}
+		return new TagBatch(new Tag[] { tag });
+	}
+
+	/**
+	 * creates a batch holding the given tags. null entries are skipped.
+	 * @param tags the tags.
+	 * @return the batch.
+	 */
+	public static TagBatch of(Collection<Tag> tags) {
+		if (null == tags || tags.isEmpty()) {
+			return EMPTY;
+		}
+		Tag[] array = new Tag[tags.size()];
+		int size = 0;
+		for (Tag tag : tags) {
+			if (null != tag) {
+				array[size++] = tag;
+			}
+		}
+		return new TagBatch(size == array.length ? array : Arrays.copyOf(array, size));
+	}
+
+	/**
+	 * creates a batch from the argument of an observer notification (a single tag or a
+	 * list of tags). entries which are not tags are skipped.
+	 * @param arg the argument of the notification.
+	 * @return the batch, the empty batch if the argument holds no tags.
+	 */
+	public static TagBatch fromNotification(Object arg) {
+		if (arg instanceof TagBatch) {
+			return (TagBatch) arg;
+		} else if (arg instanceof Tag) {
+			return of((Tag) arg);
+		} else if (arg instanceof Collection) {
+			Collection<?> entries = (Collection<?>) arg;
+			Tag[] array = new Tag[entries.size()];
+			int size = 0;
+			for (Object entry : entries) {
+				if (entry instanceof Tag) {
+					array[size++] = (Tag) entry;
+				}
+			}
+			if (size == 0) {
+				return EMPTY;
+			}
+			return new TagBatch(size == array.length ? array : Arrays.copyOf(array, size));
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * @return the number of tags in the batch.
+	 */
+	public int size() {
+		return tags.length;
+	}
+
+	/**
+	 * @return true if the batch does not hold any tag.
+	 */
+	public boolean isEmpty() {
+		return tags.length == 0;
+	}
+
+	/**
+	 * @param index the index of the tag.
+	 * @return the tag at the given index.
+	 */
+	public Tag get(int index) {
+		return tags[index];
+	}
+
+	/**
+	 * @return an unmodifiable list view of the batch.
+	 */
+	public List<Tag> asList() {
+		return Collections.unmodifiableList(Arrays.asList(tags));
+	}
+
+	@Override
+	public Iterator<Tag> iterator() {
+		return new Iterator<Tag>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < tags.length;
+			}
+
+			@Override
+			public Tag next() {
+				if (next >= tags.length) {
+					throw new NoSuchElementException();
+				}
+				return tags[next++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("tag batches are immutable");
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "TagBatch[" + tags.length + " tags]";
+	}
+}
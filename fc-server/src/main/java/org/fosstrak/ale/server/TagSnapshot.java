@@ -0,0 +1,154 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * immutable snapshot of the tags collected by an event cycle in one round. the
+ * snapshot is taken once at the end of the round and shared by all the reports of
+ * the event cycle.<br/>
+ * besides the tags, the snapshot indexes the tags by their identity (the packed EPC
+ * if available, the pure URI otherwise) such that the additions and deletions
+ * between two rounds are computed with a single hash set difference. the index is
+ * built on the first comparison, the snapshots of event cycles reporting the current
+ * tags only never build it.
+ */
+public final class TagSnapshot {
+
+	/** snapshot without any tags. */
+	public static final TagSnapshot EMPTY = new TagSnapshot(Collections.<Tag>emptySet());
+
+	/** the tags of the round. */
+	private final Set<Tag> tags;
+
+	/** one tag per identity (the same tag read by several readers is contained once), built on demand. */
+	private volatile Map<Object, Tag> tagsByKey;
+
+	/**
+	 * private constructor, use {@link #create(Collection)} or {@link #wrap(Set)}.
+	 */
+	private TagSnapshot(Set<Tag> tags) {
+		this.tags = tags;
+	}
+
+	/**
+	 * creates a snapshot of the given tags. if the collection is synchronized, the
+	 * caller must hold its lock.
+	 * @param tags the tags of the round.
+	 * @return the snapshot.
+	 */
+	public static TagSnapshot create(Collection<Tag> tags) {
+		if ((null == tags) || tags.isEmpty()) {
+			return EMPTY;
+		}
+		return wrap(new HashSet<Tag>(tags));
+	}
+
+	/**
+	 * creates a snapshot taking over the given set without copying it (eg. the tags
+	 * drained from a {@link TagAccumulator}). the set must not be modified afterwards.
+	 * @param tags the tags of the round.
+	 * @return the snapshot.
+	 */
+	public static TagSnapshot wrap(Set<Tag> tags) {
+		if ((null == tags) || tags.isEmpty()) {
+			return EMPTY;
+		}
+		return new TagSnapshot(Collections.unmodifiableSet(tags));
+	}
+
+	/**
+	 * returns the identity of a tag used to compare the tags of two rounds.
+	 * @param tag the tag.
+	 * @return the packed EPC of the tag, its pure URI if the EPC is not known.
+	 */
+	public static Object getKey(Tag tag) {
+		EPCKey key = tag.getEPCKey();
+		if (null != key) {
+			return key;
+		}
+		return tag.getTagIDAsPureURI();
+	}
+
+	/**
+	 * @return the (unmodifiable) set of tags of the round.
+	 */
+	public Set<Tag> getTags() {
+		return tags;
+	}
+
+	/**
+	 * @return the number of tags of the round.
+	 */
+	public int size() {
+		return tags.size();
+	}
+
+	/**
+	 * @param tag the tag to look for.
+	 * @return true if a tag with the same identity is contained in this snapshot.
+	 */
+	public boolean contains(Tag tag) {
+		return getTagsByKey().containsKey(getKey(tag));
+	}
+
+	/**
+	 * returns the tags of this snapshot whose identity is not contained in the given
+	 * snapshot (one tag per identity).
+	 * @param other the snapshot to subtract, null is handled like an empty snapshot.
+	 * @return the tags only contained in this snapshot.
+	 */
+	public List<Tag> difference(TagSnapshot other) {
+		Map<Object, Tag> otherTagsByKey = (null == other) ? Collections.<Object, Tag>emptyMap() : other.getTagsByKey();
+		List<Tag> result = new ArrayList<Tag>();
+		for (Map.Entry<Object, Tag> entry : getTagsByKey().entrySet()) {
+			if (!otherTagsByKey.containsKey(entry.getKey())) {
+				result.add(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the tags by their identity, the index is built on the first call (concurrent 
+	 * first calls may build it twice, with the same result).
+	 */
+	private Map<Object, Tag> getTagsByKey() {
+		Map<Object, Tag> index = tagsByKey;
+		if (null == index) {
+			index = new HashMap<Object, Tag>(tags.size() * 4 / 3 + 1);
+			for (Tag tag : tags) {
+				Object key = getKey(tag);
+				if (!index.containsKey(key)) {
+					index.put(key, tag);
+				}
+			}
+			tagsByKey = index;
+		}
+		return index;
+	}
+}
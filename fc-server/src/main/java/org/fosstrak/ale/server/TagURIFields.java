@@ -0,0 +1,175 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server;
+
+import org.fosstrak.ale.exception.ECSpecValidationException;
+
+/**
+ * a tag URI (eg. <code>urn:epc:tag:sgtin-96:3.0614141.812345.6789</code>) parsed
+ * once into its pattern type and numeric data fields, such that it can be matched
+ * against any number of filter and group patterns with primitive comparisons
+ * (see {@link Pattern#isMember(TagURIFields)}).<br/>
+ * the parser is intentionally strict: whenever the URI is not a plain tag URI of a
+ * known pattern type, {@link #parse(String)} returns null and the caller falls back
+ * to the validating {@link Pattern} parser which reports the error.
+ */
+public final class TagURIFields {
+
+	/** the first three fields accepted in front of the tag type. */
+	private static final String PREFIX = "urn:epc:";
+
+	/** the maximum number of digits accepted in a data field (fits into a long). */
+	private static final int MAX_DIGITS = 18;
+
+	/** the parsed URI. */
+	private final String uri;
+
+	/** the pattern type of the tag. */
+	private final PatternType type;
+
+	/** the numeric values of the data fields. */
+	private final long[] values;
+
+	/** start offset of each data field within the URI. */
+	private final int[] starts;
+
+	/** end offset (exclusive) of each data field within the URI. */
+	private final int[] ends;
+
+	/**
+	 * private constructor, use {@link #parse(String)}.
+	 */
+	private TagURIFields(String uri, PatternType type, long[] values, int[] starts, int[] ends) {
+		this.uri = uri;
+		this.type = type;
+		this.values = values;
+		this.starts = starts;
+		this.ends = ends;
+	}
+
+	/**
+	 * parse the given tag URI.
+	 * @param tagURI the tag URI.
+	 * @return the parsed fields or null if the URI is not a valid tag URI.
+	 */
+	public static TagURIFields parse(String tagURI) {
+		if ((null == tagURI) || !tagURI.startsWith(PREFIX)) {
+			return null;
+		}
+		// third field
+		int thirdEnd = tagURI.indexOf(':', PREFIX.length());
+		if (thirdEnd < 0 || !Pattern.isThirdField(tagURI.substring(PREFIX.length(), thirdEnd))) {
+			return null;
+		}
+		// tag type
+		int typeEnd = tagURI.indexOf(':', thirdEnd + 1);
+		if (typeEnd < 0 || tagURI.indexOf(':', typeEnd + 1) >= 0) {
+			return null;
+		}
+		PatternType type;
+		try {
+			type = PatternType.getType(tagURI.substring(thirdEnd + 1, typeEnd));
+		} catch (ECSpecValidationException e) {
+			return null;
+		}
+
+		// data fields
+		final int nbrOfFields = type.getNumberOfDatafields();
+		long[] values = new long[nbrOfFields];
+		int[] starts = new int[nbrOfFields];
+		int[] ends = new int[nbrOfFields];
+		int field = 0;
+		int pos = typeEnd + 1;
+		final int len = tagURI.length();
+		while (field < nbrOfFields) {
+			int start = pos;
+			long value = 0;
+			while (pos < len && tagURI.charAt(pos) != '.') {
+				char c = tagURI.charAt(pos);
+				if (c < '0' || c > '9' || (pos - start) >= MAX_DIGITS) {
+					return null;
+				}
+				value = value * 10 + (c - '0');
+				pos++;
+			}
+			if (pos == start) {
+				return null;
+			}
+			values[field] = value;
+			starts[field] = start;
+			ends[field] = pos;
+			field++;
+			if (pos < len) {
+				// skip the dot
+				pos++;
+				if (field == nbrOfFields) {
+					// too many data fields
+					return null;
+				}
+			}
+		}
+		if (pos != len || tagURI.charAt(len - 1) == '.') {
+			return null;
+		}
+		return new TagURIFields(tagURI, type, values, starts, ends);
+	}
+
+	/**
+	 * @return the parsed tag URI.
+	 */
+	public String getURI() {
+		return uri;
+	}
+
+	/**
+	 * @return the pattern type of the tag.
+	 */
+	public PatternType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the number of data fields.
+	 */
+	public int getNumberOfFields() {
+		return values.length;
+	}
+
+	/**
+	 * @param index the index of the data field.
+	 * @return the numeric value of the data field.
+	 */
+	public long getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * returns the data field as written in the URI (leading zeros are kept).
+	 * @param index the index of the data field.
+	 * @return the data field.
+	 */
+	public String getField(int index) {
+		return uri.substring(starts[index], ends[index]);
+	}
+
+	@Override
+	public String toString() {
+		return uri;
+	}
+}
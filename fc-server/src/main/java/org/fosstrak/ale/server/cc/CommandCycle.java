@@ -25,11 +25,12 @@ package org.fosstrak.ale.server.cc;
 
 import java.util.Map;
 import java.util.Observable;
-import java.util.Observer;
 import java.util.Set;
 
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
+import org.fosstrak.ale.server.readers.TagBatchListener;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCCmdSpec;
 
@@ -44,7 +45,7 @@ import org.fosstrak.ale.xsd.ale.epcglobal.CCCmdSpec;
  * @author nkef@ait.edu.gr
  * @author Wondeuk Yoon
  */
-public interface CommandCycle extends Observer {
+public interface CommandCycle extends TagBatchListener {
 
 	/**
 	 * This method adds a tag to this command cycle.
@@ -56,11 +57,17 @@ public interface CommandCycle extends Observer {
 	void addTag(Tag tag);
 	
 	/**
-	 * implementation of the observer interface for tags.
-	 * @param o an observable object that triggered the update
-	 * @param arg the arguments passed by the observable
+	 * receives the tags read by the logical readers of this command cycle.
+	 * @param batch the tags read.
 	 */
 	@Override
+	void onTags(TagBatch batch);
+	
+	/**
+	 * delivers a single tag or a list of tags to this command cycle, same as {@link #onTags(TagBatch)}.
+	 * @param o the source of the tags, not used
+	 * @param arg a tag or a list of tags
+	 */
 	void update(Observable o, Object arg);
 	
 	/**
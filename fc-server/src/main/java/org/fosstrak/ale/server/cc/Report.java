@@ -24,7 +24,6 @@
 package org.fosstrak.ale.server.cc;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
@@ -34,9 +33,11 @@ import org.fosstrak.ale.exception.CCSpecValidationException;
 import org.fosstrak.ale.exception.ECSpecValidationException;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Pattern;
+import org.fosstrak.ale.server.PatternIndex;
 import org.fosstrak.ale.server.PatternUsage;
 import org.fosstrak.ale.server.Tag;
 import org.fosstrak.ale.server.Tag.OpReportResult;
+import org.fosstrak.ale.server.TagURIFields;
 import org.fosstrak.ale.server.util.TagHelper;
 import org.fosstrak.alecc.util.CCReportSetEnum;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCCmdReport;
@@ -80,9 +81,9 @@ public class Report {
 	private final ReportsGenerator generator;
 	
 	/** patterns of tags which are included in this report. */
-	private final Set<Pattern> includePatterns = new HashSet<Pattern>();
+	private final PatternIndex includePatterns = new PatternIndex();
 	/** patterns of tags which are excluded from this report. */
-	private final Set<Pattern> excludePatterns = new HashSet<Pattern>();
+	private final PatternIndex excludePatterns = new PatternIndex();
 	/** type of this report (current). */
 	private String reportType;
 
@@ -145,11 +146,11 @@ public class Report {
 	 */
 	public void addTag(Tag tag) throws CCSpecValidationException, ImplementationException {
 		try {
-		String epcInTagFormat = TagHelper.convert_to_TAG_ENCODING(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), tag.getTagAsBinary(), TagHelper.getTDTEngine());
+		String epcInTagFormat = TagHelper.convert_to_TAG_ENCODING(tag, TagHelper.getTDTEngine());
 		
 		// check if the tag is a member of this report (use filter patterns and set spec)
 		
-			if(isMember(epcInTagFormat)) {
+			if(isMember(TagURIFields.parse(epcInTagFormat), epcInTagFormat)) {
 
 					LOG.debug("Command '" + tag + "' is member of report '" + name + "'");
 				
@@ -160,7 +161,7 @@ public class Report {
 			e.printStackTrace();
 			throw new CCSpecValidationException(e);
 		} catch (TDTException e) {
-			LOG.debug("Tag "+TagHelper.getTDTEngine().bin2hex(tag.getTagAsBinary())+" cannot be converted. skip this tag.");
+			LOG.debug("Tag "+tag.getTagAsHex()+" cannot be converted. skip this tag.");
 			return;
 		}
 	}
@@ -274,18 +275,17 @@ public class Report {
 	/**
 	 * This method checks on the basis of the filter patterns if the specified tag could be a member of this report.
 	 * 
+	 * @param tagURIFields the parsed tag URI, null if the tag URI could not be parsed
 	 * @param tagURI to check for possible membership
 	 * @return true if the tag could be a member of this report and false otherwise
 	 * @throws CCSpecValidationException if the tag is invalid
 	 * @throws ImplementationException if an implementation exception occurs
 	 */
-	private boolean isMember(String tagURI) throws ECSpecValidationException, ImplementationException {
+	private boolean isMember(TagURIFields tagURIFields, String tagURI) throws ECSpecValidationException, ImplementationException {
 				
 		// check if tagURI is member of an exclude pattern
-		for (Pattern pattern : excludePatterns) {
-			if (pattern.isMember(tagURI)) {
-				return false;
-			}
+		if (excludePatterns.isMember(tagURIFields, tagURI)) {
+			return false;
 		}
 		
 		// check if there are include patterns specified
@@ -294,12 +294,7 @@ public class Report {
 		} else {
 			
 			// check if tagURI is a member of an include pattern
-			for (Pattern pattern : includePatterns) {
-				if (pattern.isMember(tagURI)) {
-					return true;
-				}
-			}
-			return false;
+			return includePatterns.isMember(tagURIFields, tagURI);
 		}
 	}
 
@@ -322,7 +317,7 @@ public class Report {
 		}
 		// skip if tagURI is not a member of the CCFilter
 		
-		String epcInTagFormat = TagHelper.convert_to_TAG_ENCODING(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), tag.getTagAsBinary(), TagHelper.getTDTEngine());
+		String epcInTagFormat = TagHelper.convert_to_TAG_ENCODING(tag, TagHelper.getTDTEngine());
 		
 		List<CCTagReport> listTagReport = report.getTagReports().getTagReport();
 
@@ -179,6 +179,11 @@ public class ALECCImpl implements ALECC {
 			LOG.error("CCSpec contains no readers");
 		}
 		
+		// the command cycle is stopped and the subscribers are closed
+		ReportsGenerator current = reportGeneratorsProvider.get(specName);
+		if ((current instanceof ReportsGeneratorImpl) && current.isStateRequested()) {
+			((ReportsGeneratorImpl) current).stop();
+		}
 		reportGeneratorsProvider.remove(specName);
 		//persistenceRemoveAPI.removeECSpec(specName);
 		//TODO: wdyoon
@@ -29,7 +29,6 @@ import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
@@ -44,6 +43,7 @@ import org.fosstrak.ale.exception.CCSpecValidationException;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.ALEApplicationContext;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.cc.CommandCycle;
 import org.fosstrak.ale.server.cc.Report;
 import org.fosstrak.ale.server.cc.ReportsGenerator;
@@ -378,31 +378,23 @@ public final class CommandCycleImpl implements CommandCycle, Runnable {
 	}
 
 	@Override
-	public void update(Observable o, Object arg) {
-		LOG.debug("CommandCycle "+ getName() + ": Update notification received. ");
-		List<Tag> tags = new LinkedList<Tag> ();
-		// process the new tag.
-		if (arg instanceof Tag) {
-			LOG.debug("processing one tag");
-			// process one tag
-			tags.add((Tag) arg);
-		} else if (arg instanceof List) {
-			LOG.debug("processing a list of tags");
-			for (Object entry : (List<?>) arg) {
-				if (entry instanceof Tag) {
-					tags.add((Tag) entry);					
-				}
-			}
+	public void onTags(TagBatch batch) {
+		if (batch.isEmpty()) {
+			LOG.debug("CommandCycle "+ getName() + ": Update notification received - but not with any tags - ignoring. ");
+			return;
 		}
-		
-		if (tags.size() > 0) {
-			handleTags(tags);
-		} else {
-			LOG.debug("CommandCycle "+ getName() + ": Update notification received - but not with any tags - ignoring. ");			
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("CommandCycle "+ getName() + ": received a batch of " + batch.size() + " tags");
 		}
+		handleTags(batch);
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		onTags(TagBatch.fromNotification(arg));
 	}
 	
-	private void handleTags(List<Tag> tags) {
+	private void handleTags(TagBatch tags) {
 		if (!isAcceptingTags()) {
 			handleTagsWhileNotAccepting(tags);
 		} else {
@@ -414,7 +406,7 @@ public final class CommandCycleImpl implements CommandCycle, Runnable {
 	 * deal with new tags.
 	 * @param tags
 	 */
-	private void handleTagsWhileAccepting(List<Tag> tags) {	
+	private void handleTagsWhileAccepting(TagBatch tags) {	
 		// process all the tags we did not process between two commandcycles (or while we did not accept any tags).
 		if (!isRejectTagsBetweenCycle()) {			
 			for (Tag tag : betweenCommandsCycleTags) {
@@ -433,7 +425,7 @@ public final class CommandCycleImpl implements CommandCycle, Runnable {
 	 * deal with tags while the command cycle is not accepting tags. (eg. between two command cycles).
 	 * @param arg the update we received.
 	 */
-	private void handleTagsWhileNotAccepting(List<Tag> tags) {
+	private void handleTagsWhileNotAccepting(TagBatch tags) {
 		if (!isRejectTagsBetweenCycle()) {
 			for (Tag tag : tags) {	
 				LOG.debug("received tag between commandcycles: " + tag.getTagIDAsPureURI());					
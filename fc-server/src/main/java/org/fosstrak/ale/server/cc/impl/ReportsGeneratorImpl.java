@@ -25,6 +25,7 @@ package org.fosstrak.ale.server.cc.impl;
 
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +42,6 @@ import org.fosstrak.ale.server.cc.ReportsGenerator;
 import org.fosstrak.ale.server.cc.ReportsGeneratorState;
 import org.fosstrak.ale.server.cc.Subscriber;
 import org.fosstrak.ale.server.cc.impl.CommandCycleImpl;
-import org.fosstrak.ale.server.impl.ReportsGeneratorImpl.NotificationThread;
 import org.fosstrak.ale.server.util.CCSpecValidator;
 import org.fosstrak.ale.util.ECTimeUnit;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCBoundarySpec.StartTriggerList;
@@ -58,7 +58,6 @@ import org.fosstrak.ale.xsd.ale.epcglobal.CCSpec.CmdSpecs;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCTagReport;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECTime;
 
-import com.rits.cloning.Cloner;
 
 /**
  * default implementation of the reports generator.
@@ -287,7 +286,11 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		new Subscriber(notificationURI);
 		
 		if (subscribers.containsKey(notificationURI)) {
-			subscribers.remove(notificationURI);
+			Subscriber removed = subscribers.remove(notificationURI);
+			if (null != removed) {
+				// pending reports are not delivered anymore
+				removed.close();
+			}
 			LOG.debug("NotificationURI '" + notificationURI	+ "' unsubscribed from spec '" + name + "'.");
 			
 			if (subscribers.isEmpty() && !isPolling()) {
@@ -352,16 +355,10 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 //		an command cycle, even if that ECReports instance contains zero ECReport instances.
 		
 		
-		Cloner cloner  = new Cloner();
-		// deep clone the original input in order to keep it as the 
-		// next command cycles last cycle reports. 
-		CCReports originalInput = cloner.deepClone(reports);
-		
-		// we deep clone (clone not sufficient) for the pollers
-		// in order to deliver them the correct set of reports.
+		// the reports of a round are not modified once they have been generated, 
+		// the pollers (poll and immediate) receive the instance itself.
 		if (isPolling()) {
-			// deep clone for the pollers (poll and immediate)
-			pollReport = cloner.deepClone(reports);
+			pollReport = reports;
 		}
 
 		// we remove the reports that are equal to the ones in the 
@@ -457,17 +454,12 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	 * @param reports the filtered reports.
 	 */
 	protected void notifySubscribersWithFilteredReports(CCReports reports) {
-		// notify subscribers 
-		Thread threadNotify = new Thread(new NotificationThread(reports, subscribers));
-		threadNotify.start();	
-		
-		/*for (Subscriber listener : subscribers.values()) {
-			try {
-				listener.notify(reports);
-			} catch (Exception e) {
-				LOG.error("Could not notify subscriber '" + listener.toString(), e);
+		// the subscribers queue the reports, the notification dispatcher delivers them
+		for (Subscriber listener : subscribers.values()) {
+			if (!listener.enqueue(reports)) {
+				LOG.debug("subscriber '" + listener.toString() + "' is closed - reports not delivered.");
 			}
-		}*/
+		}
 	}
 
 	/**
@@ -516,10 +508,23 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		// stop Thread
 		setRunning(false);
 		thread.interrupt();
+		closeSubscribers();
 		
 		LOG.debug("Thread of spec '" + name + "' stopped.");
 	}
 	
+	/**
+	 * closes and removes all the subscribers: the reports not yet delivered are dropped and the 
+	 * output channels release their resources (eg. the connection to a tcp endpoint).
+	 */
+	private void closeSubscribers() {
+		for (Iterator<Subscriber> it = subscribers.values().iterator(); it.hasNext(); ) {
+			Subscriber subscriber = it.next();
+			it.remove();
+			subscriber.close();
+		}
+	}
+	
 	/**
 	 * This method returns the name of this reports generator.
 	 * 
@@ -776,29 +781,5 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	public int getAccessSpecNumber() {
 		return AccessSpecNumber;
 	}
-	
-	public class NotificationThread implements Runnable {
-
-		private CCReports reports;
-		private Map<String, Subscriber> subscribers;
-		
-		public NotificationThread(CCReports reports, Map<String, Subscriber> subscribers) {
-			this.reports = reports;
-			this.subscribers = subscribers;
-		}
-		
-		@Override
-		public void run() {
-			// notify subscribers 
-			for (Subscriber listener : subscribers.values()) {
-				try {
-					listener.notify(reports);
-				} catch (Exception e) {
-					LOG.error("Could not notify subscriber '" + listener.toString(), e);
-				}
-			}
-		}
-		
-	}
 
 }
@@ -0,0 +1,131 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.delivery;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the bounded pool of worker threads delivering the reports to the subscribers of all
+ * the event cycles and command cycles. the subscribers queue their reports in a
+ * {@link SubscriberQueue}, which submits at most its in-flight limit of deliveries to
+ * the pool, such that the pool never holds more tasks than the sum of these limits.<br/>
+ * the defaults of the subscriber queues are read from system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_THREADS}: number of worker threads (default: twice the number of processors, at least 4).</li>
+ * <li>{@value #PROPERTY_QUEUE_CAPACITY}: pending reports per subscriber (default {@value #DEFAULT_QUEUE_CAPACITY}).</li>
+ * <li>{@value #PROPERTY_MAX_IN_FLIGHT}: concurrent deliveries per subscriber (default 1, keeps the order of the reports).</li>
+ * <li>{@value #PROPERTY_OVERFLOW_POLICY}: {@link OverflowPolicy} of a full queue (default DROP_OLDEST).</li>
+ * <li>{@value #PROPERTY_BLOCK_TIMEOUT}: milliseconds a caller waits for a full queue under BLOCK before the reports are dropped (default {@value #DEFAULT_BLOCK_TIMEOUT}).</li>
+ * </ul>
+ */
+public final class NotificationDispatcher implements Executor {
+
+	/** system property holding the number of worker threads. */
+	public static final String PROPERTY_THREADS = "org.fosstrak.ale.notificationThreads";
+
+	/** system property holding the capacity of the queue of a subscriber. */
+	public static final String PROPERTY_QUEUE_CAPACITY = "org.fosstrak.ale.notificationQueueCapacity";
+
+	/** system property holding the number of concurrent deliveries to a subscriber. */
+	public static final String PROPERTY_MAX_IN_FLIGHT = "org.fosstrak.ale.notificationMaxInFlight";
+
+	/** system property holding the overflow policy of the queue of a subscriber. */
+	public static final String PROPERTY_OVERFLOW_POLICY = "org.fosstrak.ale.notificationOverflowPolicy";
+
+	/** system property holding the time in milliseconds a caller waits for a full queue under BLOCK. */
+	public static final String PROPERTY_BLOCK_TIMEOUT = "org.fosstrak.ale.notificationBlockTimeout";
+
+	/** default time in milliseconds a caller waits for a full queue under BLOCK. */
+	public static final long DEFAULT_BLOCK_TIMEOUT = 1000L;
+
+	/** default capacity of the queue of a subscriber. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	/** the dispatcher shared by all the subscribers. */
+	private static final NotificationDispatcher INSTANCE = new NotificationDispatcher(
+			Integer.getInteger(PROPERTY_THREADS, Math.max(4, 2 * Runtime.getRuntime().availableProcessors())));
+
+	/** the worker threads. */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * creates a dispatcher.
+	 * @param threads the number of worker threads.
+	 */
+	private NotificationDispatcher(int threads) {
+		int size = Math.max(1, threads);
+		executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "NotificationDispatcher-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// idle workers do not stay around
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the dispatcher shared by all the subscribers.
+	 */
+	public static NotificationDispatcher getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * creates a subscriber queue with the configured defaults.
+	 * @param name the name of the subscriber (used for logging).
+	 * @param target delivers the reports to the subscriber.
+	 * @param <T> the type of the reports.
+	 * @return the queue.
+	 */
+	public <T> SubscriberQueue<T> createQueue(String name, SubscriberQueue.Target<T> target) {
+		return new SubscriberQueue<T>(name, target, this,
+				Integer.getInteger(PROPERTY_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY),
+				Integer.getInteger(PROPERTY_MAX_IN_FLIGHT, 1),
+				OverflowPolicy.parse(System.getProperty(PROPERTY_OVERFLOW_POLICY), OverflowPolicy.DROP_OLDEST),
+				Long.getLong(PROPERTY_BLOCK_TIMEOUT, DEFAULT_BLOCK_TIMEOUT));
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		executor.execute(task);
+	}
+
+	/**
+	 * @return the number of deliveries waiting for a worker thread.
+	 */
+	public int getPendingDeliveries() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of worker threads delivering reports at the moment.
+	 */
+	public int getActiveDeliveries() {
+		return executor.getActiveCount();
+	}
+}
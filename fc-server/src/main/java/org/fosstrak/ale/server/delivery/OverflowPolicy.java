@@ -0,0 +1,50 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.delivery;
+
+/**
+ * what a {@link SubscriberQueue} does with new reports when the queue of the subscriber is full.
+ */
+public enum OverflowPolicy {
+
+	/** the oldest pending reports are dropped. */
+	DROP_OLDEST,
+
+	/** all the pending reports are dropped, only the latest reports are delivered. */
+	COALESCE_LATEST,
+
+	/** the caller waits until the subscriber has caught up, the reports are dropped if this takes longer than the block timeout. */
+	BLOCK;
+
+	/**
+	 * parses a policy ignoring case, '-' is accepted instead of '_'.
+	 * @param value the name of the policy.
+	 * @param defaultPolicy the policy to use if the value is null or unknown.
+	 * @return the policy.
+	 */
+	public static OverflowPolicy parse(String value, OverflowPolicy defaultPolicy) {
+		if (null == value) {
+			return defaultPolicy;
+		}
+		try {
+			return valueOf(value.trim().toUpperCase().replace('-', '_'));
+		} catch (IllegalArgumentException e) {
+			return defaultPolicy;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.delivery;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * the reports waiting to be delivered to one subscriber. the queue holds at most
+ * <code>capacity</code> reports, when it is full the {@link OverflowPolicy} decides.
+ * at most <code>maxInFlight</code> reports are delivered concurrently to the subscriber
+ * by the worker threads of the executor, a slow subscriber only delays its own reports.
+ * under {@link OverflowPolicy#BLOCK} the caller waits at most <code>blockTimeout</code>
+ * milliseconds, then the reports are dropped: the callers are the threads of the shared
+ * event cycle scheduler, which must not be held by a slow subscriber.<br/>
+ * the queue records its depth, the number of delivered, failed and dropped reports and
+ * the delivery latency (from the offer until the delivery is done).
+ * @param <T> the type of the reports.
+ */
+public final class SubscriberQueue<T> {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(SubscriberQueue.class);
+
+	/**
+	 * delivers the reports to the subscriber.
+	 * @param <T> the type of the reports.
+	 */
+	public interface Target<T> {
+		/**
+		 * delivers reports to the subscriber.
+		 * @param reports the reports.
+		 * @throws Exception if the delivery failed.
+		 */
+		void deliver(T reports) throws Exception;
+	}
+
+	/** the name of the subscriber. */
+	private final String name;
+
+	/** delivers the reports. */
+	private final Target<T> target;
+
+	/** runs the deliveries. */
+	private final Executor executor;
+
+	/** maximum number of pending reports. */
+	private final int capacity;
+
+	/** maximum number of concurrent deliveries. */
+	private final int maxInFlight;
+
+	/** what to do when the queue is full. */
+	private final OverflowPolicy policy;
+
+	/** the time in milliseconds a caller waits for a full queue under {@link OverflowPolicy#BLOCK}. */
+	private final long blockTimeout;
+
+	/** the pending reports (guarded by this). */
+	private final ArrayDeque<Entry<T>> pending = new ArrayDeque<Entry<T>>();
+
+	/** the deliveries submitted to the executor (guarded by this). */
+	private int inFlight = 0;
+
+	/** the deliveries submitted to the executor that did not take their reports yet (guarded by this). */
+	private int starting = 0;
+
+	/** set once the subscriber is gone (guarded by this). */
+	private boolean closed = false;
+
+	/** metrics (guarded by this). */
+	private long offered = 0;
+	private long delivered = 0;
+	private long failed = 0;
+	private long dropped = 0;
+	private int maxDepth = 0;
+	private long totalLatency = 0;
+	private long maxLatency = 0;
+
+	/** delivers the pending reports one after the other. */
+	private final Runnable worker = new Runnable() {
+		@Override
+		public void run() {
+			deliverNext();
+		}
+	};
+
+	/**
+	 * creates a subscriber queue, a blocked caller waits at most {@value NotificationDispatcher#DEFAULT_BLOCK_TIMEOUT} milliseconds.
+	 * @param name the name of the subscriber (used for logging).
+	 * @param target delivers the reports to the subscriber.
+	 * @param executor runs the deliveries.
+	 * @param capacity the maximum number of pending reports.
+	 * @param maxInFlight the maximum number of concurrent deliveries.
+	 * @param policy what to do when the queue is full.
+	 */
+	public SubscriberQueue(String name, Target<T> target, Executor executor, int capacity, int maxInFlight, OverflowPolicy policy) {
+		this(name, target, executor, capacity, maxInFlight, policy, NotificationDispatcher.DEFAULT_BLOCK_TIMEOUT);
+	}
+
+	/**
+	 * creates a subscriber queue.
+	 * @param name the name of the subscriber (used for logging).
+	 * @param target delivers the reports to the subscriber.
+	 * @param executor runs the deliveries.
+	 * @param capacity the maximum number of pending reports.
+	 * @param maxInFlight the maximum number of concurrent deliveries.
+	 * @param policy what to do when the queue is full.
+	 * @param blockTimeout the time in milliseconds a caller waits for a full queue under {@link OverflowPolicy#BLOCK}.
+	 */
+	public SubscriberQueue(String name, Target<T> target, Executor executor, int capacity, int maxInFlight, OverflowPolicy policy, long blockTimeout) {
+		this.name = name;
+		this.target = target;
+		this.executor = executor;
+		this.capacity = Math.max(1, capacity);
+		this.maxInFlight = Math.max(1, maxInFlight);
+		this.policy = (null == policy) ? OverflowPolicy.DROP_OLDEST : policy;
+		this.blockTimeout = Math.max(0, blockTimeout);
+	}
+
+	/**
+	 * queues reports for the delivery to the subscriber.
+	 * @param reports the reports.
+	 * @return false if the queue is closed or the reports were dropped after waiting for a full queue.
+	 */
+	public synchronized boolean offer(T reports) {
+		if (closed) {
+			return false;
+		}
+		if (pending.size() >= capacity) {
+			switch (policy) {
+			case DROP_OLDEST:
+				pending.poll();
+				dropped++;
+				LOG.debug("queue of subscriber " + name + " is full - dropping the oldest reports.");
+				break;
+			case COALESCE_LATEST:
+				dropped += pending.size();
+				pending.clear();
+				LOG.debug("queue of subscriber " + name + " is full - keeping the latest reports only.");
+				break;
+			case BLOCK:
+			default:
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+				try {
+					while (!closed && pending.size() >= capacity) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0) {
+							dropped++;
+							LOG.debug("queue of subscriber " + name + " is still full after " + blockTimeout + "ms - dropping the reports.");
+							return false;
+						}
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					dropped++;
+					return false;
+				}
+				if (closed) {
+					return false;
+				}
+				break;
+			}
+		}
+		pending.add(new Entry<T>(reports, System.nanoTime()));
+		offered++;
+		maxDepth = Math.max(maxDepth, pending.size());
+		dispatch();
+		return true;
+	}
+
+	/**
+	 * closes the queue: pending reports are dropped and new reports are rejected.
+	 * deliveries in progress are completed.
+	 */
+	public synchronized void close() {
+		closed = true;
+		dropped += pending.size();
+		pending.clear();
+		notifyAll();
+	}
+
+	/**
+	 * submits deliveries up to the in-flight limit. caller holds the lock.
+	 */
+	private void dispatch() {
+		while ((inFlight < maxInFlight) && (starting < pending.size())) {
+			inFlight++;
+			starting++;
+			executor.execute(worker);
+		}
+	}
+
+	/**
+	 * delivers the oldest pending reports.
+	 */
+	private void deliverNext() {
+		Entry<T> entry;
+		synchronized (this) {
+			entry = pending.poll();
+			starting--;
+			if (null == entry) {
+				inFlight--;
+				return;
+			}
+			// a blocked caller may continue
+			notifyAll();
+		}
+		boolean success = false;
+		try {
+			target.deliver(entry.reports);
+			success = true;
+		} catch (Exception e) {
+			LOG.error("Could not notify subscriber '" + name + "'", e);
+		}
+		long latency = System.nanoTime() - entry.offered;
+		synchronized (this) {
+			if (success) {
+				delivered++;
+			} else {
+				failed++;
+			}
+			totalLatency += latency;
+			maxLatency = Math.max(maxLatency, latency);
+			inFlight--;
+			dispatch();
+		}
+	}
+
+	/**
+	 * @return the name of the subscriber.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the overflow policy.
+	 */
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return the maximum number of pending reports.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the maximum number of concurrent deliveries.
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * @return the number of pending reports.
+	 */
+	public synchronized int getDepth() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the highest number of pending reports so far.
+	 */
+	public synchronized int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * @return the number of deliveries in progress.
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of reports accepted by the queue.
+	 */
+	public synchronized long getOffered() {
+		return offered;
+	}
+
+	/**
+	 * @return the number of reports delivered.
+	 */
+	public synchronized long getDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * @return the number of reports whose delivery failed.
+	 */
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the number of reports dropped by the overflow policy or by closing the queue.
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return the mean delivery latency in milliseconds (from the offer until the delivery is done).
+	 */
+	public synchronized double getAverageLatency() {
+		long count = delivered + failed;
+		if (count == 0) {
+			return 0;
+		}
+		return (double) totalLatency / count / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * @return the highest delivery latency in milliseconds.
+	 */
+	public synchronized long getMaxLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(maxLatency);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("[subscriber %s: depth %d (max %d), in flight %d, delivered %d, failed %d, dropped %d, latency avg %.1fms max %dms]",
+				name, pending.size(), maxDepth, inFlight, delivered, failed, dropped, getAverageLatency(), getMaxLatency());
+	}
+
+	/**
+	 * pending reports with the time they were offered.
+	 */
+	private static final class Entry<T> {
+		private final T reports;
+		private final long offered;
+
+		private Entry(T reports, long offered) {
+			this.reports = reports;
+			this.offered = offered;
+		}
+	}
+}
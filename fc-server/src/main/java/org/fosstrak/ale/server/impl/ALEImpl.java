@@ -23,6 +23,7 @@
 package org.fosstrak.ale.server.impl;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 
@@ -37,6 +38,7 @@ import org.fosstrak.ale.exception.NoSuchSubscriberException;
 import org.fosstrak.ale.exception.SecurityException;
 import org.fosstrak.ale.server.ALE;
 import org.fosstrak.ale.server.ALESettings;
+import org.fosstrak.ale.server.ReportRound;
 import org.fosstrak.ale.server.ReportsGenerator;
 import org.fosstrak.ale.server.ReportsGeneratorState;
 import org.fosstrak.ale.server.ac.ALEACImpl;
@@ -102,6 +104,21 @@ public class ALEImpl implements ALE {
 	 * index for name of report generator which are created by immediate command.
 	 */
 	private long nameCounter = 0;
+	
+	/**
+	 * the reports generators of the immediate requests, kept for reuse.
+	 */
+	private ImmediateGeneratorPool immediateGenerators = new ImmediateGeneratorPool();
+	
+	/** number of poll and immediate requests answered (guarded by pollStatisticsLock). */
+	private long pollCount = 0;
+	
+	/** sum and maximum of the latencies of the poll and immediate requests in nanoseconds (guarded by pollStatisticsLock). */
+	private long totalPollLatency = 0;
+	private long maxPollLatency = 0;
+	
+	/** lock of the poll statistics. */
+	private final Object pollStatisticsLock = new Object();
 
 	@Autowired()
 	private LogicalReaderManager logicalReaderManager;
@@ -210,16 +227,18 @@ public class ALEImpl implements ALE {
 	public ECReports poll(String specName) throws NoSuchNameException, SecurityException {
 		aleac.checkAccess(authScope, Thread.currentThread().getStackTrace()[1].getMethodName());
 		throwNoSuchNameExceptionIfNoSuchSpec(specName);
-		return poll(reportGeneratorsProvider.get(specName));		
+		return poll(reportGeneratorsProvider.get(specName), System.nanoTime());		
 	}
 	
 	@Override()
 	public ECReports immediate(ECSpec spec) throws ECSpecValidationException, ImplementationException, SecurityException {	
 		aleac.checkAccess(authScope, Thread.currentThread().getStackTrace()[1].getMethodName());
+		long start = System.nanoTime();
+		ReportsGenerator reportGenerator = immediateGenerators.acquire(spec, reportGeneratorsProvider, getNextReportGeneratorName());
 		try {
-			return poll(reportGeneratorsProvider.createNewReportGenerator(getNextReportGeneratorName(), spec));
-		} catch (NoSuchNameException e) {
-			throw new ImplementationException("immediate failed");
+			return poll(reportGenerator, start);
+		} finally {
+			immediateGenerators.release(reportGenerator);
 		}
 	}
 	
@@ -247,28 +266,83 @@ public class ALEImpl implements ALE {
 	public void close() {		
 		LOG.info("Close ALE.");
 		
+		// release the reports generators kept for the immediate requests
+		immediateGenerators.clear();
+		
 		// remove input generators
 		for (InputGenerator inputGenerator : inputGenerators) {
 			inputGenerator.remove();
 		}		
 	}
 	
-	private ECReports poll(ReportsGenerator reportGenerator) throws NoSuchNameException {
+	/**
+	 * waits for the reports of the next round of the given reports generator. the concurrent 
+	 * pollers of a reports generator share one round.
+	 * @param reportGenerator the reports generator.
+	 * @param start the time the request was received by {@link System#nanoTime()}.
+	 * @return the reports, null if the waiting thread was interrupted.
+	 */
+	private ECReports poll(ReportsGenerator reportGenerator, long start) {
 		
 		ECReports reports = null;
-		reportGenerator.poll();
 		try {
-			synchronized (reportGenerator) {
-				reports = reportGenerator.getPollReports();
-				while (reports == null) {
-					reportGenerator.wait();
+			if (reportGenerator instanceof ReportsGeneratorImpl) {
+				reports = ((ReportsGeneratorImpl) reportGenerator).requestPoll().await();
+			} else {
+				reportGenerator.poll();
+				synchronized (reportGenerator) {
 					reports = reportGenerator.getPollReports();
+					while (reports == null) {
+						reportGenerator.wait();
+						reports = reportGenerator.getPollReports();
+					}
 				}
 			}
 		} catch (InterruptedException e) {
 			LOG.debug("got interrupted.");
-		}		
-		return reports;
+			Thread.currentThread().interrupt();
+		}
+		long latency = System.nanoTime() - start;
+		synchronized (pollStatisticsLock) {
+			pollCount ++;
+			totalPollLatency += latency;
+			maxPollLatency = Math.max(maxPollLatency, latency);
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("reports of '" + reportGenerator.getName() + "' returned after " + TimeUnit.NANOSECONDS.toMillis(latency) + "ms.");
+		}
+		// the reports are marshalled by JAXB, which reads the groups of the rounds from the fields
+		return ReportRound.buildGroups(reports);
+	}
+	
+	/**
+	 * @return the number of poll and immediate requests answered.
+	 */
+	public long getPollCount() {
+		synchronized (pollStatisticsLock) {
+			return pollCount;
+		}
+	}
+	
+	/**
+	 * @return the mean latency of the poll and immediate requests in milliseconds (from the request until the reports are returned).
+	 */
+	public double getAveragePollLatency() {
+		synchronized (pollStatisticsLock) {
+			if (pollCount == 0) {
+				return 0;
+			}
+			return (double) totalPollLatency / pollCount / TimeUnit.MILLISECONDS.toNanos(1);
+		}
+	}
+	
+	/**
+	 * @return the highest latency of the poll and immediate requests in milliseconds.
+	 */
+	public long getMaxPollLatency() {
+		synchronized (pollStatisticsLock) {
+			return TimeUnit.NANOSECONDS.toMillis(maxPollLatency);
+		}
 	}
 	
 	/**
@@ -276,7 +350,7 @@ public class ALEImpl implements ALE {
 	 * 
 	 * @return name for input generator
 	 */
-	private String getNextReportGeneratorName() {
+	private synchronized String getNextReportGeneratorName() {
 		return REPORT_GENERATOR_NAME_PREFIX + (nameCounter++);
 	}
 	
@@ -305,6 +379,13 @@ public class ALEImpl implements ALE {
 		this.reportGeneratorsProvider = reportGeneratorsProvider;
 	}
 	
+	/**
+	 * pool of the reports generators of the immediate requests.
+	 */
+	public void setImmediateGenerators(ImmediateGeneratorPool immediateGenerators) {
+		this.immediateGenerators = immediateGenerators;
+	}
+	
 	/**
 	 * set of input generators which deliver the tag event inputs.
 	 */
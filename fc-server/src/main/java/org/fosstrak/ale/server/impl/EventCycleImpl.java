@@ -25,16 +25,15 @@ package org.fosstrak.ale.server.impl;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -46,8 +45,12 @@ import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.ALEApplicationContext;
 import org.fosstrak.ale.server.EventCycle;
 import org.fosstrak.ale.server.Report;
+import org.fosstrak.ale.server.ReportDigest;
 import org.fosstrak.ale.server.ReportsGenerator;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagAccumulator;
+import org.fosstrak.ale.server.TagBatch;
+import org.fosstrak.ale.server.TagSnapshot;
 import org.fosstrak.ale.server.readers.LogicalReader;
 import org.fosstrak.ale.server.readers.LogicalReaderManager;
 import org.fosstrak.ale.util.ECTerminationCondition;
@@ -68,7 +71,7 @@ import org.fosstrak.ale.xsd.ale.epcglobal.ECTime;
  * @author benoit.plomion@orange.com
  * @author nkef@ait.edu.gr
  */
-public final class EventCycleImpl implements EventCycle, Runnable {
+public final class EventCycleImpl implements EventCycle {
 
 	/** logger. */
 	private static final Logger LOG = Logger.getLogger(EventCycleImpl.class);
@@ -88,8 +91,8 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	/** report generator which contains this event cycle. */
 	private final ReportsGenerator generator;
 	
-	/** thread. */
-	private final Thread thread;
+	/** the scheduler running the rounds of this event cycle. */
+	private final EventCycleScheduler scheduler = EventCycleScheduler.getInstance();
 	
 	/** event cycle specification for this event cycle. */
 	private final ECSpec spec;
@@ -106,20 +109,26 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	/** contains all the ec report specs hashed by their report name. */
 	private final Map<String, ECReportSpec> reportSpecByName = new HashMap<String, ECReportSpec> ();
 	
+	/** the reports by name. */
+	private final Map<String, Report> reportByName = new HashMap<String, Report> ();
+	
 	/** set of tags for this event cycle. */
-	private  Set<Tag> tags = Collections.synchronizedSet(new HashSet<Tag>());
+	private final TagAccumulator tags = new TagAccumulator();
+	
+	/** snapshot of the tags of the current EventCycle run, taken before the reports are generated. */
+	private volatile TagSnapshot tagSnapshot = TagSnapshot.EMPTY;
 	
-	/** this set stores the tags from the previous EventCycle run. */
-	private Set<Tag> lastEventCycleTags = null;
+	/** snapshot of the tags from the previous EventCycle run. */
+	private volatile TagSnapshot lastTagSnapshot = TagSnapshot.EMPTY;
 	
 	/** this set stores the tags between two event cycle in the case of rejectTagsBetweenCycle is false */
-	private Set<Tag> betweenEventsCycleTags =  Collections.synchronizedSet(new HashSet<Tag>());	
+	private final TagAccumulator betweenEventsCycleTags = new TagAccumulator();	
 
 	/** flags to know if the event cycle haven t to reject tags in the case than duration and repeatPeriod is same */
 	private boolean rejectTagsBetweenCycle = true;
 
 	/** indicates if this event cycle is terminated or not .*/
-	private boolean isTerminated = false;
+	private volatile boolean isTerminated = false;
 	
 	/** 
 	 * lock for thread synchronization between reports generator and this.
@@ -128,7 +137,30 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	private final EventCycleLock lock = new EventCycleLock();
 	
 	/** flag whether the event cycle has passed through or not. */ 
-	private boolean roundOver = false;
+	private volatile boolean roundOver = false;
+	
+	/** flags whether a round is collecting tags (guarded by the lock). */
+	private boolean collecting = false;
+	
+	/** flags whether the reports of a round are generated (guarded by the lock). */
+	private boolean reporting = false;
+	
+	/** flags whether the event cycle was launched while the reports were generated (guarded by the lock). */
+	private boolean launchPending = false;
+	
+	/** flags whether the next round shall not depend on the previous rounds (guarded by the lock). */
+	private boolean forgetPending = false;
+	
+	/** ends the round when the duration has elapsed (guarded by the lock). */
+	private ScheduledFuture<?> roundTimer = null;
+	
+	/** task ending the current round. */
+	private final Runnable endOfRound = new Runnable() {
+		@Override
+		public void run() {
+			endRound(false);
+		}
+	};
 	
 	/** the duration of collecting tags for this event cycle in milliseconds. */
 	private long durationValue;
@@ -140,19 +172,19 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	private String terminationCondition = null;
 
 	/** flags the eventCycle whether it shall run several times or not.	 */
-	private boolean running = false;
+	private volatile boolean running = false;
 	
 	/** flags whether the EventCycle is currently not accepting tags. */
-	private boolean acceptTags = false;
+	private volatile boolean acceptTags = false;
 	
 	/** tells how many times this EventCycle has been scheduled. */
-	private int rounds = 0;
+	private volatile int rounds = 0;
 	
 	/** marks the start time of each event cycle */
-	long startTime = 0;
+	volatile long startTime = 0;
 	
-	/** tells whenDataAvailable is triggered in this round */
-	private boolean whenDataAvailableTriggered = false;
+	/** tells whenDataAvailable is triggered in this round (set under the lock). */
+	private volatile boolean whenDataAvailableTriggered = false;
 	
 	// TODO: check if we can use this instead of the dummy class.
 	private final class EventCycleLock {
@@ -160,7 +192,7 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	}
 
 	/**
-	 * Constructor sets parameter and starts thread.
+	 * Constructor sets parameter and registers the event cycle on its readers.
 	 * 
 	 * @param generator to which this event cycle belongs to
 	 * @throws ImplementationException if an implementation exception occurs
@@ -170,7 +202,8 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	}
 	
 	/**
-	 * Constructor sets parameter and starts thread.
+	 * Constructor sets parameter and registers the event cycle on its readers. 
+	 * the rounds are run by the {@link EventCycleScheduler} once the event cycle is launched.
 	 * 
 	 * @param generator to which this event cycle belongs to
 	 * @throws ImplementationException if an implementation exception occurs
@@ -190,7 +223,9 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 		for (ECReportSpec reportSpec : spec.getReportSpecs().getReportSpec()) {
 			
 			// add report spec and report to reports
-			reports.add(new Report(reportSpec, this));
+			Report report = new Report(reportSpec, this);
+			reports.add(report);
+			reportByName.put(reportSpec.getReportName(), report);
 			
 			// hash into the report spec structure
 			reportSpecByName.put(reportSpec.getReportName(), reportSpec);
@@ -242,11 +277,6 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 		
 		rounds = 0;
 		
-		// create and start Thread
-		thread = new Thread(this, "EventCycle" + name);
-		thread.setDaemon(true);
-		thread.start();
-		
 		LOG.debug("New EventCycle  '" + name + "' created.");
 	}
 	
@@ -259,6 +289,10 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	 */
 	private ECReports getECReports() throws ECSpecValidationException, ImplementationException {
 		
+		// take the snapshot of the tags of this round, shared by all the reports.
+		// the accumulator starts over with an empty buffer for the next round.
+		tagSnapshot = TagSnapshot.wrap(tags.drain());
+		
 		// create ECReports
 		ECReports reports = new ECReports();
 
@@ -341,7 +375,7 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	 * @return true if the event cycle is active, false if not.
 	 */
 	private boolean isEventCycleActive() {
-		return thread.isAlive();
+		return !isTerminated;
 	}
 
 	/**
@@ -359,40 +393,30 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	 * @param whereToAddTheTag the set where to add the tag to.
 	 * @param theTagToAdd the tag which is meant to be added.
 	 */
-	private void addTagAndLogOnNotAdded(Set<Tag> whereToAddTheTag, Tag theTagToAdd) {
+	private void addTagAndLogOnNotAdded(TagAccumulator whereToAddTheTag, Tag theTagToAdd) {
 		if (!whereToAddTheTag.add(theTagToAdd) && LOG.isDebugEnabled()) {
 			LOG.debug("tag already contained, therefore not adding.");
 		}
 	}
 
 	@Override
-	public void update(Observable o, Object arg) {
-		LOG.debug("EventCycle "+ getName() + ": Update notification received. ");
-		List<Tag> tags = new LinkedList<Tag> ();
-		// process the new tag.
-		if (arg instanceof Tag) {
-			LOG.debug("processing one tag");
-			// process one tag
-			tags.add((Tag) arg);
-		} else if (arg instanceof List) {
-			List<?> argList = (List<?>) arg;
-			LOG.debug("processing a list of " + argList.size() + " tags");
-			for (Object entry : argList) {
-				if (entry instanceof Tag) {
-					tags.add((Tag) entry);
-				}
-			}
+	public void onTags(TagBatch batch) {
+		if (batch.isEmpty()) {
+			LOG.debug("EventCycle "+ getName() + ": Update notification received - but not with any tags - ignoring. ");
+			return;
 		}
-		
-		if (tags.size() > 0) {
-			handleTags(tags);
-		} else {
-			LOG.debug("EventCycle "+ getName() + ": Update notification received - but not with any tags - ignoring. ");			
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("EventCycle "+ getName() + ": received a batch of " + batch.size() + " tags");
 		}
-		
+		handleTags(batch);
+	}
+
+	@Override
+	public void update(Observable o, Object arg) {
+		onTags(TagBatch.fromNotification(arg));
 	}
 	
-	private void handleTags(List<Tag> tags) {
+	private void handleTags(TagBatch tags) {
 		if (!isAcceptingTags()) {
 			handleTagsWhileNotAccepting(tags);
 		} else {
@@ -404,28 +428,40 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	 * deal with new tags.
 	 * @param tags
 	 */
-	private void handleTagsWhileAccepting(List<Tag> tags) {	
+	private void handleTagsWhileAccepting(TagBatch tags) {	
 		// process all the tags we did not process between two eventcycles (or while we did not accept any tags).
-		if (!isRejectTagsBetweenCycle()) {			
-			for (Tag tag : betweenEventsCycleTags) {
+		if (!isRejectTagsBetweenCycle() && !betweenEventsCycleTags.isEmpty()) {			
+			for (Tag tag : betweenEventsCycleTags.drain()) {
 				addTag(tag);			
 			}
-			
-			betweenEventsCycleTags.clear();			
 		}
-		LOG.debug("EventCycle "+ getName() + ": Received list of tags : set size is "+tags.size());
+		final boolean debug = LOG.isDebugEnabled();
 		for (Tag tag : tags) {
-			LOG.debug("EventCycle "+ getName() + ": Received list of tags :\t"+tag.getTagAsHex());
+			if (debug) {
+				LOG.debug("EventCycle "+ getName() + ": Received list of tags :\t"+tag.getTagAsHex());
+			}
 			addTag(tag);
 		}
 		
 
 			
-		if(generator.isWhenDataAvailable()) {
-			LOG.debug("WhenDataAvailable is triggered");
-			whenDataAvailableTriggered = true;
-			synchronized (this) {
-				this.notifyAll();
+		if(generator.isWhenDataAvailable() && !whenDataAvailableTriggered) {
+			// the reader threads deliver their batches concurrently: the first one triggers 
+			// the round under the lock, the end of the round is bound to the triggered round.
+			// a batch added to the previous round does not trigger the next one while it is empty.
+			synchronized (lock) {
+				if (collecting && !whenDataAvailableTriggered && !this.tags.isEmpty()) {
+					LOG.debug("WhenDataAvailable is triggered");
+					whenDataAvailableTriggered = true;
+					final int round = rounds;
+					// the reports are generated by the scheduler, not by the reader thread
+					scheduler.execute(new Runnable() {
+						@Override
+						public void run() {
+							endRound(false, round);
+						}
+					});
+				}
 			}
 		}
 	}
@@ -434,7 +470,7 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	 * deal with tags while the event cycle is not accepting tags. (eg. between two event cycles).
 	 * @param arg the update we received.
 	 */
-	private void handleTagsWhileNotAccepting(List<Tag> tags) {
+	private void handleTagsWhileNotAccepting(TagBatch tags) {
 		if (!isRejectTagsBetweenCycle()) {
 			for (Tag tag : tags) {	
 				LOG.debug("received tag between eventcycles: " + tag.getTagIDAsPureURI());					
@@ -449,19 +485,21 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 		for (LogicalReader logicalReader : logicalReaders) {
 			logicalReader.deleteObserver(this);
 		}
-		terminationCondition = ECTerminationCondition.UNDEFINE;
-		
-		running = false;
-		thread.interrupt();
+		synchronized (lock) {
+			terminationCondition = ECTerminationCondition.UNDEFINE;
+			running = false;
+			launchPending = false;
+			isTerminated = true;
+		}
 		LOG.debug("EventCycle '" + name + "' stopped.");
 		
-		isTerminated = true;
-		
-		
-		
-		synchronized (this) {
-			this.notifyAll();
-		}		
+		// a running round is ended and its reports are delivered with termination condition UNDEFINE
+		scheduler.execute(new Runnable() {
+			@Override
+			public void run() {
+				endRound(true);
+			}
+		});
 	}
 
 	@Override
@@ -474,181 +512,181 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 		return isTerminated;
 	}
 	
-	/**
-	 * This method is the main loop of the event cycle in which the tags will be collected.
-	 * At the end the reports will be generated and the subscribers will be notified.
-	 */
 	@Override
-	public void run() {
-		
-		lastEventCycleTags = new HashSet<Tag>();
-		
-		// wait for the start
-		// running will be set by the ReportsGenerator when the EventCycle
-		// has a subscriber
-		if (!running) {
-			synchronized (this) {
-				try {
-					this.wait();
-				} catch (InterruptedException e) {
-					LOG.info("eventcycle got interrupted during not running state");
-					return;
-				}				
+	public void launch() {
+		LOG.debug("launching eventCycle" + getName());
+		synchronized (lock) {
+			if (isTerminated) {
+				LOG.debug("EventCycle " + getName() + " is terminated, not launching.");
+				return;
 			}
-		}
-		
-		while (running) {
-			rounds ++;
-			synchronized (lock) {
-				roundOver = false;
+			running = true;
+			if (collecting) {
+				LOG.debug("EventCycle " + getName() + " is already running.");
+			} else if (reporting) {
+				// start the next round as soon as the reports of this round are delivered
+				launchPending = true;
+			} else {
+				startRound();
 			}
-			LOG.info("EventCycle "+ getName() + ": Starting (Round " + rounds + ").");
-			
-			// set start time
-			startTime = System.currentTimeMillis();
+		}
+	}
 	
-			// accept tags
-			setAcceptTags(true);
-			
-			if(generator.isWhenDataAvailable()) {
-				whenDataAvailableTriggered = false;
+	/**
+	 * the next round starts over as if it was the first one: the reports and tags of the previous 
+	 * rounds and the tags seen between the rounds are discarded. used when an idle event cycle is 
+	 * reused for another request.
+	 */
+	void forgetPreviousRounds() {
+		synchronized (lock) {
+			forgetPending = true;
+		}
+	}
+
+	/**
+	 * stops the rounds but keeps the event cycle registered on its readers: no new round is
+	 * started and the round collecting tags is discarded without reports. a round generating
+	 * its reports is delivered. the next launch starts over as if it was the first round.
+	 */
+	void idle() {
+		synchronized (lock) {
+			running = false;
+			launchPending = false;
+			forgetPending = true;
+			if (null != roundTimer) {
+				roundTimer.cancel(false);
+				roundTimer = null;
 			}
-			
-			//------------------------------ run for the specified time
-			try {
-				
-				if (durationValue > 0) {
-					
-					// if durationValue is specified and larger than zero, 
-					// wait for notify or durationValue elapsed.
-					synchronized (this) {
-						long dt = (System.currentTimeMillis() - startTime);
-						terminationCondition = ECTerminationCondition.DURATION;
-						this.wait(Math.max(1, durationValue - dt));
-					}
-				} else {
-					
-					// if durationValue is not specified or smaller than zero, 
-					// wait for notify.
-					synchronized (this) {
-						this.wait();
-					}
-				}
-			
-			} catch (InterruptedException e) {
-				LOG.info("eventcycle got interrupted during running state");
-				
-				// if Thread is stopped with method stop(), 
-				// then return without notify subscribers.
-				
-				// don't accept tags anymore
+			if (collecting) {
+				LOG.debug("EventCycle " + getName() + ": discarding round " + rounds + ".");
+				collecting = false;
 				setAcceptTags(false);
-				//------------------------ generate the reports
-				
-				// get reports
-				
-				// compute total time
-				totalTime = System.currentTimeMillis() - startTime;
-				
-				LOG.info("EventCycle "+ getName() + 
-						": Number of Tags read in the current EventCyle.java: " 
-						+ tags.size());
-				
-				ECReports ecReports;
-				try {
-					ecReports = getECReports();
-					ecReports.setTerminationCondition("UNDEFINE");
-					// notifySubscribers
-					generator.notifySubscribers(ecReports, this);
-				} catch (ECSpecValidationException e1) {
-					// TODO Auto-generated catch block
-					e1.printStackTrace();
-				} catch (ImplementationException e1) {
-					// TODO Auto-generated catch block
-					e1.printStackTrace();
-				}
-				
-				
+				whenDataAvailableTriggered = false;
+				tags.drain();
+				// inform possibly waiting workers, the round is over
+				roundOver = true;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public void endRound() {
+		scheduler.execute(endOfRound);
+	}
+	
+	/**
+	 * starts a new round: the tags are accepted until the duration has elapsed, 
+	 * whenDataAvailable is triggered or the round is ended otherwise.
+	 * the caller must hold the lock.
+	 */
+	private void startRound() {
+		if (forgetPending) {
+			forgetPending = false;
+			lastReports.clear();
+			lastTagSnapshot = TagSnapshot.EMPTY;
+			betweenEventsCycleTags.drain();
+			tags.drain();
+		}
+		rounds ++;
+		roundOver = false;
+		collecting = true;
+		LOG.info("EventCycle "+ getName() + ": Starting (Round " + rounds + ").");
+		
+		// set start time
+		startTime = System.currentTimeMillis();
+		
+		if(generator.isWhenDataAvailable()) {
+			whenDataAvailableTriggered = false;
+		}
+		
+		// if durationValue is specified and larger than zero, the round ends when 
+		// durationValue has elapsed. otherwise the round is ended explicitly.
+		if (durationValue > 0) {
+			terminationCondition = ECTerminationCondition.DURATION;
+			roundTimer = scheduler.schedule(endOfRound, durationValue);
+		}
+		
+		// accept tags
+		setAcceptTags(true);
+	}
+	
+	/**
+	 * ends the current round: the reports are generated and the subscribers are notified.
+	 * if no round is collecting tags, nothing happens.
+	 * @param stopped true if the event cycle has been stopped, the reports are delivered with 
+	 * termination condition UNDEFINE.
+	 */
+	private void endRound(boolean stopped) {
+		endRound(stopped, -1);
+	}
+	
+	/**
+	 * ends the given round: if another round is collecting tags (the given one has ended 
+	 * already), nothing happens.
+	 * @param stopped true if the event cycle has been stopped.
+	 * @param round the round to end, -1 for the current round.
+	 */
+	private void endRound(boolean stopped, int round) {
+		synchronized (lock) {
+			if (!collecting || (round >= 0 && round != rounds)) {
 				return;
 			}
-			
+			collecting = false;
+			reporting = true;
+			if (null != roundTimer) {
+				roundTimer.cancel(false);
+				roundTimer = null;
+			}
 			// don't accept tags anymore
 			setAcceptTags(false);
-			//------------------------ generate the reports
+		}
+		
+		//------------------------ generate the reports
+		try {
+			// compute total time
+			totalTime = System.currentTimeMillis() - startTime;
 			
-			// get reports
-			try {
-				// compute total time
-				totalTime = System.currentTimeMillis() - startTime;
-				
-				LOG.info("EventCycle "+ getName() + 
-						": Number of Tags read in the current EventCyle.java: " 
-						+ tags.size());
-				
-				ECReports ecReports = getECReports();
-				
-				if(whenDataAvailableTriggered) {
-					ecReports.setTerminationCondition("WhenDataAvailable");
-				}
-				
-				// notifySubscribers
-				generator.notifySubscribers(ecReports, this);
-				
-				// store the current tags into the old tags
-				// explicitly clear the tags
-				if (lastEventCycleTags != null) {
-					lastEventCycleTags.clear();
-				}
-				if (null != tags) {
-					lastEventCycleTags.addAll(tags);
-				}
-				
-				tags = Collections.synchronizedSet(new HashSet<Tag>());
-				
-			} catch (Exception e) {
-				if (e instanceof InterruptedException) {
-					LOG.info("eventcycle got interrupted during report generation");
-					
-					return;
-				}
-				LOG.error("EventCycle "+ getName() + ": Could not create ECReports", e);
+			LOG.info("EventCycle "+ getName() + 
+					": Number of Tags read in the current EventCyle.java: " 
+					+ tags.size());
+			
+			ECReports ecReports = getECReports();
+			
+			if (stopped) {
+				ecReports.setTerminationCondition("UNDEFINE");
+			} else if(whenDataAvailableTriggered) {
+				ecReports.setTerminationCondition("WhenDataAvailable");
 			}
 			
+			// notifySubscribers
+			generator.notifySubscribers(ecReports, this);
 			
-			LOG.info("EventCycle "+ getName() +  ": EventCycle finished (Round " + rounds + ").");
-			try {
-				// inform possibly waiting workers about the finish
-				synchronized (lock) {
-					roundOver = true;
-					lock.notifyAll();
-				}
-				if(!whenDataAvailableTriggered) {
-					// wait until reschedule.
-					synchronized (this) {	
-						this.wait();
-					}					
-				}
-				
-				LOG.debug("eventcycle continues");
-			} catch (InterruptedException e) {
-				LOG.info("eventcycle got interrupted during finished state");
-				
-				return;
-			}			
+			if (!stopped) {
+				// the tags of this round become the tags of the previous round
+				lastTagSnapshot = tagSnapshot;
+			}
+		} catch (Exception e) {
+			LOG.error("EventCycle "+ getName() + ": Could not create ECReports", e);
 		}
+		
+		LOG.info("EventCycle "+ getName() +  ": EventCycle finished (Round " + rounds + ").");
+		synchronized (lock) {
+			reporting = false;
+			// inform possibly waiting workers about the finish
+			roundOver = true;
+			lock.notifyAll();
 			
-			
-		// stop EventCycle
-		stop();
+			// whenDataAvailable continues with the next round right away
+			if (running && !isTerminated && (launchPending || whenDataAvailableTriggered)) {
+				LOG.debug("eventcycle continues");
+				startRound();
+			}
+			launchPending = false;
+		}
 		
-	}
-
-	@Override
-	public void launch() {
-		this.running = true;
-		LOG.debug("launching eventCycle" + getName());
-		synchronized (this) {
-			this.notifyAll();
+		if (!stopped && (generator instanceof ReportsGeneratorImpl)) {
+			((ReportsGeneratorImpl) generator).roundFinished(this);
 		}
 	}
 	
@@ -712,31 +750,22 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 
 	@Override
 	public Set<Tag> getLastEventCycleTags() {
-		return copyContentToNewDatastructure(lastEventCycleTags);
+		return lastTagSnapshot.getTags();
 	}
 
 	@Override
-	public Set<Tag> getTags() {
-		return copyContentToNewDatastructure(tags);		
+	public TagSnapshot getLastTagSnapshot() {
+		return lastTagSnapshot;
 	}
-	
-	/**
-	 * create a copy of the content of the given data structure -> we use synchronized sets -> make sure not to leak them.<br/>
-	 * this method synchronizes the original data structure during to copy process.
-	 * <br/>
-	 * <strong>Notice that the content is NOT cloned, simply referenced!</strong>
-	 * 
-	 * @param contentToCopy the data structure to copy.
-	 * @return a copy of the data structure with the content of the input.
-	 */
-	private Set<Tag> copyContentToNewDatastructure(Set<Tag> contentToCopy) {
-		Set<Tag> copy = new HashSet<Tag> ();
-		synchronized (contentToCopy) {
-			for (Tag tag : contentToCopy) {
-				copy.add(tag);
-			}
-		}
-		return copy;
+
+	@Override
+	public TagSnapshot getTagSnapshot() {
+		return tagSnapshot;
+	}
+
+	@Override
+	public Set<Tag> getTags() {
+		return tags.copy();
 	}
 	
 	private boolean isRejectTagsBetweenCycle() {
@@ -791,6 +820,18 @@ public final class EventCycleImpl implements EventCycle, Runnable {
 	public ECReportSpec getReportSpecByName(String name) {
 		return reportSpecByName.get(name);
 	}
+	
+	@Override
+	public ReportDigest getReportDigest(String name) {
+		Report report = reportByName.get(name);
+		return (null == report) ? null : report.getDigest();
+	}
+	
+	@Override
+	public ReportDigest getLastReportDigest(String name) {
+		Report report = reportByName.get(name);
+		return (null == report) ? null : report.getLastDigest();
+	}
 
 	/**
 	 * get a handle onto the map holding all the report specs.
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.impl;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * drives the event cycles of all the reports generators from a small pool of daemon
+ * threads. the end of the duration of a round, the repeat period and the end of a round
+ * by whenDataAvailable are scheduled as tasks, no thread is blocked while an event
+ * cycle is idle.<br/>
+ * the number of threads defaults to the number of processors (at least two) and can be
+ * set through the system property {@value #PROPERTY_THREADS}.
+ */
+public final class EventCycleScheduler implements Executor {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(EventCycleScheduler.class);
+
+	/** system property holding the number of scheduler threads. */
+	public static final String PROPERTY_THREADS = "org.fosstrak.ale.eventCycleThreads";
+
+	/** the scheduler shared by all event cycles. */
+	private static final EventCycleScheduler INSTANCE = new EventCycleScheduler(Integer.getInteger(PROPERTY_THREADS, Math.max(2, Runtime.getRuntime().availableProcessors())));
+
+	/** the executor running the tasks. */
+	private final ScheduledThreadPoolExecutor executor;
+
+	/**
+	 * creates a scheduler.
+	 * @param threads the number of threads.
+	 */
+	private EventCycleScheduler(int threads) {
+		executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "EventCycleScheduler-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// cancelled duration timers are removed right away
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * @return the scheduler shared by all event cycles.
+	 */
+	public static EventCycleScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * runs the given task as soon as possible.
+	 * @param task the task.
+	 */
+	@Override
+	public void execute(Runnable task) {
+		executor.execute(new LoggingTask(task));
+	}
+
+	/**
+	 * runs the given task once after the given delay.
+	 * @param task the task.
+	 * @param delay the delay in milliseconds.
+	 * @return the future to cancel the task.
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delay) {
+		return executor.schedule(new LoggingTask(task), Math.max(0, delay), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * the scheduled executor drops the exceptions of its tasks silently, log them instead.
+	 */
+	private static final class LoggingTask implements Runnable {
+		private final Runnable task;
+
+		private LoggingTask(Runnable task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} catch (Throwable e) {
+				LOG.error("event cycle task failed", e);
+			}
+		}
+	}
+}
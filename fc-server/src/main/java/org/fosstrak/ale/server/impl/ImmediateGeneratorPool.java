@@ -0,0 +1,286 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.ReportsGenerator;
+import org.fosstrak.ale.server.impl.type.ReportsGeneratorsProvider;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSpec;
+
+/**
+ * keeps the reports generators of the immediate requests for reuse: the specification is
+ * validated once, the event cycle stays registered on its logical readers between the requests
+ * and the concurrent requests of the same specification share one round.<br/>
+ * the reports generators are keyed by their specification (including the logical readers). an
+ * idle reports generator is released (its event cycle deregistered from the readers) when it was
+ * not used for the linger time or when the pool exceeds its size, the least recently used first.
+ * the pool is configured by system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_SIZE}: the maximum number of idle reports generators (default {@value #DEFAULT_SIZE}), 0 disables the pool.</li>
+ * <li>{@value #PROPERTY_LINGER}: the time in milliseconds an idle reports generator is kept (default {@value #DEFAULT_LINGER}).</li>
+ * </ul>
+ */
+public class ImmediateGeneratorPool {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(ImmediateGeneratorPool.class);
+
+	/** system property holding the maximum number of idle reports generators. */
+	public static final String PROPERTY_SIZE = "org.fosstrak.ale.immediatePoolSize";
+
+	/** system property holding the time in milliseconds an idle reports generator is kept. */
+	public static final String PROPERTY_LINGER = "org.fosstrak.ale.immediateLinger";
+
+	/** default maximum number of idle reports generators. */
+	public static final int DEFAULT_SIZE = 16;
+
+	/** default time in milliseconds an idle reports generator is kept. */
+	public static final int DEFAULT_LINGER = 60000;
+
+	/** the maximum number of idle reports generators. */
+	private final int size;
+
+	/** the time in milliseconds an idle reports generator is kept. */
+	private final long linger;
+
+	/** the pooled reports generators by specification, least recently used first (guarded by this). */
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry> (16, 0.75f, true);
+
+	/** the pooled entries by reports generator (guarded by this). */
+	private final Map<ReportsGenerator, Entry> entriesByGenerator = new IdentityHashMap<ReportsGenerator, Entry> ();
+
+	/** true while the release of the expired reports generators is scheduled (guarded by this). */
+	private boolean sweepScheduled = false;
+
+	/** releases the expired reports generators. */
+	private final Runnable sweep = new Runnable() {
+		@Override
+		public void run() {
+			sweep();
+		}
+	};
+
+	/**
+	 * creates a pool configured by the system properties.
+	 */
+	public ImmediateGeneratorPool() {
+		this(Integer.getInteger(PROPERTY_SIZE, DEFAULT_SIZE), Integer.getInteger(PROPERTY_LINGER, DEFAULT_LINGER));
+	}
+
+	/**
+	 * creates a pool.
+	 * @param size the maximum number of idle reports generators, 0 disables the pool.
+	 * @param linger the time in milliseconds an idle reports generator is kept.
+	 */
+	public ImmediateGeneratorPool(int size, long linger) {
+		this.size = Math.max(0, size);
+		this.linger = Math.max(0, linger);
+	}
+
+	/**
+	 * returns the reports generator of the given specification, a pooled one if available.
+	 * the caller must hand the reports generator back by {@link #release(ReportsGenerator)}.
+	 * @param spec the specification of the immediate request.
+	 * @param provider the provider creating a new reports generator.
+	 * @param name the name of a newly created reports generator.
+	 * @return the reports generator.
+	 * @throws ECSpecValidationException if the specification is invalid.
+	 * @throws ImplementationException if the reports generator could not be created.
+	 */
+	public ReportsGenerator acquire(ECSpec spec, ReportsGeneratorsProvider provider, String name) throws ECSpecValidationException, ImplementationException {
+		String key = (size > 0) ? getKey(spec) : null;
+		if (null == key) {
+			return provider.createNewReportGenerator(name, spec);
+		}
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (null != entry) {
+				entry.users ++;
+				return entry.generator;
+			}
+		}
+		// validate the specification outside of the lock, a concurrent request may have been faster
+		ReportsGenerator generator = provider.createNewReportGenerator(name, spec);
+		if (!(generator instanceof ReportsGeneratorImpl)) {
+			return generator;
+		}
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (null != entry) {
+				entry.users ++;
+				return entry.generator;
+			}
+			((ReportsGeneratorImpl) generator).setKeepEventCycle(true);
+			entry = new Entry((ReportsGeneratorImpl) generator);
+			entry.users ++;
+			entries.put(key, entry);
+			entriesByGenerator.put(generator, entry);
+			LOG.debug("pooled reports generator '" + generator.getName() + "' for immediate requests.");
+			return generator;
+		}
+	}
+
+	/**
+	 * hands back a reports generator obtained by {@link #acquire(ECSpec, ReportsGeneratorsProvider, String)}.
+	 * @param generator the reports generator.
+	 */
+	public void release(ReportsGenerator generator) {
+		List<ReportsGeneratorImpl> released = new ArrayList<ReportsGeneratorImpl> ();
+		synchronized (this) {
+			Entry entry = entriesByGenerator.get(generator);
+			if (null != entry) {
+				entry.users --;
+				entry.lastUsed = System.currentTimeMillis();
+				trim(released);
+				if (!entries.isEmpty() && !sweepScheduled) {
+					sweepScheduled = true;
+					EventCycleScheduler.getInstance().schedule(sweep, linger);
+				}
+			}
+		}
+		stop(released);
+	}
+
+	/**
+	 * releases all the idle reports generators.
+	 */
+	public void clear() {
+		List<ReportsGeneratorImpl> released = new ArrayList<ReportsGeneratorImpl> ();
+		synchronized (this) {
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				if (entry.users == 0) {
+					it.remove();
+					entriesByGenerator.remove(entry.generator);
+					released.add(entry.generator);
+				}
+			}
+		}
+		stop(released);
+	}
+
+	/**
+	 * @return the number of pooled reports generators.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * releases the reports generators that were idle for the linger time.
+	 */
+	private void sweep() {
+		List<ReportsGeneratorImpl> released = new ArrayList<ReportsGeneratorImpl> ();
+		synchronized (this) {
+			sweepScheduled = false;
+			long now = System.currentTimeMillis();
+			long next = linger;
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				if (entry.users > 0) {
+					continue;
+				}
+				long idle = now - entry.lastUsed;
+				if (idle >= linger) {
+					it.remove();
+					entriesByGenerator.remove(entry.generator);
+					released.add(entry.generator);
+				} else {
+					next = Math.min(next, linger - idle);
+				}
+			}
+			if (!entries.isEmpty()) {
+				sweepScheduled = true;
+				EventCycleScheduler.getInstance().schedule(sweep, next);
+			}
+		}
+		stop(released);
+	}
+
+	/**
+	 * removes the least recently used idle reports generators exceeding the size of the pool.
+	 * the caller must hold the lock.
+	 * @param released receives the removed reports generators.
+	 */
+	private void trim(List<ReportsGeneratorImpl> released) {
+		Iterator<Entry> it = entries.values().iterator();
+		while ((entries.size() > size) && it.hasNext()) {
+			Entry entry = it.next();
+			if (entry.users == 0) {
+				it.remove();
+				entriesByGenerator.remove(entry.generator);
+				released.add(entry.generator);
+			}
+		}
+	}
+
+	/**
+	 * stops the given reports generators, their event cycles are deregistered from the readers.
+	 * @param released the reports generators.
+	 */
+	private void stop(List<ReportsGeneratorImpl> released) {
+		for (ReportsGeneratorImpl generator : released) {
+			LOG.debug("releasing pooled reports generator '" + generator.getName() + "'.");
+			generator.setKeepEventCycle(false);
+			generator.stop();
+		}
+	}
+
+	/**
+	 * @param spec the specification.
+	 * @return the key of the specification, null if the specification can not be serialized.
+	 */
+	private String getKey(ECSpec spec) {
+		try {
+			ByteArrayOutputStream stream = new ByteArrayOutputStream(1024);
+			SerializerUtil.serializeECSpec(spec, stream);
+			return stream.toString("UTF-8");
+		} catch (Exception e) {
+			LOG.debug("could not serialize the specification - not pooled.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * a pooled reports generator.
+	 */
+	private static final class Entry {
+		private final ReportsGeneratorImpl generator;
+		/** the number of requests using the reports generator. */
+		private int users = 0;
+		/** the time the reports generator was released last. */
+		private long lastUsed = System.currentTimeMillis();
+
+		private Entry(ReportsGeneratorImpl generator) {
+			this.generator = generator;
+		}
+	}
+}
@@ -24,16 +24,15 @@
 package org.fosstrak.ale.server.impl;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.DuplicateSubscriptionException;
@@ -43,6 +42,7 @@ import org.fosstrak.ale.exception.InvalidURIException;
 import org.fosstrak.ale.exception.NoSuchSubscriberException;
 import org.fosstrak.ale.server.ALEApplicationContext;
 import org.fosstrak.ale.server.EventCycle;
+import org.fosstrak.ale.server.ReportRound;
 import org.fosstrak.ale.server.ReportsGenerator;
 import org.fosstrak.ale.server.ReportsGeneratorState;
 import org.fosstrak.ale.server.Subscriber;
@@ -55,29 +55,22 @@ import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
-import org.fosstrak.ale.xsd.ale.epcglobal.ECReports.Reports;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECTime;
 
-import com.rits.cloning.Cloner;
 
 /**
  * default implementation of the reports generator.
  * @author swieland
  *
  */
-public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
+public class ReportsGeneratorImpl implements ReportsGenerator {
 
 	/**
 	 * a negative interval means that no such interval is set.
 	 */
 	private static final long INTERVAL_NOT_SET = -1L;
 
-	/**
-	 * period for how long to wait for calls in between waiting times. 
-	 */
-	private static final long WAKEUP_PERIOD = 50L;
-
 	/** logger */
 	private static final Logger LOG = Logger.getLogger(ReportsGenerator.class);
 	
@@ -113,14 +106,23 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	 */
 	private boolean whenDataAvailable = false; 
 	
-	/** thread to run the main loop */
-	private Thread thread;
+	/** scheduler running the event cycles. */
+	private final EventCycleScheduler scheduler = EventCycleScheduler.getInstance();
+	
+	/** starts the next event cycle when the repeat period has elapsed (guarded by this). */
+	private ScheduledFuture<?> repeatTimer = null;
+	
+	/** flags whether the repeat period has elapsed while the event cycle was still running (guarded by this). */
+	private boolean repeatPending = false;
+	
+	/** flags whether the event cycle launched by this reports generator is running (guarded by this). */
+	private boolean eventCycleRunning = false;
 	
 	/** state of this report generator */
-	private ReportsGeneratorState state = ReportsGeneratorState.UNREQUESTED;
+	private volatile ReportsGeneratorState state = ReportsGeneratorState.UNREQUESTED;
 	
 	/** indicates if this report generator is running or not */
-	private boolean reportsGeneratorRunning = false;
+	private volatile boolean reportsGeneratorRunning = false;
 
 	/** indicates if somebody is polling this input generator at the moment. */
 	private boolean polling = false;
@@ -128,6 +130,12 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	/** ec report for the poller */
 	private ECReports pollReport = null;
 	
+	/** the round shared by the pollers waiting for the next reports (guarded by this). */
+	private PendingPoll pendingPoll = null;
+	
+	/** keeps the event cycle registered on its readers while the reports generator is unrequested. */
+	private volatile boolean keepEventCycle = false;
+	
 	
 	private EventCycle eventCycle = null;
 
@@ -238,9 +246,11 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	/**
 	 * This method sets the state of this report generator.
 	 * If the state changes from UNREQUESTED to REQUESTED, the report generators 
-	 * main loop will be started.
+	 * event cycle will be started.
 	 * If the state changes from REQUESTED to UNREQUESTED, the report generators 
-	 * main loop will be stopped.
+	 * event cycle will be stopped.
+	 * If the state changes from REQUESTED to ACTIVE (start trigger), a round of the event cycle is launched,
+	 * from ACTIVE to REQUESTED (stop trigger) the round is ended.
 	 * <strong>please notice that this method is not available through the ReportsGeneratorInterface.</strong>
 	 * 
 	 * @param state to set
@@ -255,12 +265,15 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		if (isStateRequested() && !isRunning()) {
 			start();
 		} else if (isStateUnRequested() && isRunning()) {
-			stop();
-		} else if(isStateRequested() && isRunning()) {
-			synchronized(eventCycle) {
-				eventCycle.notifyAll();	
+			if (keepEventCycle) {
+				idle();
+			} else {
+				stop();
 			}
-			
+		} else if (isStateRequested() && isRunning() && (oldState == ReportsGeneratorState.ACTIVE)) {
+			eventCycle.endRound();
+		} else if ((state == ReportsGeneratorState.ACTIVE) && isRunning() && (oldState == ReportsGeneratorState.REQUESTED)) {
+			launchEventCycle();
 		}
 		
 	}
@@ -312,7 +325,11 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		new Subscriber(notificationURI);
 		
 		if (subscribers.containsKey(notificationURI)) {
-			subscribers.remove(notificationURI);
+			Subscriber removed = subscribers.remove(notificationURI);
+			if (null != removed) {
+				// pending reports are not delivered anymore
+				removed.close();
+			}
 			LOG.debug("NotificationURI '" + notificationURI	+ "' unsubscribed from spec '" + name + "'.");
 			
 			if (subscribers.isEmpty() && !isPolling()) {
@@ -377,24 +394,24 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 //		an event cycle, even if that ECReports instance contains zero ECReport instances.
 		
 		
-		Cloner cloner  = new Cloner();
-		// deep clone the original input in order to keep it as the 
-		// next event cycles last cycle reports. 
-		ECReports originalInput = cloner.deepClone(reports);
-		
-		// we deep clone (clone not sufficient) for the pollers
-		// in order to deliver them the correct set of reports.
+		// the reports of a round are never modified once they have been generated: 
+		// the pollers receive the instance itself, the subscribers a copy of the 
+		// header with the unchanged reports only, and the ECReport instances are 
+		// kept as they are for the reportOnlyOnChange comparison of the next round.
+		List<ECReport> roundReports = new ArrayList<ECReport> ();
+		if (null != reports.getReports()) {
+			roundReports.addAll(reports.getReports().getReport());
+		}
 		if (isPolling()) {
-			// deep clone for the pollers (poll and immediate)
-			pollReport = cloner.deepClone(reports);
+			pollReport = reports;
 		}
 
 		// we remove the reports that are equal to the ones in the 
 		// last event cycle. then we send the subscribers.
-		List<ECReport> equalReps = new LinkedList<ECReport> ();
+		Set<ECReport> equalReps = Collections.newSetFromMap(new IdentityHashMap<ECReport, Boolean> ());
 		List<ECReport> reportsToNotify = new LinkedList<ECReport> ();
 		try {
-		for (ECReport r : reports.getReports().getReport()) {
+		for (ECReport r : roundReports) {
 			final ECReportSpec reportSpec = ec.getReportSpecByName(r.getReportName());
 			
 			boolean tagsInReport = hasTags(r);
@@ -410,8 +427,8 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 				// report from the previous EventCycle run.
 				ECReport oldR = ec.getLastReports().get(r.getReportName());
 				
-				// compare the new report with the old one.
-				if (reportsHelper.areReportsEqual(reportSpec, r, oldR)) {
+				// compare the digests of the new report and the old one.
+				if (reportsHelper.isReportUnchanged(reportSpec, r, oldR, ec.getReportDigest(r.getReportName()), ec.getLastReportDigest(r.getReportName()))) {
 					equalReps.add(r);
 				}
 			}
@@ -425,35 +442,47 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		reportsToNotify.removeAll(equalReps);
 		
 		// remove the equal reports
-		Reports re = reports.getReports();
-		if (null != re) re.getReport().removeAll(equalReps);
-		LOG.debug("reports size: " + reports.getReports().getReport().size());
+		ECReports subscriberReports = reports;
+		if (!equalReps.isEmpty()) {
+			List<ECReport> changed = new ArrayList<ECReport> (roundReports.size());
+			for (ECReport r : roundReports) {
+				if (!equalReps.contains(r)) {
+					changed.add(r);
+				}
+			}
+			subscriberReports = reportsHelper.copyWithReports(reports, changed);
+		}
+		LOG.debug("reports size: " + subscriberReports.getReports().getReport().size());
 
 		LOG.debug("check size of reportsToNotify: "+reportsToNotify.size());
 		// next step is to check, if the total report is empty (even if requestIfEmpty but when all reports are equal, do not deliver) 
 		//if (reportsToNotify.size() > 0) {
 			// notify the ECReports
-			notifySubscribersWithFilteredReports(reports);
+			notifySubscribersWithFilteredReports(subscriberReports);
 		//}		
 		// store the new reports as old reports
 		ec.getLastReports().clear();
-		if (null != originalInput.getReports()) {
-			for (ECReport r : originalInput.getReports().getReport()) {
-				ec.getLastReports().put(r.getReportName(), r);
-			}
+		for (ECReport r : roundReports) {
+			ec.getLastReports().put(r.getReportName(), r);
 		}
 		
 		// notify pollers
 		// pollers always receive reports (even when empty).
-		if (isPolling()) {
-			polling = false;
-			if (subscribers.isEmpty()) {
-				setState(ReportsGeneratorState.UNREQUESTED);
-			}
-			synchronized (this) {
+		PendingPoll round = null;
+		synchronized (this) {
+			round = pendingPoll;
+			pendingPoll = null;
+			if (isPolling() || (null != round)) {
+				polling = false;
+				if (subscribers.isEmpty()) {
+					setState(ReportsGeneratorState.UNREQUESTED);
+				}
 				this.notifyAll();
 			}
-		}	
+		}
+		if (null != round) {
+			round.complete(reports);
+		}
 	}
 	
 	/**
@@ -462,6 +491,10 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	 * @return true if tags contained, false otherwise.
 	 */
 	private boolean hasTags(ECReport r) {
+		if (r instanceof ReportRound) {
+			// the JAXB groups of the round are not built for the check
+			return ((ReportRound) r).hasMembers();
+		}
 		try {
 			for (ECReportGroup g : r.getGroup()) {
 				if (g.getGroupList().getMember().size() > 0) {
@@ -478,19 +511,12 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	 * @param reports the filtered reports.
 	 */
 	protected void notifySubscribersWithFilteredReports(ECReports reports) {
-		
-		Thread threadNotify = new Thread(new NotificationThread(reports, subscribers));
-		threadNotify.start();
-		/*
-		// notify subscribers 
+		// the subscribers queue the reports, the notification dispatcher delivers them
 		for (Subscriber listener : subscribers.values()) {
-			try {
-				listener.notify(reports);
-			} catch (Exception e) {
-				LOG.error("Could not notify subscriber '" + listener.toString(), e);
+			if (!listener.enqueue(reports)) {
+				LOG.debug("subscriber '" + listener.toString() + "' is closed - reports not delivered.");
 			}
 		}
-		*/
 	}
 
 	/**
@@ -499,13 +525,27 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	 */
 	@Override
 	public void poll() {
-		
+		requestPoll();
+	}
+	
+	/**
+	 * requests the reports of the next round. the pollers arriving while a round is pending 
+	 * share this round and receive the same reports, the event cycle is started once only.
+	 * @return the pending round delivering the reports.
+	 */
+	public synchronized PendingPoll requestPoll() {
+		if (null != pendingPoll) {
+			LOG.debug("Spec '" + name + "' polled - joining the pending round.");
+			return pendingPoll;
+		}
 		LOG.debug("Spec '" + name + "' polled.");
+		pendingPoll = new PendingPoll();
 		pollReport = null;
 		polling = true;
 		if (isStateUnRequested()) {
 			setState(ReportsGeneratorState.REQUESTED);
 		}
+		return pendingPoll;
 	}
 	
 	/**
@@ -519,26 +559,164 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	}
 	
 	/**
-	 * This method starts the main loop of the report generator.
+	 * This method starts the event cycle of the report generator. 
+	 * the rounds of the event cycle are scheduled according to the boundary spec.
 	 */
-	protected void start() {
-		
-		thread = new Thread(this, name);
-		thread.setDaemon(true);
+	protected synchronized void start() {
+		if (keepEventCycle && (null != eventCycle) && !eventCycle.isTerminated() && (eventCycle instanceof EventCycleImpl)) {
+			// reuse the idle event cycle, still registered on its readers
+			((EventCycleImpl) eventCycle).forgetPreviousRounds();
+		} else {
+			try {
+				eventCycle = createEventCycle();
+			} catch (ImplementationException e) {
+				LOG.error("could not create a new EventCycle - aborting.", e);
+				return;
+			}
+		}
 		setRunning(true);
-		thread.start();
-		LOG.debug("Thread of spec '" + name + "' started.");		
+		eventCycleRunning = false;
+		repeatPending = false;
+		
+		if (listStartTrigger != null && listStartTrigger.size() > 0) {
+			if (!isRepeatPeriodSet() || repeatPeriodValue == 0) {
+				// startTrigger is specified and repeatPeriod is not specified
+				// eventCycle is started when:
+				// state is REQUESTED and startTrigger is received
+				LOG.debug("start trigger defined - not invoking the event cycle start..");
+				for(StartTrigger trigger : getListStartTrigger()) {
+					trigger.schedule();
+				}
+				for(StopTrigger trigger : getListStopTrigger()) {
+					trigger.schedule();
+				}
+			} else {
+				LOG.debug("start trigger and repeat period defined - the event cycle is not started.");
+			}
+		} else {
+			// startTrigger is not specified:
+			// eventCycle is started when state transitions from UNREQUESTED to REQUESTED.
+			// if repeatPeriod is specified the next eventCycle is started when repeatPeriod 
+			// has elapsed from start of the last eventCycle, otherwise immediately after 
+			// the previous event cycle, as long as the state is still REQUESTED.
+			launchEventCycle();
+		}
+		LOG.debug("EventCycle of spec '" + name + "' started.");		
 	}
 	
 	/**
-	 * This method stops the main loop of the report generator.
+	 * launches a round of the event cycle. if the repeat period is set, the next round 
+	 * is scheduled as well.
 	 */
-	public void stop() {
-		eventCycle.stop();
-		
-		// stop Thread
+	private synchronized void launchEventCycle() {
+		if (!isRunning()) {
+			return;
+		}
+		eventCycleRunning = true;
+		eventCycle.launch();
+		if (isRepeatPeriodSet() && (repeatPeriodValue > 0) && !hasStartTrigger()) {
+			repeatTimer = scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					repeatPeriodElapsed();
+				}
+			}, repeatPeriodValue);
+		}
+	}
+	
+	/**
+	 * the repeat period has elapsed: start the next round now or as soon as the 
+	 * running round is over.
+	 */
+	private synchronized void repeatPeriodElapsed() {
+		repeatTimer = null;
+		if (!isRunning() || !isStateRequested()) {
+			return;
+		}
+		if (eventCycleRunning) {
+			repeatPending = true;
+		} else {
+			launchEventCycle();
+		}
+	}
+	
+	/**
+	 * invoked by the event cycle when a round is over and the subscribers have been notified.
+	 * depending on the boundary spec, the next round is started.
+	 * @param ec the event cycle.
+	 */
+	synchronized void roundFinished(EventCycle ec) {
+		if ((ec != eventCycle) || !isRunning()) {
+			return;
+		}
+		eventCycleRunning = false;
+		if (hasStartTrigger()) {
+			// wait for the next start trigger
+			if (state == ReportsGeneratorState.ACTIVE) {
+				state = ReportsGeneratorState.REQUESTED;
+			}
+		} else if (isRepeatPeriodSet()) {
+			if (repeatPending) {
+				repeatPending = false;
+				launchEventCycle();
+			}
+		} else if (isStateRequested()) {
+			launchEventCycle();
+		}
+	}
+	
+	/**
+	 * @return true if at least one start trigger is defined.
+	 */
+	private boolean hasStartTrigger() {
+		return listStartTrigger != null && listStartTrigger.size() > 0;
+	}
+	
+	/**
+	 * This method stops the event cycle of the report generator.
+	 */
+	public synchronized void stop() {
+		if (null != eventCycle) {
+			eventCycle.stop();
+		}
+		cancelTimers();
+		closeSubscribers();
+		LOG.debug("EventCycle of spec '" + name + "' stopped.");
+	}
+	
+	/**
+	 * closes and removes all the subscribers: the reports not yet delivered are dropped and the 
+	 * output channels release their resources (eg. the connection to a tcp endpoint).
+	 */
+	private void closeSubscribers() {
+		for (Iterator<Subscriber> it = subscribers.values().iterator(); it.hasNext(); ) {
+			Subscriber subscriber = it.next();
+			it.remove();
+			subscriber.close();
+		}
+	}
+
+	/**
+	 * stops the rounds of the event cycle but keeps it registered on its readers, the next 
+	 * start reuses it.
+	 */
+	private synchronized void idle() {
+		cancelTimers();
+		if (eventCycle instanceof EventCycleImpl) {
+			((EventCycleImpl) eventCycle).idle();
+		}
+		LOG.debug("EventCycle of spec '" + name + "' idle.");
+	}
+	
+	/**
+	 * stops running, cancels the repeat period and the triggers.
+	 */
+	private void cancelTimers() {
 		setRunning(false);
-		thread.interrupt();
+		if (null != repeatTimer) {
+			repeatTimer.cancel(false);
+			repeatTimer = null;
+		}
 		
 		if(listStartTrigger != null) {
 			for(StartTrigger trigger : getListStartTrigger()) {
@@ -551,8 +729,6 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 				trigger.cancel();
 			}
 		}
-		
-		LOG.debug("Thread of spec '" + name + "' stopped.");
 	}
 	
 	/**
@@ -576,180 +752,6 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		return new EventCycleImpl(this);
 	}
 	
-	/**
-	 * This method contains the main loop of the reports generator.
-	 * Here the event cycles will be generated and started.
-	 */
-	@Override
-	public void run() {
-		
-		try {
-			eventCycle = createEventCycle();
-		} catch (ImplementationException e) {
-			LOG.error("could not create a new EventCycle - aborting.", e);
-			return;
-		}
-		
-		if (listStartTrigger != null && listStartTrigger.size() > 0) {
-			LOG.debug("start trigger defined - not invoking the event cycle start..");
-			
-			if (!isRepeatPeriodSet() || repeatPeriodValue == 0) {
-				// startTrigger is specified and repeatPeriod is not specified
-				// eventCycle is started when:
-				// state is REQUESTED and startTrigger is received
-				
-				while (isRunning()) {
-					// wait until state is REQUESTED
-					synchronized (state) {
-						while (!isStateRequested()) {
-							try {
-								// wakeup the reports generator every once in a while
-								
-								state.wait(WAKEUP_PERIOD);
-								
-							} catch (InterruptedException e) {
-								LOG.debug("caught interrupted exception - leaving reports generator.");
-								return;
-							}
-						}
-					}
-					
-					for(StartTrigger trigger : getListStartTrigger()) {
-						trigger.schedule();
-					}
-					
-					for(StopTrigger trigger : getListStopTrigger()) {
-						trigger.schedule();
-					}
-					
-					// wait until start trigger is received
-					synchronized (state) {
-						while (!state.equals(ReportsGeneratorState.ACTIVE)) {
-							try {
-								// wakeup the reports generator every once in a while
-								
-								state.wait(WAKEUP_PERIOD);
-								
-							} catch (InterruptedException e) {
-								LOG.debug("caught interrupted exception - leaving reports generator.");
-								return;
-							}
-						}
-					}
-					
-					// start a new EventCycle
-					if (eventCycle == null) {
-						LOG.error("eventCycle is null");
-					} else {
-						eventCycle.launch();
-					}
-
-					try {
-						// wait for the event cycle to finish...
-						eventCycle.join();
-						
-					} catch (InterruptedException e) {
-						LOG.debug("caught interrupted exception - leaving reports generator.");
-						return;
-					}
-					
-					synchronized (state) {
-						setState(ReportsGeneratorState.REQUESTED);
-					}
-				}
-				
-				
-			}
-		} else {
-			if (isRepeatPeriodSet()) {
-						
-				// startTrigger is not specified and repeatPeriod is specified
-				// eventCycle is started when:
-				// state transitions from UNREQUESTED to REQUESTED or
-				// repeatPeriod has elapsed from start of the last eventCycle and
-				// in that interval the state was never UNREQUESTED
-				while (isRunning()) {
-					
-					// wait until state is REQUESTED
-					synchronized (state) {
-						while (!isStateRequested()) {
-							try {
-								// wakeup the reports generator every once in a while
-								state.wait(WAKEUP_PERIOD);
-							} catch (InterruptedException e) {
-								LOG.debug("caught interrupted exception - leaving reports generator.");
-								return;
-							}
-						}
-					}
-					
-					// while state is REQUESTED start every repeatPeriod a 
-					// new EventCycle
-					while (isStateRequested()) {
-						if (eventCycle == null) {
-							LOG.error("eventCycle is null");
-						} else {
-							eventCycle.launch();
-						}
-
-						try {
-							synchronized (state) {
-								state.wait(repeatPeriodValue);
-							}
-							// wait for the event cycle to finish...
-							eventCycle.join();
-							
-						} catch (InterruptedException e) {
-							LOG.debug("caught interrupted exception - leaving reports generator.");
-							return;
-						}
-					}
-					LOG.debug("Stopping ReportsGenerator " + getName());
-					
-				}
-			} else {
-				
-				// neither startTrigger nor repeatPeriod are specified
-				// eventCycle is started when:
-				// state transitions from UNREQUESTED to REQUESTED or
-				// immediately after the previous event cycle, if the state 
-				// is still REQUESTED
-				while (isRunning()) {
-					
-					// wait until state is REQUESTED
-					while (!isStateRequested()) {
-						try {
-							synchronized (state) {
-								state.wait();
-							}
-						} catch (InterruptedException e) {
-							LOG.debug("caught interrupted exception - leaving reports generator.");
-							return;
-						}
-					}
-					
-					// while state is REQUESTED start one EventCycle 
-					// after the other
-					while (isStateRequested()) {
-						eventCycle.launch();
-						
-						while (!eventCycle.isTerminated()) {
-							try {
-								synchronized (eventCycle) {
-									eventCycle.wait(WAKEUP_PERIOD);
-								}
-							} catch (InterruptedException e) {
-								LOG.debug("caught interrupted exception - leaving reports generator.");
-								return;
-							}
-						}
-					}
-				}
-				LOG.debug("Stopping ReportsGenerator " + getName());
-			}
-		}
-	}
-	
 	@Override
 	public void setStateRequested() {
 		setState(ReportsGeneratorState.REQUESTED);
@@ -875,6 +877,14 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		return polling;
 	}
 	
+	/**
+	 * @param keepEventCycle if true, the event cycle stays registered on its readers while the reports 
+	 * generator is unrequested and is reused by the next request, it is released by {@link #stop()} only.
+	 */
+	void setKeepEventCycle(boolean keepEventCycle) {
+		this.keepEventCycle = keepEventCycle;
+	}
+	
 	/**
 	 * the poll reports - <strong>Attention></strong> not null safe.
 	 * @return the poll reports - <strong>Attention></strong> not null safe.
@@ -910,32 +920,9 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		this.listStopTrigger = listStopTrigger;
 	}
 
-	public class NotificationThread implements Runnable {
-
-		private ECReports reports;
-		private Map<String, Subscriber> subscribers;
-		
-		public NotificationThread(ECReports reports, Map<String, Subscriber> subscribers) {
-			this.reports = reports;
-			this.subscribers = subscribers;
-		}
-		
-		@Override
-		public void run() {
-			LOG.info("notify subscribers at time "+System.currentTimeMillis());
-			// notify subscribers 
-			for (Subscriber listener : subscribers.values()) {
-				try {
-					listener.notify(reports);
-				} catch (Exception e) {
-					LOG.error("Could not notify subscriber '" + listener.toString(), e);
-				}
-			}
-		}
-	}
 	public class StartTrigger {
 	
-		Timer timer = null;
+		RtcTrigger trigger = null;
 		ReportsGeneratorImpl rgImpl = null;
 		String startTriggerValue;
 		
@@ -946,57 +933,26 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		public StartTrigger(ReportsGeneratorImpl rg, String startTriggerValue) throws ECSpecValidationException {
 			rgImpl = rg;
 			
-			
-			if(startTriggerValue.startsWith("urn:epcglobal:ale:trigger:rtc:")) {
-				String rtcString = startTriggerValue.substring(30);
-				String[] rtcStrings = rtcString.split("\\.");
-				if(rtcStrings.length == 2) {
-					int period = Integer.parseInt(rtcStrings[0]);
-					int offset = Integer.parseInt(rtcStrings[1]);
-					
-			        this.offset = offset;
-			        this.period = period;
-			        
-			        this.startTriggerValue = startTriggerValue;
-				}
-			} else {
+			if(!RtcTrigger.isRtcTrigger(startTriggerValue)) {
 				throw new ECSpecValidationException("start trigger string is not valid : "+startTriggerValue);
 			}
-			
-			
+			trigger = new RtcTrigger(startTriggerValue, new StartTriggerTask(rgImpl));
+			this.period = trigger.getPeriod();
+			this.offset = trigger.getOffset();
+			this.startTriggerValue = startTriggerValue;
 		}
 		
 		
 		public void cancel() {
-			timer.cancel();
+			trigger.cancel();
 		}
 		
 		public void schedule() {
-
-			GregorianCalendar gregorianCalendar = new GregorianCalendar();
-			gregorianCalendar.setTimeZone(TimeZone.getTimeZone("Asia/Seoul"));
-			gregorianCalendar.setTime(new Date());//.set(2013, 10, 10, 17, 34, 00);
-			int year = gregorianCalendar.get(Calendar.YEAR);
-			int month = gregorianCalendar.get(Calendar.MONTH);
-			int dayOfMonth = gregorianCalendar.get(Calendar.DAY_OF_MONTH);
-			gregorianCalendar.set(year, month, dayOfMonth+1, 0, 0, 0);		// set the timer to tomorrow midnight
-			//gregorianCalendar.set(year, month, dayOfMonth, 18, 10, 0);		// for the test purpose
-			
-			long tomorrowMidnightInMillis = gregorianCalendar.getTimeInMillis();
-			long tomorrowFirstTime = tomorrowMidnightInMillis + offset;
-			
-			long todayNextTime = tomorrowFirstTime;
-			while(todayNextTime > System.currentTimeMillis()) {
-				todayNextTime  = todayNextTime - period;
-			}
-			todayNextTime += period;
-			
-			timer = new Timer();
-			timer.schedule(new StartTriggerTask(rgImpl), new Date(todayNextTime), period);
+			trigger.schedule();
 		}
 		
 	}
-	public class StartTriggerTask extends TimerTask {
+	public class StartTriggerTask implements Runnable {
 
 		ReportsGeneratorImpl rgImpl = null;
 		
@@ -1007,11 +963,10 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		@Override
 		public void run() {
 			if(rgImpl.isStateRequested()) {
-				System.out.println("StartTrigger received when state was REQUESTED, so set the state to ACTIVE");
-				rgImpl.setState(ReportsGeneratorState.ACTIVE);				
-				System.out.println("now the state is ACTIVE");
+				LOG.debug("StartTrigger received when state was REQUESTED, so set the state to ACTIVE");
+				rgImpl.setState(ReportsGeneratorState.ACTIVE);
 			} else {
-				System.out.println("StartTrigger received, but state was not REQUESTED");
+				LOG.debug("StartTrigger received, but state was not REQUESTED");
 			}
 		}
 		
@@ -1021,7 +976,7 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 	
 	public class StopTrigger {
 		
-		Timer timer = null;
+		RtcTrigger trigger = null;
 		ReportsGeneratorImpl rgImpl = null;
 		String stopTriggerValue;
 		
@@ -1032,53 +987,24 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		public StopTrigger(ReportsGeneratorImpl rg, String stopTriggerValue) throws ECSpecValidationException {
 			rgImpl = rg;
 			
-			
-			if(stopTriggerValue.startsWith("urn:epcglobal:ale:trigger:rtc:")) {
-				String rtcString = stopTriggerValue.substring(30);
-				String[] rtcStrings = rtcString.split("\\.");
-				if(rtcStrings.length == 2) {
-					int period = Integer.parseInt(rtcStrings[0]);
-					int offset = Integer.parseInt(rtcStrings[1]);
-					
-			        this.period = period;
-			        this.offset = offset;
-			        
-			        this.stopTriggerValue = stopTriggerValue;
-				}
-			} else {
+			if(!RtcTrigger.isRtcTrigger(stopTriggerValue)) {
 				throw new ECSpecValidationException("stop trigger string is not valid : "+stopTriggerValue);
 			}
+			trigger = new RtcTrigger(stopTriggerValue, new StopTriggerTask(rgImpl));
+			this.period = trigger.getPeriod();
+			this.offset = trigger.getOffset();
+			this.stopTriggerValue = stopTriggerValue;
 		}
 		
 		public void cancel() {
-			timer.cancel();
+			trigger.cancel();
 		}
 		
 		public void schedule() {
-			GregorianCalendar gregorianCalendar = new GregorianCalendar();
-			gregorianCalendar.setTimeZone(TimeZone.getTimeZone("Asia/Seoul"));
-			gregorianCalendar.setTime(new Date());//.set(2013, 10, 10, 17, 34, 00);
-			int year = gregorianCalendar.get(Calendar.YEAR);
-			int month = gregorianCalendar.get(Calendar.MONTH);
-			int dayOfMonth = gregorianCalendar.get(Calendar.DAY_OF_MONTH);
-			gregorianCalendar.set(year, month, dayOfMonth+1, 0, 0, 0);		// set the timer to tomorrow midnight
-			//gregorianCalendar.set(year, month, dayOfMonth, 18, 10, 0);		// for the test purpose
-			
-			long tomorrowMidnightInMillis = gregorianCalendar.getTimeInMillis();
-			long tomorrowFirstTime = tomorrowMidnightInMillis + offset;
-			
-			long todayNextTime = tomorrowFirstTime;
-			while(todayNextTime > System.currentTimeMillis()) {
-				todayNextTime  = todayNextTime - period;
-			}
-			todayNextTime += period;
-			
-			timer = new Timer();
-			timer.schedule(new StopTriggerTask(rgImpl), new Date(todayNextTime), period);
-			
+			trigger.schedule();
 		}
 	}
-	public class StopTriggerTask extends TimerTask {
+	public class StopTriggerTask implements Runnable {
 
 		ReportsGeneratorImpl rgImpl = null;
 		
@@ -1090,17 +1016,54 @@ public class ReportsGeneratorImpl implements ReportsGenerator, Runnable {
 		public void run() {
 			if(rgImpl.getState().equals(ReportsGeneratorState.ACTIVE)) {
 				if(rgImpl.getListStartTrigger().size() > 0) {
-					System.out.println("StopTrigger received when state was ACTIVE and startTrigger is not null, so set the state to REQUESTED");
+					LOG.debug("StopTrigger received when state was ACTIVE and startTrigger is not null, so set the state to REQUESTED");
 					rgImpl.setState(ReportsGeneratorState.REQUESTED);
 				} else {
-					System.out.println("StopTrigger received when state was ACTIVE and startTrigger is null, so set the state to UNREQUESTED");
+					LOG.debug("StopTrigger received when state was ACTIVE and startTrigger is null, so set the state to UNREQUESTED");
 					rgImpl.setState(ReportsGeneratorState.UNREQUESTED);
 				}
 				
 			} else {
-				System.out.println("StopTrigger received, but state was not ACTIVE");
+				LOG.debug("StopTrigger received, but state was not ACTIVE");
 			}
 		}
 		
 	}
+
+	/**
+	 * a round requested by one or several pollers, completed with the reports of the round.
+	 */
+	public static final class PendingPoll {
+		
+		/** the reports of the round, null while the round is pending (guarded by this). */
+		private ECReports reports = null;
+		
+		/**
+		 * completes the round and wakes up the pollers.
+		 * @param reports the reports of the round.
+		 */
+		private synchronized void complete(ECReports reports) {
+			this.reports = reports;
+			notifyAll();
+		}
+		
+		/**
+		 * @return true if the reports of the round are available.
+		 */
+		public synchronized boolean isDone() {
+			return null != reports;
+		}
+		
+		/**
+		 * waits for the end of the round.
+		 * @return the reports of the round.
+		 * @throws InterruptedException if the waiting thread is interrupted.
+		 */
+		public synchronized ECReports await() throws InterruptedException {
+			while (null == reports) {
+				wait();
+			}
+			return reports;
+		}
+	}
 }
@@ -0,0 +1,250 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.impl;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.apache.log4j.Logger;
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.server.util.TimingWheel;
+
+/**
+ * real time clock trigger <code>urn:epcglobal:ale:trigger:rtc:period.offset[.timezone]</code>.
+ * the trigger fires whenever the milliseconds since midnight modulo the period equal the
+ * offset. the optional timezone is given as <code>Z</code>, <code>+hh:mm</code> or
+ * <code>-hh:mm</code>, if it is omitted the timezone from the system property
+ * {@value #PROPERTY_TIME_ZONE} is used (the default timezone of the JVM if not set).<br/>
+ * all the rtc triggers share one {@link TimingWheel}, a trigger does not hold a thread.
+ * the action of the trigger runs on the {@link EventCycleScheduler}.
+ */
+public final class RtcTrigger {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(RtcTrigger.class);
+
+	/** prefix of the rtc trigger URIs. */
+	public static final String PREFIX = "urn:epcglobal:ale:trigger:rtc:";
+
+	/** system property holding the timezone of the rtc triggers without explicit timezone. */
+	public static final String PROPERTY_TIME_ZONE = "org.fosstrak.ale.rtcTimeZone";
+
+	/** resolution of the shared timing wheel in milliseconds. */
+	private static final long TICK = 10L;
+
+	/** the timing wheel shared by all the rtc triggers. */
+	private static final TimingWheel WHEEL = new TimingWheel("RtcTriggerWheel", TICK, EventCycleScheduler.getInstance());
+
+	/** the URI of the trigger. */
+	private final String uri;
+
+	/** the period in milliseconds. */
+	private final long period;
+
+	/** the offset from midnight in milliseconds. */
+	private final long offset;
+
+	/** the timezone defining midnight. */
+	private final TimeZone timeZone;
+
+	/** the action to run when the trigger fires. */
+	private final Runnable action;
+
+	/** the pending timeout, null if the trigger is not scheduled. */
+	private TimingWheel.Timeout timeout = null;
+
+	/** incremented on each schedule and cancel, a stale timeout must not fire. */
+	private long generation = 0;
+
+	/**
+	 * creates an rtc trigger. the trigger is not scheduled yet.
+	 * @param uri the trigger URI.
+	 * @param action the action to run when the trigger fires.
+	 * @throws ECSpecValidationException if the URI is not a valid rtc trigger.
+	 */
+	public RtcTrigger(String uri, Runnable action) throws ECSpecValidationException {
+		if (!isRtcTrigger(uri)) {
+			throw new ECSpecValidationException("trigger string is not valid : " + uri);
+		}
+		String[] parts = uri.substring(PREFIX.length()).split("\\.");
+		if ((parts.length < 2) || (parts.length > 3)) {
+			throw new ECSpecValidationException("trigger string is not valid : " + uri);
+		}
+		try {
+			period = Long.parseLong(parts[0]);
+			offset = Long.parseLong(parts[1]);
+		} catch (NumberFormatException e) {
+			throw new ECSpecValidationException("trigger string is not valid : " + uri);
+		}
+		if ((period <= 0) || (offset < 0) || (offset >= period)) {
+			throw new ECSpecValidationException("trigger period must be positive and the offset smaller than the period : " + uri);
+		}
+		timeZone = (parts.length == 3) ? parseTimeZone(parts[2], uri) : getDefaultTimeZone();
+		this.uri = uri;
+		this.action = action;
+	}
+
+	/**
+	 * @param uri the trigger URI.
+	 * @return true if the URI denotes an rtc trigger.
+	 */
+	public static boolean isRtcTrigger(String uri) {
+		return (null != uri) && uri.startsWith(PREFIX);
+	}
+
+	/**
+	 * @return the timezone of the rtc triggers without explicit timezone.
+	 */
+	public static TimeZone getDefaultTimeZone() {
+		String id = System.getProperty(PROPERTY_TIME_ZONE);
+		if ((null == id) || (id.trim().length() == 0)) {
+			return TimeZone.getDefault();
+		}
+		return TimeZone.getTimeZone(id.trim());
+	}
+
+	/**
+	 * parses the timezone of an rtc trigger URI.
+	 */
+	private static TimeZone parseTimeZone(String value, String uri) throws ECSpecValidationException {
+		if ("Z".equals(value)) {
+			return TimeZone.getTimeZone("UTC");
+		}
+		if (value.matches("[+-]\\d{2}:\\d{2}")) {
+			return TimeZone.getTimeZone("GMT" + value);
+		}
+		throw new ECSpecValidationException("trigger timezone is not valid : " + uri);
+	}
+
+	/**
+	 * computes the first time after the given time the trigger fires. the periods restart
+	 * at each midnight.
+	 * @param now the time in milliseconds.
+	 * @return the next time the trigger fires, strictly after now.
+	 */
+	public long nextFireTime(long now) {
+		Calendar calendar = Calendar.getInstance(timeZone);
+		calendar.setTimeInMillis(now);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		long midnight = calendar.getTimeInMillis();
+		calendar.add(Calendar.DAY_OF_MONTH, 1);
+		long nextMidnight = calendar.getTimeInMillis();
+
+		long sinceMidnight = now - midnight;
+		long next;
+		if (sinceMidnight < offset) {
+			next = midnight + offset;
+		} else {
+			next = midnight + offset + ((sinceMidnight - offset) / period + 1) * period;
+		}
+		if (next >= nextMidnight) {
+			next = nextMidnight + offset;
+		}
+		return next;
+	}
+
+	/**
+	 * schedules the trigger. the trigger keeps firing until it is cancelled.
+	 */
+	public synchronized void schedule() {
+		cancel();
+		scheduleNext(System.currentTimeMillis(), generation);
+	}
+
+	/**
+	 * cancels the trigger. cancelling a trigger that is not scheduled has no effect.
+	 */
+	public synchronized void cancel() {
+		generation++;
+		if (null != timeout) {
+			timeout.cancel();
+			timeout = null;
+		}
+	}
+
+	/**
+	 * @return true if the trigger is scheduled.
+	 */
+	public synchronized boolean isScheduled() {
+		return null != timeout;
+	}
+
+	/**
+	 * puts the next firing of the trigger into the wheel. caller holds the lock.
+	 */
+	private void scheduleNext(long after, final long gen) {
+		final long fireTime = nextFireTime(after);
+		timeout = WHEEL.schedule(new Runnable() {
+			@Override
+			public void run() {
+				fire(fireTime, gen);
+			}
+		}, fireTime - System.currentTimeMillis());
+	}
+
+	/**
+	 * runs the action and schedules the next firing.
+	 */
+	private void fire(long fireTime, long gen) {
+		synchronized (this) {
+			if (gen != generation) {
+				return;
+			}
+		}
+		try {
+			action.run();
+		} catch (RuntimeException e) {
+			LOG.error("could not run the action of trigger " + uri, e);
+		}
+		synchronized (this) {
+			if (gen == generation) {
+				// the wheel and the wall clock may differ slightly, never fire twice for the same time
+				scheduleNext(Math.max(System.currentTimeMillis(), fireTime), gen);
+			}
+		}
+	}
+
+	/**
+	 * @return the period in milliseconds.
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+	/**
+	 * @return the offset from midnight in milliseconds.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the timezone defining midnight.
+	 */
+	public TimeZone getTimeZone() {
+		return timeZone;
+	}
+
+	@Override
+	public String toString() {
+		return uri;
+	}
+}
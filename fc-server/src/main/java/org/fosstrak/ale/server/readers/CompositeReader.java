@@ -24,7 +24,6 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Observable;
-import java.util.Observer;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
@@ -32,6 +31,7 @@ import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.ValidationException;
 import org.fosstrak.ale.server.ALEApplicationContext;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.gen.LogicalReaders;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCSpec;
@@ -42,7 +42,7 @@ import org.fosstrak.ale.xsd.ale.epcglobal.LRSpec;
  * @author swieland
  *
  */
-public class CompositeReader extends LogicalReader implements Observer  {
+public class CompositeReader extends LogicalReader implements TagBatchListener  {
 
 	/** logger. */
 	private static final Logger LOG = Logger.getLogger(CompositeReader.class);
@@ -100,8 +100,27 @@ public class CompositeReader extends LogicalReader implements Observer  {
 		}
 	}
 		
+	/**
+	 * receives the tags of the readers within the composite and passes the batch on to
+	 * the listeners of this reader.
+	 * @param batch the tags read by one of the readers.
+	 */
+	@Override
+	public void onTags(TagBatch batch) {
+		// deliver tags only if the reader is not suspended
+		if (isStarted()) {
+			final String name = getName();
+			for (Tag tag : batch) {
+				tag.setReader(name);
+				tag.addTrace(name);
+			}
+			notifyTags(batch);
+		}
+	}
+		
 	/**
 	 * implements the update-method for the observer-pattern for events.
+	 * kept for compatibility, the readers deliver their tags through {@link #onTags(TagBatch)}.
 	 * @param o the observed object
 	 * @param arg the arguments passed by the observable
 	 */
@@ -26,10 +26,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
+import java.util.Observer;
 
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.ValidationException;
+import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.LRProperty;
@@ -39,6 +42,12 @@ import org.fosstrak.ale.xsd.ale.epcglobal.LRSpec;
  * 
  * Represents the abstract interface for a reader. a reader can be either a composite of 
  * different readers or a basereader
+ * <br/>
+ * the tags read are delivered as {@link TagBatch} to the registered {@link TagBatchListener}s.
+ * the listeners are kept in a copy-on-write array, the delivery does not lock the reader.
+ * the reader is still an {@link Observable} for compatibility: plain {@link Observer}s are
+ * notified with the list of tags and {@link #notifyObservers(Object)} delivers a tag or a
+ * list of tags as batch.
  * 
  * @author swieland
  *
@@ -71,6 +80,15 @@ public abstract class LogicalReader extends Observable {
 	 */
 	protected LogicalReaderManager logicalReaderManager;
 	
+	/** no listeners. */
+	private static final TagBatchListener[] NO_LISTENERS = new TagBatchListener[0];
+	
+	/** the listeners receiving the tags, replaced on every registration. */
+	private volatile TagBatchListener[] listeners = NO_LISTENERS;
+	
+	/** lock for the registration of listeners. */
+	private final Object listenersLock = new Object();
+	
 	/**
 	 * constructor for the logical reader.
 	 */
@@ -246,4 +264,153 @@ public abstract class LogicalReader extends Observable {
 	 */
 	public abstract void recoveryACCESSSPEC3();
 	
+	/**
+	 * registers a listener for the tags read by this reader. a listener is registered only once.
+	 * @param listener the listener.
+	 */
+	public void addObserver(TagBatchListener listener) {
+		if (null == listener) {
+			throw new NullPointerException();
+		}
+		synchronized (listenersLock) {
+			TagBatchListener[] current = listeners;
+			if (indexOf(current, listener) < 0) {
+				TagBatchListener[] changed = new TagBatchListener[current.length + 1];
+				System.arraycopy(current, 0, changed, 0, current.length);
+				changed[current.length] = listener;
+				listeners = changed;
+			}
+		}
+	}
+	
+	/**
+	 * removes a listener from this reader.
+	 * @param listener the listener.
+	 */
+	public void deleteObserver(TagBatchListener listener) {
+		synchronized (listenersLock) {
+			TagBatchListener[] current = listeners;
+			int index = indexOf(current, listener);
+			if (index >= 0) {
+				if (current.length == 1) {
+					listeners = NO_LISTENERS;
+				} else {
+					TagBatchListener[] changed = new TagBatchListener[current.length - 1];
+					System.arraycopy(current, 0, changed, 0, index);
+					System.arraycopy(current, index + 1, changed, index, current.length - index - 1);
+					listeners = changed;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * registers a plain observer. the observer is notified with the list of tags of each batch.
+	 * @param o the observer.
+	 */
+	@Override
+	public void addObserver(Observer o) {
+		if (o instanceof TagBatchListener) {
+			addObserver((TagBatchListener) o);
+		} else if (null != o) {
+			addObserver(new ObserverAdapter(this, o));
+		} else {
+			throw new NullPointerException();
+		}
+	}
+	
+	/**
+	 * removes a plain observer.
+	 * @param o the observer.
+	 */
+	@Override
+	public void deleteObserver(Observer o) {
+		if (o instanceof TagBatchListener) {
+			deleteObserver((TagBatchListener) o);
+		} else if (null != o) {
+			deleteObserver(new ObserverAdapter(this, o));
+		}
+	}
+	
+	@Override
+	public void deleteObservers() {
+		synchronized (listenersLock) {
+			listeners = NO_LISTENERS;
+		}
+	}
+	
+	@Override
+	public int countObservers() {
+		return listeners.length;
+	}
+	
+	/**
+	 * delivers a tag or a list of tags to the listeners of this reader. kept for readers
+	 * written against {@link Observable}, use {@link #notifyTags(TagBatch)} instead.
+	 * @param arg a tag or a list of tags.
+	 */
+	@Override
+	public void notifyObservers(Object arg) {
+		clearChanged();
+		notifyTags(TagBatch.fromNotification(arg));
+	}
+	
+	/**
+	 * delivers a batch of tags to the listeners of this reader. empty batches are dropped.
+	 * @param batch the tags read.
+	 */
+	protected void notifyTags(TagBatch batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		for (TagBatchListener listener : listeners) {
+			listener.onTags(batch);
+		}
+	}
+	
+	/**
+	 * delivers a single tag to the listeners of this reader.
+	 * @param tag the tag read.
+	 */
+	protected void notifyTag(Tag tag) {
+		notifyTags(TagBatch.of(tag));
+	}
+	
+	private static int indexOf(TagBatchListener[] array, TagBatchListener listener) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i].equals(listener)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * delivers the batches to a plain observer.
+	 */
+	private static final class ObserverAdapter implements TagBatchListener {
+		private final Observable source;
+		private final Observer observer;
+		
+		private ObserverAdapter(Observable source, Observer observer) {
+			this.source = source;
+			this.observer = observer;
+		}
+		
+		@Override
+		public void onTags(TagBatch batch) {
+			observer.update(source, batch.asList());
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof ObserverAdapter) && ((ObserverAdapter) obj).observer.equals(observer);
+		}
+		
+		@Override
+		public int hashCode() {
+			return observer.hashCode();
+		}
+	}
+	
 }
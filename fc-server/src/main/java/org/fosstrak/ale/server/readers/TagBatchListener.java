@@ -0,0 +1,34 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.readers;
+
+import org.fosstrak.ale.server.TagBatch;
+
+/**
+ * receives the tags read by a logical reader. listeners are registered on the reader
+ * through {@link LogicalReader#addObserver(TagBatchListener)}.
+ */
+public interface TagBatchListener {
+
+	/**
+	 * invoked by the logical reader whenever tags have been read. the batch is shared
+	 * among all the listeners of the reader.
+	 * @param batch the tags read, never empty.
+	 */
+	void onTags(TagBatch batch);
+}
@@ -8,7 +8,9 @@ import java.util.List;
 import com.caen.RFIDLibrary.*;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.EPCKey;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.server.util.TagHelper;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
@@ -19,7 +21,6 @@ import org.fosstrak.hal.Observation;
 
 import org.fosstrak.tdt.TDTEngine;
 
-import static org.fosstrak.ale.util.HexUtil.byteArrayToBinString;
 import static org.fosstrak.ale.util.HexUtil.byteArrayToHexString;
 
 /**
@@ -272,8 +273,7 @@ public class ProtonAdapter extends BaseReader implements CAENRFIDEventListener {
      */
     @Override
     public void addTag(Tag tag) {
-        setChanged();
-        notifyObservers(tag);
+        notifyTag(tag);
     }
 
     /**
@@ -282,8 +282,7 @@ public class ProtonAdapter extends BaseReader implements CAENRFIDEventListener {
      */
     @Override
     public void addTags(List<Tag> tags) {
-        setChanged();
-        notifyObservers(tags);
+        notifyTags(TagBatch.of(tags));
     }
 
     @Override
@@ -302,8 +301,7 @@ public class ProtonAdapter extends BaseReader implements CAENRFIDEventListener {
 
                 /* ID's */
                 tag.setTagID(notify.getTagID());
-                tag.setTagAsHex(byteArrayToHexString(notify.getTagID()));
-                tag.setTagAsBinary(byteArrayToBinString(notify.getTagID()));
+                tag.setEPCKey(EPCKey.fromBytes(notify.getTagID()));
 
                 /* TID ? */
                 if (readTID && (notify.getTID() != null)) {
@@ -312,10 +310,10 @@ public class ProtonAdapter extends BaseReader implements CAENRFIDEventListener {
 
                 /* URI's */
                 try {
-                    String pureID = TagHelper.convert_to_PURE_IDENTITY(null, null, null, tag.getTagAsBinary());
+                    String pureID = TagHelper.convert_to_PURE_IDENTITY(tag, TagHelper.getTDTEngine());
                     tag.setTagIDAsPureURI(pureID);
 
-                    String epc_tag = TagHelper.convert_to_TAG_ENCODING(null, null, null, tag.getTagAsBinary(), tdt);
+                    String epc_tag = TagHelper.convert_to_TAG_ENCODING(tag, tdt);
                     tag.setTagIDAsTagURI(epc_tag);
 
                 } catch (Exception e) {
@@ -8,6 +8,7 @@ import java.util.List;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.server.readers.IdentifyThread;
 import org.fosstrak.ale.server.util.TagHelper;
@@ -276,8 +277,7 @@ public class HALAdaptor extends BaseReader {
 		//LOG.debug("HALAdaptor: notifying observers");
 		tag.addTrace(getName());
 		
-		setChanged();
-		notifyObservers(tag);
+		notifyTag(tag);
 	}
 	
 	/**
@@ -286,12 +286,11 @@ public class HALAdaptor extends BaseReader {
 	 */
 	@Override
 	public void addTags(List<Tag> tags) {
-		setChanged();
 		for (Tag tag : tags) {
 			tag.addTrace(getName());
 		}
 		LOG.debug("notifying observers about " + tags.size() + " tags");
-		notifyObservers(tags);
+		notifyTags(TagBatch.of(tags));
 	}
 
 	/**
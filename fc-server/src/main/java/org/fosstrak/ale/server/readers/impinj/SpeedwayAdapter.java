@@ -3,6 +3,7 @@ package org.fosstrak.ale.server.readers.impinj;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.server.util.TagHelper;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
@@ -241,8 +242,7 @@ public class SpeedwayAdapter extends BaseReader implements TagReportListener {
      */
     @Override
     public void addTag(Tag tag) {
-        setChanged();
-        notifyObservers(tag);
+        notifyTag(tag);
     }
 
     /**
@@ -251,8 +251,7 @@ public class SpeedwayAdapter extends BaseReader implements TagReportListener {
      */
     @Override
     public void addTags(List<Tag> tags) {
-        setChanged();
-        notifyObservers(tags);
+        notifyTags(TagBatch.of(tags));
     }
 
     @Override
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -28,7 +29,9 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.ALEApplicationContext;
+import org.fosstrak.ale.server.EPCKey;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.NotificationData;
 import org.fosstrak.ale.server.CapabilitiesData;
 import org.fosstrak.ale.server.ReadConfigData;
@@ -84,6 +87,7 @@ import kr.ac.kaist.resl.ltk.generated.messages.RO_ACCESS_REPORT;
 import kr.ac.kaist.resl.ltk.generated.parameters.AccessCommand;
 import kr.ac.kaist.resl.ltk.generated.parameters.AccessReportSpec;
 import kr.ac.kaist.resl.ltk.generated.parameters.AccessSpec;
+import kr.ac.kaist.resl.ltk.generated.parameters.AccessSpecID;
 import kr.ac.kaist.resl.ltk.generated.parameters.AccessSpecStopTrigger;
 import kr.ac.kaist.resl.ltk.generated.parameters.AntennaID;
 import kr.ac.kaist.resl.ltk.generated.parameters.C1G2Read;
@@ -98,6 +102,8 @@ import kr.ac.kaist.resl.ltk.generated.parameters.ConnectionAttemptEvent;
 import kr.ac.kaist.resl.ltk.generated.parameters.EPC_96;
 import kr.ac.kaist.resl.ltk.generated.parameters.ReaderEventNotificationData;
 import kr.ac.kaist.resl.ltk.generated.parameters.TagReportData;
+import kr.ac.kaist.resl.ltk.net.ROAccessReportDecoder;
+import kr.ac.kaist.resl.ltk.net.TagReportView;
 import org.llrp.ltk.net.LLRPConnection;
 import org.llrp.ltk.types.Bit;
 import org.llrp.ltk.types.BitArray_HEX;
@@ -193,7 +199,13 @@ public class LLRPAdaptor extends BaseReader {
 	 * if the hash set is empty, allow from all the antennas, otherwise only 
 	 * tags arriving from the specified antenna IDs.
 	 */
-	private Set<Integer> acceptTagsFromAntennas = new HashSet<Integer>(); 
+	private Set<Integer> acceptTagsFromAntennas = new HashSet<Integer>();
+
+	/** decodes the tag reports of the RO_ACCESS_REPORTs (guards the view as well). */
+	private final ROAccessReportDecoder reportDecoder = new ROAccessReportDecoder();
+
+	/** the tag report currently decoded, reused for all the tag reports. */
+	private final TagReportView reportView = new TagReportView();
 
 
 	/** Janggwan: identifier of Reader which is either EPC or MAC address */
@@ -486,18 +498,16 @@ public class LLRPAdaptor extends BaseReader {
 		tag.setOrigin(getOriginReaderName());
 		tag.setReader(getName());
 
-		setChanged();
-		notifyObservers(tag);
+		notifyTag(tag);
 	}
 
 	@Override
 	public void addTags(List<Tag> tags) {
-		setChanged();
 		for (Tag tag : tags) {
 			tag.addTrace(getName());
 		}
 
-		notifyObservers(tags);
+		notifyTags(TagBatch.of(tags));
 	}
 
 	@Override
@@ -579,6 +589,16 @@ public class LLRPAdaptor extends BaseReader {
 	public void notify(byte[] binaryMessage, String readerName) throws RemoteException {
 		log.debug("notify from the reader "+readerName);
 
+		// the tag reports are decoded straight from the bytes, the generic decoder 
+		// handles the reports with custom or unknown parameters.
+		if (ROAccessReportDecoder.getMessageType(binaryMessage) == ROAccessReportDecoder.TYPENUM) {
+			List<Tag> tags = decodeROAccessReport(binaryMessage);
+			if (null != tags) {
+				addTags(tags);
+				return;
+			}
+		}
+
 		try {
 			List<Tag> tags = new LinkedList<Tag>();
 			LLRPMessage message = LLRPMessageFactory.createLLRPMessage(binaryMessage);
@@ -592,226 +612,54 @@ public class LLRPAdaptor extends BaseReader {
 				//((ReaderImpl)reader).getIoSession().write(get);
 
 				for (TagReportData tagData : tagDataList) {
-					boolean include = false;
-					if (0 == acceptTagsFromAntennas.size()) {
-						include = true;
-					} else {
-						AntennaID antennaID = tagData.getAntennaID();
-						if ((null != antennaID) && 
-								(null != antennaID.getAntennaID())) {
-
-							int id = antennaID.getAntennaID().intValue();
-							if (acceptTagsFromAntennas.contains(new Integer(id))) {
-								include = true;
-							}
-						}
-					}
+					AntennaID antennaID = tagData.getAntennaID();
+					boolean antennaReported = (null != antennaID) && (null != antennaID.getAntennaID());
+					boolean include = isAcceptedAntenna(antennaReported, antennaReported ? antennaID.getAntennaID().intValue() : 0);
 					EPCParameter epcParameter = tagData.getEPCParameter();
 					if ((include) && (epcParameter instanceof EPC_96)) {
 						EPC_96 epc96 = (EPC_96) epcParameter;
 						Integer96_HEX hex = epc96.getEPC();
 						String hx = hex.toString();
 
-						Tag tag = null;
-						TDTEngine tdt = TagHelper.getTDTEngine();
-						try {
-							String binary = tdt.hex2bin(hx);
-							if (binary.startsWith("1") && 
-									(binary.length() < 96)) {
-
-								binary = "00" + binary;
+						long timestamp = -1;
+						if(tagData.getLastSeenTimestampUTC() != null) {
+							if(tagData.getLastSeenTimestampUTC().getMicroseconds() != null) {
+								timestamp = tagData.getLastSeenTimestampUTC().getMicroseconds().toLong()/1000;
 							}
+						} else {
+							timestamp = System.currentTimeMillis();
+						}
 
-							tag = new Tag(getOriginReaderName());
-							tag.setTagAsHex(hx);
-							tag.setTagAsBinary(binary);
-							tag.setTagID(binary.getBytes());
-							tag.setReader(getName());
-							tag.addTrace(getName());
-							if(tagData.getLastSeenTimestampUTC() != null) {
-								if(tagData.getLastSeenTimestampUTC().getMicroseconds() != null) {
-									tag.setTimestamp(tagData.getLastSeenTimestampUTC().getMicroseconds().toLong()/1000);
+						String pc_hex = "0000";
+						String crc_hex = "0000";
+						if(tagData.getAirProtocolTagDataList() != null) {
+							for(AirProtocolTagData airTagData : tagData.getAirProtocolTagDataList()) {
+								if(airTagData instanceof C1G2_CRC) {
+									crc_hex = toHex4(((C1G2_CRC)airTagData).getCRC().intValue());
+								} else if(airTagData instanceof C1G2_PC) {
+									pc_hex = toHex4(((C1G2_PC)airTagData).getPC_Bits().intValue());
 								}
-							} else {
-								tag.setTimestamp(System.currentTimeMillis());
-							}
-							tag.setAccessSpecID(tagData.getAccessSpecID());
-
-							//ORANGE: add additional values if they exist
-							tag.setTagLength(length);
-							tag.setFilter(filter);
-							tag.setCompanyPrefixLength(companyPrefixLength);
-
-							//ORANGE End.
-							String epc_tag = TagHelper.convert_to_TAG_ENCODING(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), tag.getTagAsBinary(), tdt);
-							tag.setTagIDAsTagURI(epc_tag);
-
-							String pc_hex = "0000";
-							String crc_hex = "0000";
-							if(tagData.getAirProtocolTagDataList() != null) {
-								for(AirProtocolTagData airTagData : tagData.getAirProtocolTagDataList()) {
-									if(airTagData instanceof C1G2_CRC) {
-										crc_hex = ((C1G2_CRC)airTagData).getCRC().toString(16);
-										while(crc_hex.length() < 4) {
-											crc_hex = "0"+crc_hex;
-										}
-									} else if(airTagData instanceof C1G2_PC) {
-										pc_hex = ((C1G2_PC)airTagData).getPC_Bits().toString(16);
-										while(pc_hex.length() < 4) {
-											pc_hex = "0"+pc_hex;
-										}
-									}
-								}								
-							}
-							tag.setEpcBank(crc_hex+pc_hex+hx);
-
-							// add the tag.
-							tags.add(tag);
-						} catch (Exception e) {
-							log.debug("bad error, ignoring tag: " + e.getMessage());
-						}	
+							}								
+						}
+						Tag tag = createTag(hx, timestamp, tagData.getAccessSpecID(), pc_hex, crc_hex);
 
 						//ORANGE: managing the User Memory in the RO_ACCESS_REPORT
-						List<AccessCommandOpSpecResult> accessResultList = tagData.getAccessCommandOpSpecResultList();
-						for (AccessCommandOpSpecResult accessResult : accessResultList) {
-
-							//ORANGE: in case of reading the User Memory of a tag, 
-							//retrieve the user memory from the RO_ACCESS_REPORT and store it in the tag.
-							if (accessResult instanceof C1G2ReadOpSpecResult) {
-								C1G2ReadOpSpecResult op = (C1G2ReadOpSpecResult)accessResult;
-								if ((op.getResult().intValue() == C1G2ReadResultType.Success) && 
-									(op.getOpSpecID().intValue() < 1000)){
-									UnsignedShortArray_HEX userMemoryHex = op.getReadData();
-									log.debug ("User Memory read from the tag is = " + userMemoryHex.toString());
-									tag.setUserMemory(userMemoryHex.toString());
-								}
-								if ((op.getResult().intValue()== C1G2ReadResultType.Success) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag is = " + op.getReadData().toString());
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 0);
-									
-									for (OpReportResult temp : tag.getopresult())
-									{
-										System.out.println("@@@@@@@@@@"+temp.OpSpecID+"\t"+temp.Data+"@@@@@@@@@@@@@@@@@@@");
-									}
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2ReadResultType.Nonspecific_Tag_Error) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed by Nonspecific_Tag_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 4);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2ReadResultType.No_Response_From_Tag) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed by No_Response_From_Tag.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 5);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Nonspecific_Reader_Error) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed by Nonspecific_Reader_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 3);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Tag_Memory_Overrun_Error) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed by Tag_Memory_Overrun_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 1);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Tag_Memory_Locked_Error) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed by Tag_Memory_Locked_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 2);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()!= C1G2WriteResultType.Success) && 
-										(op.getOpSpecID().intValue() >= 1000)) {
-									log.debug ("Reading in the User Memory of the tag has failed.");
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getReadData().toString(), 7);
-									//TODO: Dealing each CCStatus.
-								}
-							}
-
-							//ORANGE: in case of writing in the User Memory of the tag,
-							//log if needed that the C1G2Write Operation on the tag has succeeded. 
-							if (accessResult instanceof C1G2WriteOpSpecResult) {
-								C1G2WriteOpSpecResult op = (C1G2WriteOpSpecResult)accessResult;
-								if ((op.getResult().intValue()== C1G2WriteResultType.Success)/*&&
-									(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has succeed. OpSpecID is = " + op.getOpSpecID().toString());
-									tag.addOpresult(op.getOpSpecID().intValue(), op.getNumWordsWritten().toString(), C1G2WriteResultType.Success);
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Tag_Memory_Overrun_Error)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by Tag_Memory_Overrun_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Tag_Memory_Overrun_Error", C1G2WriteResultType.Tag_Memory_Overrun_Error);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Tag_Memory_Locked_Error)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by Tag_Memory_Locked_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Tag_Memory_Locked_Error", C1G2WriteResultType.Tag_Memory_Locked_Error);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Insufficient_Power)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by Insufficient_Power.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Insufficient_Power", C1G2WriteResultType.Insufficient_Power);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Nonspecific_Tag_Error)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by Nonspecific_Tag_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Nonspecific_Tag_Error", C1G2WriteResultType.Nonspecific_Tag_Error);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.No_Response_From_Tag)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by No_Response_From_Tag.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "No_Response_From_Tag", C1G2WriteResultType.No_Response_From_Tag);
-									//TODO: Dealing each CCStatus.
-								}
-								else if ((op.getResult().intValue()== C1G2WriteResultType.Nonspecific_Reader_Error)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed by Nonspecific_Reader_Error.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Nonspecific_Reader_Error", C1G2WriteResultType.Nonspecific_Reader_Error);
-									//TODO: Dealing each CCStatus.
+						if (null != tag) {
+							List<AccessCommandOpSpecResult> accessResultList = tagData.getAccessCommandOpSpecResultList();
+							for (AccessCommandOpSpecResult accessResult : accessResultList) {
+								if (accessResult instanceof C1G2ReadOpSpecResult) {
+									C1G2ReadOpSpecResult op = (C1G2ReadOpSpecResult)accessResult;
+									addReadResult(tag, op.getOpSpecID().intValue(), op.getResult().intValue(), op.getReadData().toString());
 								}
-								else if ((op.getResult().intValue()!= C1G2WriteResultType.Success)/*&&
-										(op.getOpSpecID().intValue() == userMemWriteOpSpecID)*/) {
-									log.debug ("Writing in the User Memory of the tag has failed.");
-									tag.addOpresult(op.getOpSpecID().intValue(), "Fail", 7);
-									//TODO: Dealing each CCStatus.
+								if (accessResult instanceof C1G2WriteOpSpecResult) {
+									C1G2WriteOpSpecResult op = (C1G2WriteOpSpecResult)accessResult;
+									addWriteResult(tag, op.getOpSpecID().intValue(), op.getResult().intValue(), op.getNumWordsWritten().toString());
 								}
 							}
-						}	
-						//ORANGE End	
-
-						// try to run a conversion on the tag...
-						if (null != tag) {
-							try {		
-								//ORANGE : replace the following code ...
-								//								String pureID = Tag.convert_to_PURE_IDENTITY(
-								//										null, 
-								//										null, 
-								//										null, 
-								//										tag.getTagAsBinary());
-
-								//ORANGE : by this one more generic.
-								String pureID =	TagHelper.convert_to_PURE_IDENTITY(
-										tag.getTagLength(),
-										tag.getFilter(),
-										tag.getCompanyPrefixLength(),
-										tag.getTagAsBinary());	
-								//ORANGE End.
-
-								tag.setTagIDAsPureURI(pureID);
-							} catch (Exception e) {
-								log.debug("could not convert provided tag: " + e.getMessage());
-							}
+							convertToPureIdentity(tag);
+							tags.add(tag);
 						}
+						//ORANGE End	
 					}
 				}
 			} else if(message instanceof READER_EVENT_NOTIFICATION) {
@@ -928,6 +776,223 @@ public class LLRPAdaptor extends BaseReader {
 
 	}
 
+	/**
+	 * decodes the tags of an RO_ACCESS_REPORT by the {@link ROAccessReportDecoder}.
+	 * @param binaryMessage the binary RO_ACCESS_REPORT.
+	 * @return the tags, null if the report must be decoded by the generic decoder.
+	 */
+	private List<Tag> decodeROAccessReport(byte[] binaryMessage) {
+		List<Tag> tags = new LinkedList<Tag>();
+		synchronized (reportDecoder) {
+			if (!reportDecoder.wrap(ByteBuffer.wrap(binaryMessage))) {
+				return null;
+			}
+			StringBuilder sb = new StringBuilder(24);
+			while (reportDecoder.next(reportView)) {
+				TagReportView view = reportView;
+				if (!view.isEPC96() || !isAcceptedAntenna(view.hasAntennaID(), view.getAntennaID())) {
+					continue;
+				}
+				// the hex string of the generic decoder, without leading zero bytes
+				sb.setLength(0);
+				int first = 0;
+				while ((first < 11) && (view.getEPCByte(first) == 0)) {
+					first++;
+				}
+				view.appendEPCHex(sb);
+				String hx = sb.substring(first * 2);
+
+				long timestamp = view.hasLastSeenTimestampUTC() ? view.getLastSeenTimestampUTC() / 1000 : System.currentTimeMillis();
+				AccessSpecID accessSpecID = null;
+				if (view.hasAccessSpecID()) {
+					accessSpecID = new AccessSpecID();
+					accessSpecID.setAccessSpecID(new UnsignedInteger(view.getAccessSpecID()));
+				}
+				Tag tag = createTag(hx, timestamp, accessSpecID, 
+						view.hasPC() ? toHex4(view.getPC()) : "0000", view.hasCRC() ? toHex4(view.getCRC()) : "0000");
+				if (null == tag) {
+					continue;
+				}
+				for (int i = 0; i < view.getOpSpecResultCount(); i++) {
+					if (view.getOpSpecResultType(i) == TagReportView.C1G2_READ_RESULT) {
+						sb.setLength(0);
+						addReadResult(tag, view.getOpSpecID(i), view.getOpSpecResult(i), view.appendReadDataHex(i, sb).toString());
+					} else if (view.getOpSpecResultType(i) == TagReportView.C1G2_WRITE_RESULT) {
+						addWriteResult(tag, view.getOpSpecID(i), view.getOpSpecResult(i), Integer.toString(view.getOpSpecWordCount(i)));
+					}
+				}
+				convertToPureIdentity(tag);
+				tags.add(tag);
+			}
+		}
+		return tags;
+	}
+
+	/**
+	 * @param reported true if the antenna of the tag report is known.
+	 * @param antennaID the antenna of the tag report.
+	 * @return true if the tags of the antenna are accepted.
+	 */
+	private boolean isAcceptedAntenna(boolean reported, int antennaID) {
+		if (0 == acceptTagsFromAntennas.size()) {
+			return true;
+		}
+		return reported && acceptTagsFromAntennas.contains(Integer.valueOf(antennaID));
+	}
+
+	/**
+	 * @return the value as four lower case hex digits.
+	 */
+	private static String toHex4(int value) {
+		String hex = Integer.toHexString(value & 0xFFFF);
+		while (hex.length() < 4) {
+			hex = "0" + hex;
+		}
+		return hex;
+	}
+
+	/**
+	 * creates the tag of an EPC-96 tag report.
+	 * @param hx the EPC as hex string without leading zero bytes.
+	 * @param timestamp the time the tag was seen in milliseconds, -1 if unknown.
+	 * @param accessSpecID the access spec of the tag report, may be null.
+	 * @param pc_hex the PC bits as four hex digits.
+	 * @param crc_hex the CRC as four hex digits.
+	 * @return the tag, null if the tag could not be created.
+	 */
+	private Tag createTag(String hx, long timestamp, AccessSpecID accessSpecID, String pc_hex, String crc_hex) {
+		TDTEngine tdt = TagHelper.getTDTEngine();
+		try {
+			// the hex value has no leading zeros, pack it into the full 96 bits
+			StringBuilder padded = new StringBuilder(24);
+			for (int i = hx.length(); i < 24; i++) {
+				padded.append('0');
+			}
+			EPCKey epc = EPCKey.fromHex(padded.append(hx).toString());
+
+			Tag tag = new Tag(getOriginReaderName());
+			tag.setEPCKey(epc);
+			tag.setReader(getName());
+			tag.addTrace(getName());
+			if (timestamp >= 0) {
+				tag.setTimestamp(timestamp);
+			}
+			tag.setAccessSpecID(accessSpecID);
+
+			//ORANGE: add additional values if they exist
+			tag.setTagLength(length);
+			tag.setFilter(filter);
+			tag.setCompanyPrefixLength(companyPrefixLength);
+
+			//ORANGE End.
+			String epc_tag = TagHelper.convert_to_TAG_ENCODING(tag, tdt);
+			tag.setTagIDAsTagURI(epc_tag);
+			tag.setEpcBank(crc_hex+pc_hex+hx);
+			return tag;
+		} catch (Exception e) {
+			log.debug("bad error, ignoring tag: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * ORANGE: in case of reading the User Memory of a tag, 
+	 * retrieve the user memory from the RO_ACCESS_REPORT and store it in the tag.
+	 * @param tag the tag.
+	 * @param opSpecID the op spec of the C1G2ReadOpSpecResult.
+	 * @param result the result of the read.
+	 * @param readData the data read as hex words.
+	 */
+	private void addReadResult(Tag tag, int opSpecID, int result, String readData) {
+		if ((result == C1G2ReadResultType.Success) && (opSpecID < 1000)) {
+			log.debug ("User Memory read from the tag is = " + readData);
+			tag.setUserMemory(readData);
+		}
+		if (opSpecID < 1000) {
+			return;
+		}
+		//TODO: Dealing each CCStatus.
+		if (result == C1G2ReadResultType.Success) {
+			log.debug ("Reading in the User Memory of the tag is = " + readData);
+			tag.addOpresult(opSpecID, readData, 0);
+			
+			if (log.isDebugEnabled()) {
+				for (OpReportResult temp : tag.getopresult()) {
+					log.debug(temp.OpSpecID + "\t" + temp.Data);
+				}
+			}
+		} else if (result == C1G2ReadResultType.Nonspecific_Tag_Error) {
+			log.debug ("Reading in the User Memory of the tag has failed by Nonspecific_Tag_Error.");
+			tag.addOpresult(opSpecID, readData, 4);
+		} else if (result == C1G2ReadResultType.No_Response_From_Tag) {
+			log.debug ("Reading in the User Memory of the tag has failed by No_Response_From_Tag.");
+			tag.addOpresult(opSpecID, readData, 5);
+		} else if (result == C1G2WriteResultType.Nonspecific_Reader_Error) {
+			log.debug ("Reading in the User Memory of the tag has failed by Nonspecific_Reader_Error.");
+			tag.addOpresult(opSpecID, readData, 3);
+		} else if (result == C1G2WriteResultType.Tag_Memory_Overrun_Error) {
+			log.debug ("Reading in the User Memory of the tag has failed by Tag_Memory_Overrun_Error.");
+			tag.addOpresult(opSpecID, readData, 1);
+		} else if (result == C1G2WriteResultType.Tag_Memory_Locked_Error) {
+			log.debug ("Reading in the User Memory of the tag has failed by Tag_Memory_Locked_Error.");
+			tag.addOpresult(opSpecID, readData, 2);
+		} else if (result != C1G2WriteResultType.Success) {
+			log.debug ("Reading in the User Memory of the tag has failed.");
+			tag.addOpresult(opSpecID, readData, 7);
+		}
+	}
+
+	/**
+	 * ORANGE: in case of writing in the User Memory of the tag,
+	 * log if needed that the C1G2Write Operation on the tag has succeeded. 
+	 * @param tag the tag.
+	 * @param opSpecID the op spec of the C1G2WriteOpSpecResult.
+	 * @param result the result of the write.
+	 * @param numWordsWritten the number of words written.
+	 */
+	private void addWriteResult(Tag tag, int opSpecID, int result, String numWordsWritten) {
+		//TODO: Dealing each CCStatus.
+		if (result == C1G2WriteResultType.Success) {
+			log.debug ("Writing in the User Memory of the tag has succeed. OpSpecID is = " + opSpecID);
+			tag.addOpresult(opSpecID, numWordsWritten, C1G2WriteResultType.Success);
+		} else if (result == C1G2WriteResultType.Tag_Memory_Overrun_Error) {
+			log.debug ("Writing in the User Memory of the tag has failed by Tag_Memory_Overrun_Error.");
+			tag.addOpresult(opSpecID, "Tag_Memory_Overrun_Error", C1G2WriteResultType.Tag_Memory_Overrun_Error);
+		} else if (result == C1G2WriteResultType.Tag_Memory_Locked_Error) {
+			log.debug ("Writing in the User Memory of the tag has failed by Tag_Memory_Locked_Error.");
+			tag.addOpresult(opSpecID, "Tag_Memory_Locked_Error", C1G2WriteResultType.Tag_Memory_Locked_Error);
+		} else if (result == C1G2WriteResultType.Insufficient_Power) {
+			log.debug ("Writing in the User Memory of the tag has failed by Insufficient_Power.");
+			tag.addOpresult(opSpecID, "Insufficient_Power", C1G2WriteResultType.Insufficient_Power);
+		} else if (result == C1G2WriteResultType.Nonspecific_Tag_Error) {
+			log.debug ("Writing in the User Memory of the tag has failed by Nonspecific_Tag_Error.");
+			tag.addOpresult(opSpecID, "Nonspecific_Tag_Error", C1G2WriteResultType.Nonspecific_Tag_Error);
+		} else if (result == C1G2WriteResultType.No_Response_From_Tag) {
+			log.debug ("Writing in the User Memory of the tag has failed by No_Response_From_Tag.");
+			tag.addOpresult(opSpecID, "No_Response_From_Tag", C1G2WriteResultType.No_Response_From_Tag);
+		} else if (result == C1G2WriteResultType.Nonspecific_Reader_Error) {
+			log.debug ("Writing in the User Memory of the tag has failed by Nonspecific_Reader_Error.");
+			tag.addOpresult(opSpecID, "Nonspecific_Reader_Error", C1G2WriteResultType.Nonspecific_Reader_Error);
+		} else {
+			log.debug ("Writing in the User Memory of the tag has failed.");
+			tag.addOpresult(opSpecID, "Fail", 7);
+		}
+	}
+
+	/**
+	 * try to run a conversion on the tag...
+	 * @param tag the tag.
+	 */
+	private void convertToPureIdentity(Tag tag) {
+		try {		
+			//ORANGE : more generic than Tag.convert_to_PURE_IDENTITY(null, null, null, tag.getTagAsBinary()).
+			String pureID =	TagHelper.convert_to_PURE_IDENTITY(tag, TagHelper.getTDTEngine());
+			tag.setTagIDAsPureURI(pureID);
+		} catch (Exception e) {
+			log.debug("could not convert provided tag: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * ORANGE: This method initalizes properties needed to manage an LLRPAdaptor.
 	 * Properties are used to read the User Memory of a tag from an RO_ACCESS_REPORT or to log that
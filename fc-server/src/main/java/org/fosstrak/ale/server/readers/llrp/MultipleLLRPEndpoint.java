@@ -9,11 +9,18 @@ package org.fosstrak.ale.server.readers.llrp;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.log4j.Logger;
+import org.llrp.ltk.exceptions.InvalidLLRPMessageException;
 import org.llrp.ltk.types.LLRPMessage;
 
 import kr.ac.kaist.resl.ltk.net.LLRPEndpoint;
+import kr.ac.kaist.resl.ltk.net.LLRPIoHandlerAdapterImpl;
+import kr.ac.kaist.resl.ltk.net.LLRPRawEndpoint;
 
-public class MultipleLLRPEndpoint implements LLRPEndpoint {
+public class MultipleLLRPEndpoint implements LLRPRawEndpoint {
+	
+	/** logger. */
+	private static final Logger log = Logger.getLogger(MultipleLLRPEndpoint.class);
 	
 	private List<LLRPEndpoint> listEndpoint = new ArrayList<LLRPEndpoint>();
 	/**
@@ -48,6 +55,22 @@ public class MultipleLLRPEndpoint implements LLRPEndpoint {
 		}
 	}
 
+	/**
+	 * each endpoint receives its own copy of the binary RO_ACCESS_REPORT.
+	 */
+	@Override
+	public void rawMessageReceived(byte[] message) {
+		for(int i = 0; i < listEndpoint.size(); i++) {
+			byte[] copy = (i == listEndpoint.size() - 1) ? message : message.clone();
+			try {
+				LLRPIoHandlerAdapterImpl.deliver(listEndpoint.get(i), copy);
+			} catch (InvalidLLRPMessageException e) {
+				log.error("could not decode the RO_ACCESS_REPORT: " + e.getMessage());
+				listEndpoint.get(i).errorOccured(e.getMessage());
+			}
+		}
+	}
+
 	@Override
 	public void errorOccured(String message) {
 		for(LLRPEndpoint endpoint : listEndpoint) {
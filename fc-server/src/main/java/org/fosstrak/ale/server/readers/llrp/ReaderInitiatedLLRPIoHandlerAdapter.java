@@ -64,6 +64,14 @@ public class ReaderInitiatedLLRPIoHandlerAdapter extends LLRPIoHandlerAdapterImp
 		String addr = inetAddr.getHostString();
 		int port = inetAddr.getPort();
 		
+		if (arg1 instanceof byte[]) {
+			// RO_ACCESS_REPORT, handed on as its binary frame
+			MultipleLLRPEndpoint endpoint = PhysicalReaderAcceptor.mapIdAndReaderInitiatedConnectionEntry.getMultipleLLRPEndpointByIpPort(addr, port);
+			if(endpoint != null)
+				endpoint.rawMessageReceived((byte[]) arg1);
+			return;
+		}
+		
 		LLRPMessage llrpMessage = (LLRPMessage) arg1;
 		log.info("message "+arg1.getClass()+" received in session "+arg0);
 		if (log.isDebugEnabled()) {
@@ -31,6 +31,7 @@ import org.apache.log4j.Logger;
 
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.server.readers.IdentifyThread;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
@@ -282,10 +283,9 @@ public class RPAdaptor extends BaseReader {
 	 */
 	@Override
 	public void addTag(Tag tag) {
-		setChanged();
 		tag.addTrace(getName());
 		//LOG.debug("calling observers");
-		notifyObservers(tag);
+		notifyTag(tag);
 	}
 	
 	/**
@@ -294,11 +294,10 @@ public class RPAdaptor extends BaseReader {
 	 */
 	@Override
 	public void addTags(List<Tag> tags) {
-		setChanged();
 		for (Tag tag : tags) {
 			tag.addTrace(getName());
 		}
-		notifyObservers(tags);
+		notifyTags(TagBatch.of(tags));
 	}
 
 	/**
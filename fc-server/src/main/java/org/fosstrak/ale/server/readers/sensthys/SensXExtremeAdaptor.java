@@ -12,6 +12,7 @@ import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.ValidationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.server.readers.LogicalReader;
 import org.fosstrak.ale.server.util.TagHelper;
@@ -341,8 +342,7 @@ public class SensXExtremeAdaptor extends BaseReader implements OnTagReadResponse
      */
     @Override
     public void addTag(Tag tag) {
-        setChanged();
-        notifyObservers(tag);
+        notifyTag(tag);
     }
 
     /**
@@ -351,7 +351,6 @@ public class SensXExtremeAdaptor extends BaseReader implements OnTagReadResponse
      */
     @Override
     public void addTags(List<Tag> tags) {
-        setChanged();
-        notifyObservers(tags);
+        notifyTags(TagBatch.of(tags));
     }
 }
@@ -33,6 +33,7 @@ import org.apache.log4j.Logger;
 import org.epcglobalinc.tdt.LevelTypeList;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.BaseReader;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCOpSpec;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCSpec;
@@ -158,17 +159,15 @@ public class TestAdaptor extends BaseReader {
 	public void addTag(Tag tag) {
 		tag.addTrace(getName());
 		
-		setChanged();
-		notifyObservers(tag);		
+		notifyTag(tag);
 	}
 
 	@Override
 	public void addTags(List<Tag> tags) {
-		setChanged();
 		for (Tag tag : tags) {
 			tag.addTrace(getName());
 		}
-		notifyObservers(tags);
+		notifyTags(TagBatch.of(tags));
 	}
 
 	@Override
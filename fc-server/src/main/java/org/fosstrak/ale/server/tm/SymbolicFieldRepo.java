@@ -37,6 +37,9 @@ public class SymbolicFieldRepo {
 	//private Map<String, Map<String, SymbolicField>> mapEPCPatternAndSymbolicFieldMap = new HashMap<String, Map<String, SymbolicField>>();
 	private Map<String, SymbolicField> mapFieldnameAndSymbolicField = new HashMap<String, SymbolicField>();
 	private Map<String, TMSpec> mapEPCPatternAndTMSpec = new HashMap<String, TMSpec>();
+	
+	/** incremented whenever symbolic fields are added or removed (compiled field extractors resolve again). */
+	private volatile int modificationCount = 0;
 	//private Map<String, Pattern> mapEPCPatternAndPatternObject = new HashMap<String, Pattern>();
 	
 	public SymbolicFieldRepo() {
@@ -173,6 +176,7 @@ public class SymbolicFieldRepo {
 		synchronized(SymbolicFieldRepo.class) {
 
 			mapEPCPatternAndTMSpec.put(epcPattern, spec);
+			modificationCount++;
 			//mapEPCPatternAndSymbolicFieldMap.put(epcPattern, mapFieldnameAndSymbolicField);
 			/*
 			try {
@@ -196,6 +200,7 @@ public class SymbolicFieldRepo {
 					mapFieldnameAndSymbolicField.remove(f.getFieldname());
 				}
 			}
+			modificationCount++;
 			
 			//mapEPCPatternAndSymbolicFieldMap.remove(epcPattern);
 			//mapEPCPatternAndPatternObject.remove(epcPattern);
@@ -213,6 +218,13 @@ public class SymbolicFieldRepo {
 		return mapEPCPatternAndTMSpec.get(epcPattern);
 	}
 	
+	/**
+	 * @return the number of modifications of the symbolic fields so far.
+	 */
+	public int getModificationCount() {
+		return modificationCount;
+	}
+	
 	public SymbolicField getSymbolicField(String fieldname) {
 		return mapFieldnameAndSymbolicField.get(fieldname);
 	}
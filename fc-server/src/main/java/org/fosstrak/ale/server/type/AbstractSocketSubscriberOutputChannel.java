@@ -19,13 +19,11 @@
  */
 package org.fosstrak.ale.server.type;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.UnknownHostException;
 
-import org.apache.log4j.Logger;
-import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.util.ReportFormat;
 
 /**
  * abstract class that can be used in order to send a given message using a socket.
@@ -37,42 +35,11 @@ public abstract class AbstractSocketSubscriberOutputChannel extends AbstractSubs
 	public AbstractSocketSubscriberOutputChannel(String notificationURI) {
 		super(notificationURI);
 	}
-
-	/** logger */
-	private static final Logger LOG = Logger.getLogger(AbstractSocketSubscriberOutputChannel.class);
-
-	/**
-	 * This method writes data to a socket with host name and port number of this subscriber.
-	 * 
-	 * @param data to write to the socket
-	 * @throws ImplementationException if an implementation exception occures
-	 */
-	protected void writeToSocket(String data) throws ImplementationException {		
-		Socket socket;
-		try {
-			
-			// open socket and stream
-			socket = getSocket();
-			DataOutputStream dataOutputStream = new DataOutputStream(socket.getOutputStream());
-			
-			// write reports
-			dataOutputStream.writeBytes(data);
-			dataOutputStream.write("\n".getBytes());
-			dataOutputStream.flush();
-			
-			// close socket and stream
-			dataOutputStream.close();
-			socket.close();
-			
-		} catch (UnknownHostException e) {
-			LOG.error("unknown host: ", e);
-			throw new ImplementationException("Host '" + getHost() + "' not found.", e);
-		} catch (IOException e) {
-			LOG.error("io exception: ", e);
-			throw new ImplementationException("Could not write data to socket at '" + getHost() + ":" + getPort() + "'.", e);
-		}		
-	}
 	
+	public AbstractSocketSubscriberOutputChannel(String notificationURI, ReportFormat format) {
+		super(notificationURI, format);
+	}
+
 	/**
 	 * @return get a socket for the connection.
 	 * @throws IOException some other io issue.
@@ -1,10 +1,8 @@
 package org.fosstrak.ale.server.type;
 
-import java.io.CharArrayWriter;
-
-import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
-import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.util.ReportFormat;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 
@@ -14,17 +12,51 @@ import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
  */
 public abstract class AbstractSubscriberOutputChannel implements SubscriberOutputChannel {
 	
-	/** logger */
-	private static final Logger LOG = Logger.getLogger(AbstractSubscriberOutputChannel.class);
-	
 	private final String notificationURI;
 	
+	/** the wire format of the ec reports. */
+	private final ReportFormat format;
+	
 	/**
-	 * constructor requiring notification uri.
+	 * constructor requiring notification uri, the ec reports are notified as xml.
 	 * @param notificationURI
 	 */
 	public AbstractSubscriberOutputChannel(String notificationURI) {
+		this(notificationURI, ReportFormat.XML);
+	}
+	
+	/**
+	 * constructor requiring notification uri and the wire format of the ec reports.
+	 * @param notificationURI
+	 * @param format the wire format of the ec reports (see {@link #getFormat(String)}).
+	 */
+	public AbstractSubscriberOutputChannel(String notificationURI, ReportFormat format) {
 		this.notificationURI = notificationURI;
+		this.format = format;
+	}
+	
+	/**
+	 * This method encodes ec reports into the wire format of this channel. the encoding 
+	 * is shared with all the other output channels notifying the same reports in the same format.
+	 * 
+	 * @param reports the report to be serialized.
+	 * @return the encoded representation of the ec reports
+	 * @throws ImplementationException if a implementation exception occurs
+	 */
+	protected EncodedReports encode(ECReports reports) throws ImplementationException {
+		return EncodedReports.of(reports, format);
+	}
+	
+	/**
+	 * This method encodes cc reports into an UTF-8 xml representation. the encoding 
+	 * is shared with all the other output channels notifying the same reports.
+	 * 
+	 * @param reports the report to be serialized.
+	 * @return the encoded xml representation of the cc reports
+	 * @throws ImplementationException if a implementation exception occurs
+	 */
+	protected EncodedReports encode(CCReports reports) throws ImplementationException {
+		return EncodedReports.of(reports);
 	}
 	
 	/**
@@ -35,16 +67,7 @@ public abstract class AbstractSubscriberOutputChannel implements SubscriberOutpu
 	 * @throws ImplementationException if a implementation exception occurs
 	 */
 	protected String getXml(ECReports reports) throws ImplementationException {
-	
-		CharArrayWriter writer = new CharArrayWriter();
-		try {			
-			SerializerUtil.serializeECReports(reports, writer);
-		} catch (Exception e) {
-			LOG.debug("could not serialize the reports", e);
-			throw new ImplementationException("Unable to serialize reports.", e);
-		}
-		return writer.toString();
-		
+		return encode(reports).toString();
 	}
 	
 	/**
@@ -55,34 +78,71 @@ public abstract class AbstractSubscriberOutputChannel implements SubscriberOutpu
 	 * @throws ImplementationException if a implementation exception occurs
 	 */
 	protected String getXml(CCReports reports) throws ImplementationException {
+		return encode(reports).toString();
+	}
+
+	/**
+	 * @return the wire format of the ec reports (the cc reports are always notified as xml).
+	 */
+	public ReportFormat getFormat() {
+		return format;
+	}
 	
-		CharArrayWriter writer = new CharArrayWriter();
-		try {			
-			SerializerUtil.serializeCCReports(reports, writer);
-		} catch (Exception e) {
-			LOG.debug("could not serialize the reports", e);
-			throw new ImplementationException("Unable to serialize reports.", e);
+	/**
+	 * @param notificationURI the notification uri (may be null).
+	 * @return the wire format selected by the query parameter <code>format</code> of the uri, 
+	 * xml if the uri does not contain the parameter.
+	 * @throws InvalidURIException if the format is unknown.
+	 */
+	public static ReportFormat getFormat(String notificationURI) throws InvalidURIException {
+		try {
+			return ReportFormat.parse(getParameter(notificationURI, ReportFormat.PARAMETER));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidURIException(e.getMessage());
 		}
-		return writer.toString();
-		
 	}
 	
 	/**
-	 * This method serializes ec reports into a well formed xml representation. 
-	 * 
-	 * @param reports to serialize
-	 * @return well formed xml representation of the ec reports
-	 * @throws ImplementationException if a implementation exception occurs
+	 * @param notificationURI the notification uri (may be null).
+	 * @return the compression selected by the query parameter <code>compression</code> of the uri,
+	 * none if the uri does not contain the parameter.
+	 * @throws InvalidURIException if the compression is unknown.
 	 */
-	protected String getPrettyXml(ECReports reports) throws ImplementationException {
-		
-		CharArrayWriter writer = new CharArrayWriter();
+	public static Compression getCompression(String notificationURI) throws InvalidURIException {
 		try {
-			SerializerUtil.serializeECReports(reports, writer);
-		} catch (Exception e) {
-			throw new ImplementationException("Unable to serialize reports", e);
+			return Compression.parse(getParameter(notificationURI, Compression.PARAMETER));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidURIException(e.getMessage());
 		}
-		return writer.toString();
+	}
+	
+	/**
+	 * @param notificationURI the notification uri (may be null).
+	 * @param name the name of a query parameter.
+	 * @return the value of the parameter, null if the uri does not contain the parameter.
+	 */
+	public static String getParameter(String notificationURI, String name) {
+		if (null == notificationURI) {
+			return null;
+		}
+		int query = notificationURI.indexOf('?');
+		if (query < 0) {
+			return null;
+		}
+		for (String parameter : notificationURI.substring(query + 1).split("&")) {
+			int equals = parameter.indexOf('=');
+			if (equals > 0 && name.equalsIgnoreCase(parameter.substring(0, equals))) {
+				return parameter.substring(equals + 1);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * the channels holding resources for the receiver release them here, the default does nothing.
+	 */
+	@Override
+	public void close() {
 	}
 
 	/**
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * the compression of the reports notified to a subscriber, selected by the query parameter
+ * <code>compression=gzip|deflate|none</code> of the notification uri:
+ * <ul>
+ * <li>http: the body is sent with <code>Content-Encoding: gzip</code> or <code>deflate</code>.</li>
+ * <li>tcp: each length prefixed frame holds a gzip or zlib (deflate) stream.</li>
+ * <li>file: the reports are appended as gzip members to a <code>.gz</code> file.</li>
+ * </ul>
+ * the compression is configured by system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_LEVEL}: the deflate level, 1 (fastest) to 9 (smallest) (default {@value #DEFAULT_LEVEL}).</li>
+ * <li>{@value #PROPERTY_THRESHOLD}: the reports below this size in bytes are sent uncompressed over
+ * http and tcp (default {@value #DEFAULT_THRESHOLD}).</li>
+ * </ul>
+ */
+public enum Compression {
+
+	NONE("none"),
+	GZIP("gzip"),
+	DEFLATE("deflate");
+
+	/** the query parameter of the notification uri selecting the compression. */
+	public static final String PARAMETER = "compression";
+
+	/** system property holding the deflate level. */
+	public static final String PROPERTY_LEVEL = "org.fosstrak.ale.compressionLevel";
+
+	/** system property holding the size below which the reports are not compressed. */
+	public static final String PROPERTY_THRESHOLD = "org.fosstrak.ale.compressionThreshold";
+
+	/** default deflate level. */
+	public static final int DEFAULT_LEVEL = 6;
+
+	/** default size below which the reports are not compressed. */
+	public static final int DEFAULT_THRESHOLD = 1024;
+
+	/** the deflate level. */
+	private static final int LEVEL = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, Integer.getInteger(PROPERTY_LEVEL, DEFAULT_LEVEL)));
+
+	/** the size below which the reports are not compressed. */
+	private static final int THRESHOLD = Math.max(0, Integer.getInteger(PROPERTY_THRESHOLD, DEFAULT_THRESHOLD));
+
+	/** the value of the query parameter (and of the http content coding). */
+	private final String value;
+
+	private Compression(String value) {
+		this.value = value;
+	}
+
+	/**
+	 * @return the value of the compression parameter selecting this compression, also the http
+	 * content coding of the compressed reports.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the configured size in bytes below which the reports are sent uncompressed.
+	 */
+	public static int getThreshold() {
+		return THRESHOLD;
+	}
+
+	/**
+	 * @param value the value of the compression parameter (case insensitive).
+	 * @return the compression, {@link #NONE} if the value is null or empty.
+	 * @throws IllegalArgumentException if the value is not a known compression.
+	 */
+	public static Compression parse(String value) {
+		if (null == value || value.length() == 0) {
+			return NONE;
+		}
+		for (Compression compression : values()) {
+			if (compression.value.equalsIgnoreCase(value)) {
+				return compression;
+			}
+		}
+		throw new IllegalArgumentException("unknown compression: " + value);
+	}
+
+	/**
+	 * compresses bytes into a stream at the configured level.
+	 * @param bytes the bytes.
+	 * @param stream the stream receiving the compressed bytes.
+	 * @throws IOException if the stream could not be written.
+	 */
+	void compress(byte[] bytes, OutputStream stream) throws IOException {
+		switch (this) {
+		case GZIP:
+			GZIPOutputStream gzip = new GZIPOutputStream(stream, 8192) {
+				{
+					def.setLevel(LEVEL);
+				}
+			};
+			gzip.write(bytes);
+			gzip.finish();
+			gzip.flush();
+			// the deflater of a gzip stream is released by close only
+			gzip.close();
+			break;
+		case DEFLATE:
+			Deflater deflater = new Deflater(LEVEL);
+			try {
+				DeflaterOutputStream deflate = new DeflaterOutputStream(stream, deflater, 8192);
+				deflate.write(bytes);
+				deflate.finish();
+				deflate.flush();
+			} finally {
+				deflater.end();
+			}
+			break;
+		default:
+			stream.write(bytes);
+		}
+	}
+}
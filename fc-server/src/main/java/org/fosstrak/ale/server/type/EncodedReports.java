@@ -0,0 +1,300 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.log4j.Logger;
+import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.ReportRound;
+import org.fosstrak.ale.util.ECReportsBinaryCodec;
+import org.fosstrak.ale.util.ECReportsJsonCodec;
+import org.fosstrak.ale.util.ECReportsWriter;
+import org.fosstrak.ale.util.ReportFormat;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+
+/**
+ * the encoded representation of reports (UTF-8 xml, or the binary or json format of the ec
+ * reports), shared read-only by all the output channels notifying the same reports. the reports
+ * are encoded once per format: the encodings are cached by the identity of the reports as long
+ * as the reports are referenced (ie. until all the subscribers of a round are notified).
+ */
+public final class EncodedReports {
+
+	/** logger */
+	private static final Logger LOG = Logger.getLogger(EncodedReports.class);
+
+	/** the encoding of the reports. */
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** buffers above this size are not kept for the next encoding. */
+	private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+	/** the encodings by reports (the generated report classes compare by identity). */
+	private static final Map<Object, Holder> CACHE = Collections.synchronizedMap(new WeakHashMap<Object, Holder>());
+
+	/** buffer of the calling thread, reused from one encoding to the next. */
+	private static final ThreadLocal<Buffer> BUFFER = new ThreadLocal<Buffer>() {
+		@Override
+		protected Buffer initialValue() {
+			return new Buffer();
+		}
+	};
+
+	/** the encoded reports. */
+	private final byte[] bytes;
+
+	/** the compression of the bytes. */
+	private final Compression compression;
+
+	/** the compressed encodings by compression, created by the first channel compressing (guarded by this). */
+	private EncodedReports[] compressed;
+
+	/**
+	 * private constructor, use {@link #of(ECReports, ReportFormat)} or {@link #of(CCReports)}.
+	 */
+	private EncodedReports(byte[] bytes) {
+		this(bytes, Compression.NONE);
+	}
+
+	private EncodedReports(byte[] bytes, Compression compression) {
+		this.bytes = bytes;
+		this.compression = compression;
+	}
+
+	/**
+	 * encodes ec reports as xml, reports already encoded are not encoded again. the reports are
+	 * streamed by the {@link ECReportsWriter} (the reports of the rounds from their group and member
+	 * records), the reports it does not stream are marshalled.
+	 * @param reports the reports.
+	 * @return the encoded reports.
+	 * @throws ImplementationException if the reports could not be serialized.
+	 */
+	public static EncodedReports of(ECReports reports) throws ImplementationException {
+		return of(reports, ReportFormat.XML);
+	}
+
+	/**
+	 * encodes ec reports in the given format, reports already encoded in this format are not
+	 * encoded again.
+	 * @param reports the reports.
+	 * @param format the format.
+	 * @return the encoded reports.
+	 * @throws ImplementationException if the reports could not be serialized.
+	 */
+	public static EncodedReports of(ECReports reports, ReportFormat format) throws ImplementationException {
+		Holder holder = holder(reports);
+		synchronized (holder) {
+			EncodedReports encoded = holder.encoded[format.ordinal()];
+			if (null == encoded) {
+				Buffer buffer = buffer();
+				try {
+					switch (format) {
+					case BINARY:
+						ECReportsBinaryCodec.encode(reports, buffer);
+						break;
+					case JSON:
+						ECReportsJsonCodec.encode(reports, buffer);
+						break;
+					default:
+						if (!ECReportsWriter.write(reports, buffer)) {
+							LOG.debug("reports not streamed, marshalling them");
+							buffer.reset();
+							SerializerUtil.serializeECReports(ReportRound.buildGroups(reports), buffer);
+						}
+					}
+				} catch (Exception e) {
+					LOG.debug("could not serialize the reports", e);
+					throw new ImplementationException("Unable to serialize reports.", e);
+				}
+				encoded = new EncodedReports(buffer.copy());
+				holder.encoded[format.ordinal()] = encoded;
+			}
+			return encoded;
+		}
+	}
+
+	/**
+	 * encodes cc reports, reports already encoded are not marshalled again.
+	 * @param reports the reports.
+	 * @return the encoded reports.
+	 * @throws ImplementationException if the reports could not be serialized.
+	 */
+	public static EncodedReports of(CCReports reports) throws ImplementationException {
+		Holder holder = holder(reports);
+		synchronized (holder) {
+			EncodedReports encoded = holder.encoded[ReportFormat.XML.ordinal()];
+			if (null == encoded) {
+				Buffer buffer = buffer();
+				try {
+					SerializerUtil.serializeCCReports(reports, buffer);
+				} catch (Exception e) {
+					LOG.debug("could not serialize the reports", e);
+					throw new ImplementationException("Unable to serialize reports.", e);
+				}
+				encoded = new EncodedReports(buffer.copy());
+				holder.encoded[ReportFormat.XML.ordinal()] = encoded;
+			}
+			return encoded;
+		}
+	}
+
+	/**
+	 * @return the holder of the encoding of the given reports.
+	 */
+	private static Holder holder(Object reports) {
+		synchronized (CACHE) {
+			Holder holder = CACHE.get(reports);
+			if (null == holder) {
+				holder = new Holder();
+				CACHE.put(reports, holder);
+			}
+			return holder;
+		}
+	}
+
+	/**
+	 * @return the empty buffer of the calling thread.
+	 */
+	private static Buffer buffer() {
+		Buffer buffer = BUFFER.get();
+		if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+			buffer = new Buffer();
+			BUFFER.set(buffer);
+		}
+		buffer.reset();
+		return buffer;
+	}
+
+	/**
+	 * compresses the encoded reports, the compressed reports are shared by all the callers.
+	 * @param compression the compression.
+	 * @param threshold the size in bytes below which the reports are not compressed.
+	 * @return the compressed reports, these reports if the compression is {@link Compression#NONE},
+	 * if the reports are below the threshold or if they are compressed already.
+	 * @throws ImplementationException if the reports could not be compressed.
+	 */
+	public EncodedReports compress(Compression compression, int threshold) throws ImplementationException {
+		if (Compression.NONE == compression || Compression.NONE != this.compression || bytes.length < threshold) {
+			return this;
+		}
+		synchronized (this) {
+			if (null == compressed) {
+				compressed = new EncodedReports[Compression.values().length];
+			}
+			EncodedReports encoded = compressed[compression.ordinal()];
+			if (null == encoded) {
+				Buffer buffer = buffer();
+				try {
+					compression.compress(bytes, buffer);
+				} catch (IOException e) {
+					LOG.debug("could not compress the reports", e);
+					throw new ImplementationException("Unable to compress reports.", e);
+				}
+				encoded = new EncodedReports(buffer.copy(), compression);
+				compressed[compression.ordinal()] = encoded;
+			}
+			return encoded;
+		}
+	}
+
+	/**
+	 * @return the compression of the encoded reports ({@link Compression#NONE} unless returned by 
+	 * {@link #compress(Compression, int)}).
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * @return the number of bytes of the encoded reports.
+	 */
+	public int getLength() {
+		return bytes.length;
+	}
+
+	/**
+	 * writes the encoded reports into a stream.
+	 * @param stream the stream.
+	 * @throws IOException if the stream could not be written.
+	 */
+	public void writeTo(OutputStream stream) throws IOException {
+		stream.write(bytes);
+	}
+
+	/**
+	 * @return a read-only buffer wrapping the encoded reports, positioned at the start. each caller
+	 * gets its own position, the bytes are not copied. a NIO channel copies the heap buffer through
+	 * the temporary direct buffer cached per writing thread.
+	 */
+	public ByteBuffer getBuffer() {
+		return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return a stream reading the encoded reports.
+	 */
+	public InputStream getInputStream() {
+		return new ByteArrayInputStream(bytes);
+	}
+
+	/**
+	 * @return the encoded reports as a string (meaningful for the xml and json formats).
+	 */
+	@Override
+	public String toString() {
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * the encodings of some reports by format, each set once by the first output channel.
+	 */
+	private static final class Holder {
+		private final EncodedReports[] encoded = new EncodedReports[ReportFormat.values().length];
+	}
+
+	/**
+	 * growable byte buffer whose storage is kept from one encoding to the next.
+	 */
+	private static final class Buffer extends ByteArrayOutputStream {
+
+		private Buffer() {
+			super(8192);
+		}
+
+		private int capacity() {
+			return buf.length;
+		}
+
+		private byte[] copy() {
+			return Arrays.copyOf(buf, count);
+		}
+	}
+}
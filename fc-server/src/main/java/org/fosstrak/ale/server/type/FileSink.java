@@ -0,0 +1,530 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * appends reports to a file on a channel kept open. all the subscribers writing to the same
+ * file share one sink. the appends are group committed: the first writer of a batch waits
+ * up to <code>flushMillis</code> (or until <code>flushBytes</code> are queued) and writes the
+ * whole batch with one gathering write, the writers appending meanwhile return once their
+ * batch is written. the file is rotated by size or age, the rotated segments are renamed with
+ * a time stamp and optionally compressed. a sink closes its file when idle, a shared sink
+ * whose file stayed closed for the idle time is dropped (an append on a dropped sink goes to
+ * the new sink of the file).<br/>
+ * the sinks are configured by system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_FLUSH_MILLIS}: longest wait of a batch in milliseconds (default 0: no wait, batches form while the previous batch is written).</li>
+ * <li>{@value #PROPERTY_FLUSH_BYTES}: size of a batch written without waiting (default {@value #DEFAULT_FLUSH_BYTES}).</li>
+ * <li>{@value #PROPERTY_SYNC}: force the batches to the disk (default false).</li>
+ * <li>{@value #PROPERTY_ROTATE_BYTES}: size of a segment, 0 does not rotate by size (default 0).</li>
+ * <li>{@value #PROPERTY_ROTATE_MILLIS}: age of a segment in milliseconds, 0 does not rotate by age (default 0).</li>
+ * <li>{@value #PROPERTY_ROTATE_GZIP}: compress the rotated segments (default false).</li>
+ * <li>{@value #PROPERTY_IDLE_MILLIS}: idle time in milliseconds after which the file is closed and then the sink dropped (default {@value #DEFAULT_IDLE_MILLIS}).</li>
+ * </ul>
+ */
+public final class FileSink {
+
+	/** logger */
+	private static final Logger LOG = Logger.getLogger(FileSink.class);
+
+	/** system property holding the longest wait of a batch in milliseconds. */
+	public static final String PROPERTY_FLUSH_MILLIS = "org.fosstrak.ale.fileFlushMillis";
+
+	/** system property holding the size of a batch written without waiting. */
+	public static final String PROPERTY_FLUSH_BYTES = "org.fosstrak.ale.fileFlushBytes";
+
+	/** system property forcing the batches to the disk. */
+	public static final String PROPERTY_SYNC = "org.fosstrak.ale.fileSync";
+
+	/** system property holding the size of a segment. */
+	public static final String PROPERTY_ROTATE_BYTES = "org.fosstrak.ale.fileRotateBytes";
+
+	/** system property holding the age of a segment in milliseconds. */
+	public static final String PROPERTY_ROTATE_MILLIS = "org.fosstrak.ale.fileRotateMillis";
+
+	/** system property enabling the compression of the rotated segments. */
+	public static final String PROPERTY_ROTATE_GZIP = "org.fosstrak.ale.fileRotateGzip";
+
+	/** system property holding the idle time in milliseconds after which the file is closed. */
+	public static final String PROPERTY_IDLE_MILLIS = "org.fosstrak.ale.fileIdleMillis";
+
+	/** default size of a batch written without waiting. */
+	public static final int DEFAULT_FLUSH_BYTES = 64 * 1024;
+
+	/** default idle time in milliseconds after which the file is closed. */
+	public static final long DEFAULT_IDLE_MILLIS = 30000L;
+
+	/** the sinks by normalized absolute path. */
+	private static final ConcurrentHashMap<String, FileSink> SINKS = new ConcurrentHashMap<String, FileSink>();
+
+	/** closes the idle files, rotates by age and compresses the rotated segments. */
+	private static final ScheduledExecutorService MAINTENANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "FileSink");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** the file written. */
+	private final File file;
+
+	private final long flushMillis;
+	private final long flushBytes;
+	private final boolean sync;
+	private final long rotateBytes;
+	private final long rotateMillis;
+	private final boolean gzip;
+	private final long idleMillis;
+
+	/** the batch collecting the next frames (guarded by this). */
+	private Batch current = new Batch();
+
+	/** whether a writer is writing a batch (guarded by this). */
+	private boolean committing = false;
+
+	/** set once a shared sink has been dropped (guarded by this). */
+	private boolean retired = false;
+
+	/** the maintenance of a shared sink. */
+	private ScheduledFuture<?> maintenance;
+
+	/** the open file, the time it was started and the last write (channel accessed by the committing writer). */
+	private FileChannel channel;
+	private long segmentStart = 0;
+	private long lastWrite = 0;
+
+	/**
+	 * creates a sink.
+	 * @param file the file to append to.
+	 * @param flushMillis the longest wait of a batch in milliseconds.
+	 * @param flushBytes the size of a batch written without waiting.
+	 * @param sync whether the batches are forced to the disk.
+	 * @param rotateBytes the size of a segment (0 does not rotate by size).
+	 * @param rotateMillis the age of a segment in milliseconds (0 does not rotate by age).
+	 * @param gzip whether the rotated segments are compressed.
+	 */
+	public FileSink(File file, long flushMillis, long flushBytes, boolean sync, long rotateBytes, long rotateMillis, boolean gzip) {
+		this(file, flushMillis, flushBytes, sync, rotateBytes, rotateMillis, gzip, DEFAULT_IDLE_MILLIS);
+	}
+
+	/**
+	 * creates a sink.
+	 * @param file the file to append to.
+	 * @param flushMillis the longest wait of a batch in milliseconds.
+	 * @param flushBytes the size of a batch written without waiting.
+	 * @param sync whether the batches are forced to the disk.
+	 * @param rotateBytes the size of a segment (0 does not rotate by size).
+	 * @param rotateMillis the age of a segment in milliseconds (0 does not rotate by age).
+	 * @param gzip whether the rotated segments are compressed.
+	 * @param idleMillis the idle time in milliseconds after which the file is closed (and a shared sink dropped).
+	 */
+	public FileSink(File file, long flushMillis, long flushBytes, boolean sync, long rotateBytes, long rotateMillis, boolean gzip, long idleMillis) {
+		this.file = file;
+		this.flushMillis = Math.max(0, flushMillis);
+		this.flushBytes = Math.max(1, flushBytes);
+		this.sync = sync;
+		this.rotateBytes = Math.max(0, rotateBytes);
+		this.rotateMillis = Math.max(0, rotateMillis);
+		this.gzip = gzip;
+		this.idleMillis = Math.max(0, idleMillis);
+		this.lastWrite = System.currentTimeMillis();
+	}
+
+	/**
+	 * returns the sink shared by all the subscribers of a file, configured by the system properties.
+	 * @param file the file.
+	 * @return the sink.
+	 */
+	public static FileSink getSink(File file) {
+		String path = file.toPath().toAbsolutePath().normalize().toString();
+		FileSink sink = SINKS.get(path);
+		if (null == sink) {
+			FileSink created = new FileSink(new File(path),
+					Long.getLong(PROPERTY_FLUSH_MILLIS, 0L),
+					Long.getLong(PROPERTY_FLUSH_BYTES, DEFAULT_FLUSH_BYTES),
+					Boolean.getBoolean(PROPERTY_SYNC),
+					Long.getLong(PROPERTY_ROTATE_BYTES, 0L),
+					Long.getLong(PROPERTY_ROTATE_MILLIS, 0L),
+					Boolean.getBoolean(PROPERTY_ROTATE_GZIP),
+					Long.getLong(PROPERTY_IDLE_MILLIS, DEFAULT_IDLE_MILLIS));
+			sink = SINKS.putIfAbsent(path, created);
+			if (null == sink) {
+				sink = created;
+				sink.scheduleMaintenance();
+			}
+		}
+		return sink;
+	}
+
+	/**
+	 * appends reports followed by a separator. returns once the reports are written to the file.
+	 * @param reports the encoded reports.
+	 * @param separator the bytes following the reports.
+	 * @throws IOException if the batch of the reports could not be written.
+	 */
+	public void append(EncodedReports reports, byte[] separator) throws IOException {
+		// an interrupt is kept for the caller: set during the wait it spins the wait loops,
+		// set during the write it closes the channel of all the writers
+		boolean interrupted = false;
+		try {
+			Batch toWrite;
+			synchronized (this) {
+				if (retired) {
+					toWrite = null;
+				} else {
+					Batch mine = current;
+					mine.add(reports.getBuffer(), reports.getLength());
+					mine.add(ByteBuffer.wrap(separator), separator.length);
+					if (mine.bytes >= flushBytes) {
+						// a leader waiting for more reports can go
+						notifyAll();
+					}
+					// wait until the batch is written or become the leader of the next batch
+					while (!mine.done && committing) {
+						interrupted |= waitUninterruptibly(0);
+					}
+					if (mine.done) {
+						if (null != mine.failure) {
+							throw mine.failure;
+						}
+						return;
+					}
+					// nobody is writing: the batch not yet written is the current one
+					committing = true;
+					long deadline = System.currentTimeMillis() + flushMillis;
+					long remaining;
+					while (mine.bytes < flushBytes && (remaining = deadline - System.currentTimeMillis()) > 0) {
+						interrupted |= waitUninterruptibly(remaining);
+					}
+					toWrite = mine;
+					current = new Batch();
+				}
+			}
+			if (null == toWrite) {
+				// the sink was dropped while idle, the file has a new sink
+				getSink(file).append(reports, separator);
+				return;
+			}
+
+			IOException error = null;
+			try {
+				write(toWrite.frames.toArray(new ByteBuffer[toWrite.frames.size()]));
+			} catch (IOException e) {
+				error = e;
+				closeChannel();
+			}
+
+			synchronized (this) {
+				toWrite.failure = error;
+				toWrite.done = true;
+				committing = false;
+				notifyAll();
+			}
+			if (null != error) {
+				throw error;
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * waits on this sink (caller holds the monitor), an interrupt does not end the wait early.
+	 * @return true if the thread was interrupted, the caller restores the interrupt once done.
+	 */
+	private boolean waitUninterruptibly(long millis) {
+		try {
+			wait(millis);
+			return false;
+		} catch (InterruptedException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * writes a batch (committing writer only).
+	 */
+	private void write(ByteBuffer[] buffers) throws IOException {
+		long now = System.currentTimeMillis();
+		long length = 0;
+		for (ByteBuffer buffer : buffers) {
+			length += buffer.remaining();
+		}
+		if (null != channel && rotationDue(now, length)) {
+			rotate();
+		}
+		if (null == channel) {
+			open(now);
+			if (rotationDue(now, length)) {
+				// the file was left over at its limit
+				rotate();
+				open(now);
+			}
+		}
+		long written = 0;
+		while (written < length) {
+			written += channel.write(buffers);
+		}
+		if (sync) {
+			channel.force(false);
+		}
+		lastWrite = now;
+	}
+
+	private boolean rotationDue(long now, long length) throws IOException {
+		long size = (null == channel) ? file.length() : channel.size();
+		if (size == 0) {
+			return false;
+		}
+		if (rotateBytes > 0 && size + length > rotateBytes) {
+			return true;
+		}
+		return rotateMillis > 0 && segmentStart > 0 && now - segmentStart >= rotateMillis;
+	}
+
+	private void open(long now) throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (null != parent && !parent.exists()) {
+			parent.mkdirs();
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (segmentStart == 0) {
+			segmentStart = now;
+		}
+	}
+
+	/**
+	 * renames the current file into a segment and compresses it if configured (committing writer only).
+	 */
+	private void rotate() throws IOException {
+		closeChannel();
+		String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+		File segment = new File(file.getPath() + "." + stamp);
+		for (int i = 1; segment.exists() || new File(segment.getPath() + ".gz").exists(); i++) {
+			segment = new File(file.getPath() + "." + stamp + "-" + i);
+		}
+		if (!file.renameTo(segment)) {
+			throw new IOException("could not rotate '" + file + "' to '" + segment + "'.");
+		}
+		LOG.debug("rotated '" + file + "' to '" + segment + "'.");
+		segmentStart = 0;
+		// the files of compressed reports are not compressed again
+		if (gzip && !file.getName().endsWith(".gz")) {
+			final File uncompressed = segment;
+			MAINTENANCE.execute(new Runnable() {
+				@Override
+				public void run() {
+					compress(uncompressed);
+				}
+			});
+		}
+	}
+
+	/**
+	 * compresses a rotated segment into segment.gz and deletes the segment.
+	 */
+	private static void compress(File segment) {
+		File compressed = new File(segment.getPath() + ".gz");
+		InputStream in = null;
+		OutputStream out = null;
+		try {
+			in = new FileInputStream(segment);
+			out = new GZIPOutputStream(new FileOutputStream(compressed), 64 * 1024);
+			byte[] buffer = new byte[64 * 1024];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+			out.close();
+			out = null;
+			in.close();
+			in = null;
+			if (!segment.delete()) {
+				LOG.warn("could not delete the compressed segment '" + segment + "'.");
+			}
+		} catch (IOException e) {
+			LOG.error("could not compress the segment '" + segment + "'.", e);
+			compressed.delete();
+		} finally {
+			closeQuietly(in);
+			closeQuietly(out);
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (null != closeable) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				LOG.debug("could not close stream", e);
+			}
+		}
+	}
+
+	private void closeChannel() {
+		if (null != channel) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.debug("could not close '" + file + "'", e);
+			}
+			channel = null;
+		}
+	}
+
+	/**
+	 * closes the file when idle and rotates it by age.
+	 */
+	private void scheduleMaintenance() {
+		long period = (rotateMillis > 0) ? Math.min(1000L, rotateMillis) : 1000L;
+		period = Math.max(1L, Math.min(period, idleMillis));
+		maintenance = MAINTENANCE.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				maintain();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * closes the file when idle and rotates it by age, unless a batch is being written.
+	 * drops the sink once its file stayed closed for the idle time.
+	 */
+	private void maintain() {
+		synchronized (this) {
+			if (committing) {
+				return;
+			}
+			committing = true;
+		}
+		boolean idle = false;
+		try {
+			long now = System.currentTimeMillis();
+			if (null != channel && rotateMillis > 0 && segmentStart > 0 && now - segmentStart >= rotateMillis && channel.size() > 0) {
+				rotate();
+			} else if (null != channel && now - lastWrite >= idleMillis) {
+				closeChannel();
+			} else if (null == channel && now - lastWrite >= idleMillis) {
+				idle = true;
+			}
+		} catch (IOException e) {
+			LOG.error("could not rotate '" + file + "'.", e);
+		} finally {
+			synchronized (this) {
+				committing = false;
+				// the appends arriving meanwhile keep the sink
+				if (idle && current.frames.isEmpty()) {
+					retire();
+				}
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * removes the sink from the shared sinks and stops its maintenance. caller holds the lock.
+	 */
+	private void retire() {
+		retired = true;
+		SINKS.remove(file.getPath(), this);
+		if (null != maintenance) {
+			maintenance.cancel(false);
+		}
+		LOG.debug("dropped the idle sink of '" + file + "'.");
+	}
+
+	/**
+	 * @return true if the sink has been dropped, the appends go to the new sink of the file.
+	 */
+	public synchronized boolean isRetired() {
+		return retired;
+	}
+
+	/**
+	 * closes the file once the batch being written is done (the next append opens it again).
+	 */
+	public void close() {
+		boolean interrupted = false;
+		synchronized (this) {
+			while (committing) {
+				interrupted |= waitUninterruptibly(0);
+			}
+			committing = true;
+		}
+		closeChannel();
+		synchronized (this) {
+			committing = false;
+			notifyAll();
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the file written.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * the frames written by one gathering write, the writers of the frames wait for the batch.
+	 */
+	private static final class Batch {
+		private final List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+		private long bytes = 0;
+		/** set once the batch is written or failed (guarded by the sink). */
+		private boolean done = false;
+		/** the failure of the write, null on success. */
+		private IOException failure;
+
+		private void add(ByteBuffer frame, long length) {
+			frames.add(frame);
+			bytes += length;
+		}
+	}
+}
@@ -19,21 +19,25 @@
  */
 package org.fosstrak.ale.server.type;
 
-import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.util.ReportFormat;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 import org.springframework.util.StringUtils;
 
 /**
- * deliver a message using a file.
+ * deliver a message using a file. the xml reports are separated by an empty line, the json 
+ * reports by a new line, the binary reports are self delimiting and appended back to back. 
+ * with <code>compression=gzip</code> the reports and their separators are appended as gzip 
+ * members to the file, named with the extension <code>.gz</code>: the file decompresses into 
+ * the uncompressed reports.
  * @author swieland
  */
 public class FileSubscriberOutputChannel extends AbstractSubscriberOutputChannel {
@@ -41,21 +45,45 @@ public class FileSubscriberOutputChannel extends AbstractSubscriberOutputChannel
 	/** logger */
 	private static final Logger LOG = Logger.getLogger(FileSubscriberOutputChannel.class);
 
+	/** separates the xml reports appended to the file */
+	private static final byte[] SEPARATOR = new byte[] { '\n', '\n' };
+
+	/** separates the json reports appended to the file */
+	private static final byte[] JSON_SEPARATOR = new byte[] { '\n' };
+
+	/** the binary reports are not separated */
+	private static final byte[] NO_SEPARATOR = new byte[0];
+
+	/** the separators as gzip members */
+	private static final byte[] GZIP_SEPARATOR = gzip(SEPARATOR);
+	private static final byte[] GZIP_JSON_SEPARATOR = gzip(JSON_SEPARATOR);
+
+	/** extension of the compressed files */
+	private static final String GZIP_EXTENSION = ".gz";
+
 	/** localhost */
 	private static final String LOCALHOST = "localhost";
 
 	private URI uri;
 	private final String host;
 	private final String path;
+	private final Compression compression;
+	/** the sink of the file, set by the first notification and replaced once dropped. */
+	private FileSink sink;
 	
 	public FileSubscriberOutputChannel(String notificationURI) throws InvalidURIException {
-		super(notificationURI);
+		super(notificationURI, getFormat(notificationURI));
 		try {
 			uri = new URI(notificationURI.replaceAll("\\\\", "/"));
-			path = StringUtils.startsWithIgnoreCase(uri.getPath(), "/") ? uri.getPath().substring(1) : uri.getPath();
-			if ("".equalsIgnoreCase(path) || StringUtils.endsWithIgnoreCase(path, "/")) {
+			String filePath = StringUtils.startsWithIgnoreCase(uri.getPath(), "/") ? uri.getPath().substring(1) : uri.getPath();
+			if ("".equalsIgnoreCase(filePath) || StringUtils.endsWithIgnoreCase(filePath, "/")) {
 				throw new InvalidURIException("missing filename");				
 			}
+			compression = getCompression(notificationURI);
+			if (Compression.DEFLATE == compression) {
+				throw new InvalidURIException("the reports are compressed into files with gzip.");
+			}
+			path = (Compression.GZIP != compression || StringUtils.endsWithIgnoreCase(filePath, GZIP_EXTENSION)) ? filePath : filePath + GZIP_EXTENSION;
 			host = (uri.getHost() == null) ? LOCALHOST.toLowerCase() : uri.getHost();
 			if (!(LOCALHOST.equalsIgnoreCase(getHost()))) {
 				throw new InvalidURIException("This implementation can not write reports to a remote file.");
@@ -77,45 +105,96 @@ public class FileSubscriberOutputChannel extends AbstractSubscriberOutputChannel
 	}
 	
 	/**
-	 * This method writes ec reports to a file.
+	 * This method appends ec reports to the file through the sink shared by all the 
+	 * subscribers of the file.
 	 * 
 	 * @param reports to write to the file
 	 * @throws ImplementationException if an implementation exception occures
 	 */
 	private void writeNotificationToFile(ECReports reports) throws ImplementationException {		
-		// append reports as xml to file
-		LOG.debug("Append reports '" + reports.getSpecName() + "' as xml to file '" + getPath() + "'.");
-
-		File file = getFile();
-		
-		// create file if it does not already exists
-		if (!file.exists() || !file.isFile()) {
-			try {
-				file.createNewFile();
-			} catch (IOException e) {
-				throw new ImplementationException("Could not create new file '" + getPath() + "'.", e);
-			}
-		}
-		
+		// append reports to file
+		LOG.debug("Append reports '" + reports.getSpecName() + "' as " + getFormat().getValue() + " to file '" + getPath() + "'.");
+
+		FileSink fileSink = getSink();
 		try {
-			
-			// open streams
-			FileOutputStream fileOutputStream = new FileOutputStream(file, true);
-			DataOutputStream dataOutputStream = new DataOutputStream(fileOutputStream);
-
-			// append reports as xml to file
-			dataOutputStream.writeBytes(getPrettyXml(reports));
-			dataOutputStream.writeBytes("\n\n");
-			dataOutputStream.flush();
-			
-			// close streams
-			dataOutputStream.close();
-			fileOutputStream.close();
-			
+			if (Compression.NONE == compression) {
+				fileSink.append(encode(reports), getSeparator(getFormat()));
+			} else {
+				// the reports and the separator are consecutive members of the gzip file
+				fileSink.append(encode(reports).compress(compression, 0), getCompressedSeparator(getFormat()));
+			}
 		} catch (IOException e) {
 			throw new ImplementationException("Could not write to file '" + getPath() + "'.", e);
 		}		
 	}
+	
+	/**
+	 * @param separator an uncompressed separator.
+	 * @return the separator as a gzip member.
+	 */
+	private static byte[] gzip(byte[] separator) {
+		if (separator.length == 0) {
+			return separator;
+		}
+		try {
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			Compression.GZIP.compress(separator, stream);
+			return stream.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param format the format of the reports.
+	 * @return the bytes appended after the reports.
+	 */
+	private static byte[] getSeparator(ReportFormat format) {
+		switch (format) {
+		case BINARY:
+			return NO_SEPARATOR;
+		case JSON:
+			return JSON_SEPARATOR;
+		default:
+			return SEPARATOR;
+		}
+	}
+	
+	/**
+	 * @param format the format of the reports.
+	 * @return the gzip member appended after the compressed reports.
+	 */
+	private static byte[] getCompressedSeparator(ReportFormat format) {
+		switch (format) {
+		case BINARY:
+			return NO_SEPARATOR;
+		case JSON:
+			return GZIP_JSON_SEPARATOR;
+		default:
+			return GZIP_SEPARATOR;
+		}
+	}
+	
+	/**
+	 * @return the sink of the file, the file is created by the first notification.
+	 * @throws ImplementationException if the file could not be created
+	 */
+	private synchronized FileSink getSink() throws ImplementationException {
+		if (null == sink || sink.isRetired()) {
+			File file = getFile();
+			
+			// create file if it does not already exists
+			if (!file.exists() || !file.isFile()) {
+				try {
+					file.createNewFile();
+				} catch (IOException e) {
+					throw new ImplementationException("Could not create new file '" + getPath() + "'.", e);
+				}
+			}
+			sink = FileSink.getSink(file);
+		}
+		return sink;
+	}
 
 	protected File getFile() {
 		return new File(getPath());
@@ -129,6 +208,13 @@ public class FileSubscriberOutputChannel extends AbstractSubscriberOutputChannel
 		return path;
 	}
 
+	/**
+	 * @return the compression of the file.
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
 	@Override
 	public String toString() {
 		return uri.toString();
@@ -19,18 +19,25 @@
  */
 package org.fosstrak.ale.server.type;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.net.UnknownHostException;
 
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.util.ReportFormat;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 
 import com.mysql.jdbc.StringUtils;
 
 /**
- * send message as HTTP POST request using a standard socket.
+ * send message as HTTP POST request on a pooled keep-alive connection (see {@link HttpConnectionPool}).
+ * the content type of the request is the MIME type of the format of the reports. the reports above 
+ * the threshold of the {@link Compression} are compressed if the notification uri selects a compression.
  * @author swieland
  */
 public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputChannel {
@@ -41,18 +48,38 @@ public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputC
 	/** default port */
 	private static final int DEFAULT_PORT = 80;
 	
+	/** system property holding the connect timeout in milliseconds. */
+	public static final String PROPERTY_CONNECT_TIMEOUT = "org.fosstrak.ale.httpConnectTimeout";
+	
+	/** system property holding the timeout in milliseconds waiting for the response. */
+	public static final String PROPERTY_READ_TIMEOUT = "org.fosstrak.ale.httpReadTimeout";
+	
+	/** system property enabling the chunked transfer coding of the reports. */
+	public static final String PROPERTY_CHUNKED = "org.fosstrak.ale.httpChunked";
+	
+	/** connect timeout in milliseconds. */
+	private static final int CONNECT_TIMEOUT = Integer.getInteger(PROPERTY_CONNECT_TIMEOUT, 5000);
+	
+	/** timeout in milliseconds waiting for the response. */
+	private static final int READ_TIMEOUT = Integer.getInteger(PROPERTY_READ_TIMEOUT, 10000);
+	
+	/** whether the reports are sent with the chunked transfer coding. */
+	private static final boolean CHUNKED = Boolean.getBoolean(PROPERTY_CHUNKED);
+	
 	private final URL url;
 	private final String host;
 	private final int port;	
 	private final String path;
+	private final Compression compression;
 	
 	public HTTPSubscriberOutputChannel(String notificationURI) throws InvalidURIException {
-		super(notificationURI);
+		super(notificationURI, getFormat(notificationURI));
 		try {
 			url = new URL(notificationURI);
 			host = url.getHost();
 			port = (url.getPort() == -1) ? DEFAULT_PORT : url.getPort();
 			path = StringUtils.startsWithIgnoreCase(url.getPath(), "/") ? url.getPath().substring(1) : url.getPath();
+			compression = getCompression(notificationURI);
 		} catch (Exception e) {
 			LOG.error("malformed URL: ", e);
 			throw new InvalidURIException("malformed URL: ", e);
@@ -61,28 +88,78 @@ public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputC
 	
 	@Override
 	public boolean notify(ECReports reports) throws ImplementationException {			
-		LOG.debug("Write reports '" + reports.getSpecName() + "' as post request to http socket '" + getHost() + ":" + getPort() + "'.");
-		writeToSocket(getPostRequest(reports));
+		LOG.debug("Write reports '" + reports.getSpecName() + "' as post request to http endpoint '" + getEndpoint() + "'.");
+		post(reports.getSpecName(), getFormat(), encode(reports).compress(compression, Compression.getThreshold()));
 		return true;
 	}
 	
+	/**
+	 * This method posts encoded reports to the subscriber on a pooled keep-alive connection 
+	 * and checks the status of the response. a pooled connection closed by the subscriber 
+	 * meanwhile is replaced by a new connection, the request is sent again once.
+	 * 
+	 * @param specName the name of the spec of the reports
+	 * @param format the format of the encoded reports
+	 * @param body the encoded reports
+	 * @throws ImplementationException if the reports could not be delivered or the subscriber 
+	 * did not accept them
+	 */
+	private void post(String specName, ReportFormat format, EncodedReports body) throws ImplementationException {
+		String header = getPostHeader(specName, format, body.getCompression());
+		HttpConnectionPool pool = HttpConnectionPool.getInstance();
+		boolean retry = false;
+		while (true) {
+			// the request failed on a stale connection is sent on a new connection
+			HttpConnection connection = retry ? null : pool.acquire(getEndpoint());
+			try {
+				if (null == connection) {
+					connection = new HttpConnection(getEndpoint(), getSocket());
+				}
+			} catch (UnknownHostException e) {
+				LOG.error("unknown host: ", e);
+				throw new ImplementationException("Host '" + getHost() + "' not found.", e);
+			} catch (IOException e) {
+				LOG.error("io exception: ", e);
+				throw new ImplementationException("Could not connect to '" + getEndpoint() + "'.", e);
+			}
+			
+			int status;
+			try {
+				status = connection.execute(header, body, CHUNKED);
+			} catch (IOException e) {
+				connection.close();
+				if (!retry && connection.isStale(e)) {
+					LOG.debug("keep-alive connection to '" + getEndpoint() + "' closed by the subscriber - reconnecting.");
+					retry = true;
+					continue;
+				}
+				LOG.error("io exception: ", e);
+				throw new ImplementationException("Could not write data to socket at '" + getEndpoint() + "'.", e);
+			}
+			pool.release(connection);
+			
+			if (status < 200 || status >= 300) {
+				throw new ImplementationException("Subscriber '" + url + "' rejected the reports with HTTP status " + status + ".");
+			}
+			return;
+		}
+	}
 	
 	/**
-	 * This method creates a post request from ec reports containing an xml representation of the reports.
+	 * This method creates the header of a post request containing a representation of reports
+	 * (without the framing of the body).
 	 * 
-	 * @param reports to transform into a post request
-	 * @return post request containing an xml representation of the reports
-	 * @throws ImplementationException if an implementation exception occurs
+	 * @param specName the name of the spec of the reports
+	 * @param format the format of the reports
+	 * @param compression the compression of the reports
+	 * @return the header of the post request
 	 */
-	private String getPostRequest(ECReports reports) throws ImplementationException {
-		
-		LOG.debug("Create POST request with reports '" + reports.getSpecName() + "'.");
+	private String getPostHeader(String specName, ReportFormat format, Compression compression) {
 		
-		// create body
-		String body = getXml(reports);
+		LOG.debug("Create POST request with reports '" + specName + "'.");
 		
 		// create header
-		StringBuffer header = new StringBuffer();
+		StringBuilder header = new StringBuilder();
 		
 		// append request line
 		header.append("POST ");
@@ -91,31 +168,56 @@ public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputC
 		header.append(p);
 			
 		header.append("HTTP/1.1");
-		header.append("\n");
+		header.append("\r\n");
 		
 		// append host
 		header.append("Host: ");
 		// append port 
 		// patch by Gianrico D'Angelis <gianrico.dangelis@gmail.com>  
 		header.append(getHost() + ":" + getPort());  
-		header.append("\n");
+		header.append("\r\n");
+		
+		// keep the connection for the next reports
+		header.append("Connection: keep-alive");
+		header.append("\r\n");
 		
-    
-      
 		// append content type
 		header.append("Content-Type: ");
-		header.append("text/xml; charset=\"utf-8\"");
-		header.append("\n");
+		header.append(format.getContentType());
+		header.append("\r\n");
 		
-		// append content length
-		header.append("Content-Length: ");
-		header.append(body.length());
-		header.append("\n");
-		
-		// terminate body
-		header.append("\n");
+		// append content coding
+		if (Compression.NONE != compression) {
+			header.append("Content-Encoding: ");
+			header.append(compression.getValue());
+			header.append("\r\n");
+		}
+
+		return header.toString();
+	}
+
+	/**
+	 * creates a new connection with the configured connect and read timeouts.
+	 */
+	@Override
+	protected Socket getSocket() throws UnknownHostException, IOException {
+		Socket socket = new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(READ_TIMEOUT);
+			socket.connect(new InetSocketAddress(getHost(), getPort()), CONNECT_TIMEOUT);
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		return socket;
+	}
 
-		return header + body;
+	/**
+	 * @return the endpoint (host:port) of the subscriber.
+	 */
+	public String getEndpoint() {
+		return host + ":" + port;
 	}
 
 	@Override
@@ -132,6 +234,13 @@ public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputC
 		return path;
 	}
 
+	/**
+	 * @return the compression of the reports.
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
 	@Override
 	public String toString() {
 		return url.toString();
@@ -139,53 +248,10 @@ public class HTTPSubscriberOutputChannel extends AbstractSocketSubscriberOutputC
 
 	@Override
 	public boolean notify(CCReports reports) throws ImplementationException {
-		LOG.debug("Write reports '" + reports.getSpecName() + "' as post request to http socket '" + getHost() + ":" + getPort() + "'.");
-		writeToSocket(getPostRequest(reports));
+		LOG.debug("Write reports '" + reports.getSpecName() + "' as post request to http endpoint '" + getEndpoint() + "'.");
+		post(reports.getSpecName(), ReportFormat.XML, encode(reports).compress(compression, Compression.getThreshold()));
 		return true;
 	}
-
-	private String getPostRequest(CCReports reports) throws ImplementationException {
-		LOG.debug("Create POST request with reports '" + reports.getSpecName() + "'.");
-		
-		// create body
-		String body = getXml(reports);
-		
-		// create header
-		StringBuffer header = new StringBuffer();
-		
-		// append request line
-		header.append("POST ");
-		// add the trimmed / again together with a white space
-		String p = "/" + getPath() + " ";
-		header.append(p);
-			
-		header.append("HTTP/1.1");
-		header.append("\n");
-		
-		// append host
-		header.append("Host: ");
-		// append port 
-		// patch by Gianrico D'Angelis <gianrico.dangelis@gmail.com>  
-		header.append(getHost() + ":" + getPort());  
-		header.append("\n");
-		
-    
-      
-		// append content type
-		header.append("Content-Type: ");
-		header.append("text/xml; charset=\"utf-8\"");
-		header.append("\n");
-		
-		// append content length
-		header.append("Content-Length: ");
-		header.append(body.length());
-		header.append("\n");
-		
-		// terminate body
-		header.append("\n");
-
-		return header + body;
-	}
 	
 }
 
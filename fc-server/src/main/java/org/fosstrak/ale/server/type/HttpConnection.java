@@ -0,0 +1,299 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+
+import org.apache.log4j.Logger;
+
+/**
+ * a HTTP/1.1 connection to a subscriber. the connection sends one request at a time and
+ * reads the complete response, such that it can be reused for the next request as long
+ * as the subscriber keeps it alive. a connection is not thread safe, it is used by one
+ * delivery at a time (see {@link HttpConnectionPool}).
+ */
+public final class HttpConnection {
+
+	/** logger */
+	private static final Logger LOG = Logger.getLogger(HttpConnection.class);
+
+	/** end of a line in the header. */
+	private static final byte[] CRLF = new byte[] { '\r', '\n' };
+
+	/** the last chunk of a chunked body. */
+	private static final byte[] LAST_CHUNK = new byte[] { '0', '\r', '\n', '\r', '\n' };
+
+	/** size of the buffer gathering the header and the start of the body into one segment. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** the endpoint (host:port) of the connection. */
+	private final String endpoint;
+
+	private final Socket socket;
+	private final OutputStream out;
+	private final InputStream in;
+
+	/** number of requests sent on this connection. */
+	private int requests = 0;
+
+	/** the time the connection was released to the pool. */
+	private long idleSince;
+
+	/** the status of the last response. */
+	private int status;
+
+	/** whether the subscriber keeps the connection alive after the last response. */
+	private boolean keepAlive;
+
+	/** whether a byte of the response to the last request was read. */
+	private boolean responding;
+
+	/**
+	 * creates a connection on a connected socket.
+	 * @param endpoint the endpoint (host:port) of the connection.
+	 * @param socket the socket (with the read timeout set).
+	 * @throws IOException if the streams of the socket are not available.
+	 */
+	public HttpConnection(String endpoint, Socket socket) throws IOException {
+		this.endpoint = endpoint;
+		this.socket = socket;
+		this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+		this.in = new BufferedInputStream(socket.getInputStream());
+	}
+
+	/**
+	 * sends a request and reads its response.
+	 * @param header the header of the request, without the framing of the body (Content-Length
+	 * or Transfer-Encoding) and without the terminating empty line.
+	 * @param body the body.
+	 * @param chunked whether the body is sent with the chunked transfer coding.
+	 * @return the status code of the response.
+	 * @throws IOException if the request could not be sent or the response could not be read.
+	 */
+	public int execute(String header, EncodedReports body, boolean chunked) throws IOException {
+		requests++;
+		responding = false;
+		StringBuilder framing = new StringBuilder(header);
+		if (chunked) {
+			framing.append("Transfer-Encoding: chunked\r\n\r\n");
+			framing.append(Integer.toHexString(body.getLength())).append("\r\n");
+		} else {
+			framing.append("Content-Length: ").append(body.getLength()).append("\r\n\r\n");
+		}
+		out.write(framing.toString().getBytes(EncodedReports.UTF8));
+		body.writeTo(out);
+		if (chunked) {
+			out.write(CRLF);
+			out.write(LAST_CHUNK);
+		}
+		out.flush();
+		readResponse();
+		return status;
+	}
+
+	/**
+	 * reads the status line, the header and the body of the response.
+	 */
+	private void readResponse() throws IOException {
+		in.mark(1);
+		if (in.read() == -1) {
+			throw new EOFException("connection closed by the subscriber");
+		}
+		in.reset();
+		responding = true;
+		String statusLine = readLine();
+		// ignore interim responses (100 continue)
+		while (statusLine.startsWith("HTTP/1.1 1") && !statusLine.startsWith("HTTP/1.1 101")) {
+			while (readLine().length() > 0) {
+				// skip the header of the interim response
+			}
+			statusLine = readLine();
+		}
+		String[] parts = statusLine.split(" ", 3);
+		if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+			throw new IOException("invalid status line: " + statusLine);
+		}
+		try {
+			status = Integer.parseInt(parts[1]);
+		} catch (NumberFormatException e) {
+			throw new IOException("invalid status line: " + statusLine);
+		}
+		keepAlive = "HTTP/1.1".equals(parts[0]);
+
+		long contentLength = -1;
+		boolean chunked = false;
+		String line;
+		while ((line = readLine()).length() > 0) {
+			int colon = line.indexOf(':');
+			if (colon <= 0) {
+				continue;
+			}
+			String name = line.substring(0, colon).trim();
+			String value = line.substring(colon + 1).trim();
+			if ("Content-Length".equalsIgnoreCase(name)) {
+				try {
+					contentLength = Long.parseLong(value);
+				} catch (NumberFormatException e) {
+					throw new IOException("invalid content length: " + value);
+				}
+			} else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+				chunked = value.toLowerCase().contains("chunked");
+			} else if ("Connection".equalsIgnoreCase(name)) {
+				if (value.equalsIgnoreCase("close")) {
+					keepAlive = false;
+				} else if (value.equalsIgnoreCase("keep-alive")) {
+					keepAlive = true;
+				}
+			}
+		}
+
+		// consume the body such that the next response can be read
+		if ((status == 204) || (status == 304)) {
+			return;
+		}
+		if (chunked) {
+			long size;
+			while ((size = parseChunkSize(readLine())) > 0) {
+				skip(size);
+				readLine();
+			}
+			// trailer
+			while (readLine().length() > 0) {
+				// skip
+			}
+		} else if (contentLength >= 0) {
+			skip(contentLength);
+		} else {
+			// the body ends with the connection
+			while (in.read() != -1) {
+				// skip
+			}
+			keepAlive = false;
+		}
+	}
+
+	private static long parseChunkSize(String line) throws IOException {
+		int end = line.indexOf(';');
+		String size = (end < 0 ? line : line.substring(0, end)).trim();
+		try {
+			return Long.parseLong(size, 16);
+		} catch (NumberFormatException e) {
+			throw new IOException("invalid chunk size: " + line);
+		}
+	}
+
+	private void skip(long count) throws IOException {
+		while (count > 0) {
+			long skipped = in.skip(count);
+			if (skipped <= 0) {
+				if (in.read() == -1) {
+					throw new EOFException("response truncated");
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+
+	/**
+	 * reads a line of the header (ISO-8859-1), without the line terminator.
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		int c;
+		while ((c = in.read()) != '\n') {
+			if (c == -1) {
+				throw new EOFException("connection closed by the subscriber");
+			}
+			if (c != '\r') {
+				line.append((char) c);
+			}
+		}
+		return line.toString();
+	}
+
+	/**
+	 * closes the connection.
+	 */
+	public void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			LOG.debug("could not close the connection to " + endpoint, e);
+		}
+	}
+
+	/**
+	 * @return the endpoint (host:port) of the connection.
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * @return true if the connection was used by a previous request (and might
+	 * have been closed by the subscriber meanwhile).
+	 */
+	public boolean isReused() {
+		return requests > 1;
+	}
+
+	/**
+	 * tells whether a request failed because the subscriber had closed the kept alive connection 
+	 * before the request was sent. the request may then be sent again on a new connection.
+	 * @param e the exception of {@link #execute(String, EncodedReports, boolean)}.
+	 * @return true if the connection was reused and it was reset or closed before a byte of the 
+	 * response was read. false on a timeout, the subscriber might be processing the request.
+	 */
+	public boolean isStale(IOException e) {
+		if (!isReused() || responding || (e instanceof SocketTimeoutException)) {
+			return false;
+		}
+		return (e instanceof EOFException) || (e instanceof SocketException);
+	}
+
+	/**
+	 * @return whether the subscriber keeps the connection alive after the last response.
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * @return the status of the last response.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	long getIdleSince() {
+		return idleSince;
+	}
+
+	void setIdleSince(long idleSince) {
+		this.idleSince = idleSince;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * the idle keep-alive connections to the HTTP subscribers, by endpoint (host:port). all
+ * the subscribers on the same collector share the connections, such that a report
+ * delivered every few hundred milliseconds does not pay a TCP handshake.<br/>
+ * the pool is configured by system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_MAX_IDLE}: idle connections kept per endpoint (default {@value #DEFAULT_MAX_IDLE}).</li>
+ * <li>{@value #PROPERTY_KEEP_ALIVE}: milliseconds an idle connection is kept (default {@value #DEFAULT_KEEP_ALIVE}).</li>
+ * </ul>
+ */
+public final class HttpConnectionPool {
+
+	/** system property holding the number of idle connections kept per endpoint. */
+	public static final String PROPERTY_MAX_IDLE = "org.fosstrak.ale.httpMaxIdleConnections";
+
+	/** system property holding the milliseconds an idle connection is kept. */
+	public static final String PROPERTY_KEEP_ALIVE = "org.fosstrak.ale.httpKeepAlive";
+
+	/** default number of idle connections kept per endpoint. */
+	public static final int DEFAULT_MAX_IDLE = 4;
+
+	/** default milliseconds an idle connection is kept. */
+	public static final long DEFAULT_KEEP_ALIVE = 15000L;
+
+	/** the pool shared by all the HTTP subscribers. */
+	private static final HttpConnectionPool INSTANCE = new HttpConnectionPool(
+			Integer.getInteger(PROPERTY_MAX_IDLE, DEFAULT_MAX_IDLE),
+			Long.getLong(PROPERTY_KEEP_ALIVE, DEFAULT_KEEP_ALIVE));
+
+	/** the idle connections by endpoint, most recently used last (guarded by this). */
+	private final Map<String, ArrayDeque<HttpConnection>> idle = new HashMap<String, ArrayDeque<HttpConnection>>();
+
+	private final int maxIdle;
+	private final long keepAlive;
+
+	/**
+	 * creates a connection pool.
+	 * @param maxIdle the number of idle connections kept per endpoint.
+	 * @param keepAlive the milliseconds an idle connection is kept.
+	 */
+	public HttpConnectionPool(int maxIdle, long keepAlive) {
+		this.maxIdle = Math.max(0, maxIdle);
+		this.keepAlive = keepAlive;
+	}
+
+	/**
+	 * @return the pool shared by all the HTTP subscribers.
+	 */
+	public static HttpConnectionPool getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * takes the most recently used idle connection to an endpoint.
+	 * @param endpoint the endpoint (host:port).
+	 * @return the connection or null if there is no idle connection.
+	 */
+	public HttpConnection acquire(String endpoint) {
+		long now = System.currentTimeMillis();
+		HttpConnection connection = null;
+		synchronized (this) {
+			ArrayDeque<HttpConnection> connections = idle.get(endpoint);
+			if (null == connections) {
+				return null;
+			}
+			while (null == connection && !connections.isEmpty()) {
+				HttpConnection candidate = connections.pollLast();
+				if (now - candidate.getIdleSince() < keepAlive) {
+					connection = candidate;
+				} else {
+					candidate.close();
+				}
+			}
+			if (connections.isEmpty()) {
+				idle.remove(endpoint);
+			}
+		}
+		return connection;
+	}
+
+	/**
+	 * returns a connection after a complete response. connections the subscriber does not
+	 * keep alive and connections above the idle limit are closed.
+	 * @param connection the connection.
+	 */
+	public void release(HttpConnection connection) {
+		if (!connection.isKeepAlive()) {
+			connection.close();
+			return;
+		}
+		long now = System.currentTimeMillis();
+		HttpConnection evicted = null;
+		synchronized (this) {
+			ArrayDeque<HttpConnection> connections = idle.get(connection.getEndpoint());
+			if (null == connections) {
+				connections = new ArrayDeque<HttpConnection>();
+				idle.put(connection.getEndpoint(), connections);
+			}
+			// drop the connections idle for too long
+			for (Iterator<HttpConnection> it = connections.iterator(); it.hasNext();) {
+				HttpConnection candidate = it.next();
+				if (now - candidate.getIdleSince() >= keepAlive) {
+					it.remove();
+					candidate.close();
+				}
+			}
+			connection.setIdleSince(now);
+			connections.addLast(connection);
+			if (connections.size() > maxIdle) {
+				evicted = connections.pollFirst();
+			}
+		}
+		if (null != evicted) {
+			evicted.close();
+		}
+	}
+
+	/**
+	 * @param endpoint the endpoint (host:port).
+	 * @return the number of idle connections to the endpoint.
+	 */
+	public synchronized int getIdleCount(String endpoint) {
+		ArrayDeque<HttpConnection> connections = idle.get(endpoint);
+		return (null == connections) ? 0 : connections.size();
+	}
+
+	/**
+	 * closes all the idle connections.
+	 */
+	public synchronized void clear() {
+		for (ArrayDeque<HttpConnection> connections : idle.values()) {
+			for (HttpConnection connection : connections) {
+				connection.close();
+			}
+		}
+		idle.clear();
+	}
+}
@@ -44,4 +44,10 @@ public interface SubscriberOutputChannel {
 	 * @return true if the notification was sent successfully, exception otherwise.
 	 */
 	boolean notify(CCReports reports) throws ImplementationException;
+	
+	/**
+	 * releases the resources held for the receiver (eg. a shared connection). the channel 
+	 * is not notified after it has been closed.
+	 */
+	void close();
 }
@@ -24,11 +24,19 @@ import java.net.URI;
 import org.apache.log4j.Logger;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.type.TcpDeliveryEngine.Framing;
+import org.fosstrak.ale.util.ReportFormat;
 import org.fosstrak.ale.xsd.ale.epcglobal.CCReports;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 
 /**
- * send message using a standard TCP socket.
+ * send message on a long-lived TCP connection served by the {@link TcpDeliveryEngine}. the 
+ * reports are terminated by a new line or preceded by their length, selected by the 
+ * query parameter <code>framing=newline|length</code> of the notification uri. the binary 
+ * reports (<code>format=binary</code>) and the compressed reports (<code>compression=gzip|deflate</code>)
+ * are always preceded by their length. a compressed frame holds a gzip or zlib stream, the reports 
+ * below the threshold of the {@link Compression} are sent uncompressed: the receiver tells them apart 
+ * by the first byte (0x1f for gzip, 0x78 for zlib).
  * @author swieland
  */
 public class TCPSubscriberOutputChannel extends AbstractSocketSubscriberOutputChannel {
@@ -36,12 +44,26 @@ public class TCPSubscriberOutputChannel extends AbstractSocketSubscriberOutputCh
 	/** logger */
 	private static final Logger LOG = Logger.getLogger(TCPSubscriberOutputChannel.class);
 	
+	/** system property holding the default framing of the reports ("newline" or "length"). */
+	public static final String PROPERTY_FRAMING = "org.fosstrak.ale.tcpFraming";
+	
+	/** the query parameter of the notification uri selecting the framing of the reports. */
+	public static final String PARAMETER_FRAMING = "framing";
+	
 	private URI uri;
 	private final String host;
 	private final int port;	
+	private final Framing framing;
+	private final Compression compression;
+	
+	/** whether the endpoint is acquired from the engine (guarded by this). */
+	private boolean acquired = false;
+	
+	/** whether the channel is closed (guarded by this). */
+	private boolean closed = false;
 	
 	public TCPSubscriberOutputChannel(String notificationURI) throws InvalidURIException {
-		super(notificationURI);
+		super(notificationURI, getFormat(notificationURI));
 		try {
 			uri = new URI(notificationURI);
 			host = uri.getHost();
@@ -50,6 +72,8 @@ public class TCPSubscriberOutputChannel extends AbstractSocketSubscriberOutputCh
 				LOG.error("invalid scheme: " + uri.getScheme());
 				throw new InvalidURIException("invalid scheme: " + uri.getScheme());
 			}
+			compression = getCompression(notificationURI);
+			framing = getFraming(getParameter(notificationURI, PARAMETER_FRAMING), getFormat(), compression);
 		} catch (Exception e) {
 			LOG.error("malformed URI");
 			throw new InvalidURIException("malformed URI: ", e);
@@ -58,10 +82,64 @@ public class TCPSubscriberOutputChannel extends AbstractSocketSubscriberOutputCh
 	
 	@Override
 	public boolean notify(ECReports reports) throws ImplementationException {
-		LOG.debug("Write reports '" + reports.getSpecName() + "' as xml to tcp socket '" + getHost() + ":" + getPort() + "'.");
-		writeToSocket(getXml(reports));
+		LOG.debug("Write reports '" + reports.getSpecName() + "' as " + getFormat().getValue() + " to tcp socket '" + getHost() + ":" + getPort() + "'.");
+		EncodedReports encoded = encode(reports).compress(compression, Compression.getThreshold());
+		synchronized (this) {
+			if (closed) {
+				throw new ImplementationException("The channel to '" + getHost() + ":" + getPort() + "' is closed.");
+			}
+			if (!acquired) {
+				TcpDeliveryEngine.getInstance().acquire(getHost(), getPort(), getFraming());
+				acquired = true;
+			}
+			TcpDeliveryEngine.getInstance().send(getHost(), getPort(), getFraming(), encoded);
+		}
 		return true;
 	}
+	
+	/**
+	 * releases the connection to the subscriber, it is closed once no other channel uses it.
+	 */
+	@Override
+	public synchronized void close() {
+		if (acquired) {
+			TcpDeliveryEngine.getInstance().release(getHost(), getPort(), getFraming());
+			acquired = false;
+		}
+		closed = true;
+	}
+	
+	/**
+	 * @param parameter the framing parameter of the notification uri (may be null).
+	 * @param format the format of the reports.
+	 * @param compression the compression of the reports.
+	 * @return the framing of the reports.
+	 * @throws InvalidURIException if the binary or compressed reports shall be terminated by a new line.
+	 */
+	private static Framing getFraming(String parameter, ReportFormat format, Compression compression) throws InvalidURIException {
+		if (format != ReportFormat.BINARY && compression == Compression.NONE) {
+			return Framing.parse(parameter, Framing.parse(System.getProperty(PROPERTY_FRAMING), Framing.NEWLINE));
+		}
+		Framing framing = Framing.parse(parameter, Framing.LENGTH_PREFIXED);
+		if (framing != Framing.LENGTH_PREFIXED) {
+			throw new InvalidURIException("binary or compressed reports can not be terminated by a new line");
+		}
+		return framing;
+	}
+
+	/**
+	 * @return the framing of the reports on the connection.
+	 */
+	public Framing getFraming() {
+		return framing;
+	}
+
+	/**
+	 * @return the compression of the reports.
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
 
 	@Override
 	public String getHost() {
@@ -0,0 +1,654 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.type;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.fosstrak.ale.exception.ImplementationException;
+
+/**
+ * non-blocking delivery of reports to the TCP subscribers. the engine keeps one long-lived
+ * connection per endpoint (host, port and framing) and serves all the connections from a
+ * few I/O threads, each running a selector. the reports are written as frames with
+ * gathering writes from the shared bytes of the {@link EncodedReports}. a connection
+ * that fails or is closed by the subscriber is re-established with an exponential backoff,
+ * the frames not yet written are kept (up to a limit) and sent once the connection is up
+ * again. without frames waiting the connection is re-established with the next report only.
+ * the backoff is reset once a connection stayed up for the longest delay, such that a
+ * subscriber accepting and closing the connections at once is not redialed in a loop.<br/>
+ * the output channels {@link #acquire(String, int, Framing) acquire} an endpoint before
+ * sending and {@link #release(String, int, Framing) release} it when they are closed, the
+ * connection is closed and its frames are dropped once the last channel released it.<br/>
+ * the engine is configured by system properties:
+ * <ul>
+ * <li>{@value #PROPERTY_IO_THREADS}: number of I/O threads (default {@value #DEFAULT_IO_THREADS}).</li>
+ * <li>{@value #PROPERTY_MAX_PENDING}: frames kept per connection, the oldest are dropped (default {@value #DEFAULT_MAX_PENDING}).</li>
+ * <li>{@value #PROPERTY_MIN_BACKOFF} / {@value #PROPERTY_MAX_BACKOFF}: milliseconds between reconnection attempts
+ * (default {@value #DEFAULT_MIN_BACKOFF} doubling up to {@value #DEFAULT_MAX_BACKOFF}).</li>
+ * </ul>
+ */
+public final class TcpDeliveryEngine {
+
+	/** logger */
+	private static final Logger LOG = Logger.getLogger(TcpDeliveryEngine.class);
+
+	/** system property holding the number of I/O threads. */
+	public static final String PROPERTY_IO_THREADS = "org.fosstrak.ale.tcpIoThreads";
+
+	/** system property holding the number of frames kept per connection. */
+	public static final String PROPERTY_MAX_PENDING = "org.fosstrak.ale.tcpMaxPendingFrames";
+
+	/** system property holding the first delay in milliseconds before a reconnection. */
+	public static final String PROPERTY_MIN_BACKOFF = "org.fosstrak.ale.tcpMinBackoff";
+
+	/** system property holding the longest delay in milliseconds before a reconnection. */
+	public static final String PROPERTY_MAX_BACKOFF = "org.fosstrak.ale.tcpMaxBackoff";
+
+	/** default number of I/O threads. */
+	public static final int DEFAULT_IO_THREADS = 2;
+
+	/** default number of frames kept per connection. */
+	public static final int DEFAULT_MAX_PENDING = 256;
+
+	/** default first delay before a reconnection. */
+	public static final long DEFAULT_MIN_BACKOFF = 100L;
+
+	/** default longest delay before a reconnection. */
+	public static final long DEFAULT_MAX_BACKOFF = 30000L;
+
+	/**
+	 * the framing of the reports on the connection.
+	 */
+	public enum Framing {
+		/** the reports are terminated by a new line. */
+		NEWLINE,
+		/** the reports are preceded by their length in bytes (4 bytes, big endian). */
+		LENGTH_PREFIXED;
+
+		/**
+		 * @param value the name of a framing ("newline" or "length"), case insensitive.
+		 * @param defaultFraming the framing to use if the value is null or empty.
+		 * @return the framing.
+		 * @throws IllegalArgumentException if the framing is unknown.
+		 */
+		public static Framing parse(String value, Framing defaultFraming) {
+			if (null == value || value.trim().length() == 0) {
+				return defaultFraming;
+			}
+			String v = value.trim();
+			if ("newline".equalsIgnoreCase(v) || NEWLINE.name().equalsIgnoreCase(v)) {
+				return NEWLINE;
+			}
+			if ("length".equalsIgnoreCase(v) || LENGTH_PREFIXED.name().equalsIgnoreCase(v)) {
+				return LENGTH_PREFIXED;
+			}
+			throw new IllegalArgumentException("unknown framing: " + value);
+		}
+	}
+
+	/** the terminator of a new line framed report. */
+	private static final ByteBuffer NEW_LINE;
+	static {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1);
+		buffer.put((byte) '\n');
+		buffer.flip();
+		NEW_LINE = buffer.asReadOnlyBuffer();
+	}
+
+	/** the engine shared by all the TCP subscribers. */
+	private static final TcpDeliveryEngine INSTANCE = new TcpDeliveryEngine(
+			Integer.getInteger(PROPERTY_IO_THREADS, DEFAULT_IO_THREADS),
+			Integer.getInteger(PROPERTY_MAX_PENDING, DEFAULT_MAX_PENDING),
+			Long.getLong(PROPERTY_MIN_BACKOFF, DEFAULT_MIN_BACKOFF),
+			Long.getLong(PROPERTY_MAX_BACKOFF, DEFAULT_MAX_BACKOFF));
+
+	/** the connections by endpoint. */
+	private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<String, Connection>();
+
+	/** the I/O threads, lazily started. */
+	private final IoThread[] ioThreads;
+
+	/** assigns the connections to the I/O threads. */
+	private final AtomicInteger nextThread = new AtomicInteger();
+
+	private final int maxPending;
+	private final long minBackoff;
+	private final long maxBackoff;
+
+	/**
+	 * creates an engine.
+	 * @param threads the number of I/O threads.
+	 * @param maxPending the number of frames kept per connection.
+	 * @param minBackoff the first delay in milliseconds before a reconnection.
+	 * @param maxBackoff the longest delay in milliseconds before a reconnection.
+	 */
+	public TcpDeliveryEngine(int threads, int maxPending, long minBackoff, long maxBackoff) {
+		ioThreads = new IoThread[Math.max(1, threads)];
+		this.maxPending = Math.max(1, maxPending);
+		this.minBackoff = Math.max(1L, minBackoff);
+		this.maxBackoff = Math.max(this.minBackoff, maxBackoff);
+	}
+
+	/**
+	 * @return the engine shared by all the TCP subscribers.
+	 */
+	public static TcpDeliveryEngine getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * registers a user of the connection to the given endpoint, the connection is created by the first user.
+	 * @param host the host of the subscriber.
+	 * @param port the port of the subscriber.
+	 * @param framing the framing of the reports.
+	 * @throws ImplementationException if the host of a new endpoint is unknown.
+	 */
+	public void acquire(String host, int port, Framing framing) throws ImplementationException {
+		String key = key(host, port, framing);
+		synchronized (connections) {
+			Connection connection = connections.get(key);
+			if (null == connection) {
+				if (new InetSocketAddress(host, port).isUnresolved()) {
+					throw new ImplementationException("Host '" + host + "' not found.");
+				}
+				connection = new Connection(key, host, port, ioThread());
+				connections.put(key, connection);
+			}
+			connection.users++;
+		}
+	}
+
+	/**
+	 * unregisters a user of the connection to the given endpoint. the connection of the last user 
+	 * is removed, its socket is closed and the frames not yet written are dropped.
+	 * @param host the host of the subscriber.
+	 * @param port the port of the subscriber.
+	 * @param framing the framing of the reports.
+	 */
+	public void release(String host, int port, Framing framing) {
+		String key = key(host, port, framing);
+		final Connection connection;
+		synchronized (connections) {
+			connection = connections.get(key);
+			if (null == connection || --connection.users > 0) {
+				return;
+			}
+			connections.remove(key);
+		}
+		connection.released = true;
+		connection.ioThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				connection.shutdown();
+			}
+		});
+	}
+
+	/**
+	 * queues reports for the delivery on the connection to the given endpoint.
+	 * @param host the host of the subscriber.
+	 * @param port the port of the subscriber.
+	 * @param framing the framing of the reports.
+	 * @param reports the encoded reports.
+	 * @throws ImplementationException if the endpoint is not acquired.
+	 */
+	public void send(String host, int port, Framing framing, EncodedReports reports) throws ImplementationException {
+		Connection connection = connections.get(key(host, port, framing));
+		if (null == connection) {
+			throw new ImplementationException("The endpoint " + key(host, port, framing) + " is not acquired.");
+		}
+		connection.enqueue(createFrame(framing, reports));
+	}
+
+	/**
+	 * @param host the host of the subscriber.
+	 * @param port the port of the subscriber.
+	 * @param framing the framing of the reports.
+	 * @return the number of frames not yet written to the endpoint.
+	 */
+	public int getPendingFrames(String host, int port, Framing framing) {
+		Connection connection = connections.get(key(host, port, framing));
+		return (null == connection) ? 0 : connection.getPending();
+	}
+
+	/**
+	 * @param host the host of the subscriber.
+	 * @param port the port of the subscriber.
+	 * @param framing the framing of the reports.
+	 * @return the number of frames dropped because the endpoint could not keep up.
+	 */
+	public long getDroppedFrames(String host, int port, Framing framing) {
+		Connection connection = connections.get(key(host, port, framing));
+		return (null == connection) ? 0 : connection.getDropped();
+	}
+
+	/**
+	 * @return the number of endpoints served by the engine.
+	 */
+	public int getConnectionCount() {
+		return connections.size();
+	}
+
+	private static String key(String host, int port, Framing framing) {
+		return host + ":" + port + "/" + framing;
+	}
+
+	/**
+	 * @return the next I/O thread (round robin), started on demand.
+	 */
+	private IoThread ioThread() throws ImplementationException {
+		int index = (nextThread.getAndIncrement() & Integer.MAX_VALUE) % ioThreads.length;
+		synchronized (ioThreads) {
+			if (null == ioThreads[index]) {
+				try {
+					ioThreads[index] = new IoThread("TcpDeliveryEngine-" + (index + 1));
+				} catch (IOException e) {
+					throw new ImplementationException("Could not open a selector.", e);
+				}
+				ioThreads[index].start();
+			}
+			return ioThreads[index];
+		}
+	}
+
+	/**
+	 * @return the buffers of a frame holding the reports.
+	 */
+	private static ByteBuffer[] createFrame(Framing framing, EncodedReports reports) {
+		ByteBuffer body = reports.getBuffer();
+		if (framing == Framing.LENGTH_PREFIXED) {
+			ByteBuffer length = ByteBuffer.allocate(4);
+			length.putInt(0, reports.getLength());
+			return new ByteBuffer[] { length, body };
+		}
+		return new ByteBuffer[] { body, NEW_LINE.duplicate() };
+	}
+
+	/**
+	 * a long-lived connection to an endpoint. the frames are queued by the delivering threads,
+	 * the socket is handled by the I/O thread of the connection only.
+	 */
+	private final class Connection {
+
+		private final String key;
+		private final String host;
+		private final int port;
+		private final IoThread ioThread;
+
+		/** the frames not yet written (guarded by this). */
+		private final ArrayDeque<ByteBuffer[]> pending = new ArrayDeque<ByteBuffer[]>();
+
+		/** the number of frames dropped (guarded by this). */
+		private long dropped = 0;
+
+		/** whether a flush of the connection is queued on the I/O thread. */
+		private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+		/** the number of output channels using the connection (guarded by the connections). */
+		private int users = 0;
+
+		/** whether the last user released the connection. */
+		private volatile boolean released = false;
+
+		/** state of the socket (I/O thread only). */
+		private SocketChannel channel;
+		private SelectionKey selectionKey;
+		private boolean connected = false;
+		private ByteBuffer[] current;
+		private long backoff = 0;
+		private long nextAttempt = 0;
+		private long connectedSince = 0;
+
+		private Connection(String key, String host, int port, IoThread ioThread) {
+			this.key = key;
+			this.host = host;
+			this.port = port;
+			this.ioThread = ioThread;
+		}
+
+		/**
+		 * queues a frame and makes sure the I/O thread writes it.
+		 */
+		private void enqueue(ByteBuffer[] frame) {
+			synchronized (this) {
+				if (pending.size() >= maxPending) {
+					pending.poll();
+					dropped++;
+					LOG.warn("subscriber " + key + " does not keep up - dropping the oldest reports.");
+				}
+				pending.add(frame);
+			}
+			if (flushScheduled.compareAndSet(false, true)) {
+				ioThread.execute(new Runnable() {
+					@Override
+					public void run() {
+						flushScheduled.set(false);
+						flush();
+					}
+				});
+			}
+		}
+
+		private synchronized int getPending() {
+			return pending.size() + ((null == current) ? 0 : 1);
+		}
+
+		private synchronized long getDropped() {
+			return dropped;
+		}
+
+		/**
+		 * connects if needed and writes as much as possible (I/O thread).
+		 */
+		private void flush() {
+			if (released) {
+				return;
+			}
+			if (null == channel) {
+				if (System.currentTimeMillis() >= nextAttempt) {
+					connect();
+				} else {
+					// still backing off from the last failure
+					ioThread.retry(this);
+				}
+				return;
+			}
+			if (connected) {
+				write();
+			}
+		}
+
+		/**
+		 * starts a non-blocking connection (I/O thread).
+		 */
+		private void connect() {
+			try {
+				channel = SocketChannel.open();
+				channel.configureBlocking(false);
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+				channel.setOption(StandardSocketOptions.SO_KEEPALIVE, Boolean.TRUE);
+				InetSocketAddress address = new InetSocketAddress(host, port);
+				if (address.isUnresolved()) {
+					throw new IOException("unknown host " + host);
+				}
+				if (channel.connect(address)) {
+					selectionKey = channel.register(ioThread.selector, 0, this);
+					connected();
+				} else {
+					selectionKey = channel.register(ioThread.selector, SelectionKey.OP_CONNECT, this);
+				}
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+
+		/**
+		 * completes a pending connection (I/O thread).
+		 */
+		private void finishConnect() {
+			try {
+				if (channel.finishConnect()) {
+					connected();
+				}
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+
+		private void connected() {
+			LOG.debug("connected to subscriber " + key);
+			connected = true;
+			connectedSince = System.currentTimeMillis();
+			// read to notice when the subscriber closes the connection
+			selectionKey.interestOps(SelectionKey.OP_READ);
+			write();
+		}
+
+		/**
+		 * writes the pending frames with gathering writes until the socket buffer is full (I/O thread).
+		 */
+		private void write() {
+			try {
+				while (true) {
+					if (null == current) {
+						synchronized (this) {
+							current = pending.poll();
+						}
+						if (null == current) {
+							selectionKey.interestOps(SelectionKey.OP_READ);
+							return;
+						}
+					}
+					channel.write(current);
+					if (current[current.length - 1].hasRemaining()) {
+						// socket buffer full, continue when writable
+						selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+						return;
+					}
+					synchronized (this) {
+						current = null;
+					}
+				}
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+
+		/**
+		 * reads (and ignores) the data sent by the subscriber, detects the end of the connection (I/O thread).
+		 */
+		private void read() {
+			try {
+				ByteBuffer scratch = ioThread.scratch;
+				int count;
+				do {
+					scratch.clear();
+					count = channel.read(scratch);
+				} while (count > 0);
+				if (count < 0) {
+					closed();
+				}
+			} catch (IOException e) {
+				failed(e);
+			}
+		}
+
+		/**
+		 * the subscriber closed the connection: reconnect after the backoff if frames are waiting, 
+		 * with the next frame otherwise.
+		 */
+		private void closed() {
+			LOG.debug("subscriber " + key + " closed the connection.");
+			delay();
+			close();
+			if (isWaiting()) {
+				ioThread.retry(this);
+			}
+		}
+
+		/**
+		 * the connection failed: retry later with a longer delay if frames are waiting, with the next frame otherwise.
+		 */
+		private void failed(IOException e) {
+			delay();
+			close();
+			if (isWaiting()) {
+				LOG.warn("could not deliver reports to subscriber " + key + " (" + e.getMessage() + ") - retrying in " + backoff + "ms.");
+				ioThread.retry(this);
+			} else {
+				LOG.warn("could not deliver reports to subscriber " + key + " (" + e.getMessage() + ") - retrying with the next report.");
+			}
+		}
+
+		/**
+		 * doubles the delay before the next connection attempt, starting over if the connection 
+		 * stayed up for the longest delay.
+		 */
+		private void delay() {
+			long now = System.currentTimeMillis();
+			if (connected && now - connectedSince >= maxBackoff) {
+				backoff = 0;
+			}
+			backoff = (backoff == 0) ? minBackoff : Math.min(maxBackoff, backoff * 2);
+			nextAttempt = now + backoff;
+		}
+
+		private synchronized boolean isWaiting() {
+			return !released && ((null != current) || !pending.isEmpty());
+		}
+
+		/**
+		 * closes the socket of a released connection and drops its frames (I/O thread).
+		 */
+		private void shutdown() {
+			LOG.debug("released the connection to subscriber " + key);
+			ioThread.retries.remove(this);
+			close();
+			synchronized (this) {
+				pending.clear();
+				current = null;
+			}
+		}
+
+		private void close() {
+			connected = false;
+			if (null != selectionKey) {
+				selectionKey.cancel();
+				selectionKey = null;
+			}
+			if (null != channel) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					LOG.debug("could not close the connection to " + key, e);
+				}
+				channel = null;
+			}
+			// a partially written frame is sent again from its start
+			synchronized (this) {
+				if (null != current) {
+					for (ByteBuffer buffer : current) {
+						buffer.rewind();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * an I/O thread serving the connections registered with its selector.
+	 */
+	private final class IoThread extends Thread {
+
+		private final Selector selector;
+
+		/** the tasks queued by the delivering threads. */
+		private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+		/** the connections waiting for their next connection attempt (I/O thread only). */
+		private final PriorityQueue<Connection> retries = new PriorityQueue<Connection>(16, new Comparator<Connection>() {
+			@Override
+			public int compare(Connection c1, Connection c2) {
+				return Long.compare(c1.nextAttempt, c2.nextAttempt);
+			}
+		});
+
+		/** buffer receiving the ignored data of the subscribers. */
+		private final ByteBuffer scratch = ByteBuffer.allocateDirect(512);
+
+		private IoThread(String name) throws IOException {
+			super(name);
+			setDaemon(true);
+			selector = Selector.open();
+		}
+
+		private void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		private void retry(Connection connection) {
+			retries.remove(connection);
+			retries.add(connection);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				try {
+					long timeout = 0;
+					Connection next = retries.peek();
+					if (null != next) {
+						timeout = Math.max(1L, next.nextAttempt - System.currentTimeMillis());
+					}
+					selector.select(timeout);
+
+					Runnable task;
+					while (null != (task = tasks.poll())) {
+						task.run();
+					}
+
+					long now = System.currentTimeMillis();
+					while (null != (next = retries.peek()) && next.nextAttempt <= now) {
+						retries.poll();
+						if (null == next.channel && !next.released) {
+							next.connect();
+						}
+					}
+
+					Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+					while (it.hasNext()) {
+						SelectionKey key = it.next();
+						it.remove();
+						if (!key.isValid()) {
+							continue;
+						}
+						Connection connection = (Connection) key.attachment();
+						if (key.isConnectable()) {
+							connection.finishConnect();
+						} else {
+							if (key.isReadable()) {
+								connection.read();
+							}
+							if (key.isValid() && key.isWritable()) {
+								connection.write();
+							}
+						}
+					}
+				} catch (Exception e) {
+					LOG.error("unexpected error in the tcp delivery", e);
+				}
+			}
+		}
+	}
+}
@@ -26,11 +26,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.fosstrak.ale.server.ReportDigest;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 import org.fosstrak.ale.xsd.epcglobal.EPC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -41,6 +44,49 @@ import org.springframework.stereotype.Service;
  */
 @Service("ecReportsHelper")
 public class ECReportsHelper {
+	
+	/** if true, a matching digest is verified by comparing the reports. */
+	@Value(value = "${reportOnlyOnChange.strict:false}")
+	private boolean strictReportOnlyOnChange = false;
+	
+	/**
+	 * decides whether a report is unchanged since the last round (reportOnlyOnChange). the digests 
+	 * of the filtered tags of the two rounds are compared group by group. in strict mode a match 
+	 * is verified by comparing the content of the reports. if no digest is available, the 
+	 * content is compared.
+	 * @param reportSpec the report spec of the report.
+	 * @param newReport the report of the current round.
+	 * @param oldReport the report of the last round, may be null.
+	 * @param newDigest the digest of the current round, may be null.
+	 * @param oldDigest the digest of the last round, may be null.
+	 * @return true if the report is unchanged.
+	 */
+	public boolean isReportUnchanged(ECReportSpec reportSpec, ECReport newReport, ECReport oldReport, ReportDigest newDigest, ReportDigest oldDigest) {
+		if (null == newDigest) {
+			return areReportsEqual(reportSpec, newReport, oldReport);
+		}
+		if (!newDigest.matches(oldDigest)) {
+			return false;
+		}
+		if (strictReportOnlyOnChange) {
+			return areReportsEqual(reportSpec, newReport, oldReport);
+		}
+		return true;
+	}
+	
+	/**
+	 * @return true if a matching digest is verified by comparing the reports.
+	 */
+	public boolean isStrictReportOnlyOnChange() {
+		return strictReportOnlyOnChange;
+	}
+	
+	/**
+	 * @param strictReportOnlyOnChange if true, a matching digest is verified by comparing the reports.
+	 */
+	public void setStrictReportOnlyOnChange(boolean strictReportOnlyOnChange) {
+		this.strictReportOnlyOnChange = strictReportOnlyOnChange;
+	}
 
 	/**
 	 * compares the content of two ECReports and decides on the content whether they equal or not. the 
@@ -131,4 +177,31 @@ public class ECReportsHelper {
 		set.add(epc.getValue());
 		return true;
 	}
+	
+	/**
+	 * creates a new ECReports with the header of the given ECReports and the given list of ECReport. 
+	 * the ECReport instances are shared with the given ECReports, they are not copied.
+	 * @param reports the ECReports to take the header from.
+	 * @param reportList the ECReport instances of the new ECReports.
+	 * @return the new ECReports.
+	 */
+	public ECReports copyWithReports(ECReports reports, List<ECReport> reportList) {
+		ECReports copy = new ECReports();
+		copy.setSpecName(reports.getSpecName());
+		copy.setDate(reports.getDate());
+		copy.setALEID(reports.getALEID());
+		copy.setTotalMilliseconds(reports.getTotalMilliseconds());
+		copy.setInitiationCondition(reports.getInitiationCondition());
+		copy.setInitiationTrigger(reports.getInitiationTrigger());
+		copy.setTerminationCondition(reports.getTerminationCondition());
+		copy.setTerminationTrigger(reports.getTerminationTrigger());
+		copy.setSchemaURL(reports.getSchemaURL());
+		copy.setECSpec(reports.getECSpec());
+		copy.setExtension(reports.getExtension());
+		copy.getAny().addAll(reports.getAny());
+		copy.getOtherAttributes().putAll(reports.getOtherAttributes());
+		copy.setReports(new ECReports.Reports());
+		copy.getReports().getReport().addAll(reportList);
+		return copy;
+	}
 }
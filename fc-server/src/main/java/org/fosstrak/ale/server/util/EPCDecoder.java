@@ -0,0 +1,340 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.util;
+
+import org.epcglobalinc.tdt.LevelTypeList;
+import org.fosstrak.ale.server.EPCKey;
+
+/**
+ * decodes the 96 bit EPC schemes that dominate real deployments (SGTIN-96, SSCC-96,
+ * SGLN-96, GRAI-96, GIAI-96 and GID-96) into their TAG_ENCODING and PURE_IDENTITY
+ * URIs with plain bit arithmetic, following the EPC Tag Data Standard.<br/>
+ * the EPC is given as two words: the first 64 bits and the remaining 32 bits left
+ * aligned in the second word (the layout of {@link EPCKey}).<br/>
+ * whenever the EPC is not one of these schemes or a field is out of range the
+ * decoder returns null and the caller falls back to the TDT engine.
+ */
+public final class EPCDecoder {
+
+	/** length of the supported EPCs. */
+	public static final int EPC_LENGTH = 96;
+
+	private static final int HEADER_SGTIN_96 = 0x30;
+	private static final int HEADER_SSCC_96 = 0x31;
+	private static final int HEADER_SGLN_96 = 0x32;
+	private static final int HEADER_GRAI_96 = 0x33;
+	private static final int HEADER_GIAI_96 = 0x34;
+	private static final int HEADER_GID_96 = 0x35;
+
+	/** number of bits of the company prefix, indexed by the partition value. */
+	private static final int[] COMPANY_PREFIX_BITS = { 40, 37, 34, 30, 27, 24, 20 };
+
+	/** number of digits of the company prefix, indexed by the partition value. */
+	private static final int[] COMPANY_PREFIX_DIGITS = { 12, 11, 10, 9, 8, 7, 6 };
+
+	/** SGTIN: bits and digits of the item reference (including the indicator). */
+	private static final int[] SGTIN_ITEM_BITS = { 4, 7, 10, 14, 17, 20, 24 };
+	private static final int[] SGTIN_ITEM_DIGITS = { 1, 2, 3, 4, 5, 6, 7 };
+
+	/** SSCC: bits and digits of the serial reference (including the extension digit). */
+	private static final int[] SSCC_SERIAL_BITS = { 18, 21, 24, 28, 31, 34, 38 };
+	private static final int[] SSCC_SERIAL_DIGITS = { 5, 6, 7, 8, 9, 10, 11 };
+
+	/** SGLN: bits and digits of the location reference. */
+	private static final int[] SGLN_LOCATION_BITS = { 1, 4, 7, 11, 14, 17, 21 };
+	private static final int[] SGLN_LOCATION_DIGITS = { 0, 1, 2, 3, 4, 5, 6 };
+
+	/** GRAI: bits and digits of the asset type. */
+	private static final int[] GRAI_ASSET_BITS = { 4, 7, 10, 14, 17, 20, 24 };
+	private static final int[] GRAI_ASSET_DIGITS = { 0, 1, 2, 3, 4, 5, 6 };
+
+	/** GIAI: bits of the individual asset reference. */
+	private static final int[] GIAI_ASSET_BITS = { 42, 45, 48, 52, 55, 58, 62 };
+
+	/** GIAI: maximum number of digits of the individual asset reference. */
+	private static final int[] GIAI_ASSET_DIGITS = { 12, 13, 14, 15, 16, 17, 18 };
+
+	/** GIAI: zero padding of the individual asset reference (as in the TDT scheme definition). */
+	private static final int[] GIAI_ASSET_PADDING = { 0, 13, 14, 0, 0, 0, 0 };
+
+	/** powers of ten up to 10^18. */
+	private static final long[] POW10 = new long[19];
+	static {
+		POW10[0] = 1;
+		for (int i = 1; i < POW10.length; i++) {
+			POW10[i] = POW10[i - 1] * 10;
+		}
+	}
+
+	/**
+	 * private utility class.
+	 */
+	private EPCDecoder() {
+	}
+
+	/**
+	 * decodes the given EPC.
+	 * @param key the packed EPC.
+	 * @param outputLevel the destination format, TAG_ENCODING or PURE_IDENTITY.
+	 * @return the URI or null if the EPC cannot be decoded natively.
+	 */
+	public static String decode(EPCKey key, LevelTypeList outputLevel) {
+		if ((null == key) || (key.length() != EPC_LENGTH)) {
+			return null;
+		}
+		return decode(key.getWord(0), key.getWord(1), outputLevel);
+	}
+
+	/**
+	 * decodes the given 96 bit EPC.
+	 * @param high the first 64 bits of the EPC.
+	 * @param low the last 32 bits of the EPC in the upper half of the word.
+	 * @param outputLevel the destination format, TAG_ENCODING or PURE_IDENTITY.
+	 * @return the URI or null if the EPC cannot be decoded natively.
+	 */
+	public static String decode(long high, long low, LevelTypeList outputLevel) {
+		final boolean tag;
+		if (LevelTypeList.TAG_ENCODING == outputLevel) {
+			tag = true;
+		} else if (LevelTypeList.PURE_IDENTITY == outputLevel) {
+			tag = false;
+		} else {
+			return null;
+		}
+		if ((low & 0xFFFFFFFFL) != 0) {
+			// more than 96 bits
+			return null;
+		}
+
+		final int header = (int) (high >>> 56);
+		switch (header) {
+		case HEADER_SGTIN_96:
+			return decodeSGTIN(high, low, tag);
+		case HEADER_SSCC_96:
+			return decodeSSCC(high, low, tag);
+		case HEADER_SGLN_96:
+			return decodeSGLN(high, low, tag);
+		case HEADER_GRAI_96:
+			return decodeGRAI(high, low, tag);
+		case HEADER_GIAI_96:
+			return decodeGIAI(high, low, tag);
+		case HEADER_GID_96:
+			return decodeGID(high, low, tag);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * SGTIN-96: header 8, filter 3, partition 3, company prefix and item reference 44, serial 38.
+	 */
+	private static String decodeSGTIN(long high, long low, boolean tag) {
+		int partition = partition(high, low);
+		if (partition < 0) {
+			return null;
+		}
+		int cpBits = COMPANY_PREFIX_BITS[partition];
+		long companyPrefix = bits(high, low, 14, cpBits);
+		long item = bits(high, low, 14 + cpBits, SGTIN_ITEM_BITS[partition]);
+		long serial = bits(high, low, 58, 38);
+		StringBuilder sb = start(tag, "sgtin-96:", "sgtin:", high, low);
+		if (!appendPadded(sb, companyPrefix, COMPANY_PREFIX_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.');
+		if (!appendPadded(sb, item, SGTIN_ITEM_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.').append(serial);
+		return sb.toString();
+	}
+
+	/**
+	 * SSCC-96: header 8, filter 3, partition 3, company prefix and serial reference 58, unallocated 24.
+	 */
+	private static String decodeSSCC(long high, long low, boolean tag) {
+		int partition = partition(high, low);
+		if (partition < 0 || bits(high, low, 72, 24) != 0) {
+			return null;
+		}
+		int cpBits = COMPANY_PREFIX_BITS[partition];
+		long companyPrefix = bits(high, low, 14, cpBits);
+		long serial = bits(high, low, 14 + cpBits, SSCC_SERIAL_BITS[partition]);
+		StringBuilder sb = start(tag, "sscc-96:", "sscc:", high, low);
+		if (!appendPadded(sb, companyPrefix, COMPANY_PREFIX_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.');
+		if (!appendPadded(sb, serial, SSCC_SERIAL_DIGITS[partition])) {
+			return null;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * SGLN-96: header 8, filter 3, partition 3, company prefix and location reference 41, extension 41.
+	 */
+	private static String decodeSGLN(long high, long low, boolean tag) {
+		int partition = partition(high, low);
+		if (partition < 1) {
+			// an empty location reference is left to TDT
+			return null;
+		}
+		int cpBits = COMPANY_PREFIX_BITS[partition];
+		long companyPrefix = bits(high, low, 14, cpBits);
+		long location = bits(high, low, 14 + cpBits, SGLN_LOCATION_BITS[partition]);
+		long extension = bits(high, low, 55, 41);
+		StringBuilder sb = start(tag, "sgln-96:", "sgln:", high, low);
+		if (!appendPadded(sb, companyPrefix, COMPANY_PREFIX_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.');
+		if (!appendPadded(sb, location, SGLN_LOCATION_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.').append(extension);
+		return sb.toString();
+	}
+
+	/**
+	 * GRAI-96: header 8, filter 3, partition 3, company prefix and asset type 44, serial 38.
+	 */
+	private static String decodeGRAI(long high, long low, boolean tag) {
+		int partition = partition(high, low);
+		if (partition < 1) {
+			// an empty asset type is left to TDT
+			return null;
+		}
+		int cpBits = COMPANY_PREFIX_BITS[partition];
+		long companyPrefix = bits(high, low, 14, cpBits);
+		long assetType = bits(high, low, 14 + cpBits, GRAI_ASSET_BITS[partition]);
+		long serial = bits(high, low, 58, 38);
+		StringBuilder sb = start(tag, "grai-96:", "grai:", high, low);
+		if (!appendPadded(sb, companyPrefix, COMPANY_PREFIX_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.');
+		if (!appendPadded(sb, assetType, GRAI_ASSET_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.').append(serial);
+		return sb.toString();
+	}
+
+	/**
+	 * GIAI-96: header 8, filter 3, partition 3, company prefix and individual asset reference 82.
+	 */
+	private static String decodeGIAI(long high, long low, boolean tag) {
+		int partition = partition(high, low);
+		if (partition < 0) {
+			return null;
+		}
+		int cpBits = COMPANY_PREFIX_BITS[partition];
+		long companyPrefix = bits(high, low, 14, cpBits);
+		long asset = bits(high, low, 14 + cpBits, GIAI_ASSET_BITS[partition]);
+		if (asset >= POW10[GIAI_ASSET_DIGITS[partition]]) {
+			return null;
+		}
+		StringBuilder sb = start(tag, "giai-96:", "giai:", high, low);
+		if (!appendPadded(sb, companyPrefix, COMPANY_PREFIX_DIGITS[partition])) {
+			return null;
+		}
+		sb.append('.');
+		if (GIAI_ASSET_PADDING[partition] > 0) {
+			appendPadded(sb, asset, GIAI_ASSET_PADDING[partition]);
+		} else {
+			sb.append(asset);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * GID-96: header 8, general manager 28, object class 24, serial 36.
+	 */
+	private static String decodeGID(long high, long low, boolean tag) {
+		long manager = bits(high, low, 8, 28);
+		long objectClass = bits(high, low, 36, 24);
+		long serial = bits(high, low, 60, 36);
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(tag ? "urn:epc:tag:gid-96:" : "urn:epc:id:gid:");
+		sb.append(manager).append('.').append(objectClass).append('.').append(serial);
+		return sb.toString();
+	}
+
+	/**
+	 * starts the URI: prefix and for the tag encoding the filter value.
+	 */
+	private static StringBuilder start(boolean tag, String tagScheme, String idScheme, long high, long low) {
+		StringBuilder sb = new StringBuilder(64);
+		if (tag) {
+			sb.append("urn:epc:tag:").append(tagScheme).append(bits(high, low, 8, 3)).append('.');
+		} else {
+			sb.append("urn:epc:id:").append(idScheme);
+		}
+		return sb;
+	}
+
+	/**
+	 * @return the partition value or -1 if invalid.
+	 */
+	private static int partition(long high, long low) {
+		int partition = (int) bits(high, low, 11, 3);
+		return (partition < COMPANY_PREFIX_BITS.length) ? partition : -1;
+	}
+
+	/**
+	 * appends the value zero padded to the given number of digits.
+	 * @return false if the value has more digits.
+	 */
+	private static boolean appendPadded(StringBuilder sb, long value, int digits) {
+		if (value >= POW10[digits]) {
+			return false;
+		}
+		for (int i = digits - 1; i > 0 && value < POW10[i]; i--) {
+			sb.append('0');
+		}
+		if (digits > 0) {
+			sb.append(value);
+		}
+		return true;
+	}
+
+	/**
+	 * extracts up to 63 bits of the EPC.
+	 * @param high the first 64 bits.
+	 * @param low the following bits, left aligned.
+	 * @param offset the offset of the first bit.
+	 * @param length the number of bits.
+	 * @return the bits as unsigned value.
+	 */
+	private static long bits(long high, long low, int offset, int length) {
+		final int end = offset + length;
+		if (end <= 64) {
+			return (high >>> (64 - end)) & mask(length);
+		}
+		if (offset >= 64) {
+			return (low >>> (128 - end)) & mask(length);
+		}
+		final int lowLength = end - 64;
+		return ((high & mask(64 - offset)) << lowLength) | (low >>> (64 - lowLength));
+	}
+
+	private static long mask(int length) {
+		return (length >= 64) ? -1L : ((1L << length) - 1);
+	}
+}
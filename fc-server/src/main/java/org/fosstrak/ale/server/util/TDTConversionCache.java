@@ -0,0 +1,287 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.epcglobalinc.tdt.LevelTypeList;
+import org.fosstrak.tdt.TDTEngine;
+
+/**
+ * bounded cache for the results of TDT conversions. the same EPCs are read over
+ * and over again in every event cycle, whereas a conversion through the TDT engine
+ * runs the whole rule engine on every call.<br/>
+ * the cache is split into segments, each segment is an access ordered map guarded
+ * by its own lock that evicts its least recently used entry when full. the cache
+ * keeps counters for hits, misses and evictions.
+ */
+public final class TDTConversionCache {
+
+	/** default number of conversions kept in the cache. */
+	public static final int DEFAULT_CAPACITY = 65536;
+
+	/** number of segments (power of two). */
+	private static final int SEGMENTS = 16;
+
+	/** the segments. */
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	/** the capacity of the cache. */
+	private final int capacity;
+
+	/** number of lookups served from the cache. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** number of lookups not served from the cache. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** number of entries evicted. */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * creates a cache with the default capacity.
+	 */
+	public TDTConversionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates a cache.
+	 * @param capacity the maximum number of conversions kept in the cache.
+	 */
+	public TDTConversionCache(int capacity) {
+		if (capacity < SEGMENTS) {
+			throw new IllegalArgumentException("capacity must be at least " + SEGMENTS);
+		}
+		this.capacity = capacity;
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(capacity / SEGMENTS);
+		}
+	}
+
+	/**
+	 * looks up a conversion.
+	 * @param tdt the TDT engine performing the conversion.
+	 * @param tag the tag to convert (binary or TAG_ENCODING).
+	 * @param tagLength the taglength parameter (may be null).
+	 * @param filter the filter parameter (may be null).
+	 * @param companyPrefixLength the company prefix length parameter (may be null).
+	 * @param outputLevel the destination format.
+	 * @return the cached conversion or null if the conversion is not cached.
+	 */
+	public String get(TDTEngine tdt, String tag, String tagLength, String filter, String companyPrefixLength, LevelTypeList outputLevel) {
+		Key key = new Key(tdt, tag, tagLength, filter, companyPrefixLength, outputLevel);
+		String result = segmentFor(key).get(key);
+		if (null == result) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return result;
+	}
+
+	/**
+	 * stores a conversion.
+	 * @param tdt the TDT engine performing the conversion.
+	 * @param tag the tag to convert (binary or TAG_ENCODING).
+	 * @param tagLength the taglength parameter (may be null).
+	 * @param filter the filter parameter (may be null).
+	 * @param companyPrefixLength the company prefix length parameter (may be null).
+	 * @param outputLevel the destination format.
+	 * @param converted the result of the conversion (null values are not stored).
+	 */
+	public void put(TDTEngine tdt, String tag, String tagLength, String filter, String companyPrefixLength, LevelTypeList outputLevel, String converted) {
+		if (null == converted) {
+			return;
+		}
+		Key key = new Key(tdt, tag, tagLength, filter, companyPrefixLength, outputLevel);
+		segmentFor(key).put(key, converted);
+	}
+
+	/**
+	 * removes all the conversions (the counters are kept).
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of conversions in the cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of conversions kept in the cache.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of lookups served from the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups not served from the cache.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of conversions evicted from the cache.
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the ratio of lookups served from the cache (0 if there was no lookup yet).
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return (total == 0) ? 0d : ((double) h) / total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TDTConversionCache[size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+				size(), capacity, getHits(), getMisses(), getEvictions(), getHitRate());
+	}
+
+	/**
+	 * @return the segment holding the given key.
+	 */
+	private Segment segmentFor(Key key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * access ordered map evicting the least recently used entry.
+	 */
+	private final class Segment {
+
+		/** the entries. */
+		private final LinkedHashMap<Key, String> map;
+
+		private Segment(final int segmentCapacity) {
+			map = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+					if (size() > segmentCapacity) {
+						evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		private synchronized String get(Key key) {
+			return map.get(key);
+		}
+
+		private synchronized void put(Key key, String value) {
+			map.put(key, value);
+		}
+
+		private synchronized void clear() {
+			map.clear();
+		}
+
+		private synchronized int size() {
+			return map.size();
+		}
+	}
+
+	/**
+	 * the parameters of a conversion.
+	 */
+	private static final class Key {
+
+		/** the engine (compared by identity). */
+		private final TDTEngine tdt;
+		private final String tag;
+		private final String tagLength;
+		private final String filter;
+		private final String companyPrefixLength;
+		private final LevelTypeList outputLevel;
+		private final int hash;
+
+		private Key(TDTEngine tdt, String tag, String tagLength, String filter, String companyPrefixLength, LevelTypeList outputLevel) {
+			this.tdt = tdt;
+			this.tag = tag;
+			this.tagLength = tagLength;
+			this.filter = filter;
+			this.companyPrefixLength = companyPrefixLength;
+			this.outputLevel = outputLevel;
+			int h = System.identityHashCode(tdt);
+			h = 31 * h + hashCode(tag);
+			h = 31 * h + hashCode(tagLength);
+			h = 31 * h + hashCode(filter);
+			h = 31 * h + hashCode(companyPrefixLength);
+			h = 31 * h + hashCode(outputLevel);
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return (hash == other.hash) && (tdt == other.tdt) && (outputLevel == other.outputLevel)
+					&& equal(tag, other.tag) && equal(tagLength, other.tagLength)
+					&& equal(filter, other.filter) && equal(companyPrefixLength, other.companyPrefixLength);
+		}
+
+		private static int hashCode(Object o) {
+			return (null == o) ? 0 : o.hashCode();
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return (null == a) ? (null == b) : a.equals(b);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.epcglobalinc.tdt.LevelTypeList;
+import org.fosstrak.ale.server.EPCKey;
 import org.fosstrak.ale.server.Tag;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputSpec;
@@ -44,6 +45,9 @@ public final class TagHelper {
 
 	/** instance of the TDT engine used for tag conversion. */
 	private static TDTEngine engine;
+	
+	/** cache for the results of the conversions through TDT. */
+	private static final TDTConversionCache conversionCache = new TDTConversionCache();
 
 	public static final String EXTRA_PARAMS_COMPANYPREFIXLENGTH = "companyprefixlength";
 	public static final String EXTRA_PARAMS_FILTER = "filter";
@@ -229,6 +233,15 @@ public final class TagHelper {
 	 */
 	public static void setTDTEngine(TDTEngine tdt) {
 		engine = tdt;
+		conversionCache.clear();
+	}
+	
+	/**
+	 * returns the cache holding the results of the conversions through TDT (eg. to read its hit rate).
+	 * @return the conversion cache.
+	 */
+	public static TDTConversionCache getConversionCache() {
+		return conversionCache;
 	}
 	
 	/**
@@ -287,8 +300,7 @@ public final class TagHelper {
 	 */
 	public static String convert_to_LEGACY(String tagLength, String filter, String companyPrefixLength, String tag, TDTEngine tdt) {		
 		LevelTypeList outputLevel = LevelTypeList.LEGACY;
-		Map<String, String> extraparms = createExtraParams(tagLength, filter, companyPrefixLength);		
-		return convert(tag, extraparms, outputLevel, tdt);
+		return convertCached(tagLength, filter, companyPrefixLength, tag, outputLevel, tdt);
 	}
 	
 	/**
@@ -314,8 +326,7 @@ public final class TagHelper {
 	 */
 	public static String convert_to_PURE_IDENTITY(String tagLength, String filter, String companyPrefixLength, String tag, TDTEngine tdt) {		
 		LevelTypeList outputLevel = LevelTypeList.PURE_IDENTITY;
-		Map<String, String> extraparms = createExtraParams(tagLength, filter, companyPrefixLength);				
-		return convert(tag, extraparms, outputLevel, tdt);		
+		return convertCached(tagLength, filter, companyPrefixLength, tag, outputLevel, tdt);
 	}
 
 	/**
@@ -341,8 +352,67 @@ public final class TagHelper {
 	 */
 	public static String convert_to_TAG_ENCODING(String tagLength, String filter, String companyPrefixLength, String tag, TDTEngine tdt) {		
 		LevelTypeList outputLevel = LevelTypeList.TAG_ENCODING;
-		Map<String, String> extraparms = createExtraParams(tagLength, filter, companyPrefixLength);		
-		return convert(tag, extraparms, outputLevel, tdt);
+		return convertCached(tagLength, filter, companyPrefixLength, tag, outputLevel, tdt);
+	}
+	
+	/**
+	 * converts the given tag into PURE_IDENTITY format. the packed id of the tag is decoded 
+	 * natively, the binary string is only created for a conversion through TDT.
+	 * @param tag the tag to convert.
+	 * @param tdt the TDT to use for the transformation.
+	 * @return a converted tag.
+	 */
+	public static String convert_to_PURE_IDENTITY(Tag tag, TDTEngine tdt) {
+		return convertTag(tag, LevelTypeList.PURE_IDENTITY, tdt);
+	}
+
+	/**
+	 * converts the given tag into TAG_ENCODING format. the packed id of the tag is decoded 
+	 * natively, the binary string is only created for a conversion through TDT.
+	 * @param tag the tag to convert.
+	 * @param tdt the TDT to use for the transformation.
+	 * @return a converted tag.
+	 */
+	public static String convert_to_TAG_ENCODING(Tag tag, TDTEngine tdt) {
+		return convertTag(tag, LevelTypeList.TAG_ENCODING, tdt);
+	}
+
+	/**
+	 * converts the given tag, first natively from the packed id and then through the conversion cache.
+	 */
+	private static String convertTag(Tag tag, LevelTypeList outputLevel, TDTEngine tdt) {
+		String decoded = EPCDecoder.decode(tag.getEPCKey(), outputLevel);
+		if (null != decoded) {
+			return decoded;
+		}
+		return convertCached(tag.getTagLength(), tag.getFilter(), tag.getCompanyPrefixLength(), tag.getTagAsBinary(), outputLevel, tdt);
+	}
+
+	/**
+	 * converts a given tag through tdt, the result is served from the conversion cache if available.
+	 * 96 bit binary EPCs of the common schemes are decoded natively without TDT.
+	 * @param tagLength the inbound taglength.
+	 * @param filter the inbound filter value.
+	 * @param companyPrefixLength length of the EAN.UCC Company Prefix. if set to null parameter is ignored.
+	 * @param tag the tag to convert in binary format or in TAG_ENCODING.
+	 * @param outputLevel the destination format.
+	 * @param tdt the TDT to use for the transformation.
+	 * @return the converted tag.
+	 */
+	private static String convertCached(String tagLength, String filter, String companyPrefixLength, String tag, LevelTypeList outputLevel, TDTEngine tdt) {
+		if ((null != tag) && (tag.length() == EPCDecoder.EPC_LENGTH)) {
+			String decoded = EPCDecoder.decode(EPCKey.fromBinary(tag), outputLevel);
+			if (null != decoded) {
+				return decoded;
+			}
+		}
+		String converted = conversionCache.get(tdt, tag, tagLength, filter, companyPrefixLength, outputLevel);
+		if (null == converted) {
+			Map<String, String> extraparms = createExtraParams(tagLength, filter, companyPrefixLength);
+			converted = convert(tag, extraparms, outputLevel, tdt);
+			conversionCache.put(tdt, tag, tagLength, filter, companyPrefixLength, outputLevel, converted);
+		}
+		return converted;
 	}
 	
 	/**
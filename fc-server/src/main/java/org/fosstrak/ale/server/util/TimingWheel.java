@@ -0,0 +1,394 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * hierarchical timing wheel serving any number of timeouts from a single thread.<br/>
+ * the wheel consists of {@value #LEVELS} levels of {@value #SLOTS} slots each. a slot of
+ * the lowest level covers one tick, a slot of the next level covers all the slots of the
+ * level below. a timeout is put into the lowest level covering its deadline and moves
+ * down one level each time the wheel reaches its slot, such that inserting and
+ * cancelling a timeout is O(1) and a tick only touches the timeouts which are due.<br/>
+ * with a tick of 10ms the levels cover about 46 hours, timeouts further in the future
+ * are parked in the highest level until they come into range.<br/>
+ * the expired tasks are handed to an executor, the thread of the wheel does not run them.
+ */
+public final class TimingWheel {
+
+	/** logger. */
+	private static final Logger LOG = Logger.getLogger(TimingWheel.class);
+
+	/** number of bits of the slot index within a level. */
+	private static final int SLOT_BITS = 6;
+
+	/** number of slots per level. */
+	public static final int SLOTS = 1 << SLOT_BITS;
+
+	/** mask of the slot index within a level. */
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	/** number of levels. */
+	public static final int LEVELS = 4;
+
+	/** the name of the thread of this wheel. */
+	private final String name;
+
+	/** the duration of a tick in nanoseconds. */
+	private final long tickNanos;
+
+	/** the executor running the expired tasks. */
+	private final Executor executor;
+
+	/** the slots of all the levels, guarded by the lock. */
+	private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];
+
+	/** guards the wheel. */
+	private final Object lock = new Object();
+
+	/** the time the wheel was created, tick 0. */
+	private final long startNanos = System.nanoTime();
+
+	/** the last tick processed (guarded by the lock). */
+	private long currentTick = 0;
+
+	/** the number of timeouts in the wheel (guarded by the lock). */
+	private int pending = 0;
+
+	/** the thread advancing the wheel, started with the first timeout (guarded by the lock). */
+	private Thread worker = null;
+
+	/**
+	 * creates a timing wheel.
+	 * @param name the name of the thread of the wheel.
+	 * @param tickMillis the resolution of the wheel in milliseconds.
+	 * @param executor the executor running the expired tasks.
+	 */
+	public TimingWheel(String name, long tickMillis, Executor executor) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("tick must be positive: " + tickMillis);
+		}
+		this.name = name;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.executor = executor;
+	}
+
+	/**
+	 * schedules a task to be run once after the given delay. the task runs on the
+	 * executor of the wheel, at most two ticks late.
+	 * @param task the task.
+	 * @param delay the delay in milliseconds.
+	 * @return the handle to cancel the task.
+	 */
+	public Timeout schedule(Runnable task, long delay) {
+		synchronized (lock) {
+			long nowTick = elapsedTicks();
+			if (pending == 0) {
+				// the wheel is empty, no need to walk the ticks it slept through
+				currentTick = Math.max(currentTick, nowTick);
+			}
+			// round up, the task must not run before its delay has elapsed. the current
+			// tick has already partly elapsed, so count from the start of the next one
+			long ticks = (TimeUnit.MILLISECONDS.toNanos(Math.max(0, delay)) + tickNanos - 1) / tickNanos;
+			if (ticks > 0) {
+				ticks++;
+			}
+			Timeout timeout = new Timeout(this, task, nowTick + ticks);
+			if (!place(timeout)) {
+				timeout.expired = true;
+				executor.execute(task);
+				return timeout;
+			}
+			pending++;
+			if (null == worker) {
+				worker = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						work();
+					}
+				}, name);
+				worker.setDaemon(true);
+				worker.start();
+			}
+			lock.notifyAll();
+			return timeout;
+		}
+	}
+
+	/**
+	 * @return the number of timeouts waiting in the wheel.
+	 */
+	public int size() {
+		synchronized (lock) {
+			return pending;
+		}
+	}
+
+	/**
+	 * @return the number of ticks since the creation of the wheel.
+	 */
+	private long elapsedTicks() {
+		return (System.nanoTime() - startNanos) / tickNanos;
+	}
+
+	/**
+	 * puts a timeout into the lowest level whose slot is reached before its deadline.
+	 * caller holds the lock.
+	 * @param timeout the timeout.
+	 * @return false if the deadline has already been reached.
+	 */
+	private boolean place(Timeout timeout) {
+		long deadline = timeout.deadline;
+		if (deadline <= currentTick) {
+			return false;
+		}
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = SLOT_BITS * (level + 1);
+			// same block of the level above: the slot of this level is reached in time
+			if ((deadline >>> shift) == (currentTick >>> shift)) {
+				link(timeout, level, (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+				return true;
+			}
+		}
+		// beyond the range of the wheel: park in the last slot of the highest level
+		// visited before a full turn, the timeout is placed again from there
+		int shift = SLOT_BITS * (LEVELS - 1);
+		link(timeout, LEVELS - 1, (int) ((currentTick >>> shift) - 1) & SLOT_MASK);
+		return true;
+	}
+
+	/**
+	 * appends a timeout to a slot. caller holds the lock.
+	 */
+	private void link(Timeout timeout, int level, int slot) {
+		Timeout head = wheel[level][slot];
+		timeout.level = level;
+		timeout.slot = slot;
+		timeout.prev = null;
+		timeout.next = head;
+		if (null != head) {
+			head.prev = timeout;
+		}
+		wheel[level][slot] = timeout;
+	}
+
+	/**
+	 * removes a timeout from its slot. caller holds the lock.
+	 */
+	private void unlink(Timeout timeout) {
+		if (null != timeout.prev) {
+			timeout.prev.next = timeout.next;
+		} else {
+			wheel[timeout.level][timeout.slot] = timeout.next;
+		}
+		if (null != timeout.next) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.level = -1;
+	}
+
+	/**
+	 * removes all the timeouts from a slot. caller holds the lock.
+	 * @return the first timeout of the slot, linked through next.
+	 */
+	private Timeout detach(int level, int slot) {
+		Timeout head = wheel[level][slot];
+		wheel[level][slot] = null;
+		return head;
+	}
+
+	/**
+	 * advances the wheel by one tick: the slots of the higher levels reached by the
+	 * tick are moved down and the timeouts of the slot of the lowest level expire.
+	 * caller holds the lock.
+	 * @param expired collects the expired timeouts.
+	 */
+	private void advance(List<Timeout> expired) {
+		currentTick++;
+		int top = 0;
+		while ((top + 1 < LEVELS) && ((currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0)) {
+			top++;
+		}
+		// higher levels first, their timeouts may land in the slots cascaded next
+		for (int level = top; level >= 1; level--) {
+			Timeout timeout = detach(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+			while (null != timeout) {
+				Timeout next = timeout.next;
+				timeout.prev = null;
+				timeout.next = null;
+				if (!place(timeout)) {
+					expire(timeout, expired);
+				}
+				timeout = next;
+			}
+		}
+		Timeout timeout = detach(0, (int) currentTick & SLOT_MASK);
+		while (null != timeout) {
+			Timeout next = timeout.next;
+			timeout.prev = null;
+			timeout.next = null;
+			expire(timeout, expired);
+			timeout = next;
+		}
+	}
+
+	/**
+	 * marks a timeout as expired. caller holds the lock.
+	 */
+	private void expire(Timeout timeout, List<Timeout> expired) {
+		timeout.level = -1;
+		timeout.expired = true;
+		pending--;
+		expired.add(timeout);
+	}
+
+	/**
+	 * main loop of the worker thread: sleeps until the next tick while there are
+	 * timeouts and until the next timeout is scheduled otherwise.
+	 */
+	private void work() {
+		List<Timeout> expired = new ArrayList<Timeout>();
+		while (true) {
+			synchronized (lock) {
+				try {
+					while (pending == 0) {
+						lock.wait();
+					}
+					long nowTick = elapsedTicks();
+					while ((currentTick < nowTick) && (pending > 0)) {
+						advance(expired);
+					}
+					if (pending == 0) {
+						currentTick = Math.max(currentTick, nowTick);
+					}
+				} catch (InterruptedException e) {
+					LOG.debug("timing wheel " + name + " interrupted - leaving.");
+					Thread.currentThread().interrupt();
+					worker = null;
+					return;
+				}
+			}
+			for (Timeout timeout : expired) {
+				try {
+					executor.execute(timeout.task);
+				} catch (RuntimeException e) {
+					LOG.error("could not run the task of timing wheel " + name, e);
+				}
+			}
+			expired.clear();
+			long sleep = startNanos + (currentTickSnapshot() + 1) * tickNanos - System.nanoTime();
+			if (sleep > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				} catch (InterruptedException e) {
+					LOG.debug("timing wheel " + name + " interrupted - leaving.");
+					synchronized (lock) {
+						worker = null;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the last tick processed.
+	 */
+	private long currentTickSnapshot() {
+		synchronized (lock) {
+			return currentTick;
+		}
+	}
+
+	/**
+	 * handle of a task scheduled on a timing wheel.
+	 */
+	public static final class Timeout {
+
+		/** the wheel holding this timeout. */
+		private final TimingWheel owner;
+
+		/** the task to run. */
+		private final Runnable task;
+
+		/** the tick the task is due. */
+		private final long deadline;
+
+		/** position in the wheel, -1 if not in the wheel (guarded by the lock of the wheel). */
+		private int level = -1;
+		private int slot;
+		private Timeout prev;
+		private Timeout next;
+
+		/** flags (guarded by the lock of the wheel). */
+		private boolean expired = false;
+		private boolean cancelled = false;
+
+		private Timeout(TimingWheel owner, Runnable task, long deadline) {
+			this.owner = owner;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * cancels the task if it has not expired yet.
+		 * @return true if the task will not run.
+		 */
+		public boolean cancel() {
+			synchronized (owner.lock) {
+				if (expired) {
+					return false;
+				}
+				if (!cancelled) {
+					cancelled = true;
+					if (level >= 0) {
+						owner.unlink(this);
+						owner.pending--;
+					}
+				}
+				return true;
+			}
+		}
+
+		/**
+		 * @return true if the task has been cancelled.
+		 */
+		public boolean isCancelled() {
+			synchronized (owner.lock) {
+				return cancelled;
+			}
+		}
+
+		/**
+		 * @return true if the task has been handed to the executor.
+		 */
+		public boolean isExpired() {
+			synchronized (owner.lock) {
+				return expired;
+			}
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.delivery.test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.delivery.OverflowPolicy;
+import org.fosstrak.ale.server.delivery.SubscriberQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * test the overflow policies, the in-flight limit and the metrics of the subscriber queue.
+ */
+public class SubscriberQueueTest {
+
+	private ExecutorService executor;
+
+	/** target blocking the deliveries until released, records the delivered reports. */
+	private BlockingTarget target;
+
+	@Before
+	public void before() {
+		executor = Executors.newFixedThreadPool(4);
+		target = new BlockingTarget();
+	}
+
+	@After
+	public void after() {
+		target.release();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testDropOldest() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 2, 1, OverflowPolicy.DROP_OLDEST);
+		queue.offer("r1");
+		// r1 is in flight, the queue holds the next two reports
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		queue.offer("r2");
+		queue.offer("r3");
+		queue.offer("r4");
+		Assert.assertEquals(2, queue.getDepth());
+		Assert.assertEquals(1, queue.getDropped());
+
+		target.release();
+		waitDelivered(queue, 3);
+		Assert.assertEquals("[r1, r3, r4]", target.delivered.toString());
+		Assert.assertEquals(2, queue.getMaxDepth());
+		Assert.assertEquals(4, queue.getOffered());
+		Assert.assertEquals(0, queue.getFailed());
+	}
+
+	@Test
+	public void testCoalesceLatest() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 2, 1, OverflowPolicy.COALESCE_LATEST);
+		queue.offer("r1");
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		queue.offer("r2");
+		queue.offer("r3");
+		queue.offer("r4");
+		Assert.assertEquals(1, queue.getDepth());
+		Assert.assertEquals(2, queue.getDropped());
+
+		target.release();
+		waitDelivered(queue, 2);
+		Assert.assertEquals("[r1, r4]", target.delivered.toString());
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		final SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 1, 1, OverflowPolicy.BLOCK);
+		queue.offer("r1");
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		queue.offer("r2");
+
+		final AtomicBoolean accepted = new AtomicBoolean(false);
+		final CountDownLatch done = new CountDownLatch(1);
+		Thread producer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accepted.set(queue.offer("r3"));
+				done.countDown();
+			}
+		});
+		producer.start();
+		// the producer waits as long as the queue is full
+		Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+		target.release();
+		Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(accepted.get());
+		waitDelivered(queue, 3);
+		Assert.assertEquals("[r1, r2, r3]", target.delivered.toString());
+		Assert.assertEquals(0, queue.getDropped());
+	}
+
+	@Test
+	public void testBlockTimeout() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 1, 1, OverflowPolicy.BLOCK, 100L);
+		queue.offer("r1");
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		queue.offer("r2");
+
+		// the subscriber does not catch up: the caller gives up and the reports are dropped
+		long start = System.currentTimeMillis();
+		Assert.assertFalse(queue.offer("r3"));
+		Assert.assertTrue(System.currentTimeMillis() - start >= 90);
+		Assert.assertEquals(1, queue.getDropped());
+
+		target.release();
+		waitDelivered(queue, 2);
+		Assert.assertEquals("[r1, r2]", target.delivered.toString());
+	}
+
+	@Test
+	public void testInFlightLimit() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 10, 2, OverflowPolicy.DROP_OLDEST);
+		for (int i = 0; i < 5; i++) {
+			queue.offer("r" + i);
+		}
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+		Assert.assertEquals(2, queue.getInFlight());
+		Assert.assertEquals(2, target.concurrent.get());
+		Assert.assertEquals(3, queue.getDepth());
+
+		target.release();
+		waitDelivered(queue, 5);
+		Assert.assertEquals(2, target.maxConcurrent.get());
+		Assert.assertEquals(0, queue.getInFlight());
+		Assert.assertTrue(queue.getMaxLatency() >= 0);
+	}
+
+	@Test
+	public void testCloseDropsPendingReports() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", target, executor, 10, 1, OverflowPolicy.DROP_OLDEST);
+		queue.offer("r1");
+		Assert.assertTrue(target.started.await(5, TimeUnit.SECONDS));
+		queue.offer("r2");
+		queue.offer("r3");
+		queue.close();
+		Assert.assertFalse(queue.offer("r4"));
+		Assert.assertEquals(0, queue.getDepth());
+		Assert.assertEquals(2, queue.getDropped());
+
+		// the delivery in progress is completed
+		target.release();
+		waitDelivered(queue, 1);
+		Thread.sleep(50);
+		Assert.assertEquals("[r1]", target.delivered.toString());
+	}
+
+	@Test
+	public void testFailedDelivery() throws Exception {
+		SubscriberQueue<String> queue = new SubscriberQueue<String>("test", new SubscriberQueue.Target<String>() {
+			@Override
+			public void deliver(String reports) throws Exception {
+				throw new Exception("unreachable subscriber");
+			}
+		}, executor, 10, 1, OverflowPolicy.DROP_OLDEST);
+		queue.offer("r1");
+		queue.offer("r2");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (queue.getFailed() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(2, queue.getFailed());
+		Assert.assertEquals(0, queue.getDelivered());
+	}
+
+	private static void waitDelivered(SubscriberQueue<String> queue, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (queue.getDelivered() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(count, queue.getDelivered());
+	}
+
+	/**
+	 * delivers the reports once released.
+	 */
+	private static final class BlockingTarget implements SubscriberQueue.Target<String> {
+		private final List<String> delivered = new CopyOnWriteArrayList<String>();
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch released = new CountDownLatch(1);
+		private final AtomicInteger concurrent = new AtomicInteger();
+		private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+		@Override
+		public void deliver(String reports) throws Exception {
+			int now = concurrent.incrementAndGet();
+			synchronized (maxConcurrent) {
+				maxConcurrent.set(Math.max(maxConcurrent.get(), now));
+			}
+			started.countDown();
+			try {
+				released.await(5, TimeUnit.SECONDS);
+				delivered.add(reports);
+			} finally {
+				concurrent.decrementAndGet();
+			}
+		}
+
+		private void release() {
+			released.countDown();
+		}
+	}
+}
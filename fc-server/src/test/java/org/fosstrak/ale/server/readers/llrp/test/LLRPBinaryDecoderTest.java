@@ -0,0 +1,104 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.readers.llrp.test;
+
+import java.util.Arrays;
+import java.util.Queue;
+
+import junit.framework.Assert;
+import kr.ac.kaist.resl.ltk.generated.messages.KEEPALIVE;
+import kr.ac.kaist.resl.ltk.generated.messages.RO_ACCESS_REPORT;
+import kr.ac.kaist.resl.ltk.generated.parameters.EPC_96;
+import kr.ac.kaist.resl.ltk.generated.parameters.TagReportData;
+import kr.ac.kaist.resl.ltk.net.LLRPBinaryDecoder;
+import kr.ac.kaist.resl.ltk.net.LLRPEndpoint;
+import kr.ac.kaist.resl.ltk.net.LLRPIoHandlerAdapterImpl;
+import kr.ac.kaist.resl.ltk.net.LLRPRawEndpoint;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.AbstractProtocolDecoderOutput;
+import org.easymock.EasyMock;
+import org.junit.Test;
+import org.llrp.ltk.types.Integer96_HEX;
+
+/**
+ * test that the RO_ACCESS_REPORTs are passed on as their binary frame and decoded for the other endpoints only.
+ */
+public class LLRPBinaryDecoderTest {
+
+	/**
+	 * the RO_ACCESS_REPORTs leave the decoder as their frame, the other messages are decoded.
+	 */
+	@Test
+	public void testDecodeRawReport() throws Exception {
+		byte[] report = createReport().encodeBinary();
+		byte[] keepalive = new KEEPALIVE().encodeBinary();
+
+		LLRPBinaryDecoder decoder = new LLRPBinaryDecoder();
+		IoSession session = new DummySession();
+		AbstractProtocolDecoderOutput out = new AbstractProtocolDecoderOutput() {
+			@Override
+			public void flush(NextFilter nextFilter, IoSession session) {
+			}
+		};
+		decoder.decode(session, IoBuffer.wrap(report), out);
+		decoder.decode(session, IoBuffer.wrap(keepalive), out);
+
+		Queue<Object> messages = out.getMessageQueue();
+		Assert.assertEquals(2, messages.size());
+		Object raw = messages.poll();
+		Assert.assertTrue(raw instanceof byte[]);
+		Assert.assertTrue(Arrays.equals(report, (byte[]) raw));
+		Assert.assertTrue(messages.poll() instanceof KEEPALIVE);
+	}
+
+	/**
+	 * the raw endpoints receive the frame, the other endpoints the report decoded by the generic decoder.
+	 */
+	@Test
+	public void testDeliver() throws Exception {
+		byte[] report = createReport().encodeBinary();
+
+		LLRPRawEndpoint raw = EasyMock.createMock(LLRPRawEndpoint.class);
+		raw.rawMessageReceived(EasyMock.aryEq(report));
+		EasyMock.expectLastCall();
+		LLRPEndpoint endpoint = EasyMock.createMock(LLRPEndpoint.class);
+		endpoint.messageReceived(EasyMock.isA(RO_ACCESS_REPORT.class));
+		EasyMock.expectLastCall();
+		EasyMock.replay(raw, endpoint);
+
+		LLRPIoHandlerAdapterImpl.deliver(raw, report);
+		LLRPIoHandlerAdapterImpl.deliver(endpoint, report);
+
+		EasyMock.verify(raw, endpoint);
+	}
+
+	private RO_ACCESS_REPORT createReport() {
+		TagReportData tagReport = new TagReportData();
+		EPC_96 epc96 = new EPC_96();
+		epc96.setEPC(new Integer96_HEX("300833b2ddd9014000000001"));
+		tagReport.setEPCParameter(epc96);
+		RO_ACCESS_REPORT report = new RO_ACCESS_REPORT();
+		report.addToTagReportDataList(tagReport);
+		return report;
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.readers.llrp.test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.Assert;
+import kr.ac.kaist.resl.ltk.generated.enumerations.C1G2ReadResultType;
+import kr.ac.kaist.resl.ltk.generated.enumerations.C1G2WriteResultType;
+import kr.ac.kaist.resl.ltk.generated.messages.KEEPALIVE;
+import kr.ac.kaist.resl.ltk.generated.messages.RO_ACCESS_REPORT;
+import kr.ac.kaist.resl.ltk.generated.parameters.AccessSpecID;
+import kr.ac.kaist.resl.ltk.generated.parameters.AntennaID;
+import kr.ac.kaist.resl.ltk.generated.parameters.C1G2ReadOpSpecResult;
+import kr.ac.kaist.resl.ltk.generated.parameters.C1G2WriteOpSpecResult;
+import kr.ac.kaist.resl.ltk.generated.parameters.C1G2_CRC;
+import kr.ac.kaist.resl.ltk.generated.parameters.C1G2_PC;
+import kr.ac.kaist.resl.ltk.generated.parameters.Custom;
+import kr.ac.kaist.resl.ltk.generated.parameters.EPCData;
+import kr.ac.kaist.resl.ltk.generated.parameters.EPC_96;
+import kr.ac.kaist.resl.ltk.generated.parameters.FirstSeenTimestampUTC;
+import kr.ac.kaist.resl.ltk.generated.parameters.LastSeenTimestampUTC;
+import kr.ac.kaist.resl.ltk.generated.parameters.PeakRSSI;
+import kr.ac.kaist.resl.ltk.generated.parameters.TagReportData;
+import kr.ac.kaist.resl.ltk.generated.parameters.TagSeenCount;
+import kr.ac.kaist.resl.ltk.net.ROAccessReportDecoder;
+import kr.ac.kaist.resl.ltk.net.TagReportView;
+
+import org.junit.Test;
+import org.llrp.ltk.types.BitArray_HEX;
+import org.llrp.ltk.types.BytesToEnd_HEX;
+import org.llrp.ltk.types.Integer96_HEX;
+import org.llrp.ltk.types.SignedByte;
+import org.llrp.ltk.types.UnsignedInteger;
+import org.llrp.ltk.types.UnsignedLong_DATETIME;
+import org.llrp.ltk.types.UnsignedShort;
+import org.llrp.ltk.types.UnsignedShortArray_HEX;
+
+/**
+ * test the decoding of the RO_ACCESS_REPORTs straight from the message buffer against the generic decoder.
+ */
+public class ROAccessReportDecoderTest {
+
+	private static final String EPC = "300833b2ddd9014000000001";
+
+	/**
+	 * the tag reports encoded by the generated message classes are decoded field by field.
+	 */
+	@Test
+	public void testDecodeTagReports() throws Exception {
+		RO_ACCESS_REPORT report = new RO_ACCESS_REPORT();
+		TagReportData full = createTagReport(EPC);
+		AntennaID antennaID = new AntennaID();
+		antennaID.setAntennaID(new UnsignedShort(3));
+		full.setAntennaID(antennaID);
+		PeakRSSI rssi = new PeakRSSI();
+		rssi.setPeakRSSI(new SignedByte(-57));
+		full.setPeakRSSI(rssi);
+		FirstSeenTimestampUTC firstSeen = new FirstSeenTimestampUTC();
+		firstSeen.setMicroseconds(new UnsignedLong_DATETIME(1300000000123456L));
+		full.setFirstSeenTimestampUTC(firstSeen);
+		LastSeenTimestampUTC lastSeen = new LastSeenTimestampUTC();
+		lastSeen.setMicroseconds(new UnsignedLong_DATETIME(1300000000654321L));
+		full.setLastSeenTimestampUTC(lastSeen);
+		TagSeenCount seenCount = new TagSeenCount();
+		seenCount.setTagCount(new UnsignedShort(7));
+		full.setTagSeenCount(seenCount);
+		AccessSpecID accessSpecID = new AccessSpecID();
+		accessSpecID.setAccessSpecID(new UnsignedInteger(1001));
+		full.setAccessSpecID(accessSpecID);
+		C1G2_PC pc = new C1G2_PC();
+		pc.setPC_Bits(new UnsignedShort(0x3000));
+		full.addToAirProtocolTagDataList(pc);
+		C1G2_CRC crc = new C1G2_CRC();
+		crc.setCRC(new UnsignedShort(0x0a1f));
+		full.addToAirProtocolTagDataList(crc);
+		C1G2ReadOpSpecResult read = new C1G2ReadOpSpecResult();
+		read.setResult(new C1G2ReadResultType(C1G2ReadResultType.Success));
+		read.setOpSpecID(new UnsignedShort(1002));
+		read.setReadData(new UnsignedShortArray_HEX(new short[] { 0x0102, (short) 0xabcd, 0x0000 }));
+		full.addToAccessCommandOpSpecResultList(read);
+		C1G2WriteOpSpecResult write = new C1G2WriteOpSpecResult();
+		write.setResult(new C1G2WriteResultType(C1G2WriteResultType.Tag_Memory_Locked_Error));
+		write.setOpSpecID(new UnsignedShort(1003));
+		write.setNumWordsWritten(new UnsignedShort(2));
+		full.addToAccessCommandOpSpecResultList(write);
+		report.addToTagReportDataList(full);
+		report.addToTagReportDataList(createTagReport("000000000000000000000abc"));
+
+		ROAccessReportDecoder decoder = new ROAccessReportDecoder();
+		TagReportView view = new TagReportView();
+		byte[] message = report.encodeBinary();
+		Assert.assertEquals(ROAccessReportDecoder.TYPENUM, ROAccessReportDecoder.getMessageType(message));
+		Assert.assertTrue(decoder.wrap(ByteBuffer.wrap(message)));
+
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertTrue(view.isEPC96());
+		Assert.assertEquals(96, view.getEPCBitLength());
+		Assert.assertEquals(EPC, view.appendEPCHex(new StringBuilder()).toString());
+		Assert.assertEquals(3, view.getAntennaID());
+		Assert.assertEquals(-57, view.getPeakRSSI());
+		Assert.assertEquals(1300000000123456L, view.getFirstSeenTimestampUTC());
+		Assert.assertEquals(1300000000654321L, view.getLastSeenTimestampUTC());
+		Assert.assertEquals(7, view.getTagSeenCount());
+		Assert.assertEquals(1001L, view.getAccessSpecID());
+		Assert.assertEquals(0x3000, view.getPC());
+		Assert.assertEquals(0x0a1f, view.getCRC());
+		Assert.assertFalse(view.hasChannelIndex());
+		Assert.assertFalse(view.hasROSpecID());
+
+		Assert.assertEquals(2, view.getOpSpecResultCount());
+		Assert.assertEquals(TagReportView.C1G2_READ_RESULT, view.getOpSpecResultType(0));
+		Assert.assertEquals(1002, view.getOpSpecID(0));
+		Assert.assertEquals(C1G2ReadResultType.Success, view.getOpSpecResult(0));
+		Assert.assertEquals(3, view.getOpSpecWordCount(0));
+		Assert.assertEquals(0xabcd, view.getReadDataWord(0, 1));
+		Assert.assertEquals(read.getReadData().toString(), view.appendReadDataHex(0, new StringBuilder()).toString());
+		Assert.assertEquals(TagReportView.C1G2_WRITE_RESULT, view.getOpSpecResultType(1));
+		Assert.assertEquals(1003, view.getOpSpecID(1));
+		Assert.assertEquals(C1G2WriteResultType.Tag_Memory_Locked_Error, view.getOpSpecResult(1));
+		Assert.assertEquals(2, view.getOpSpecWordCount(1));
+
+		// the view is reused, the fields of the previous tag report are cleared
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertEquals("000000000000000000000abc", view.appendEPCHex(new StringBuilder()).toString());
+		Assert.assertFalse(view.hasAntennaID());
+		Assert.assertFalse(view.hasLastSeenTimestampUTC());
+		Assert.assertFalse(view.hasAccessSpecID());
+		Assert.assertFalse(view.hasPC());
+		Assert.assertEquals(0, view.getOpSpecResultCount());
+
+		Assert.assertFalse(decoder.next(view));
+	}
+
+	/**
+	 * the EPCs of other lengths are decoded from the EPCData parameter.
+	 */
+	@Test
+	public void testDecodeEPCData() throws Exception {
+		TagReportData tagReport = new TagReportData();
+		EPCData epcData = new EPCData();
+		epcData.setEPC(new BitArray_HEX("300833b2ddd90140000000010203"));
+		tagReport.setEPCParameter(epcData);
+		RO_ACCESS_REPORT report = new RO_ACCESS_REPORT();
+		report.addToTagReportDataList(tagReport);
+
+		ROAccessReportDecoder decoder = new ROAccessReportDecoder();
+		TagReportView view = new TagReportView();
+		Assert.assertTrue(decoder.wrap(ByteBuffer.wrap(report.encodeBinary())));
+		Assert.assertTrue(decoder.next(view));
+		Assert.assertFalse(view.isEPC96());
+		Assert.assertEquals(112, view.getEPCBitLength());
+		Assert.assertEquals(14, view.getEPCByteLength());
+		Assert.assertEquals("300833b2ddd90140000000010203", view.appendEPCHex(new StringBuilder()).toString());
+		Assert.assertFalse(decoder.next(view));
+	}
+
+	/**
+	 * the reports with custom parameters, the malformed reports and the other messages are left to the generic decoder.
+	 */
+	@Test
+	public void testFallback() throws Exception {
+		ROAccessReportDecoder decoder = new ROAccessReportDecoder();
+
+		RO_ACCESS_REPORT report = new RO_ACCESS_REPORT();
+		report.addToTagReportDataList(createTagReport(EPC));
+		byte[] message = report.encodeBinary();
+		Assert.assertTrue(decoder.wrap(ByteBuffer.wrap(message)));
+		Assert.assertFalse(decoder.wrap(ByteBuffer.wrap(Arrays.copyOf(message, message.length - 1))));
+
+		Custom custom = new Custom();
+		custom.setVendorIdentifier(new UnsignedInteger(25882));
+		custom.setParameterSubtype(new UnsignedInteger(1));
+		custom.setData(new BytesToEnd_HEX("0102"));
+		TagReportData tagReport = createTagReport(EPC);
+		tagReport.addToCustomList(custom);
+		report = new RO_ACCESS_REPORT();
+		report.addToTagReportDataList(tagReport);
+		Assert.assertFalse(decoder.wrap(ByteBuffer.wrap(report.encodeBinary())));
+
+		report = new RO_ACCESS_REPORT();
+		report.addToTagReportDataList(createTagReport(EPC));
+		report.addToCustomList(custom);
+		Assert.assertFalse(decoder.wrap(ByteBuffer.wrap(report.encodeBinary())));
+
+		byte[] keepalive = new KEEPALIVE().encodeBinary();
+		Assert.assertFalse(ROAccessReportDecoder.TYPENUM == ROAccessReportDecoder.getMessageType(keepalive));
+		Assert.assertFalse(decoder.wrap(ByteBuffer.wrap(keepalive)));
+	}
+
+	private TagReportData createTagReport(String epc) {
+		TagReportData tagReport = new TagReportData();
+		EPC_96 epc96 = new EPC_96();
+		epc96.setEPC(new Integer96_HEX(epc));
+		tagReport.setEPCParameter(epc96);
+		return tagReport;
+	}
+}
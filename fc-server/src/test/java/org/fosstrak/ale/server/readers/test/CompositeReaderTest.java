@@ -5,13 +5,17 @@ package org.fosstrak.ale.server.readers.test;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
 
 import org.easymock.EasyMock;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.readers.CompositeReader;
 import org.fosstrak.ale.server.readers.LogicalReader;
 import org.fosstrak.ale.server.readers.LogicalReaderManager;
+import org.fosstrak.ale.server.readers.TagBatchListener;
 import org.fosstrak.ale.xsd.ale.epcglobal.LRProperty;
 import org.fosstrak.ale.xsd.ale.epcglobal.LRSpec;
 import org.junit.Assert;
@@ -228,6 +232,58 @@ public class CompositeReaderTest {
 		Assert.assertEquals("reader", resTag.getReader());
 	}
 	
+	/**
+	 * test that a batch is passed on to the listeners of the composite without copying.
+	 */
+	@Test
+	public void testOnTags() {
+		Tag tag = new Tag();
+		tag.setTagID("hello".getBytes());
+		List<Tag> tags = new LinkedList<Tag> ();
+		tags.add(tag);
+		TagBatch batch = TagBatch.of(tags);
+		
+		CompositeReader reader = new CompositeReader();
+		reader.setName("reader");
+		final List<TagBatch> batches = new LinkedList<TagBatch> ();
+		TagBatchListener listener = new TagBatchListener() {
+			@Override
+			public void onTags(TagBatch batch) {
+				batches.add(batch);
+			}
+		};
+		final List<Object> updates = new LinkedList<Object> ();
+		Observer observer = new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				updates.add(arg);
+			}
+		};
+		reader.addObserver(listener);
+		reader.addObserver(listener);
+		reader.addObserver(observer);
+		Assert.assertEquals(2, reader.countObservers());
+		
+		// stopped readers do not deliver tags
+		reader.stop();
+		reader.onTags(batch);
+		Assert.assertTrue(batches.isEmpty());
+		
+		reader.start();
+		reader.onTags(batch);
+		Assert.assertEquals(1, batches.size());
+		Assert.assertSame(batch, batches.get(0));
+		Assert.assertEquals("reader", tag.getReader());
+		Assert.assertEquals(1, updates.size());
+		Assert.assertSame(tag, ((List<?>) updates.get(0)).get(0));
+		
+		reader.deleteObserver(observer);
+		reader.deleteObserver(listener);
+		Assert.assertEquals(0, reader.countObservers());
+		reader.onTags(batch);
+		Assert.assertEquals(1, batches.size());
+	}
+	
 	/**
 	 * helper class we  need for testing the notify mechanisms.
 	 * @author swieland
@@ -420,6 +420,7 @@ public class ALETest {
 		ECReports result = ale.poll("spec");
 		Assert.assertNotNull(result);
 		Assert.assertEquals(reports, result);
+		Assert.assertEquals(1, ((ALEImpl) ale).getPollCount());
 
 		EasyMock.verify(reportGenerator);
 		EasyMock.verify(rgenProvider);
@@ -0,0 +1,159 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.EPCKey;
+import org.fosstrak.ale.server.Tag;
+import org.junit.Test;
+
+/**
+ * verify the packed EPC key and the tag identity built on top of it.
+ */
+public class EPCKeyTest {
+
+	private static final String TAG1_BINARY = "001100000110100011100101110101100011000011001101000011110010100100011011111001011110100011011100";
+	private static final String TAG1_HEX = "3068E5D630CD0F291BE5E8DC";
+	private static final String TAG1_PURE_URI = "urn:epc:tag:sgtin-96:3.3856019661.060.176561711324";
+
+	@Test
+	public void testBinaryAndHexGiveSameKey() {
+		EPCKey bin = EPCKey.fromBinary(TAG1_BINARY);
+		EPCKey hex = EPCKey.fromHex(TAG1_HEX);
+		Assert.assertEquals(96, bin.length());
+		Assert.assertEquals(2, bin.getWordCount());
+		Assert.assertEquals(bin, hex);
+		Assert.assertEquals(bin.hashCode(), hex.hashCode());
+		Assert.assertEquals(TAG1_BINARY, bin.toString());
+	}
+
+	@Test
+	public void testLengthIsPartOfTheKey() {
+		Assert.assertFalse(EPCKey.fromBinary("0101").equals(EPCKey.fromBinary("01010")));
+	}
+
+	@Test
+	public void testInvalidInput() {
+		Assert.assertNull(EPCKey.fromBinary(null));
+		Assert.assertNull(EPCKey.fromBinary(""));
+		Assert.assertNull(EPCKey.fromBinary("0102"));
+		Assert.assertNull(EPCKey.fromHex("30G8"));
+	}
+
+	@Test
+	public void testHashCodesAreDistributed() {
+		// serials differing only in the upper bits used to end up in the same bucket.
+		Set<Integer> hashes = new HashSet<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			StringBuilder sb = new StringBuilder(TAG1_BINARY.substring(0, 58));
+			String serial = Long.toBinaryString(((long) i) << 20);
+			for (int j = serial.length(); j < 38; j++) {
+				sb.append('0');
+			}
+			sb.append(serial);
+			hashes.add(EPCKey.fromBinary(sb.toString()).hashCode());
+		}
+		Assert.assertEquals(1000, hashes.size());
+	}
+
+	@Test
+	public void testTagEqualsAndHashCode() {
+		Tag tag1 = new Tag("reader");
+		tag1.setTagAsBinary(TAG1_BINARY);
+		tag1.setTagIDAsPureURI(TAG1_PURE_URI);
+
+		Tag tag2 = new Tag("reader");
+		tag2.setTagAsBinary(TAG1_BINARY);
+		tag2.setTagIDAsPureURI(TAG1_PURE_URI);
+
+		Tag other = new Tag("otherReader");
+		other.setTagAsBinary(TAG1_BINARY);
+		other.setTagIDAsPureURI(TAG1_PURE_URI);
+
+		Assert.assertEquals(tag1, tag2);
+		Assert.assertEquals(tag1.hashCode(), tag2.hashCode());
+		Assert.assertFalse(tag1.equals(other));
+
+		Set<Tag> tags = new HashSet<Tag>();
+		tags.add(tag1);
+		Assert.assertTrue(tags.contains(tag2));
+		Assert.assertFalse(tags.add(tag2));
+		Assert.assertTrue(tags.add(other));
+	}
+
+	@Test
+	public void testBitAccessors() {
+		EPCKey key = EPCKey.fromBinary(TAG1_BINARY);
+		Assert.assertFalse(key.getBit(0));
+		Assert.assertTrue(key.getBit(2));
+		// header
+		Assert.assertEquals(0x30L, key.getBits(0, 8));
+		// bits crossing the word boundary
+		Assert.assertEquals(Long.parseLong(TAG1_BINARY.substring(50, 90), 2), key.getBits(50, 40));
+		Assert.assertEquals(new BigInteger(TAG1_BINARY.substring(32), 2).longValue(), key.getBits(32, 64));
+		Assert.assertEquals(TAG1_BINARY.substring(5, 93), key.subKey(5, 88).toString());
+		Assert.assertEquals(new BigInteger(TAG1_BINARY, 2), key.toBigInteger());
+		Assert.assertEquals(new BigInteger(TAG1_BINARY.substring(3, 20), 2), key.subKey(3, 17).toBigInteger());
+
+		try {
+			key.getBits(90, 7);
+			Assert.fail("bits beyond the key");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testByteAndHexForms() {
+		EPCKey key = EPCKey.fromHex(TAG1_HEX);
+		Assert.assertEquals(TAG1_HEX, key.toHexString());
+		Assert.assertEquals(key, EPCKey.fromBytes(key.toByteArray()));
+		Assert.assertEquals(12, key.toByteArray().length);
+		Assert.assertEquals("A8", EPCKey.fromBinary("101010").toHexString());
+		Assert.assertNull(EPCKey.fromBytes(new byte[0]));
+	}
+
+	@Test
+	public void testTagKeepsOnlyThePackedId() {
+		Tag tag = new Tag("reader");
+		tag.setTagAsHex(TAG1_HEX.toLowerCase());
+		tag.setTagAsBinary(TAG1_BINARY);
+		Assert.assertEquals(TAG1_BINARY, tag.getTagAsBinary());
+		Assert.assertEquals(TAG1_HEX, tag.getTagAsHex());
+		Assert.assertEquals(EPCKey.fromBinary(TAG1_BINARY), tag.getEPCKey());
+		Assert.assertEquals(12, tag.getTagID().length);
+
+		// ids which cannot be packed are kept as they are
+		Tag raw = new Tag("reader");
+		raw.setTagAsBinary("original");
+		Assert.assertEquals("original", raw.getTagAsBinary());
+		Assert.assertNull(raw.getEPCKey());
+
+		// the hex id is used if there is no binary id
+		Tag hexOnly = new Tag("reader");
+		hexOnly.setTagAsHex(TAG1_HEX);
+		Assert.assertNull(hexOnly.getTagAsBinary());
+		Assert.assertEquals(EPCKey.fromBinary(TAG1_BINARY), hexOnly.getEPCKey());
+	}
+}
@@ -19,21 +19,26 @@
  */
 package org.fosstrak.ale.server.test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicReference;
 
 import junit.framework.Assert;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.fosstrak.ale.exception.DuplicateSubscriptionException;
 import org.fosstrak.ale.exception.InvalidURIException;
 import org.fosstrak.ale.exception.NoSuchSubscriberException;
 import org.fosstrak.ale.server.EventCycle;
 import org.fosstrak.ale.server.ReportsGenerator;
 import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
 import org.fosstrak.ale.server.impl.EventCycleImpl;
 import org.fosstrak.ale.server.readers.LogicalReader;
 import org.fosstrak.ale.server.readers.LogicalReaderManager;
@@ -225,4 +230,136 @@ public class EventCycleTest {
 		Assert.assertTrue(((EventCycleImpl) cycle).isRoundOver());
 		Assert.assertEquals(1, cycle.getRounds());
 	}
+	
+	@Test
+	public void testEndRoundBeforeDuration() throws Exception {
+		ECSpec ecspec = DeserializerUtil.deserializeECSpec(EventCycleTest.class.getResourceAsStream("/ecspecs/eventCycle-testOneRound.xml"));
+		
+		final String logicalReaderName1 = "LogicalReader1";
+		LogicalReader lr1 = EasyMock.createNiceMock(LogicalReader.class);
+		EasyMock.expect(lr1.getName()).andReturn(logicalReaderName1).anyTimes();
+		EasyMock.replay(lr1);
+		
+		LogicalReaderManager manager = EasyMock.createMock(LogicalReaderManager.class);
+		EasyMock.expect(manager.contains(logicalReaderName1)).andReturn(true).anyTimes();
+		EasyMock.expect(manager.getLogicalReader(logicalReaderName1)).andReturn(lr1).anyTimes();
+		EasyMock.replay(manager);
+		
+		ReportsGenerator reportsGenerator = EasyMock.createMock(ReportsGenerator.class);
+		EasyMock.expect(reportsGenerator.getName()).andReturn("generator").anyTimes();
+		EasyMock.expect(reportsGenerator.getSpec()).andReturn(ecspec).anyTimes();
+		EasyMock.expect(reportsGenerator.isWhenDataAvailable()).andReturn(false).anyTimes();
+		reportsGenerator.notifySubscribers(EasyMock.isA(ECReports.class), EasyMock.isA(EventCycle.class));
+		EasyMock.expectLastCall().once();
+		EasyMock.replay(reportsGenerator);
+		
+		EventCycleImpl cycle = new EventCycleImpl(reportsGenerator, manager);
+		cycle.launch();
+		// a second launch while the round is collecting is ignored
+		cycle.launch();
+		cycle.endRound();
+		
+		// the round ends well before its duration of one second
+		long timeout = System.currentTimeMillis() + 500L;
+		while (!cycle.isRoundOver() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10L);
+		}
+		Assert.assertTrue(cycle.isRoundOver());
+		Assert.assertEquals(1, cycle.getRounds());
+		
+		// the cancelled duration must not end another round
+		Thread.sleep(1200L);
+		Assert.assertEquals(1, cycle.getRounds());
+		EasyMock.verify(reportsGenerator);
+		cycle.stop();
+	}
+
+	/**
+	 * the batches delivered concurrently to a whenDataAvailable event cycle trigger each round 
+	 * once: no round ends empty and the event cycle keeps running.
+	 */
+	@Test
+	public void testWhenDataAvailableConcurrentBatches() throws Exception {
+		final ECSpec ecspec = DeserializerUtil.deserializeECSpec(EventCycleTest.class.getResourceAsStream("/ecspecs/eventCycle-testOneRound.xml"));
+		// the rounds are ended by the data only
+		ecspec.getBoundarySpec().getDuration().setValue(60000L);
+		
+		final String logicalReaderName1 = "LogicalReader1";
+		LogicalReader lr1 = EasyMock.createNiceMock(LogicalReader.class);
+		EasyMock.expect(lr1.getName()).andReturn(logicalReaderName1).anyTimes();
+		EasyMock.replay(lr1);
+		
+		LogicalReaderManager manager = EasyMock.createMock(LogicalReaderManager.class);
+		EasyMock.expect(manager.contains(logicalReaderName1)).andReturn(true).anyTimes();
+		EasyMock.expect(manager.getLogicalReader(logicalReaderName1)).andReturn(lr1).anyTimes();
+		EasyMock.replay(manager);
+		
+		final List<Integer> roundSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		ReportsGenerator reportsGenerator = EasyMock.createMock(ReportsGenerator.class);
+		EasyMock.expect(reportsGenerator.getName()).andReturn("generator").anyTimes();
+		EasyMock.expect(reportsGenerator.getSpec()).andReturn(ecspec).anyTimes();
+		EasyMock.expect(reportsGenerator.isWhenDataAvailable()).andReturn(true).anyTimes();
+		reportsGenerator.notifySubscribers(EasyMock.isA(ECReports.class), EasyMock.isA(EventCycle.class));
+		EasyMock.expectLastCall().andAnswer(new IAnswer<Object>() {
+			@Override
+			public Object answer() throws Throwable {
+				roundSizes.add(((EventCycle) EasyMock.getCurrentArguments()[1]).getTagSnapshot().size());
+				return null;
+			}
+		}).anyTimes();
+		EasyMock.replay(reportsGenerator);
+		
+		final EventCycleImpl cycle = new EventCycleImpl(reportsGenerator, manager);
+		cycle.launch();
+		
+		final Tag t1 = new Tag();
+		t1.setTagAsBinary(TAG1_BINARY);
+		t1.setTagIDAsPureURI(TAG1_PURE_URI);
+		final int readers = 8;
+		final int batches = 200;
+		final CyclicBarrier barrier = new CyclicBarrier(readers);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < readers; i++) {
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < batches; j++) {
+							barrier.await();
+							cycle.onTags(TagBatch.of(t1));
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+			reader.start();
+			threads.add(reader);
+		}
+		for (Thread reader : threads) {
+			reader.join(10000L);
+		}
+		
+		// the last round delivered, the event cycle is collecting again: the next batch ends a round
+		long timeout = System.currentTimeMillis() + 10000L;
+		while ((roundSizes.isEmpty() || cycle.getRounds() != roundSizes.size() + 1) && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10L);
+		}
+		int rounds = cycle.getRounds();
+		int delivered = roundSizes.size();
+		Assert.assertTrue(delivered > 0);
+		Assert.assertEquals(delivered + 1, rounds);
+		// the batches arriving before the round accepts the tags are dropped
+		timeout = System.currentTimeMillis() + 10000L;
+		while (roundSizes.size() == delivered && System.currentTimeMillis() < timeout) {
+			cycle.onTags(TagBatch.of(t1));
+			Thread.sleep(10L);
+		}
+		Assert.assertTrue(roundSizes.size() > delivered);
+		Assert.assertTrue(cycle.getRounds() > rounds);
+		for (Integer size : roundSizes) {
+			Assert.assertEquals(1, size.intValue());
+		}
+		cycle.stop();
+	}
 }
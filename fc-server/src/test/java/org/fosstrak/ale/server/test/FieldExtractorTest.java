@@ -0,0 +1,100 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.FieldExtractor;
+import org.fosstrak.ale.server.Tag;
+import org.junit.Test;
+
+/**
+ * verify the compiled field extractors.
+ */
+public class FieldExtractorTest {
+
+	/** crc, pc and a SGTIN-96 as delivered by the LLRP adaptor. */
+	private static final String EPC_BANK = "1A2B3512" + "3068E5D630CD0F291BE5E8DC";
+
+	@Test
+	public void testBuiltInFields() throws Exception {
+		Tag tag = createTag();
+		Assert.assertEquals(FieldExtractor.Kind.EPC, FieldExtractor.compile("epc").getKind());
+		Assert.assertFalse(FieldExtractor.compile("killPwd").isSupported());
+		Assert.assertEquals(EPC_BANK, FieldExtractor.compile("epcBank").extract(tag));
+		Assert.assertEquals("E2003411", FieldExtractor.compile("tidBank").extract(tag));
+		Assert.assertEquals("0A0B 0C0D", FieldExtractor.compile("userBank").extract(tag));
+		// afi is "@1.8.24": the lower byte of the pc
+		Assert.assertEquals("12", FieldExtractor.compile("afi").extract(tag));
+		// nsi is "@1.9.23": the toggle bit and the afi
+		Assert.assertEquals("112", FieldExtractor.compile("nsi").extract(tag));
+	}
+
+	@Test
+	public void testBankFields() throws Exception {
+		Tag tag = createTag();
+		// user memory, leading zeros are not part of the hex value
+		Assert.assertEquals("A0B", FieldExtractor.compile("@3.16.0").extract(tag));
+		Assert.assertEquals("C0D", FieldExtractor.compile("@3.16.16").extract(tag));
+		// offset defaults to 0
+		Assert.assertEquals("A", FieldExtractor.compile("@3.8").extract(tag));
+		// the EPC header
+		Assert.assertEquals("30", FieldExtractor.compile("@1.8.32").extract(tag));
+		// more than 64 bits
+		Assert.assertEquals("3068E5D630CD0F291BE5E8DC", FieldExtractor.compile("@1.96.32").extract(tag));
+
+		// no user memory
+		tag.setUserMemory(null);
+		Assert.assertNull(FieldExtractor.compile("@3.16.0").extract(tag));
+	}
+
+	@Test
+	public void testUnsupportedFields() throws Exception {
+		Assert.assertFalse(FieldExtractor.compile("@0.32.0").isSupported());
+		Assert.assertFalse(FieldExtractor.compile("@2.32.0").isSupported());
+		try {
+			FieldExtractor.compile("@2.32.0").extract(createTag());
+			Assert.fail("tid bank fields are not supported");
+		} catch (ImplementationException e) {
+			// expected
+		}
+		try {
+			FieldExtractor.compile("@3.x.0");
+			Assert.fail("malformed field name");
+		} catch (ImplementationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testUndefinedSymbolicField() throws Exception {
+		FieldExtractor extractor = FieldExtractor.compile("undefinedSymbolicField");
+		Assert.assertEquals(FieldExtractor.Kind.SYMBOLIC, extractor.getKind());
+		Assert.assertNull(extractor.resolve());
+	}
+
+	private Tag createTag() {
+		Tag tag = new Tag("reader");
+		tag.setEpcBank(EPC_BANK);
+		tag.setTidBank("E2003411");
+		tag.setUserMemory("0A0B 0C0D");
+		return tag;
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.exception.ImplementationException;
+import org.fosstrak.ale.server.EventCycle;
+import org.fosstrak.ale.server.ReportsGenerator;
+import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagBatch;
+import org.fosstrak.ale.server.impl.EventCycleImpl;
+import org.fosstrak.ale.server.impl.ImmediateGeneratorPool;
+import org.fosstrak.ale.server.impl.ReportsGeneratorImpl;
+import org.fosstrak.ale.server.impl.ReportsGeneratorImpl.PendingPoll;
+import org.fosstrak.ale.server.impl.type.ReportsGeneratorsProvider;
+import org.fosstrak.ale.server.readers.LogicalReader;
+import org.fosstrak.ale.server.readers.LogicalReaderManager;
+import org.fosstrak.ale.server.util.ECReportsHelper;
+import org.fosstrak.ale.server.util.ECSpecValidator;
+import org.fosstrak.ale.util.DeserializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECBoundarySpecExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECSpec;
+import org.junit.Test;
+
+/**
+ * test the shared poll rounds and the pool of the reports generators of the immediate requests.
+ */
+public class ImmediateGeneratorPoolTest {
+
+	private static final String LOGICAL_READER = "LogicalReader1";
+
+	private static final String TAG1_BINARY = "001100000110100011100101110101100011000011001101000011110010100100011011111001011110100011011100";
+
+	private static final String TAG1_PURE_URI = "urn:epc:tag:sgtin-96:3.3856019661.060.176561711324";
+
+	private static final String TAG2_BINARY = "001100000010001110010110110100010010101001000111010100001001010010100000100000001010110100111011";
+
+	private static final String TAG2_PURE_URI = "urn:epc:tag:sgtin-96:1.986572296660.2.88592133435";
+
+	/**
+	 * the pollers arriving while a round is pending share the round and its reports.
+	 */
+	@Test
+	public void testConcurrentPollersShareRound() throws Exception {
+		LogicalReader reader = createReader(2, 2);
+		ReportsGeneratorImpl generator = new TestReportsGenerator("shared", getSpec(200), createManager(reader));
+
+		PendingPoll first = generator.requestPoll();
+		PendingPoll second = generator.requestPoll();
+		Assert.assertSame(first, second);
+		Assert.assertFalse(first.isDone());
+
+		ECReports reports = first.await();
+		Assert.assertNotNull(reports);
+		Assert.assertSame(reports, second.await());
+		Assert.assertSame(reports, generator.getPollReports());
+
+		// the next poll requests a new round
+		PendingPoll third = generator.requestPoll();
+		Assert.assertNotSame(first, third);
+		Assert.assertNotSame(reports, third.await());
+		EasyMock.verify(reader);
+	}
+
+	/**
+	 * the immediate requests of the same specification reuse the reports generator and its event cycle,
+	 * the event cycle is deregistered from the reader once the pool is cleared.
+	 */
+	@Test
+	public void testImmediateReusesEventCycle() throws Exception {
+		LogicalReader reader = createReader(1, 1);
+		CountingProvider provider = new CountingProvider(createManager(reader));
+		ImmediateGeneratorPool pool = new ImmediateGeneratorPool(4, 60000);
+
+		ReportsGenerator generator = immediate(pool, provider, getSpec(50));
+		for (int i=0; i<2; i++) {
+			Assert.assertSame(generator, immediate(pool, provider, getSpec(50)));
+		}
+		Assert.assertEquals(1, provider.created.get());
+		Assert.assertEquals(1, pool.size());
+
+		pool.clear();
+		Assert.assertEquals(0, pool.size());
+		EasyMock.verify(reader);
+	}
+
+	/**
+	 * the least recently used idle reports generators exceeding the size are released, as well as the ones idle for the linger time.
+	 */
+	@Test
+	public void testSizeAndLinger() throws Exception {
+		LogicalReader reader = createReader(3, 3);
+		CountingProvider provider = new CountingProvider(createManager(reader));
+
+		ImmediateGeneratorPool pool = new ImmediateGeneratorPool(1, 60000);
+		ReportsGenerator first = immediate(pool, provider, getSpec(50));
+		Assert.assertEquals(1, pool.size());
+		ReportsGenerator second = immediate(pool, provider, getSpec(60));
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(1, pool.size());
+		Assert.assertSame(second, immediate(pool, provider, getSpec(60)));
+		pool.clear();
+
+		pool = new ImmediateGeneratorPool(4, 50);
+		immediate(pool, provider, getSpec(50));
+		Assert.assertEquals(1, pool.size());
+		long timeout = System.currentTimeMillis() + 2000L;
+		while (pool.size() > 0 && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10L);
+		}
+		Assert.assertEquals(0, pool.size());
+		Assert.assertEquals(3, provider.created.get());
+		EasyMock.verify(reader);
+	}
+
+	/**
+	 * the event cycle of an idle whenDataAvailable reports generator does not run rounds in the 
+	 * background: the tags seen between the requests are not reported to the next request.
+	 */
+	@Test
+	public void testWhenDataAvailableIdleBetweenRequests() throws Exception {
+		Capture<EventCycle> cycle = new Capture<EventCycle>();
+		LogicalReader reader = EasyMock.createMock(LogicalReader.class);
+		EasyMock.expect(reader.getName()).andReturn(LOGICAL_READER).anyTimes();
+		EasyMock.expect(reader.isStarted()).andReturn(true).anyTimes();
+		reader.addObserver(EasyMock.capture(cycle));
+		reader.deleteObserver(EasyMock.isA(EventCycle.class));
+		EasyMock.expectLastCall().times(0, 1);
+		EasyMock.replay(reader);
+		CountingProvider provider = new CountingProvider(createManager(reader));
+		ImmediateGeneratorPool pool = new ImmediateGeneratorPool(4, 60000);
+
+		ECSpec spec = getSpec(60000);
+		spec.getBoundarySpec().setExtension(new ECBoundarySpecExtension());
+		spec.getBoundarySpec().getExtension().setWhenDataAvailable(true);
+
+		Assert.assertEquals(1, whenDataAvailable(pool, provider, spec, cycle, TAG1_BINARY, TAG1_PURE_URI));
+		Assert.assertEquals(1, cycle.getValue().getRounds());
+
+		// no round is collecting while the reports generator is idle
+		cycle.getValue().onTags(TagBatch.of(createTag(TAG2_BINARY, TAG2_PURE_URI)));
+		Thread.sleep(100L);
+		Assert.assertEquals(1, cycle.getValue().getRounds());
+
+		Assert.assertEquals(1, whenDataAvailable(pool, provider, spec, cycle, TAG1_BINARY, TAG1_PURE_URI));
+		Assert.assertEquals(2, cycle.getValue().getRounds());
+		Assert.assertEquals(1, provider.created.get());
+
+		pool.clear();
+		EasyMock.verify(reader);
+	}
+
+	/**
+	 * runs an immediate whenDataAvailable request through the pool, the given tag ends the round.
+	 * @return the number of tags reported.
+	 */
+	private int whenDataAvailable(ImmediateGeneratorPool pool, ReportsGeneratorsProvider provider, ECSpec spec, Capture<EventCycle> cycle, String binary, String pureURI) throws Exception {
+		ReportsGenerator generator = pool.acquire(spec, provider, "immediate");
+		try {
+			PendingPoll poll = ((ReportsGeneratorImpl) generator).requestPoll();
+			cycle.getValue().onTags(TagBatch.of(createTag(binary, pureURI)));
+			ECReports reports = poll.await();
+			Assert.assertNotNull(reports);
+			Assert.assertEquals("WhenDataAvailable", reports.getTerminationCondition());
+			return reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().size();
+		} finally {
+			pool.release(generator);
+		}
+	}
+
+	private static Tag createTag(String binary, String pureURI) {
+		Tag tag = new Tag();
+		tag.setTagAsBinary(binary);
+		tag.setTagIDAsPureURI(pureURI);
+		return tag;
+	}
+
+	/**
+	 * runs an immediate request through the pool.
+	 * @return the reports generator serving the request.
+	 */
+	private ReportsGenerator immediate(ImmediateGeneratorPool pool, ReportsGeneratorsProvider provider, ECSpec spec) throws Exception {
+		ReportsGenerator generator = pool.acquire(spec, provider, "immediate");
+		try {
+			Assert.assertNotNull(((ReportsGeneratorImpl) generator).requestPoll().await());
+		} finally {
+			pool.release(generator);
+		}
+		return generator;
+	}
+
+	/**
+	 * @param duration the duration of a round in milliseconds.
+	 * @return a specification with one report of the current tags.
+	 */
+	private ECSpec getSpec(long duration) throws Exception {
+		ECSpec spec = DeserializerUtil.deserializeECSpec(ImmediateGeneratorPoolTest.class.getResourceAsStream("/ecspecs/eventCycle-testOneRound.xml"));
+		spec.getBoundarySpec().getDuration().setValue(duration);
+		return spec;
+	}
+
+	/**
+	 * @param registrations the expected number of event cycles registered on the reader.
+	 * @param deregistrations the expected number of event cycles deregistered from the reader.
+	 * @return the logical reader.
+	 */
+	private LogicalReader createReader(int registrations, int deregistrations) {
+		LogicalReader reader = EasyMock.createMock(LogicalReader.class);
+		EasyMock.expect(reader.getName()).andReturn(LOGICAL_READER).anyTimes();
+		EasyMock.expect(reader.isStarted()).andReturn(true).anyTimes();
+		reader.addObserver(EasyMock.isA(EventCycle.class));
+		EasyMock.expectLastCall().times(registrations);
+		reader.deleteObserver(EasyMock.isA(EventCycle.class));
+		EasyMock.expectLastCall().times(0, deregistrations);
+		EasyMock.replay(reader);
+		return reader;
+	}
+
+	private LogicalReaderManager createManager(LogicalReader reader) {
+		LogicalReaderManager manager = EasyMock.createMock(LogicalReaderManager.class);
+		EasyMock.expect(manager.getLogicalReader(LOGICAL_READER)).andReturn(reader).anyTimes();
+		EasyMock.replay(manager);
+		return manager;
+	}
+
+	private static ECSpecValidator createValidator() {
+		ECSpecValidator validator = EasyMock.createNiceMock(ECSpecValidator.class);
+		EasyMock.replay(validator);
+		return validator;
+	}
+
+	/**
+	 * reports generator creating its event cycles on the given logical reader manager.
+	 */
+	private static class TestReportsGenerator extends ReportsGeneratorImpl {
+
+		private final LogicalReaderManager manager;
+
+		public TestReportsGenerator(String name, ECSpec spec, LogicalReaderManager manager) throws ECSpecValidationException, ImplementationException {
+			super(name, spec, createValidator(), new ECReportsHelper());
+			this.manager = manager;
+		}
+
+		@Override
+		protected EventCycle createEventCycle() throws ImplementationException {
+			return new EventCycleImpl(this, manager);
+		}
+	}
+
+	/**
+	 * provider counting the created reports generators.
+	 */
+	private static class CountingProvider extends ReportsGeneratorsProvider {
+
+		private final LogicalReaderManager manager;
+
+		private final AtomicInteger created = new AtomicInteger();
+
+		public CountingProvider(LogicalReaderManager manager) {
+			this.manager = manager;
+		}
+
+		@Override
+		public ReportsGenerator createNewReportGenerator(String specName, ECSpec spec) throws ECSpecValidationException, ImplementationException {
+			created.incrementAndGet();
+			return new TestReportsGenerator(specName, spec, manager);
+		}
+	}
+}
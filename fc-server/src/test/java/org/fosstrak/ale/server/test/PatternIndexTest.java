@@ -0,0 +1,122 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.server.Pattern;
+import org.fosstrak.ale.server.PatternIndex;
+import org.fosstrak.ale.server.PatternUsage;
+import org.fosstrak.ale.server.TagURIFields;
+import org.junit.Test;
+
+/**
+ * verify that the pattern index gives the same answers as matching every pattern.
+ */
+public class PatternIndexTest {
+
+	@Test
+	public void testExactRangeAndWildcard() throws Exception {
+		PatternIndex index = new PatternIndex();
+		Assert.assertTrue(index.isEmpty());
+		index.add(new Pattern("urn:epc:pat:sgtin-96:3.0614141.812345.[0-9999]", PatternUsage.FILTER));
+		index.add(new Pattern("urn:epc:pat:sgtin-96:3.0614141.[100-200].[1-2]", PatternUsage.FILTER));
+		index.add(new Pattern("urn:epc:pat:sgtin-96:1.*.*.*", PatternUsage.FILTER));
+		Assert.assertEquals(3, index.size());
+
+		Assert.assertTrue(isMember(index, "urn:epc:tag:sgtin-96:3.0614141.812345.6789"));
+		Assert.assertTrue(isMember(index, "urn:epc:tag:sgtin-96:3.0614141.150.1"));
+		Assert.assertTrue(isMember(index, "urn:epc:tag:sgtin-96:3.0614141.200.1"));
+		Assert.assertTrue(isMember(index, "urn:epc:tag:sgtin-96:1.1.2.3"));
+		Assert.assertFalse(isMember(index, "urn:epc:tag:sgtin-96:3.0614141.201.1"));
+		Assert.assertFalse(isMember(index, "urn:epc:tag:sgtin-96:3.0614142.812345.6789"));
+		Assert.assertFalse(isMember(index, "urn:epc:tag:sgtin-64:3.0614141.812345.6789"));
+		Assert.assertFalse(isMember(index, "urn:epc:tag:gid-96:3.0614141.812345"));
+	}
+
+	@Test
+	public void testSameResultAsLinearScan() throws Exception {
+		Random rand = new Random(4711);
+		List<Pattern> patterns = new ArrayList<Pattern>();
+		PatternIndex index = new PatternIndex();
+		while (patterns.size() < 500) {
+			String pattern = "urn:epc:pat:sgtin-96:" + randomField(rand) + "." + randomField(rand)
+					+ "." + randomField(rand) + "." + randomField(rand);
+			if (pattern.endsWith("*.*.*.*")) {
+				// would match every tag
+				continue;
+			}
+			Pattern p;
+			try {
+				p = new Pattern(pattern, PatternUsage.FILTER);
+			} catch (ECSpecValidationException e) {
+				// combination of '*' not supported by the pattern
+				continue;
+			}
+			patterns.add(p);
+			index.add(p);
+		}
+
+		int members = 0;
+		for (int i = 0; i < 20000; i++) {
+			String tagURI = "urn:epc:tag:sgtin-96:" + rand.nextInt(8) + "." + rand.nextInt(30)
+					+ "." + rand.nextInt(30) + "." + rand.nextInt(30);
+			TagURIFields fields = TagURIFields.parse(tagURI);
+			boolean expected = false;
+			for (Pattern p : patterns) {
+				if (p.isMember(fields)) {
+					expected = true;
+					break;
+				}
+			}
+			Assert.assertEquals(tagURI, expected, index.isMember(fields));
+			Assert.assertEquals(tagURI, expected, index.isMember(null, tagURI));
+			if (expected) {
+				members++;
+			}
+		}
+		// make sure both outcomes were exercised
+		Assert.assertTrue(members > 0);
+		Assert.assertTrue(members < 20000);
+	}
+
+	/**
+	 * @return a random data field: an exact value, a range or '*'.
+	 */
+	private String randomField(Random rand) {
+		switch (rand.nextInt(4)) {
+		case 0:
+			return "*";
+		case 1:
+			int low = rand.nextInt(30);
+			return "[" + low + "-" + (low + rand.nextInt(5)) + "]";
+		default:
+			return Integer.toString(rand.nextInt(30));
+		}
+	}
+
+	private boolean isMember(PatternIndex index, String tagURI) {
+		return index.isMember(TagURIFields.parse(tagURI));
+	}
+}
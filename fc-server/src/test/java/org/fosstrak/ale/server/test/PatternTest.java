@@ -27,7 +27,9 @@ import junit.framework.Assert;
 import org.apache.log4j.PropertyConfigurator;
 import org.fosstrak.ale.exception.ECSpecValidationException;
 import org.fosstrak.ale.server.Pattern;
+import org.fosstrak.ale.server.PatternType;
 import org.fosstrak.ale.server.PatternUsage;
+import org.fosstrak.ale.server.TagURIFields;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -132,6 +134,42 @@ public class PatternTest {
 		Assert.assertFalse(filterPattern.isMember(GROUP_NOT_MEMBER_PATTERN));
 	}
 
+	@Test
+	public void testIsMemberParsedTag() throws Exception {
+		Pattern filterPattern = new Pattern(FILTER_PATTERN, PatternUsage.FILTER);
+		
+		Assert.assertTrue(filterPattern.isMember(TagURIFields.parse(GROUP_MEMBER_PATTERN)));
+		Assert.assertFalse(filterPattern.isMember(TagURIFields.parse(GROUP_NOT_MEMBER_PATTERN)));
+		Assert.assertFalse(filterPattern.isMember(TagURIFields.parse("urn:epc:tag:sgtin-96:1.2.3.4")));
+		Assert.assertTrue(new Pattern(TAG_PATTERN, PatternUsage.FILTER).isMember(TagURIFields.parse("urn:epc:tag:sgtin-64:01.2.003.4")));
+	}
+	
+	@Test
+	public void testParseTagURI() throws Exception {
+		TagURIFields fields = TagURIFields.parse("urn:epc:tag:sgtin-96:3.0614141.000812.6789");
+		Assert.assertEquals(PatternType.SGTIN_96, fields.getType());
+		Assert.assertEquals(4, fields.getNumberOfFields());
+		Assert.assertEquals(614141L, fields.getValue(1));
+		Assert.assertEquals(812L, fields.getValue(2));
+		Assert.assertEquals("000812", fields.getField(2));
+		
+		Assert.assertNull(TagURIFields.parse(null));
+		Assert.assertNull(TagURIFields.parse("urn:epc:tag:sgtin-96:3.0614141.812"));
+		Assert.assertNull(TagURIFields.parse("urn:epc:tag:sgtin-96:3.0614141.812.1.2"));
+		Assert.assertNull(TagURIFields.parse("urn:epc:tag:sgtin-96:3.0614141.812."));
+		Assert.assertNull(TagURIFields.parse("urn:epc:tag:sgtin-96:3.*.812.1"));
+		Assert.assertNull(TagURIFields.parse("urn:epc:tag:sgln-96:3.0614141.812.1"));
+		Assert.assertNull(TagURIFields.parse("urn:epc:foo:sgtin-96:3.0614141.812.1"));
+	}
+	
+	@Test
+	public void testGetGroupNameParsedTag() throws Exception {
+		Pattern groupPattern = new Pattern("urn:epc:pat:sgtin-64:1.[1-2].3.X", PatternUsage.GROUP);
+		Assert.assertEquals("urn:epc:pat:sgtin-64:1.[1-2].3.04", groupPattern.getGroupName(TagURIFields.parse("urn:epc:tag:sgtin-64:1.2.3.04")));
+		Assert.assertEquals("urn:epc:pat:sgtin-64:1.[1-2].3.04", groupPattern.getGroupName("urn:epc:tag:sgtin-64:1.2.3.04"));
+		Assert.assertNull(groupPattern.getGroupName(TagURIFields.parse(GROUP_NOT_MEMBER_PATTERN)));
+	}
+
 	//@Test
 	public void testGetGroupName() throws Exception {
 		Pattern groupPattern = new Pattern(GROUP_PATTERN, PatternUsage.GROUP);
@@ -0,0 +1,240 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.fosstrak.ale.server.EventCycle;
+import org.fosstrak.ale.server.Report;
+import org.fosstrak.ale.server.ReportDigest;
+import org.fosstrak.ale.server.ReportRound;
+import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagSnapshot;
+import org.fosstrak.ale.server.util.TagFormatHelper;
+import org.fosstrak.ale.server.util.TagHelper;
+import org.fosstrak.ale.util.ECReportsWriter;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECFieldSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroup;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputFieldSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportOutputSpecExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSetSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpec;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportSpecExtension;
+import org.fosstrak.tdt.TDTEngine;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * test the grouping of the tags into an ec report.
+ */
+public class ReportTest {
+
+	private static final String TAG1_BINARY = "001100000110100011100101110101100011000011001101000011110010100100011011111001011110100011011100";
+	private static final String TAG2_BINARY = "001100000010001110010110110100010010101001000111010100001001010010100000100000001010110100111011";
+	private static final String TAG3_BINARY = "001100000011100110110100111011000100110010011100001110000111001000001011010101011110101100111111";
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		TagHelper.setTDTEngine(new TDTEngine());
+	}
+
+	@Test
+	public void testDuplicateTagFromSecondReader() throws Exception {
+		Set<Tag> tags = new LinkedHashSet<Tag>();
+		tags.add(createTag("reader1", TAG1_BINARY));
+		tags.add(createTag("reader2", TAG1_BINARY));
+		tags.add(createTag("reader1", TAG2_BINARY));
+
+		EventCycle eventCycle = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(tags)).anyTimes();
+		EasyMock.expect(eventCycle.getLastTagSnapshot()).andReturn(TagSnapshot.EMPTY).anyTimes();
+		EasyMock.replay(eventCycle);
+
+		Report report = new Report(createReportSpec("CURRENT"), eventCycle);
+
+		// the group index must be reset between two reports.
+		for (int i = 0; i < 2; i++) {
+			ECReport ecReport = report.getECReport();
+			Assert.assertEquals(1, ecReport.getGroup().size());
+			ECReportGroup group = ecReport.getGroup().get(0);
+			Assert.assertEquals(2, group.getGroupCount().getCount());
+			Assert.assertEquals(2, group.getGroupList().getMember().size());
+
+			// the sighting of the second reader is merged into the first member.
+			ECReportGroupListMember member = group.getGroupList().getMember().get(0);
+			Assert.assertEquals(2, member.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().size());
+			Assert.assertEquals("reader2", member.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().get(1).getReaderName());
+			member = group.getGroupList().getMember().get(1);
+			Assert.assertEquals(1, member.getExtension().getStats().getStat().get(0).getStatBlocks().getStatBlock().size());
+		}
+	}
+
+	@Test
+	public void testAdditionsAndDeletions() throws Exception {
+		Set<Tag> lastTags = new HashSet<Tag>();
+		lastTags.add(createTag("reader1", TAG1_BINARY));
+		lastTags.add(createTag("reader1", TAG2_BINARY));
+		Set<Tag> currentTags = new HashSet<Tag>();
+		// the same tag read by another reader is not an addition
+		currentTags.add(createTag("reader2", TAG2_BINARY));
+		currentTags.add(createTag("reader1", TAG3_BINARY));
+
+		EventCycle eventCycle = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(currentTags)).anyTimes();
+		EasyMock.expect(eventCycle.getLastTagSnapshot()).andReturn(TagSnapshot.create(lastTags)).anyTimes();
+		EasyMock.replay(eventCycle);
+
+		ECReport additions = new Report(createReportSpec("ADDITIONS"), eventCycle).getECReport();
+		Assert.assertEquals(1, additions.getGroup().get(0).getGroupList().getMember().size());
+		Assert.assertEquals(rawHex(TAG3_BINARY), additions.getGroup().get(0).getGroupList().getMember().get(0).getRawHex().getValue());
+
+		ECReport deletions = new Report(createReportSpec("DELETIONS"), eventCycle).getECReport();
+		Assert.assertEquals(1, deletions.getGroup().get(0).getGroupList().getMember().size());
+		Assert.assertEquals(rawHex(TAG1_BINARY), deletions.getGroup().get(0).getGroupList().getMember().get(0).getRawHex().getValue());
+	}
+
+	@Test
+	public void testDigest() throws Exception {
+		Set<Tag> tags = new LinkedHashSet<Tag>();
+		tags.add(createTag("reader1", TAG1_BINARY));
+		tags.add(createTag("reader2", TAG1_BINARY));
+		tags.add(createTag("reader1", TAG2_BINARY));
+		Set<Tag> reordered = new LinkedHashSet<Tag>();
+		reordered.add(createTag("reader1", TAG2_BINARY));
+		reordered.add(createTag("reader1", TAG1_BINARY));
+		Set<Tag> other = new LinkedHashSet<Tag>();
+		other.add(createTag("reader1", TAG1_BINARY));
+		other.add(createTag("reader1", TAG3_BINARY));
+
+		EventCycle eventCycle = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(tags)).once();
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(reordered)).once();
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(other)).once();
+		EasyMock.expect(eventCycle.getLastTagSnapshot()).andReturn(TagSnapshot.EMPTY).anyTimes();
+		EasyMock.replay(eventCycle);
+
+		Report report = new Report(createReportSpec("CURRENT"), eventCycle);
+		Assert.assertNull(report.getDigest());
+
+		report.getECReport();
+		ReportDigest first = report.getDigest();
+		Assert.assertEquals(1, first.getGroupCount());
+		Assert.assertEquals(2, first.getMemberCount(null));
+		Assert.assertNull(report.getLastDigest());
+
+		// the same tags in another order (and without the duplicate sighting) give the same digest
+		report.getECReport();
+		Assert.assertSame(first, report.getLastDigest());
+		Assert.assertTrue(report.getDigest().matches(first));
+
+		report.getECReport();
+		Assert.assertFalse(report.getDigest().matches(report.getLastDigest()));
+		EasyMock.verify(eventCycle);
+	}
+
+	/**
+	 * the xml of a round is streamed from the groups of the round, the JAXB groups are built for JAXB only.
+	 */
+	@Test
+	public void testStreamedFromRound() throws Exception {
+		Set<Tag> tags = new LinkedHashSet<Tag>();
+		tags.add(createTag("reader1", TAG1_BINARY));
+		tags.add(createTag("reader2", TAG1_BINARY));
+		tags.add(createTag("reader1", TAG2_BINARY));
+
+		EventCycle eventCycle = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(eventCycle.getTagSnapshot()).andReturn(TagSnapshot.create(tags)).anyTimes();
+		EasyMock.expect(eventCycle.getLastTagSnapshot()).andReturn(TagSnapshot.EMPTY).anyTimes();
+		EasyMock.replay(eventCycle);
+
+		ECReportSpec spec = createReportSpec("CURRENT");
+		spec.getOutput().setIncludeEPC(true);
+		spec.getOutput().setIncludeTag(true);
+		spec.getOutput().setIncludeRawDecimal(true);
+		spec.getExtension().getStatProfileNames().getStatProfileName().add("TagTimestamps");
+		ECFieldSpec fieldSpec = new ECFieldSpec();
+		fieldSpec.setFieldname("epc");
+		ECReportOutputFieldSpec outputField = new ECReportOutputFieldSpec();
+		outputField.setFieldspec(fieldSpec);
+		spec.getOutput().setExtension(new ECReportOutputSpecExtension());
+		spec.getOutput().getExtension().setFieldList(new ECReportOutputSpecExtension.FieldList());
+		spec.getOutput().getExtension().getFieldList().getField().add(outputField);
+
+		ECReport ecReport = new Report(spec, eventCycle).getECReport();
+		Assert.assertTrue(ecReport instanceof ReportRound);
+		Assert.assertTrue(((ReportRound) ecReport).hasMembers());
+		ECReports reports = new ECReports();
+		reports.setSpecName("spec");
+		reports.setReports(new ECReports.Reports());
+		reports.getReports().getReport().add(ecReport);
+
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		Assert.assertTrue(ECReportsWriter.write(reports, streamed));
+		Field group = ECReport.class.getDeclaredField("group");
+		group.setAccessible(true);
+		Assert.assertNull(group.get(ecReport));
+
+		Assert.assertSame(reports, ReportRound.buildGroups(reports));
+		Assert.assertNotNull(group.get(ecReport));
+		Assert.assertEquals(2, ecReport.getGroup().get(0).getGroupList().getMember().size());
+		ByteArrayOutputStream marshalled = new ByteArrayOutputStream();
+		SerializerUtil.serializeECReports(reports, marshalled);
+		Assert.assertEquals(new String(marshalled.toByteArray(), "UTF-8"), new String(streamed.toByteArray(), "UTF-8"));
+	}
+
+	private String rawHex(String binary) {
+		return TagFormatHelper.formatAsRawHex(binary.length(), TagHelper.getTDTEngine().bin2hex(binary));
+	}
+
+	private ECReportSpec createReportSpec(String reportSet) {
+		ECReportSpec spec = new ECReportSpec();
+		spec.setReportName("report");
+		ECReportSetSpec set = new ECReportSetSpec();
+		set.setSet(reportSet);
+		spec.setReportSet(set);
+		ECReportOutputSpec output = new ECReportOutputSpec();
+		output.setIncludeRawHex(true);
+		output.setIncludeCount(true);
+		spec.setOutput(output);
+		ECReportSpecExtension extension = new ECReportSpecExtension();
+		extension.setStatProfileNames(new ECReportSpecExtension.StatProfileNames());
+		extension.getStatProfileNames().getStatProfileName().add("ReaderNames");
+		spec.setExtension(extension);
+		return spec;
+	}
+
+	private Tag createTag(String origin, String binary) {
+		Tag tag = new Tag(origin);
+		tag.setReader(origin);
+		tag.setTagAsBinary(binary);
+		return tag;
+	}
+}
@@ -21,6 +21,9 @@
 package org.fosstrak.ale.server.test;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,7 @@ import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
 import org.fosstrak.ale.exception.NoSuchSubscriberException;
 import org.fosstrak.ale.server.EventCycle;
+import org.fosstrak.ale.server.ReportDigest;
 import org.fosstrak.ale.server.ReportsGenerator;
 import org.fosstrak.ale.server.ReportsGeneratorState;
 import org.fosstrak.ale.server.impl.ReportsGeneratorImpl;
@@ -61,7 +65,6 @@ import com.rits.cloning.Cloner;
  * @author swieland
  *
  */
-@Ignore
 public class ReportsGeneratorTest {
 	
 	/** logger */
@@ -235,6 +238,40 @@ public class ReportsGeneratorTest {
 		EasyMock.verify(validator);
 	}
 	
+	/**
+	 * test that stopping the reports generator (eg. on undefine) closes its subscribers and releases their connections.
+	 * @throws Exception test failure.
+	 */
+	@Test
+	public void testStopClosesSubscribers() throws Exception {
+		ECSpec spec = ECElementsUtils.createECSpec();
+		ECSpecValidator validator = EasyMock.createNiceMock(ECSpecValidator.class);
+		EasyMock.replay(validator);
+		DeliveringReportsGenerator generator = new DeliveringReportsGenerator("theName", spec, validator);
+		
+		ServerSocket server = new ServerSocket(0);
+		server.setSoTimeout(5000);
+		try {
+			generator.subscribe("tcp://localhost:" + server.getLocalPort());
+			Assert.assertEquals(ReportsGeneratorState.REQUESTED, generator.getState());
+			generator.deliver(ECElementsUtils.createECReports());
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			InputStream in = socket.getInputStream();
+			Assert.assertTrue(in.read() != -1);
+			
+			generator.stop();
+			Assert.assertEquals(0, generator.getSubscribers().size());
+			// the connection to the subscriber is closed
+			while (in.read() != -1) {
+				// skip the reports
+			}
+			socket.close();
+		} finally {
+			server.close();
+		}
+	}
+	
 	/**
 	 * test the notifications for poll and immediate - they should always receive all the reports (even empty).
 	 * @throws Exception test failure. 
@@ -273,6 +310,7 @@ public class ReportsGeneratorTest {
 		EasyMock.verify(reportSpec);
 	}
 	
+	@Ignore("the suppression of the deliveries without reports is disabled in ReportsGeneratorImpl.notifySubscribers")
 	@Test
 	public void testNotifyAllwaysButNotEmpty() throws Exception {
 		ECReports ecReportsNotEmpty = ECReportsHelperTest.getECReports(ECReportsHelperTest.ECREPORTS_NULLGROUP_TWOTAGS);
@@ -360,6 +398,7 @@ public class ReportsGeneratorTest {
 	 * the report spec defines to return even empty reports.
 	 * @throws Exception test failure.
 	 */
+	@Ignore("the suppression of the deliveries without reports is disabled in ReportsGeneratorImpl.notifySubscribers")
 	@Test
 	public void testNotifyReportOnlyOnChange() throws Exception {
 		ECReports ecReportsNotEmpty = ECReportsHelperTest.getECReports(ECReportsHelperTest.ECREPORTS_NULLGROUP_TWOTAGS);
@@ -375,6 +414,9 @@ public class ReportsGeneratorTest {
 		EventCycle ec = EasyMock.createMock(EventCycle.class);
 		EasyMock.expect(ec.getReportSpecByName(null)).andReturn(spec.getReportSpecs().getReportSpec().get(0)).atLeastOnce();
 		EasyMock.expect(ec.getLastReports()).andReturn(lastReports).atLeastOnce();
+		// no digests: the reports are compared by content
+		EasyMock.expect(ec.getReportDigest(null)).andReturn(null).anyTimes();
+		EasyMock.expect(ec.getLastReportDigest(null)).andReturn(null).anyTimes();
 		EasyMock.replay(ec);
 		
 		NonRunnableNotifyableReportsGenerator generator = new NonRunnableNotifyableReportsGenerator("current", spec, validator);				
@@ -400,6 +442,97 @@ public class ReportsGeneratorTest {
 		EasyMock.verify(ec);
 	}
 	
+	/**
+	 * reportOnlyOnChange must not remove the unchanged reports from the ECReports of the round, 
+	 * the pollers and the next round still need them.
+	 * @throws Exception test failure.
+	 */
+	@Test
+	public void testNotifyReportOnlyOnChangeKeepsRoundReports() throws Exception {
+		ECReports ecReportsNotEmpty = ECReportsHelperTest.getECReports(ECReportsHelperTest.ECREPORTS_NULLGROUP_TWOTAGS);
+
+		ECSpec spec = getECSpec(ECSPEC_CURRENT_REPORTSPECNULL_ONLYONCHANGE);
+
+		ECSpecValidator validator = EasyMock.createMock(ECSpecValidator.class);
+		validator.validateSpec(spec);
+		EasyMock.expectLastCall();
+		EasyMock.replay(validator);
+		
+		Map<String, ECReport> lastReports = new HashMap<String, ECReport> ();
+		EventCycle ec = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(ec.getReportSpecByName(null)).andReturn(spec.getReportSpecs().getReportSpec().get(0)).atLeastOnce();
+		EasyMock.expect(ec.getLastReports()).andReturn(lastReports).atLeastOnce();
+		EasyMock.expect(ec.getReportDigest(null)).andReturn(null).anyTimes();
+		EasyMock.expect(ec.getLastReportDigest(null)).andReturn(null).anyTimes();
+		EasyMock.replay(ec);
+		
+		NonRunnableNotifyableReportsGenerator generator = new NonRunnableNotifyableReportsGenerator("current", spec, validator);				
+		generator.notifySubscribers(new Cloner().deepClone(ecReportsNotEmpty), ec);
+		generator.setNotifiedReportsToNull();
+		
+		ECReports second = new Cloner().deepClone(ecReportsNotEmpty);
+		ECReport secondReport = second.getReports().getReport().get(0);
+		generator.notifySubscribers(second, ec);
+		// the subscribers do not get the unchanged report
+		Assert.assertEquals(0, generator.getNotifiedReports().getReports().getReport().size());
+		
+		// the round is untouched and its report is the one compared against in the next round
+		Assert.assertEquals(1, second.getReports().getReport().size());
+		Assert.assertSame(secondReport, lastReports.get(secondReport.getReportName()));
+		
+		EasyMock.verify(validator);
+		EasyMock.verify(ec);
+	}
+	
+	/**
+	 * reportOnlyOnChange compares the digests of the event cycle, not the content of the reports.
+	 * @throws Exception test failure.
+	 */
+	@Test
+	public void testNotifyReportOnlyOnChangeByDigest() throws Exception {
+		ECReports ecReportsNotEmpty = ECReportsHelperTest.getECReports(ECReportsHelperTest.ECREPORTS_NULLGROUP_TWOTAGS);
+
+		ECSpec spec = getECSpec(ECSPEC_CURRENT_REPORTSPECNULL_ONLYONCHANGE);
+
+		ECSpecValidator validator = EasyMock.createMock(ECSpecValidator.class);
+		validator.validateSpec(spec);
+		EasyMock.expectLastCall();
+		EasyMock.replay(validator);
+		
+		ReportDigest.Builder builder = new ReportDigest.Builder();
+		builder.addMember(null, "urn:epc:id:sgtin:1.1.1");
+		ReportDigest first = builder.build();
+		builder = new ReportDigest.Builder();
+		builder.addMember(null, "urn:epc:id:sgtin:1.1.2");
+		ReportDigest second = builder.build();
+		
+		Map<String, ECReport> lastReports = new HashMap<String, ECReport> ();
+		EventCycle ec = EasyMock.createMock(EventCycle.class);
+		EasyMock.expect(ec.getReportSpecByName(null)).andReturn(spec.getReportSpecs().getReportSpec().get(0)).atLeastOnce();
+		EasyMock.expect(ec.getLastReports()).andReturn(lastReports).atLeastOnce();
+		EasyMock.expect(ec.getReportDigest(null)).andReturn(first).andReturn(first).andReturn(second);
+		EasyMock.expect(ec.getLastReportDigest(null)).andReturn(null).andReturn(first).andReturn(first);
+		EasyMock.replay(ec);
+		
+		NonRunnableNotifyableReportsGenerator generator = new NonRunnableNotifyableReportsGenerator("current", spec, validator);				
+		// first run: no previous digest
+		generator.notifySubscribers(new Cloner().deepClone(ecReportsNotEmpty), ec);
+		Assert.assertEquals(1, generator.getNotifiedReports().getReports().getReport().size());
+		
+		// second run: the content differs but the digests match
+		ECReports r2 = new Cloner().deepClone(ecReportsNotEmpty);
+		r2.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().remove(0);
+		generator.notifySubscribers(r2, ec);
+		Assert.assertEquals(0, generator.getNotifiedReports().getReports().getReport().size());
+		
+		// third run: the content is equal but the digests differ
+		generator.notifySubscribers(new Cloner().deepClone(ecReportsNotEmpty), ec);
+		Assert.assertEquals(1, generator.getNotifiedReports().getReports().getReport().size());
+		
+		EasyMock.verify(validator);
+		EasyMock.verify(ec);
+	}
+	
 	/**
 	 * verify that either tags are contained or not at all.
 	 * @param notifiedReports the reports to verify.
@@ -441,6 +574,27 @@ public class ReportsGeneratorTest {
 		}
 	}
 	
+	/**
+	 * reports generator running a mocked event cycle and delivering given reports to its subscribers.
+	 */
+	private class DeliveringReportsGenerator extends ReportsGeneratorImpl {
+		
+		public DeliveringReportsGenerator(String name, ECSpec spec, ECSpecValidator validator) throws ECSpecValidationException, ImplementationException {
+			super(name, spec, validator, new ECReportsHelper());
+		}
+		
+		@Override
+		protected EventCycle createEventCycle() throws ImplementationException {
+			EventCycle eventCycle = EasyMock.createNiceMock(EventCycle.class);
+			EasyMock.replay(eventCycle);
+			return eventCycle;
+		}
+		
+		public void deliver(ECReports reports) {
+			notifySubscribersWithFilteredReports(reports);
+		}
+	}
+	
 	/**
 	 * helper class for tests
 	 * @author swieland
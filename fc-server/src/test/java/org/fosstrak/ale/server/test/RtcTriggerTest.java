@@ -0,0 +1,105 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.exception.ECSpecValidationException;
+import org.fosstrak.ale.server.impl.RtcTrigger;
+import org.junit.Test;
+
+/**
+ * test the parsing and the fire times of the real time clock triggers.
+ */
+public class RtcTriggerTest {
+
+	private static final Runnable NOOP = new Runnable() {
+		@Override
+		public void run() {
+		}
+	};
+
+	@Test
+	public void testNextFireTime() throws Exception {
+		RtcTrigger trigger = new RtcTrigger("urn:epcglobal:ale:trigger:rtc:30000.15000.Z", NOOP);
+		Assert.assertEquals(TimeZone.getTimeZone("UTC"), trigger.getTimeZone());
+		long midnight = utc(2014, Calendar.MARCH, 3, 0, 0, 0);
+
+		Assert.assertEquals(midnight + 15000L, trigger.nextFireTime(midnight));
+		Assert.assertEquals(midnight + 45000L, trigger.nextFireTime(midnight + 15000L));
+		Assert.assertEquals(midnight + 3600000L + 15000L, trigger.nextFireTime(midnight + 3600000L + 1L));
+	}
+
+	@Test
+	public void testPeriodsRestartAtMidnight() throws Exception {
+		// 7 hours do not divide a day: the last period of the day is cut at midnight
+		RtcTrigger trigger = new RtcTrigger("urn:epcglobal:ale:trigger:rtc:25200000.0.+09:00", NOOP);
+		long midnight = utc(2014, Calendar.MARCH, 2, 15, 0, 0); // midnight in UTC+9
+		Assert.assertEquals(midnight + 21 * 3600000L, trigger.nextFireTime(midnight + 14 * 3600000L));
+		Assert.assertEquals(midnight + 24 * 3600000L, trigger.nextFireTime(midnight + 21 * 3600000L));
+	}
+
+	@Test
+	public void testInvalidTriggers() {
+		String[] invalid = new String[] {
+				"urn:epcglobal:ale:trigger:rtc:30000",
+				"urn:epcglobal:ale:trigger:rtc:abc.0",
+				"urn:epcglobal:ale:trigger:rtc:30000.30000",
+				"urn:epcglobal:ale:trigger:rtc:30000.0.CEST",
+				"urn:epcglobal:ale:trigger:foo:30000.0"
+		};
+		for (String uri : invalid) {
+			try {
+				new RtcTrigger(uri, NOOP);
+				Assert.fail("accepted invalid trigger " + uri);
+			} catch (ECSpecValidationException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testScheduleAndCancel() throws Exception {
+		final CountDownLatch fired = new CountDownLatch(2);
+		RtcTrigger trigger = new RtcTrigger("urn:epcglobal:ale:trigger:rtc:100.0", new Runnable() {
+			@Override
+			public void run() {
+				fired.countDown();
+			}
+		});
+		Assert.assertFalse(trigger.isScheduled());
+		trigger.schedule();
+		Assert.assertTrue(trigger.isScheduled());
+		Assert.assertTrue(fired.await(5, TimeUnit.SECONDS));
+		trigger.cancel();
+		Assert.assertFalse(trigger.isScheduled());
+	}
+
+	private static long utc(int year, int month, int day, int hour, int minute, int second) {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(year, month, day, hour, minute, second);
+		return calendar.getTimeInMillis();
+	}
+}
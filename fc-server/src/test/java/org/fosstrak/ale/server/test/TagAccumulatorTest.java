@@ -0,0 +1,113 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.EPCKey;
+import org.fosstrak.ale.server.Tag;
+import org.fosstrak.ale.server.TagAccumulator;
+import org.junit.Test;
+
+/**
+ * verify that the tag accumulator neither loses nor duplicates tags when the
+ * round is closed while reader threads are adding tags.
+ */
+public class TagAccumulatorTest {
+
+	@Test
+	public void testAddAndDrain() {
+		TagAccumulator accumulator = new TagAccumulator(4);
+		Tag t1 = createTag(1);
+		Tag t2 = createTag(2);
+		Assert.assertTrue(accumulator.isEmpty());
+		Assert.assertTrue(accumulator.add(t1));
+		Assert.assertFalse(accumulator.add(t1));
+		Assert.assertTrue(accumulator.add(t2));
+		Assert.assertEquals(2, accumulator.size());
+		Assert.assertEquals(2, accumulator.copy().size());
+
+		Set<Tag> drained = accumulator.drain();
+		Assert.assertEquals(2, drained.size());
+		Assert.assertTrue(drained.contains(t1));
+		Assert.assertTrue(drained.contains(t2));
+		Assert.assertFalse(drained.contains(createTag(3)));
+		try {
+			drained.add(createTag(3));
+			Assert.fail("the drained tags are read-only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		Assert.assertTrue(accumulator.isEmpty());
+		Assert.assertEquals(0, accumulator.drain().size());
+	}
+
+	@Test
+	public void testConcurrentDrain() throws Exception {
+		final int threads = 8;
+		final int tagsPerThread = 5000;
+		final TagAccumulator accumulator = new TagAccumulator();
+
+		List<Thread> producers = new LinkedList<Thread>();
+		for (int i = 0; i < threads; i++) {
+			final int base = i * tagsPerThread;
+			Thread producer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < tagsPerThread; j++) {
+						accumulator.add(createTag(base + j));
+					}
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+
+		Set<Tag> seen = Collections.newSetFromMap(new IdentityHashMap<Tag, Boolean>());
+		int drained = 0;
+		boolean alive = true;
+		while (alive) {
+			alive = false;
+			for (Thread producer : producers) {
+				alive |= producer.isAlive();
+			}
+			for (Tag tag : accumulator.drain()) {
+				Assert.assertTrue("tag drained twice", seen.add(tag));
+				drained++;
+			}
+		}
+		for (Tag tag : accumulator.drain()) {
+			Assert.assertTrue("tag drained twice", seen.add(tag));
+			drained++;
+		}
+		Assert.assertEquals(threads * tagsPerThread, drained);
+	}
+
+	private static Tag createTag(int id) {
+		Tag tag = new Tag("reader");
+		tag.setEPCKey(EPCKey.fromHex(String.format("%024X", id)));
+		return tag;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.test;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.Tag;
+import org.junit.Test;
+
+/**
+ * micro benchmark for the tag sets used by the event cycle: inserts and looks
+ * up 10k to 100k SGTIN-96 tags of one company prefix in a <code>HashSet&lt;Tag&gt;</code>.
+ * the legacy hash (lowest set bit of the binary id) is measured for comparison on
+ * the smaller sizes only, as it degrades to linear bucket scans.
+ * <h1>this is a benchmark - it is not run as a standard unit test!!!</h1>
+ * run with <code>mvn test -Dtest=TagSetBenchmark</code>.
+ */
+public class TagSetBenchmark {
+
+	/** SGTIN-96 header, filter, partition, company prefix and item reference of the generated tags. */
+	private static final String PREFIX = "0011000000110100011100101110101100011000011001101000011110";
+
+	/** number of bits in the serial number. */
+	private static final int SERIAL_BITS = 38;
+
+	/** number of repetitions per size, the best run is reported. */
+	private static final int RUNS = 5;
+
+	/** sizes above this limit are not measured with the legacy hash. */
+	private static final int LEGACY_LIMIT = 10000;
+
+	@Test
+	public void benchmark() {
+		for (int size : new int[] { 10000, 20000, 50000, 100000 }) {
+			Tag[] tags = createTags(size, false);
+			Tag[] lookups = createTags(size, false);
+			report("packed key", size, tags, lookups);
+
+			if (size <= LEGACY_LIMIT) {
+				report("legacy hash", size, createTags(size, true), createTags(size, true));
+			}
+		}
+	}
+
+	/**
+	 * measure insert and lookup and print the best run.
+	 */
+	private void report(String name, int size, Tag[] tags, Tag[] lookups) {
+		long bestInsert = Long.MAX_VALUE;
+		long bestLookup = Long.MAX_VALUE;
+		for (int run = 0; run < RUNS; run++) {
+			long start = System.nanoTime();
+			Set<Tag> set = new HashSet<Tag>();
+			for (Tag tag : tags) {
+				set.add(tag);
+			}
+			long inserted = System.nanoTime();
+			int found = 0;
+			for (Tag tag : lookups) {
+				if (set.contains(tag)) {
+					found++;
+				}
+			}
+			long looked = System.nanoTime();
+			Assert.assertEquals(size, set.size());
+			Assert.assertEquals(size, found);
+			bestInsert = Math.min(bestInsert, inserted - start);
+			bestLookup = Math.min(bestLookup, looked - inserted);
+		}
+		System.out.println(String.format("%-12s %7d tags: insert %8.2f ms (%6.1f ns/tag), lookup %8.2f ms (%6.1f ns/tag)",
+				name, size, bestInsert / 1e6, (double) bestInsert / size, bestLookup / 1e6, (double) bestLookup / size));
+	}
+
+	/**
+	 * create the given number of distinct tags with random serials (seeded, so
+	 * two calls deliver equal but not identical tags).
+	 */
+	private Tag[] createTags(int size, boolean legacyHash) {
+		Random rand = new Random(size);
+		Tag[] tags = new Tag[size];
+		Set<Long> serials = new HashSet<Long>();
+		for (int i = 0; i < size; i++) {
+			long serial;
+			do {
+				serial = rand.nextLong() & ((1L << SERIAL_BITS) - 1);
+			} while (!serials.add(serial));
+			String bin = Long.toBinaryString(serial);
+			StringBuilder sb = new StringBuilder(PREFIX);
+			for (int j = bin.length(); j < SERIAL_BITS; j++) {
+				sb.append('0');
+			}
+			sb.append(bin);
+
+			Tag tag = legacyHash ? new LegacyHashTag("reader") : new Tag("reader");
+			tag.setTagAsBinary(sb.toString());
+			tag.setTagIDAsPureURI("urn:epc:id:sgtin:" + serial);
+			tags[i] = tag;
+		}
+		return tags;
+	}
+
+	/**
+	 * tag using the former hash code implementation.
+	 */
+	private static final class LegacyHashTag extends Tag {
+
+		LegacyHashTag(String origin) {
+			super(origin);
+		}
+
+		@Override
+		public int hashCode() {
+			return new BigInteger(getTagAsBinary(), 2).getLowestSetBit();
+		}
+	}
+}
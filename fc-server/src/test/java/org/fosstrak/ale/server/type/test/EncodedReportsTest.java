@@ -0,0 +1,190 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.type.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.GregorianCalendar;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.datatype.DatatypeFactory;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.type.Compression;
+import org.fosstrak.ale.server.type.EncodedReports;
+import org.fosstrak.ale.server.type.HTTPSubscriberOutputChannel;
+import org.fosstrak.ale.util.DeserializerUtil;
+import org.fosstrak.ale.util.ECReportsBinaryCodec;
+import org.fosstrak.ale.util.ECReportsJsonCodec;
+import org.fosstrak.ale.util.ReportFormat;
+import org.fosstrak.ale.util.SerializerUtil;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMember;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportGroupListMemberExtension;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReportMemberField;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagStat;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECTagTimestampStat;
+import org.junit.Test;
+
+import util.ECElementsUtils;
+
+/**
+ * test the shared UTF-8 encoding of the reports.
+ */
+public class EncodedReportsTest {
+
+	@Test
+	public void testEncodedOnce() throws Exception {
+		ECReports reports = ECElementsUtils.createECReports();
+		EncodedReports encoded = EncodedReports.of(reports);
+		Assert.assertSame(encoded, EncodedReports.of(reports));
+
+		// other reports get their own encoding
+		Assert.assertNotSame(encoded, EncodedReports.of(ECElementsUtils.createECReports()));
+
+		ECReports resultReports = DeserializerUtil.deserializeECReports(encoded.getInputStream());
+		ECElementsUtils.assertEquals(reports, resultReports);
+	}
+
+	@Test
+	public void testEncodedOncePerFormat() throws Exception {
+		ECReports reports = ECElementsUtils.createECReports();
+		EncodedReports xml = EncodedReports.of(reports, ReportFormat.XML);
+		EncodedReports binary = EncodedReports.of(reports, ReportFormat.BINARY);
+		EncodedReports json = EncodedReports.of(reports, ReportFormat.JSON);
+		Assert.assertSame(xml, EncodedReports.of(reports));
+		Assert.assertSame(binary, EncodedReports.of(reports, ReportFormat.BINARY));
+		Assert.assertSame(json, EncodedReports.of(reports, ReportFormat.JSON));
+		Assert.assertNotSame(xml, binary);
+		Assert.assertNotSame(xml, json);
+
+		ECElementsUtils.assertEquals(reports, ECReportsBinaryCodec.decode(binary.getInputStream()));
+		ECElementsUtils.assertEquals(reports, ECReportsJsonCodec.decode(json.getInputStream()));
+		Assert.assertTrue(binary.getLength() < json.getLength());
+		Assert.assertTrue(json.getLength() < xml.getLength());
+	}
+
+	@Test
+	public void testCompressedOnce() throws Exception {
+		ECReports reports = ECElementsUtils.createECReports();
+		EncodedReports encoded = EncodedReports.of(reports);
+		Assert.assertSame(encoded, encoded.compress(Compression.NONE, 0));
+		Assert.assertSame(encoded, encoded.compress(Compression.GZIP, encoded.getLength() + 1));
+
+		EncodedReports gzip = encoded.compress(Compression.GZIP, 0);
+		Assert.assertEquals(Compression.GZIP, gzip.getCompression());
+		Assert.assertSame(gzip, encoded.compress(Compression.GZIP, 0));
+		Assert.assertSame(gzip, gzip.compress(Compression.DEFLATE, 0));
+		ECElementsUtils.assertEquals(reports, DeserializerUtil.deserializeECReports(new GZIPInputStream(gzip.getInputStream())));
+
+		EncodedReports deflate = encoded.compress(Compression.DEFLATE, 0);
+		Assert.assertEquals(Compression.DEFLATE, deflate.getCompression());
+		ECElementsUtils.assertEquals(reports, DeserializerUtil.deserializeECReports(new InflaterInputStream(deflate.getInputStream())));
+	}
+
+	@Test
+	public void testStreamedAsMarshalled() throws Exception {
+		ECReports reports = ECElementsUtils.createECReports();
+		reports.setDate(DatatypeFactory.newInstance().newXMLGregorianCalendar(new GregorianCalendar()));
+		reports.setInitiationCondition("REQUESTED");
+		reports.setTerminationCondition("DURATION");
+		reports.setSchemaURL("http://host/ale?a=b&c=\"d\"");
+		ECReportGroupListMember member = reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().get(0);
+		member.setExtension(new ECReportGroupListMemberExtension());
+		member.getExtension().setFieldList(new ECReportGroupListMemberExtension.FieldList());
+		ECReportMemberField field = new ECReportMemberField();
+		field.setName("userMemory");
+		field.setValue("<a>&\"b\"\r\n");
+		member.getExtension().getFieldList().getField().add(field);
+		ECReportMemberField empty = new ECReportMemberField();
+		empty.setName("empty");
+		empty.setValue("");
+		member.getExtension().getFieldList().getField().add(empty);
+		member.getExtension().setStats(new ECReportGroupListMemberExtension.Stats());
+		ECTagTimestampStat stat = new ECTagTimestampStat();
+		stat.setProfile("TagTimestamps");
+		stat.setStatBlocks(new ECTagStat.StatBlocks());
+		stat.setFirstSightingTime(reports.getDate());
+		stat.setLastSightingTime(reports.getDate());
+		member.getExtension().getStats().getStat().add(stat);
+		reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().add(new ECReportGroupListMember());
+
+		// the streamed reports are byte for byte the ones of the JAXB implementation of the server
+		ByteArrayOutputStream marshalled = new ByteArrayOutputStream();
+		SerializerUtil.serializeECReports(reports, marshalled);
+		Assert.assertEquals(new String(marshalled.toByteArray(), "UTF-8"), EncodedReports.of(reports).toString());
+	}
+
+	@Test
+	public void testContentLengthInBytes() throws Exception {
+		ECReports reports = ECElementsUtils.createECReports();
+		reports.setSpecName("spéc-ümläut-€");
+		EncodedReports encoded = EncodedReports.of(reports);
+		Assert.assertEquals(encoded.toString().getBytes("UTF-8").length, encoded.getLength());
+		Assert.assertTrue(encoded.getLength() > encoded.toString().length());
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		Socket mock = EasyMock.createMock(Socket.class);
+		EasyMock.expect(mock.getOutputStream()).andReturn(bout);
+		EasyMock.expect(mock.getInputStream()).andReturn(new ByteArrayInputStream(
+				"HTTP/1.1 204 No Content\r\nConnection: close\r\n\r\n".getBytes()));
+		mock.close();
+		EasyMock.expectLastCall();
+		EasyMock.replay(mock);
+		new NotifyHTTP("http://localhost:9999/path", mock).notify(reports);
+		EasyMock.verify(mock);
+
+		// the header announces the number of bytes following it
+		byte[] request = bout.toByteArray();
+		String text = new String(request, "UTF-8");
+		int headerEnd = text.indexOf("\r\n\r\n") + 4;
+		Assert.assertTrue(text.contains("Content-Length: " + encoded.getLength() + "\r\n"));
+		Assert.assertEquals(encoded.getLength(), request.length - text.substring(0, headerEnd).getBytes("UTF-8").length);
+
+		InputStream body = new ByteArrayInputStream(request, request.length - encoded.getLength(), encoded.getLength());
+		ECReports resultReports = DeserializerUtil.deserializeECReports(body);
+		Assert.assertEquals(reports.getSpecName(), resultReports.getSpecName());
+	}
+
+	/**
+	 * HTTP subscriber writing into a mocked socket.
+	 */
+	private class NotifyHTTP extends HTTPSubscriberOutputChannel {
+
+		private Socket mock;
+
+		public NotifyHTTP(String notificationURI, Socket mock) throws InvalidURIException {
+			super(notificationURI);
+			this.mock = mock;
+		}
+
+		@Override
+		protected Socket getSocket() throws UnknownHostException, IOException {
+			return mock;
+		}
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.type.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.type.EncodedReports;
+import org.fosstrak.ale.server.type.FileSink;
+import org.fosstrak.ale.server.type.FileSubscriberOutputChannel;
+import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import util.ECElementsUtils;
+
+/**
+ * test the group committed, rotating file sink.
+ */
+public class FileSinkTest {
+
+	private static final byte[] SEPARATOR = new byte[] { '\n', '\n' };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSharedByTheSubscribersOfAFile() throws Exception {
+		File file = new File(folder.getRoot(), "shared.xml");
+		Assert.assertSame(FileSink.getSink(file), FileSink.getSink(new File(folder.getRoot(), "./shared.xml")));
+
+		// two subscriptions on the same file append to one sink
+		FileSubscriberOutputChannel first = new FileSubscriberOutputChannel("file:///" + file.getAbsolutePath());
+		FileSubscriberOutputChannel second = new FileSubscriberOutputChannel("file:///" + file.getAbsolutePath());
+		ECReports reports = ECElementsUtils.createECReports();
+		first.notify(reports);
+		second.notify(reports);
+		String content = read(file);
+		String xml = EncodedReports.of(reports).toString();
+		Assert.assertEquals(xml + "\n\n" + xml + "\n\n", content);
+		FileSink.getSink(file).close();
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		File file = new File(folder.getRoot(), "group.xml");
+		// a batch waits up to 50ms for more reports
+		final FileSink sink = new FileSink(file, 50, 1024 * 1024, false, 0, 0, false);
+		final EncodedReports encoded = EncodedReports.of(ECElementsUtils.createECReports());
+		final int writers = 8;
+		final int reportsPerWriter = 25;
+		final CountDownLatch done = new CountDownLatch(writers);
+		final AtomicInteger errors = new AtomicInteger();
+		for (int i = 0; i < writers; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < reportsPerWriter; j++) {
+							sink.append(encoded, SEPARATOR);
+						}
+					} catch (IOException e) {
+						errors.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+		Assert.assertEquals(0, errors.get());
+		sink.close();
+
+		// every report is written completely, none is interleaved with another
+		String content = read(file);
+		String frame = encoded.toString() + "\n\n";
+		Assert.assertEquals(writers * reportsPerWriter * frame.length(), content.length());
+		Assert.assertEquals("", content.replace(frame, ""));
+	}
+
+	@Test
+	public void testInterruptedWriter() throws Exception {
+		File file = new File(folder.getRoot(), "interrupted.xml");
+		// a batch waits up to 50ms for more reports
+		FileSink sink = new FileSink(file, 50, 1024 * 1024, false, 0, 0, false);
+		EncodedReports encoded = EncodedReports.of(ECElementsUtils.createECReports());
+		Thread.currentThread().interrupt();
+		try {
+			sink.append(encoded, SEPARATOR);
+		} finally {
+			// the interrupt is kept for the caller, it did neither end the wait nor fail the write
+			Assert.assertTrue(Thread.interrupted());
+		}
+		sink.append(encoded, SEPARATOR);
+		sink.close();
+		String frame = encoded.toString() + "\n\n";
+		Assert.assertEquals(frame + frame, read(file));
+	}
+
+	@Test
+	public void testRotateBySizeWithGzip() throws Exception {
+		File file = new File(folder.getRoot(), "rotate.xml");
+		EncodedReports encoded = EncodedReports.of(ECElementsUtils.createECReports());
+		int frame = encoded.getLength() + SEPARATOR.length;
+		// two reports per segment
+		FileSink sink = new FileSink(file, 0, 1, false, 2 * frame, 0, true);
+		for (int i = 0; i < 5; i++) {
+			sink.append(encoded, SEPARATOR);
+		}
+		sink.close();
+		Assert.assertEquals(frame, file.length());
+
+		// two compressed segments of two reports each
+		long deadline = System.currentTimeMillis() + 10000;
+		File[] segments;
+		do {
+			Thread.sleep(20);
+			segments = folder.getRoot().listFiles();
+		} while (!compressed(segments, file) && System.currentTimeMillis() < deadline);
+		Assert.assertEquals(3, segments.length);
+		for (File segment : segments) {
+			if (segment.equals(file)) {
+				continue;
+			}
+			Assert.assertTrue(segment.getName(), segment.getName().startsWith("rotate.xml.") && segment.getName().endsWith(".gz"));
+			Assert.assertEquals(2 * frame, read(new GZIPInputStream(new FileInputStream(segment))).length());
+		}
+	}
+
+	@Test
+	public void testFailedBatches() throws Exception {
+		// the parent of the file is a regular file: every batch fails
+		File parent = folder.newFile("parent");
+		final FileSink sink = new FileSink(new File(parent, "failed.xml"), 0, 1, false, 0, 0, false);
+		final EncodedReports encoded = EncodedReports.of(ECElementsUtils.createECReports());
+		final int writers = 8;
+		final int reportsPerWriter = 25;
+		final CountDownLatch done = new CountDownLatch(writers);
+		final AtomicInteger errors = new AtomicInteger();
+		for (int i = 0; i < writers; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < reportsPerWriter; j++) {
+							try {
+								sink.append(encoded, SEPARATOR);
+							} catch (IOException e) {
+								errors.incrementAndGet();
+							}
+						}
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+		// no writer of a failed batch returns as if its reports were written
+		Assert.assertEquals(writers * reportsPerWriter, errors.get());
+	}
+
+	@Test
+	public void testIdleSinkDropped() throws Exception {
+		File file = new File(folder.getRoot(), "idle.xml");
+		EncodedReports encoded = EncodedReports.of(ECElementsUtils.createECReports());
+		String idle = System.getProperty(FileSink.PROPERTY_IDLE_MILLIS);
+		System.setProperty(FileSink.PROPERTY_IDLE_MILLIS, "20");
+		try {
+			FileSink sink = FileSink.getSink(file);
+			sink.append(encoded, SEPARATOR);
+			long deadline = System.currentTimeMillis() + 10000;
+			while (!sink.isRetired() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertTrue(sink.isRetired());
+			Assert.assertNotSame(sink, FileSink.getSink(file));
+
+			// an append on the dropped sink goes to the new sink of the file
+			sink.append(encoded, SEPARATOR);
+			String frame = encoded.toString() + "\n\n";
+			Assert.assertEquals(frame + frame, read(file));
+			FileSink.getSink(file).close();
+		} finally {
+			if (null == idle) {
+				System.clearProperty(FileSink.PROPERTY_IDLE_MILLIS);
+			} else {
+				System.setProperty(FileSink.PROPERTY_IDLE_MILLIS, idle);
+			}
+		}
+	}
+
+	/**
+	 * @return true if all the rotated segments are compressed.
+	 */
+	private static boolean compressed(File[] segments, File file) {
+		if (segments.length != 3) {
+			return false;
+		}
+		for (File segment : segments) {
+			if (!segment.equals(file) && !segment.getName().endsWith(".gz")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String read(File file) throws IOException {
+		return read(new FileInputStream(file));
+	}
+
+	private static String read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = in.read(buffer)) > 0) {
+				out.write(buffer, 0, count);
+			}
+			return new String(out.toByteArray(), "UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -20,17 +20,23 @@
 
 package org.fosstrak.ale.server.type.test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.zip.GZIPInputStream;
 
 import junit.framework.Assert;
 
 import org.easymock.EasyMock;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.type.Compression;
 import org.fosstrak.ale.server.type.FileSubscriberOutputChannel;
 import org.fosstrak.ale.util.DeserializerUtil;
+import org.fosstrak.ale.util.ECReportsJsonCodec;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 import org.junit.Rule;
 import org.junit.Test;
@@ -65,6 +71,25 @@ public class FileSubscriberOutputChannelTest {
 		Assert.assertEquals("dir/dir", listener.getPath());
 	}
 	
+	@Test
+	public void testCompressedFileURIs() throws InvalidURIException {
+		FileSubscriberOutputChannel listener = new FileSubscriberOutputChannel("file:///dir/reports?compression=gzip");
+		Assert.assertEquals(Compression.GZIP, listener.getCompression());
+		Assert.assertEquals("dir/reports.gz", listener.getPath());
+		
+		listener = new FileSubscriberOutputChannel("file:///dir/reports.gz?compression=gzip");
+		Assert.assertEquals("dir/reports.gz", listener.getPath());
+		
+		listener = new FileSubscriberOutputChannel("file:///dir/reports.gz");
+		Assert.assertEquals(Compression.NONE, listener.getCompression());
+		Assert.assertEquals("dir/reports.gz", listener.getPath());
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testDeflateFileNotAllowed() throws InvalidURIException {
+		new FileSubscriberOutputChannel("file:///dir/reports?compression=deflate");
+	}
+	
 	@Test(expected = InvalidURIException.class)
 	public void testOnlyLocalFilesAllowed() throws InvalidURIException{		
 		new FileSubscriberOutputChannel("file://192.168.1.1/dir/dir");		
@@ -141,6 +166,27 @@ public class FileSubscriberOutputChannelTest {
 		ECElementsUtils.assertEquals(reports, resultReports);
 	}
 	
+	@Test
+	public void testNotify_FileGzip() throws Exception {
+		File folderFile = folder.newFolder("gzip");
+		FileSubscriberOutputChannel file = new FileSubscriberOutputChannel("file:///" + new File(folderFile, "reports").getAbsolutePath() + "?format=json&compression=gzip");
+		ECReports reports = ECElementsUtils.createECReports();
+		file.notify(reports);
+		file.notify(reports);
+		
+		// the members decompress into the json reports, one per line
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(new File(folderFile, "reports.gz"))), "UTF-8"));
+		try {
+			for (int i = 0; i < 2; i++) {
+				String line = reader.readLine();
+				ECElementsUtils.assertEquals(reports, ECReportsJsonCodec.decode(new ByteArrayInputStream(line.getBytes("UTF-8"))));
+			}
+			Assert.assertNull(reader.readLine());
+		} finally {
+			reader.close();
+		}
+	}
+	
 	/**
 	 * little helper class allowing us to nicely test the file subscriber without the need of a real socket.
 	 * @author swieland
@@ -20,18 +20,27 @@
 
 package org.fosstrak.ale.server.type.test;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 
 import org.easymock.EasyMock;
+import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.type.Compression;
 import org.fosstrak.ale.server.type.HTTPSubscriberOutputChannel;
+import org.fosstrak.ale.server.type.HttpConnectionPool;
 import org.fosstrak.ale.util.DeserializerUtil;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 import org.junit.Test;
@@ -45,6 +54,9 @@ import util.ECElementsUtils;
  */
 public class HTTPSubscriberOutputChannelTest {
 	
+	/** response of a subscriber closing the connection. */
+	private static final String RESPONSE_CLOSE = "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 0\r\n\r\n";
+	
 	@Test
 	public void testHttpURIs_withExplicitPort() throws InvalidURIException {
 		
@@ -115,6 +127,7 @@ public class HTTPSubscriberOutputChannelTest {
 		
 		Socket mock = EasyMock.createMock(Socket.class);
 		EasyMock.expect(mock.getOutputStream()).andReturn(bout);
+		EasyMock.expect(mock.getInputStream()).andReturn(new ByteArrayInputStream(RESPONSE_CLOSE.getBytes()));
 		mock.close();
 		EasyMock.expectLastCall();
 		EasyMock.replay(mock);
@@ -137,6 +150,158 @@ public class HTTPSubscriberOutputChannelTest {
 		ECElementsUtils.assertEquals(reports, resultReports);
 	}
 	
+	@Test
+	public void testNotify_HttpKeepAlive() throws Exception {
+		Collector collector = new Collector(new String[] {
+				"HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok",
+				"HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nok\r\n0\r\n\r\n",
+				"HTTP/1.1 204 No Content\r\n\r\n" });
+		try {
+			HTTPSubscriberOutputChannel http = new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort() + "/collector");
+			for (int i = 0; i < 3; i++) {
+				Assert.assertTrue(http.notify(ECElementsUtils.createECReports()));
+			}
+			// all the reports are delivered on one connection
+			Assert.assertEquals(3, collector.requests.size());
+			Assert.assertEquals(1, collector.connections.get());
+			Assert.assertEquals(1, HttpConnectionPool.getInstance().getIdleCount(http.getEndpoint()));
+			Assert.assertTrue(collector.requests.get(0).startsWith("POST /collector HTTP/1.1\r\n"));
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+
+	@Test
+	public void testNotify_HttpReconnect() throws Exception {
+		// the collector closes the connection after each response without announcing it
+		Collector collector = new Collector(new String[] { "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n" });
+		collector.closeAfterResponse = true;
+		try {
+			HTTPSubscriberOutputChannel http = new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort());
+			http.notify(ECElementsUtils.createECReports());
+			Thread.sleep(100);
+			http.notify(ECElementsUtils.createECReports());
+			Assert.assertEquals(2, collector.requests.size());
+			Assert.assertEquals(2, collector.connections.get());
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+
+	@Test
+	public void testNotify_HttpNoRetryOnTimeout() throws Exception {
+		// the collector does not answer the second request
+		Collector collector = new Collector(new String[] { "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n", null,
+				"HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n" });
+		try {
+			HTTPSubscriberOutputChannel http = new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort()) {
+				@Override
+				protected Socket getSocket() throws UnknownHostException, IOException {
+					Socket socket = super.getSocket();
+					socket.setSoTimeout(200);
+					return socket;
+				}
+			};
+			http.notify(ECElementsUtils.createECReports());
+			try {
+				http.notify(ECElementsUtils.createECReports());
+				Assert.fail("the request timed out");
+			} catch (ImplementationException e) {
+				// the subscriber might be processing the request, it is not sent again
+				Assert.assertEquals(2, collector.requests.size());
+				Assert.assertEquals(1, collector.connections.get());
+			}
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+
+	@Test
+	public void testNotify_HttpNoRetryOnTruncatedResponse() throws Exception {
+		// the collector closes the connection after each response, the second one is truncated
+		Collector collector = new Collector(new String[] { "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n", "HTTP/1.1 2" });
+		collector.closeAfterResponse = true;
+		try {
+			HTTPSubscriberOutputChannel http = new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort());
+			http.notify(ECElementsUtils.createECReports());
+			Thread.sleep(100);
+			try {
+				http.notify(ECElementsUtils.createECReports());
+				Assert.fail("the response was truncated");
+			} catch (ImplementationException e) {
+				// the stale connection is replaced once, the truncated response is not retried
+				Assert.assertEquals(2, collector.requests.size());
+				Assert.assertEquals(2, collector.connections.get());
+			}
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+
+	@Test
+	public void testNotify_HttpFormat() throws Exception {
+		Collector collector = new Collector(new String[] { "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n" });
+		try {
+			new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort() + "/json?format=json").notify(ECElementsUtils.createECReports());
+			new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort() + "/binary?format=binary").notify(ECElementsUtils.createECReports());
+			new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort() + "/xml").notify(ECElementsUtils.createECReports());
+			Assert.assertTrue(collector.requests.get(0).startsWith("POST /json HTTP/1.1\r\n"));
+			Assert.assertTrue(collector.requests.get(0).contains("Content-Type: application/json; charset=utf-8\r\n"));
+			Assert.assertTrue(collector.requests.get(1).contains("Content-Type: application/octet-stream\r\n"));
+			Assert.assertTrue(collector.requests.get(2).contains("Content-Type: text/xml; charset=\"utf-8\"\r\n"));
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+	
+	@Test
+	public void testNotify_HttpCompression() throws Exception {
+		Collector collector = new Collector(new String[] { "HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n" });
+		try {
+			HTTPSubscriberOutputChannel http = new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort() + "/gzip?compression=gzip");
+			Assert.assertEquals(Compression.GZIP, http.getCompression());
+			// small reports are sent uncompressed
+			http.notify(ECElementsUtils.createECReports());
+			ECReports reports = ECElementsUtils.createECReports();
+			for (int i = 0; i < 100; i++) {
+				reports.getReports().getReport().get(0).getGroup().get(0).getGroupList().getMember().add(
+						ECElementsUtils.createECReportGroupListMember("urn:epc:id:sgtin:0614141.107346." + i, null, null, null));
+			}
+			http.notify(reports);
+			Assert.assertFalse(collector.requests.get(0).contains("Content-Encoding"));
+			Assert.assertTrue(collector.requests.get(1).contains("Content-Encoding: gzip\r\n"));
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testHttpInvalidCompression() throws InvalidURIException {
+		new HTTPSubscriberOutputChannel("http://localhost:12345/path?compression=zip");
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testHttpInvalidFormat() throws InvalidURIException {
+		new HTTPSubscriberOutputChannel("http://localhost:12345/path?format=yaml");
+	}
+
+	@Test(expected = ImplementationException.class)
+	public void testNotify_HttpErrorStatus() throws Exception {
+		Collector collector = new Collector(new String[] { "HTTP/1.1 500 Internal Server Error\r\nContent-Length: 0\r\n\r\n" });
+		try {
+			new HTTPSubscriberOutputChannel("http://localhost:" + collector.getPort()).notify(ECElementsUtils.createECReports());
+		} finally {
+			HttpConnectionPool.getInstance().clear();
+			collector.close();
+		}
+	}
+	
 	private String readHtmlHeaderFromInputStream(InputStream inputStream) throws IOException {
 		
 		boolean newLine = false;
@@ -145,6 +310,9 @@ public class HTTPSubscriberOutputChannelTest {
 		Assert.assertNotNull(inputStream);
 		while (inputStream.read(buf) > 0) {
 			String newString = new String(buf);
+			if (buf[0] == 13) {
+				continue;
+			}
 			if (buf[0] == 10) {
 				if (newLine) {
 					break;
@@ -178,4 +346,87 @@ public class HTTPSubscriberOutputChannelTest {
 			return mock;
 		}
 	}
+	
+	/**
+	 * minimal HTTP collector answering the requests with the given responses (the last one repeated), 
+	 * a null response leaves the request unanswered.
+	 */
+	private static class Collector implements Runnable {
+		
+		private final ServerSocket server;
+		private final String[] responses;
+		private final List<String> requests = new CopyOnWriteArrayList<String>();
+		private final AtomicInteger connections = new AtomicInteger();
+		private volatile boolean closeAfterResponse = false;
+		
+		public Collector(String[] responses) throws IOException {
+			this.responses = responses;
+			server = new ServerSocket(0);
+			Thread thread = new Thread(this, "Collector");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		public int getPort() {
+			return server.getLocalPort();
+		}
+		
+		@Override
+		public void run() {
+			try {
+				while (true) {
+					final Socket socket = server.accept();
+					connections.incrementAndGet();
+					Thread handler = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							serve(socket);
+						}
+					});
+					handler.setDaemon(true);
+					handler.start();
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+		
+		private void serve(Socket socket) {
+			try {
+				InputStream in = new BufferedInputStream(socket.getInputStream());
+				OutputStream out = socket.getOutputStream();
+				while (true) {
+					StringBuilder header = new StringBuilder();
+					int c;
+					while (header.indexOf("\r\n\r\n") < 0 && (c = in.read()) != -1) {
+						header.append((char) c);
+					}
+					if (header.indexOf("\r\n\r\n") < 0) {
+						break;
+					}
+					int length = Integer.parseInt(header.substring(header.indexOf("Content-Length: ") + 16, header.indexOf("\r\n", header.indexOf("Content-Length: "))));
+					for (int i = 0; i < length; i++) {
+						in.read();
+					}
+					int index = Math.min(requests.size(), responses.length - 1);
+					requests.add(header.toString());
+					if (null == responses[index]) {
+						continue;
+					}
+					out.write(responses[index].getBytes());
+					out.flush();
+					if (closeAfterResponse) {
+						break;
+					}
+				}
+				socket.close();
+			} catch (IOException e) {
+				// closed
+			}
+		}
+		
+		public void close() throws IOException {
+			server.close();
+		}
+	}
 }
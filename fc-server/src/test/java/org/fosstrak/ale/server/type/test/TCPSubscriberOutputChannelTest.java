@@ -20,19 +20,28 @@
 
 package org.fosstrak.ale.server.type.test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
 import java.net.Socket;
-import java.net.UnknownHostException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 
-import org.easymock.EasyMock;
 import org.fosstrak.ale.exception.ImplementationException;
 import org.fosstrak.ale.exception.InvalidURIException;
+import org.fosstrak.ale.server.type.Compression;
+import org.fosstrak.ale.server.type.EncodedReports;
 import org.fosstrak.ale.server.type.TCPSubscriberOutputChannel;
+import org.fosstrak.ale.server.type.TcpDeliveryEngine;
+import org.fosstrak.ale.server.type.TcpDeliveryEngine.Framing;
 import org.fosstrak.ale.util.DeserializerUtil;
+import org.fosstrak.ale.util.ECReportsBinaryCodec;
+import org.fosstrak.ale.util.ECReportsJsonCodec;
+import org.fosstrak.ale.util.ReportFormat;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReports;
 import org.junit.Test;
 
@@ -62,75 +71,270 @@ public class TCPSubscriberOutputChannelTest {
 		new TCPSubscriberOutputChannel(null);
 	}
 	
-	/**
-	 * test handling when the socket is throwing an illegal host exception.
-	 */
-	@Test(expected = ImplementationException.class)
-	public void testNotify_TcpSocketException() throws Exception {
-		Socket mock = EasyMock.createMock(Socket.class);
-		EasyMock.expect(mock.getOutputStream()).andThrow(new UnknownHostException());
-		EasyMock.replay(mock);
-		TCPSubscriberOutputChannel tcp = new NotifyTcp("tcp://localhost:" + 9999, mock);
-		tcp.notify(ECElementsUtils.createECReports());
+	@Test
+	public void testFraming() throws InvalidURIException {
+		Assert.assertEquals(Framing.NEWLINE, new TCPSubscriberOutputChannel("tcp://localhost:12345").getFraming());
+		Assert.assertEquals(Framing.LENGTH_PREFIXED, new TCPSubscriberOutputChannel("tcp://localhost:12345?framing=length").getFraming());
+		Assert.assertEquals(Framing.NEWLINE, new TCPSubscriberOutputChannel("tcp://localhost:12345?a=b&framing=newline").getFraming());
+	}
+	
+	@Test
+	public void testFormat() throws InvalidURIException {
+		TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://localhost:12345");
+		Assert.assertEquals(ReportFormat.XML, tcp.getFormat());
+		tcp = new TCPSubscriberOutputChannel("tcp://localhost:12345?format=json");
+		Assert.assertEquals(ReportFormat.JSON, tcp.getFormat());
+		Assert.assertEquals(Framing.NEWLINE, tcp.getFraming());
+		// the binary reports are preceded by their length
+		tcp = new TCPSubscriberOutputChannel("tcp://localhost:12345?format=binary");
+		Assert.assertEquals(ReportFormat.BINARY, tcp.getFormat());
+		Assert.assertEquals(Framing.LENGTH_PREFIXED, tcp.getFraming());
+	}
+	
+	@Test
+	public void testCompression() throws InvalidURIException {
+		TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://localhost:12345?compression=deflate");
+		Assert.assertEquals(Compression.DEFLATE, tcp.getCompression());
+		// the compressed reports are preceded by their length
+		Assert.assertEquals(Framing.LENGTH_PREFIXED, tcp.getFraming());
+		Assert.assertEquals(Compression.NONE, new TCPSubscriberOutputChannel("tcp://localhost:12345").getCompression());
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testTcpCompressedNewLine() throws InvalidURIException {		
+		new TCPSubscriberOutputChannel("tcp://localhost:12345?compression=gzip&framing=newline");
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testTcpInvalidFormat() throws InvalidURIException {		
+		new TCPSubscriberOutputChannel("tcp://localhost:12345?format=yaml");
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testTcpBinaryNewLine() throws InvalidURIException {		
+		new TCPSubscriberOutputChannel("tcp://localhost:12345?format=binary&framing=newline");
+	}
+	
+	@Test(expected = InvalidURIException.class)
+	public void testTcpInvalidFraming() throws InvalidURIException {		
+		new TCPSubscriberOutputChannel("tcp://localhost:12345?framing=xml");
 	}
 	
 	/**
-	 * test handling when the socket is throwing an illegal host exception.
+	 * test handling of an unknown host.
 	 */
 	@Test(expected = ImplementationException.class)
-	public void testNotify_TcpSocketIOException() throws Exception {
-		Socket mock = EasyMock.createMock(Socket.class);
-		EasyMock.expect(mock.getOutputStream()).andThrow(new IOException());
-		EasyMock.replay(mock);
-		TCPSubscriberOutputChannel tcp = new NotifyTcp("tcp://localhost:" + 9999, mock);
+	public void testNotify_TcpUnknownHost() throws Exception {
+		TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://unknown.host.invalid:" + 9999);
 		tcp.notify(ECElementsUtils.createECReports());
 	}
 
 	@Test
 	public void testNotify_Tcp() throws Exception {
+		ServerSocket server = new ServerSocket(0);
+		server.setSoTimeout(5000);
+		try {
+			TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://localhost:" + server.getLocalPort());
+			
+			// create reports
+			ECReports reports = ECElementsUtils.createECReports();
+			
+			// notify listener about reports, twice on the same connection
+			tcp.notify(reports);
+			tcp.notify(reports);
+			
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			for (int i = 0; i < 2; i++) {
+				String line = reader.readLine();
+				ECReports resultReports = DeserializerUtil.deserializeECReports(new ByteArrayInputStream(line.getBytes("UTF-8")));
+				ECElementsUtils.assertEquals(reports, resultReports);
+			}
+			socket.close();
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testNotify_TcpLengthPrefixedWithReconnect() throws Exception {
+		// reserve a port nobody listens on yet
+		ServerSocket reserved = new ServerSocket(0);
+		int port = reserved.getLocalPort();
+		reserved.close();
 		
-		ByteArrayOutputStream bout = new ByteArrayOutputStream();
-		
-		Socket mock = EasyMock.createMock(Socket.class);
-		EasyMock.expect(mock.getOutputStream()).andReturn(bout);
-		mock.close();
-		EasyMock.expectLastCall();
-		EasyMock.replay(mock);
-		
-		TCPSubscriberOutputChannel tcp = new NotifyTcp("tcp://localhost:" + 9999, mock);
-		
-		// create reports
+		TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://localhost:" + port + "?framing=length");
 		ECReports reports = ECElementsUtils.createECReports();
 		
-		// notify listener about reports
+		// the subscriber is not up: the report waits for the connection
 		tcp.notify(reports);
+		Thread.sleep(200);
+		Assert.assertEquals(1, TcpDeliveryEngine.getInstance().getPendingFrames("localhost", port, Framing.LENGTH_PREFIXED));
 		
-		String res = bout.toString();
-		ByteArrayInputStream bin = new ByteArrayInputStream(res.getBytes());
-		ECReports resultReports = DeserializerUtil.deserializeECReports(bin);
-		
-		// check result
-		EasyMock.verify(mock);
-		ECElementsUtils.assertEquals(reports, resultReports);
+		ServerSocket server = new ServerSocket(port);
+		server.setSoTimeout(10000);
+		try {
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			byte[] frame = new byte[in.readInt()];
+			in.readFully(frame);
+			ECElementsUtils.assertEquals(reports, DeserializerUtil.deserializeECReports(new ByteArrayInputStream(frame)));
+			socket.close();
+		} finally {
+			server.close();
+		}
 	}
-	
-	/**
-	 * little helper class allowing us to nicely test the TCP subscriber without the need of a real socket.
-	 * @author swieland
-	 *
-	 */
-	private class NotifyTcp extends TCPSubscriberOutputChannel {
 
-		private Socket mock;
-		
-		public NotifyTcp(String notificationURI, Socket mock) throws InvalidURIException {
-			super(notificationURI);
-			this.mock = mock;
+	@Test
+	public void testNotify_TcpFormats() throws Exception {
+		ServerSocket server = new ServerSocket(0);
+		server.setSoTimeout(5000);
+		try {
+			ECReports reports = ECElementsUtils.createECReports();
+			new TCPSubscriberOutputChannel("tcp://localhost:" + server.getLocalPort() + "?format=binary").notify(reports);
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			DataInputStream in = new DataInputStream(socket.getInputStream());
+			byte[] frame = new byte[in.readInt()];
+			in.readFully(frame);
+			ECElementsUtils.assertEquals(reports, ECReportsBinaryCodec.decode(new ByteArrayInputStream(frame)));
+			socket.close();
+			
+			new TCPSubscriberOutputChannel("tcp://localhost:" + server.getLocalPort() + "?format=json&framing=newline").notify(reports);
+			socket = server.accept();
+			socket.setSoTimeout(5000);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			String line = reader.readLine();
+			ECElementsUtils.assertEquals(reports, ECReportsJsonCodec.decode(new ByteArrayInputStream(line.getBytes("UTF-8"))));
+			socket.close();
+		} finally {
+			server.close();
+		}
+	}
+
+	@Test
+	public void testCloseReleasesConnection() throws Exception {
+		ServerSocket server = new ServerSocket(0);
+		server.setSoTimeout(5000);
+		try {
+			TCPSubscriberOutputChannel tcp = new TCPSubscriberOutputChannel("tcp://localhost:" + server.getLocalPort());
+			TCPSubscriberOutputChannel other = new TCPSubscriberOutputChannel("tcp://localhost:" + server.getLocalPort());
+			int count = TcpDeliveryEngine.getInstance().getConnectionCount();
+			ECReports reports = ECElementsUtils.createECReports();
+			tcp.notify(reports);
+			other.notify(reports);
+			Assert.assertEquals(count + 1, TcpDeliveryEngine.getInstance().getConnectionCount());
+			
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			Assert.assertNotNull(reader.readLine());
+			Assert.assertNotNull(reader.readLine());
+			
+			// the connection is kept while another channel uses it
+			tcp.close();
+			Assert.assertEquals(count + 1, TcpDeliveryEngine.getInstance().getConnectionCount());
+			other.close();
+			Assert.assertEquals(count, TcpDeliveryEngine.getInstance().getConnectionCount());
+			Assert.assertNull(reader.readLine());
+			socket.close();
+			
+			try {
+				tcp.notify(reports);
+				Assert.fail("a closed channel must not deliver reports");
+			} catch (ImplementationException e) {
+				// expected
+			}
+		} finally {
+			server.close();
 		}
+	}
 
-		@Override
-		protected Socket getSocket() throws UnknownHostException, IOException {
-			return mock;
+	@Test(expected = ImplementationException.class)
+	public void testSendWithoutAcquire() throws Exception {
+		TcpDeliveryEngine engine = new TcpDeliveryEngine(1, 16, 50L, 1000L);
+		engine.send("localhost", 9999, Framing.NEWLINE, encode());
+	}
+
+	@Test
+	public void testNoReconnectWithoutPendingFrames() throws Exception {
+		ServerSocket server = new ServerSocket(0);
+		server.setSoTimeout(5000);
+		int port = server.getLocalPort();
+		TcpDeliveryEngine engine = new TcpDeliveryEngine(1, 16, 50L, 200L);
+		try {
+			engine.acquire("localhost", port, Framing.NEWLINE);
+			engine.send("localhost", port, Framing.NEWLINE, encode());
+			Socket socket = server.accept();
+			socket.setSoTimeout(5000);
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			Assert.assertNotNull(reader.readLine());
+			socket.close();
+			
+			// nothing to deliver: the engine does not redial the subscriber
+			server.setSoTimeout(1000);
+			try {
+				server.accept().close();
+				Assert.fail("reconnected without pending reports");
+			} catch (SocketTimeoutException e) {
+				// expected
+			}
+			
+			// the next report reconnects
+			server.setSoTimeout(5000);
+			engine.send("localhost", port, Framing.NEWLINE, encode());
+			socket = server.accept();
+			socket.setSoTimeout(5000);
+			reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+			Assert.assertNotNull(reader.readLine());
+			socket.close();
+			engine.release("localhost", port, Framing.NEWLINE);
+			Assert.assertEquals(0, engine.getConnectionCount());
+		} finally {
+			server.close();
 		}
 	}
+
+	@Test
+	public void testBackoffOnAcceptAndClose() throws Exception {
+		final ServerSocket server = new ServerSocket(0);
+		int port = server.getLocalPort();
+		final AtomicInteger accepted = new AtomicInteger();
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						server.accept().close();
+						accepted.incrementAndGet();
+					}
+				} catch (Exception e) {
+					// the server is closed
+				}
+			}
+		};
+		acceptor.start();
+		TcpDeliveryEngine engine = new TcpDeliveryEngine(1, 256, 100L, 10000L);
+		try {
+			engine.acquire("localhost", port, Framing.NEWLINE);
+			EncodedReports reports = encode();
+			// a steady flow of reports to a subscriber closing every connection at once
+			for (int i = 0; i < 100; i++) {
+				engine.send("localhost", port, Framing.NEWLINE, reports);
+				Thread.sleep(10);
+			}
+			// the connection attempts back off (100, 200, 400 ms...) instead of redialing with every report
+			Assert.assertTrue("connections: " + accepted.get(), accepted.get() >= 1 && accepted.get() <= 6);
+			engine.release("localhost", port, Framing.NEWLINE);
+		} finally {
+			server.close();
+			acceptor.join(5000);
+		}
+	}
+
+	private static EncodedReports encode() throws Exception {
+		return EncodedReports.of(ECElementsUtils.createECReports(), ReportFormat.XML);
+	}
 }
@@ -21,6 +21,7 @@
 package org.fosstrak.ale.server.util.test;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -28,6 +29,7 @@ import java.util.Set;
 import junit.framework.Assert;
 
 import org.easymock.EasyMock;
+import org.fosstrak.ale.server.ReportDigest;
 import org.fosstrak.ale.server.util.ECReportsHelper;
 import org.fosstrak.ale.util.DeserializerUtil;
 import org.fosstrak.ale.xsd.ale.epcglobal.ECReport;
@@ -260,4 +262,74 @@ public class ECReportsHelperTest {
 		Assert.assertEquals("theValue", set.toArray()[0]);
 		
 	}
+	
+	/**
+	 * test the copy of the header of an ECReports with another list of reports.
+	 * @throws Exception test failure.
+	 */
+	@Test
+	public void testCopyWithReports() throws Exception {
+		ECReportsHelper helper = new ECReportsHelper();
+		ECReports reports = getECReports(ECREPORTS_NULLGROUP_TWOTAGS);
+		ECReport report = reports.getReports().getReport().get(0);
+		
+		ECReports empty = helper.copyWithReports(reports, new ArrayList<ECReport> ());
+		Assert.assertEquals(reports.getSpecName(), empty.getSpecName());
+		Assert.assertEquals(reports.getALEID(), empty.getALEID());
+		Assert.assertEquals(reports.getDate(), empty.getDate());
+		Assert.assertEquals(reports.getTotalMilliseconds(), empty.getTotalMilliseconds());
+		Assert.assertEquals(reports.getTerminationCondition(), empty.getTerminationCondition());
+		Assert.assertEquals(0, empty.getReports().getReport().size());
+		// the original is not modified
+		Assert.assertEquals(1, reports.getReports().getReport().size());
+		
+		List<ECReport> list = new ArrayList<ECReport> ();
+		list.add(report);
+		ECReports copy = helper.copyWithReports(reports, list);
+		Assert.assertSame(report, copy.getReports().getReport().get(0));
+	}
+	
+	/**
+	 * test the digest based comparison, with and without strict mode.
+	 * @throws Exception test failure.
+	 */
+	@Test
+	public void testReportUnchangedByDigest() throws Exception {
+		ECReport reportTwoTags = getECReports(ECREPORTS_NULLGROUP_TWOTAGS).getReports().getReport().get(0);
+		ECReport reportNoTags = getECReports(ECREPORTS_NULLGROUP_NOTAGSINGROUP).getReports().getReport().get(0);
+		
+		ECReportOutputSpec outputSpec = EasyMock.createMock(ECReportOutputSpec.class);
+		EasyMock.expect(outputSpec.isIncludeEPC()).andReturn(true).anyTimes();
+		EasyMock.expect(outputSpec.isIncludeTag()).andReturn(true).anyTimes();
+		EasyMock.expect(outputSpec.isIncludeRawHex()).andReturn(true).anyTimes();
+		EasyMock.replay(outputSpec);
+		
+		ECReportSpec spec = EasyMock.createMock(ECReportSpec.class);
+		EasyMock.expect(spec.getOutput()).andReturn(outputSpec).anyTimes();
+		EasyMock.replay(spec);
+		
+		ReportDigest.Builder builder = new ReportDigest.Builder();
+		builder.addMember(null, "urn:epc:id:sgtin:1.2.3");
+		builder.addMember(null, "urn:epc:id:sgtin:1.2.4");
+		ReportDigest digest = builder.build();
+		builder.addMember(null, "urn:epc:id:sgtin:1.2.4");
+		builder.addMember(null, "urn:epc:id:sgtin:1.2.3");
+		ReportDigest sameDigest = builder.build();
+		builder.addMember(null, "urn:epc:id:sgtin:1.2.3");
+		ReportDigest otherDigest = builder.build();
+		
+		ECReportsHelper helper = new ECReportsHelper();
+		Assert.assertFalse(helper.isStrictReportOnlyOnChange());
+		// the digests decide, the content is not looked at
+		Assert.assertTrue(helper.isReportUnchanged(spec, reportTwoTags, reportNoTags, digest, sameDigest));
+		Assert.assertFalse(helper.isReportUnchanged(spec, reportTwoTags, reportTwoTags, digest, otherDigest));
+		Assert.assertFalse(helper.isReportUnchanged(spec, reportTwoTags, reportTwoTags, digest, null));
+		// no digest: compare the content
+		Assert.assertTrue(helper.isReportUnchanged(spec, reportTwoTags, reportTwoTags, null, null));
+		
+		// strict mode verifies a matching digest on the content
+		helper.setStrictReportOnlyOnChange(true);
+		Assert.assertFalse(helper.isReportUnchanged(spec, reportTwoTags, reportNoTags, digest, sameDigest));
+		Assert.assertTrue(helper.isReportUnchanged(spec, reportTwoTags, reportTwoTags, digest, sameDigest));
+	}
 }
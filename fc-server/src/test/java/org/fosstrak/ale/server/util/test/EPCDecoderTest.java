@@ -0,0 +1,136 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.util.test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.epcglobalinc.tdt.LevelTypeList;
+import org.fosstrak.ale.server.EPCKey;
+import org.fosstrak.ale.server.util.EPCDecoder;
+import org.fosstrak.ale.server.util.TagHelper;
+import org.fosstrak.tdt.TDTEngine;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * conformance of the native EPC decoder with the TDT engine.
+ */
+public class EPCDecoderTest {
+
+	/** the TDT engine used as reference. */
+	private static TDTEngine tdt;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		tdt = new TDTEngine();
+	}
+
+	@Test
+	public void testTagsFile() throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(EPCDecoderTest.class.getResourceAsStream("/tags.txt")));
+		List<String> tags = new ArrayList<String>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.matches("[01]{96}")) {
+				tags.add(line);
+			}
+		}
+		reader.close();
+		Assert.assertTrue(tags.size() > 0);
+
+		for (String binary : tags) {
+			Assert.assertTrue(binary, compare(binary));
+		}
+	}
+
+	@Test
+	public void testAllSchemes() throws Exception {
+		Random rand = new Random(42);
+		int[] headers = { 0x30, 0x31, 0x32, 0x33, 0x34, 0x35 };
+		for (int header : headers) {
+			int decoded = 0;
+			for (int i = 0; i < 200; i++) {
+				StringBuilder sb = new StringBuilder(96);
+				appendBits(sb, header, 8);
+				// filter and partition
+				appendBits(sb, rand.nextInt(8), 3);
+				appendBits(sb, rand.nextInt(7), 3);
+				for (int j = 14; j < 96; j++) {
+					sb.append(rand.nextBoolean() ? '1' : '0');
+				}
+				if (header == 0x31) {
+					// the last 24 bits of a SSCC-96 are unallocated
+					sb.replace(72, 96, "000000000000000000000000");
+				}
+				if (compare(sb.toString())) {
+					decoded++;
+				}
+			}
+			Assert.assertTrue("nothing decoded natively for header " + header, decoded > 0);
+		}
+	}
+
+	@Test
+	public void testUnsupported() {
+		// SGTIN-198 header
+		Assert.assertNull(EPCDecoder.decode(0x36L << 56, 0, LevelTypeList.TAG_ENCODING));
+		// invalid partition
+		Assert.assertNull(EPCDecoder.decode((0x30L << 56) | (7L << 50), 0, LevelTypeList.TAG_ENCODING));
+		Assert.assertNull(EPCDecoder.decode(0x30L << 56, 0, LevelTypeList.LEGACY));
+		Assert.assertNull(EPCDecoder.decode(EPCKey.fromBinary("0011"), LevelTypeList.TAG_ENCODING));
+	}
+
+	/**
+	 * compares the native decoder with TDT for both output levels.
+	 * @return true if the EPC was decoded natively.
+	 */
+	private boolean compare(String binary) {
+		EPCKey key = EPCKey.fromBinary(binary);
+		boolean decoded = false;
+		for (LevelTypeList level : new LevelTypeList[] { LevelTypeList.TAG_ENCODING, LevelTypeList.PURE_IDENTITY }) {
+			String expected;
+			try {
+				expected = tdt.convert(binary, TagHelper.createExtraParams("96", null, null), level);
+			} catch (Exception e) {
+				expected = null;
+			} catch (AssertionError e) {
+				// assertions within TDT are enabled in the tests
+				expected = null;
+			}
+			String actual = EPCDecoder.decode(key, level);
+			if (null != actual) {
+				Assert.assertEquals(binary + " " + level, expected, actual);
+				decoded = true;
+			}
+		}
+		return decoded;
+	}
+
+	private void appendBits(StringBuilder sb, int value, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			sb.append(((value >>> i) & 1) == 0 ? '0' : '1');
+		}
+	}
+}
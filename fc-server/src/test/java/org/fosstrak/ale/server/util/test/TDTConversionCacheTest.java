@@ -0,0 +1,80 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+package org.fosstrak.ale.server.util.test;
+
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.easymock.EasyMock;
+import org.epcglobalinc.tdt.LevelTypeList;
+import org.fosstrak.ale.server.util.TDTConversionCache;
+import org.fosstrak.ale.server.util.TagHelper;
+import org.fosstrak.tdt.TDTEngine;
+import org.junit.Test;
+
+/**
+ * verify the TDT conversion cache.
+ */
+public class TDTConversionCacheTest {
+
+	@Test
+	public void testHitsAndMisses() {
+		TDTEngine tdt = EasyMock.createMock(TDTEngine.class);
+		TDTConversionCache cache = new TDTConversionCache();
+
+		Assert.assertNull(cache.get(tdt, "0011", "96", "3", "7", LevelTypeList.TAG_ENCODING));
+		cache.put(tdt, "0011", "96", "3", "7", LevelTypeList.TAG_ENCODING, "converted");
+		Assert.assertEquals("converted", cache.get(tdt, "0011", "96", "3", "7", LevelTypeList.TAG_ENCODING));
+
+		// every parameter is part of the key
+		Assert.assertNull(cache.get(tdt, "0011", "96", "3", "7", LevelTypeList.PURE_IDENTITY));
+		Assert.assertNull(cache.get(tdt, "0011", "96", "3", null, LevelTypeList.TAG_ENCODING));
+		Assert.assertNull(cache.get(EasyMock.createMock(TDTEngine.class), "0011", "96", "3", "7", LevelTypeList.TAG_ENCODING));
+
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		Assert.assertEquals(0.2d, cache.getHitRate(), 0.0001d);
+	}
+
+	@Test
+	public void testBoundedSize() {
+		TDTEngine tdt = EasyMock.createMock(TDTEngine.class);
+		TDTConversionCache cache = new TDTConversionCache(64);
+		for (int i = 0; i < 1000; i++) {
+			cache.put(tdt, Integer.toBinaryString(i), null, null, null, LevelTypeList.TAG_ENCODING, "converted" + i);
+		}
+		Assert.assertTrue(cache.size() <= 64);
+		Assert.assertEquals(1000 - cache.size(), cache.getEvictions());
+
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testTagHelperConvertsOnce() {
+		TDTEngine tdt = EasyMock.createMock(TDTEngine.class);
+		EasyMock.expect(tdt.convert(EasyMock.eq("0011"), EasyMock.isA(Map.class), EasyMock.eq(LevelTypeList.PURE_IDENTITY))).andReturn("converted").once();
+		EasyMock.replay(tdt);
+
+		Assert.assertEquals("converted", TagHelper.convert_to_PURE_IDENTITY("96", "3", "7", "0011", tdt));
+		Assert.assertEquals("converted", TagHelper.convert_to_PURE_IDENTITY("96", "3", "7", "0011", tdt));
+		EasyMock.verify(tdt);
+	}
+}
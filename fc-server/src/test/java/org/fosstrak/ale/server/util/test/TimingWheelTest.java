@@ -0,0 +1,95 @@
+/*
+ * This file is part of Fosstrak (www.fosstrak.org).
+ *
+ * Fosstrak is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License version 2.1, as published by the Free Software Foundation.
+ *
+ * Fosstrak is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Fosstrak; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin Street, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.fosstrak.ale.server.util.test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.fosstrak.ale.server.util.TimingWheel;
+import org.junit.Test;
+
+/**
+ * test the timing wheel: timeouts spread over several levels expire not before
+ * their delay, cancelled timeouts do not expire.
+ */
+public class TimingWheelTest {
+
+	/** runs the tasks on the thread of the wheel. */
+	private static final Executor DIRECT = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	@Test
+	public void testExpireOverSeveralLevels() throws Exception {
+		// a tick of 1ms: 64ms per level 0 turn, the longer delays go through the upper levels
+		TimingWheel wheel = new TimingWheel("TimingWheelTest", 1L, DIRECT);
+		final long[] delays = new long[] { 0L, 5L, 63L, 64L, 130L, 700L, 4100L };
+		final CountDownLatch latch = new CountDownLatch(delays.length);
+		final ConcurrentHashMap<Long, Long> firedAfter = new ConcurrentHashMap<Long, Long>();
+		final long start = System.nanoTime();
+		for (final long delay : delays) {
+			wheel.schedule(new Runnable() {
+				@Override
+				public void run() {
+					firedAfter.put(delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					latch.countDown();
+				}
+			}, delay);
+		}
+		Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		for (long delay : delays) {
+			Assert.assertTrue("fired early: " + delay, firedAfter.get(delay) >= delay);
+		}
+		Assert.assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		TimingWheel wheel = new TimingWheel("TimingWheelTest", 1L, DIRECT);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		final CountDownLatch kept = new CountDownLatch(1);
+		TimingWheel.Timeout timeout = wheel.schedule(new Runnable() {
+			@Override
+			public void run() {
+				cancelled.countDown();
+			}
+		}, 100L);
+		wheel.schedule(new Runnable() {
+			@Override
+			public void run() {
+				kept.countDown();
+			}
+		}, 150L);
+		Assert.assertEquals(2, wheel.size());
+		Assert.assertTrue(timeout.cancel());
+		Assert.assertTrue(timeout.isCancelled());
+		Assert.assertEquals(1, wheel.size());
+
+		Assert.assertTrue(kept.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, cancelled.getCount());
+		Assert.assertFalse(timeout.isExpired());
+	}
+}